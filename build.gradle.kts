@@ -3,9 +3,14 @@ plugins {
     `maven-publish`
     signing
     jacoco
+    id("me.champeau.gradle.jmh") version "0.5.3"
 }
 
 val junitVersion = "5.6.2"
+val jettyVersion = "9.4.31.v20200723"
+
+// JDK to compile the Java 21 variants of the multi-release JAR, e.g. -Pjava21Home=/path/to/jdk-21
+val java21Home = (findProperty("java21Home") as String?) ?: System.getenv("JAVA_HOME_21_X64")
 
 group = "io.github.kaginawa"
 version = "0.2.0"
@@ -14,21 +19,50 @@ repositories {
     mavenCentral()
 }
 
+val java21: SourceSet by sourceSets.creating {
+    java.setSrcDirs(listOf("src/main/java21"))
+}
+
 dependencies {
-    implementation("jakarta.json.bind:jakarta.json.bind-api:1.0.2")
-    runtimeOnly("org.eclipse:yasson:1.0.8")
+    compileOnly("jakarta.json.bind:jakarta.json.bind-api:1.0.2")
+    testImplementation("jakarta.json.bind:jakarta.json.bind-api:1.0.2")
+    testRuntimeOnly("org.eclipse:yasson:1.0.8")
     testImplementation("org.junit.jupiter:junit-jupiter-api:$junitVersion")
     testImplementation("org.junit.jupiter:junit-jupiter-params:$junitVersion")
-    testImplementation("org.mockito:mockito-junit-jupiter:3.4.6")
     testRuntimeOnly("org.junit.jupiter:junit-jupiter-engine:$junitVersion")
+    jmh("org.eclipse.jetty:jetty-server:$jettyVersion")
+    jmh("org.eclipse.jetty.http2:http2-server:$jettyVersion")
 }
 
 tasks {
     withType<JavaCompile> {
+        options.encoding = "UTF-8"
         options.compilerArgs = listOf("--module-path", classpath.asPath)
     }
 
+    named<JavaCompile>("compileJava21Java") {
+        onlyIf { java21Home != null }
+        options.compilerArgs = listOf()
+        options.release.set(21)
+        options.isFork = true
+        options.forkOptions.javaHome = java21Home?.let { file(it) }
+    }
+
+    jar {
+        if (java21Home != null) {
+            into("META-INF/versions/21") {
+                from(java21.output)
+            }
+            manifest {
+                attributes("Multi-Release" to "true")
+            }
+        } else {
+            logger.warn("java21Home is not set; building a JAR without the Java 21 variants")
+        }
+    }
+
     withType<Javadoc> {
+        options.encoding = "UTF-8"
         options.locale = "en_US"
         options.modulePath = classpath.toList()
         (options as StandardJavadocDocletOptions).apply {
@@ -50,6 +84,11 @@ tasks {
     }
 }
 
+jmh {
+    jmhVersion = "1.26"
+    includeTests = true
+}
+
 configurations {
     implementation {
         resolutionStrategy.failOnVersionConflict()
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import io.github.kaginawa.sdk.spi.JsonCodec;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.json.bind.Jsonb;
+import javax.json.bind.JsonbBuilder;
+import javax.json.bind.JsonbConfig;
+import javax.json.bind.config.PropertyNamingStrategy;
+import javax.json.bind.config.PropertyVisibilityStrategy;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares a fleet snapshot round trip through JSON-B with the full and the delta modes of
+ * {@link BinaryReportCodec}.
+ * <p>
+ * The fleet is the synthetic one of {@link StringPoolBenchmark}. The next snapshot changes the sequence, times and
+ * round-trip time of every tenth report, which the delta mode encodes against the previous snapshot. {@code encode}
+ * and {@code decode} measure the time per snapshot; {@code size} reports in secondary scores the encoded bytes per
+ * report.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+public class BinaryReportCodecBenchmark {
+    @Param({"jsonb", "binary", "delta"})
+    private String format;
+
+    @Param({"10000"})
+    private int reports;
+
+    private Jsonb jsonb;
+    private JsonCodec jsonbCodec;
+    private List<Report> base;
+    private List<Report> snapshot;
+    private byte[] encoded;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Size {
+        public double bytesPerReport;
+    }
+
+    @Setup
+    public void setUp() throws Exception {
+        var fleet = StringPoolBenchmark.fleet(reports);
+        base = JsonDecoder.decodeReports(fleet, 0, fleet.length);
+        snapshot = JsonDecoder.decodeReports(fleet, 0, fleet.length);
+        for (int i = 0; i < reports; i += 10) {
+            var report = snapshot.get(i);
+            report.sequence++;
+            report.deviceTime += 600;
+            report.serverTime += 600;
+            report.rttMillis += i % 7;
+        }
+        jsonb = JsonbBuilder.create(new JsonbConfig()
+                .withPropertyNamingStrategy(PropertyNamingStrategy.LOWER_CASE_WITH_UNDERSCORES)
+                .withPropertyVisibilityStrategy(new PropertyVisibilityStrategy() {
+                    @Override
+                    public boolean isVisible(Field field) {
+                        return true;
+                    }
+
+                    @Override
+                    public boolean isVisible(Method method) {
+                        return false;
+                    }
+                }));
+        jsonbCodec = new JsonbCodec.Provider().create();
+        encoded = encode();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3, time = 5)
+    @Measurement(iterations = 5, time = 5)
+    public byte[] encode() {
+        switch (format) {
+            case "jsonb":
+                return jsonb.toJson(snapshot).getBytes(StandardCharsets.UTF_8);
+            case "binary":
+                return BinaryReportCodec.encode(snapshot);
+            default:
+                return BinaryReportCodec.encodeDelta(base, snapshot);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3, time = 5)
+    @Measurement(iterations = 5, time = 5)
+    public List<Report> decode() throws IOException {
+        switch (format) {
+            case "jsonb":
+                return jsonbCodec.decodeReports(encoded, 0, encoded.length);
+            case "binary":
+                return BinaryReportCodec.decode(encoded);
+            default:
+                return BinaryReportCodec.decode(base, encoded);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 1)
+    public byte[] size(Size size) {
+        var data = encode();
+        size.bytesPerReport = (double) data.length / reports;
+        return data;
+    }
+}
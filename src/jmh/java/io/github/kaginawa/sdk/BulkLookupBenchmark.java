@@ -0,0 +1,100 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares wall-clock time of looking up a batch of nodes with a sequential {@link KaginawaClient#findNodeById}
+ * loop against {@link KaginawaClient#findNodesByIds} with bounded parallelism, while the server latency is simulated.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BulkLookupBenchmark {
+    @Param({"200"})
+    private int ids;
+
+    @Param({"20"})
+    private int latencyMillis;
+
+    @Param({"8", "32", "128"})
+    private int concurrency;
+
+    private StubServer server;
+    private KaginawaClient client;
+    private List<String> idList;
+
+    @Setup
+    public void setUp() throws IOException, URISyntaxException {
+        var node = Files.readString(Paths.get(getClass().getResource("/node.json").toURI()));
+        server = StubServer.start()
+                .latency(Duration.ofMillis(latencyMillis))
+                .handle("/nodes", exchange -> StubServer.respond(exchange, 200, node));
+        client = new KaginawaClient(server.getEndpoint(), "12345");
+        idList = new ArrayList<>();
+        for (int i = 0; i < ids; i++) {
+            idList.add(String.format("b8:27:eb:00:%02x:%02x", i / 256, i % 256));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.close();
+    }
+
+    @Benchmark
+    public List<Report> sequentialLoop() throws KaginawaServerException {
+        var reports = new ArrayList<Report>(idList.size());
+        for (var id : idList) {
+            reports.add(client.findNodeById(id));
+        }
+        return reports;
+    }
+
+    @Benchmark
+    public BulkResult<Report> findNodesByIds() throws KaginawaServerException {
+        var result = client.findNodesByIds(idList, concurrency);
+        if (!result.isSuccess()) {
+            throw new UncheckedIOException(new IOException("unexpected failures: " + result.getFailures()));
+        }
+        return result;
+    }
+}
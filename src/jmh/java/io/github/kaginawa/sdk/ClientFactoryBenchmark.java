@@ -0,0 +1,108 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the cost of a client built on its own with that of a client created by a
+ * {@link KaginawaClientFactory}.
+ * <p>
+ * {@code construct} measures the time to create a client. {@code retain} creates {@value #CLIENTS} clients, keeps
+ * them reachable and reports in secondary scores the heap retained by each client after a full GC and the threads
+ * started per client. No request is sent.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+public class ClientFactoryBenchmark {
+    private static final int CLIENTS = 200;
+
+    @Param({"builder", "factory"})
+    private String mode;
+
+    private KaginawaClientFactory factory;
+    private int sequence;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+        public long retainedBytesPerClient;
+        public double threadsPerClient;
+    }
+
+    @Setup
+    public void setUp() {
+        factory = KaginawaClient.Builder.newBuilder().buildFactory();
+    }
+
+    private KaginawaClient newClient() {
+        var endpoint = "https://tenant" + (sequence++ % CLIENTS) + ".example.com";
+        if (mode.equals("factory")) {
+            return factory.newClient(endpoint, "12345");
+        }
+        return KaginawaClient.Builder.newBuilder().endpoint(endpoint).apiKey("12345").build();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 3, time = 5)
+    @Measurement(iterations = 5, time = 5)
+    public KaginawaClient construct() {
+        return newClient();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public List<KaginawaClient> retain(Footprint footprint) {
+        var threads = Thread.activeCount();
+        var heap = usedHeap();
+        var clients = new ArrayList<KaginawaClient>(CLIENTS);
+        for (int i = 0; i < CLIENTS; i++) {
+            clients.add(newClient());
+        }
+        footprint.retainedBytesPerClient = (usedHeap() - heap) / CLIENTS;
+        footprint.threadsPerClient = (double) (Thread.activeCount() - threads) / CLIENTS;
+        return clients;
+    }
+
+    private static long usedHeap() {
+        var runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import io.github.kaginawa.sdk.spi.Transport;
+import io.github.kaginawa.sdk.spi.TransportRequest;
+import io.github.kaginawa.sdk.spi.TransportResponse;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures server requests saved by request coalescing under a hot-key workload.
+ * <p>
+ * 32 threads call {@link KaginawaClient#findNodeById} where {@code hotRatio} of the calls target the same node and
+ * the rest are spread over 1,000 other nodes. The score is calls per second, and the secondary score
+ * {@code serverRequests} is the rate of requests that actually reached the server; their ratio is the number of
+ * server requests per call.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(32)
+@Fork(1)
+public class CoalescingBenchmark {
+    private static final String HOT_ID = "b8:27:eb:73:90:9f";
+    private static final ThreadLocal<Counters> COUNTERS = new ThreadLocal<>();
+
+    @Param({"false", "true"})
+    private boolean coalescing;
+
+    @Param({"0.9"})
+    private double hotRatio;
+
+    @Param({"5"})
+    private int latencyMillis;
+
+    private StubServer server;
+    private KaginawaClient client;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+        public long serverRequests;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            serverRequests = 0;
+            COUNTERS.set(this); // blocking calls send their requests on the calling thread
+        }
+    }
+
+    @Setup
+    public void setUp() throws IOException, URISyntaxException {
+        var node = Files.readString(Paths.get(getClass().getResource("/node.json").toURI()));
+        server = StubServer.start()
+                .latency(Duration.ofMillis(latencyMillis))
+                .handle("/nodes", exchange -> StubServer.respond(exchange, 200, node));
+        var transport = new JdkTransport(HttpClient.newHttpClient());
+        client = KaginawaClient.Builder.newBuilder()
+                .endpoint(server.getEndpoint())
+                .apiKey("12345")
+                .transport(new Transport() {
+                    @Override
+                    public TransportResponse send(TransportRequest request)
+                            throws IOException, InterruptedException {
+                        COUNTERS.get().serverRequests++;
+                        return transport.send(request);
+                    }
+
+                    @Override
+                    public CompletableFuture<TransportResponse> sendAsync(TransportRequest request) {
+                        return transport.sendAsync(request);
+                    }
+                })
+                .coalescing(coalescing)
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.close();
+    }
+
+    @Benchmark
+    public Report findNodeById(Counters counters) throws KaginawaServerException {
+        var random = ThreadLocalRandom.current();
+        var id = random.nextDouble() < hotRatio ? HOT_ID : String.format("b8:27:eb:00:%04x", random.nextInt(1000));
+        return client.findNodeById(id);
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local HTTP/1.1 server that answers every request with the same body after a fixed delay, for transport
+ * benchmarks.
+ * <p>
+ * Unlike the latency of {@link StubServer}, which keeps a handler busy, the delay here models the round trip of a
+ * network: each response is due a fixed time after its request arrives, regardless of the other requests on the
+ * same connection, so pipelined requests overlap their delays as they would on a real network.
+ * </p>
+ */
+public class DelayingStubServer implements AutoCloseable {
+    private final ServerSocket server;
+    private final byte[] response;
+    private final long delayNanos;
+
+    /**
+     * Starts a server on an ephemeral loopback port.
+     *
+     * @param body          response body
+     * @param latencyMillis delay of every response
+     * @throws IOException if the server fails to start
+     */
+    public DelayingStubServer(byte[] body, long latencyMillis) throws IOException {
+        var head = "HTTP/1.1 200 OK\r\nContent-Type: application/json\r\nContent-Length: " + body.length + "\r\n\r\n";
+        var headBytes = head.getBytes(StandardCharsets.US_ASCII);
+        this.response = new byte[headBytes.length + body.length];
+        System.arraycopy(headBytes, 0, response, 0, headBytes.length);
+        System.arraycopy(body, 0, response, headBytes.length, body.length);
+        this.delayNanos = TimeUnit.MILLISECONDS.toNanos(latencyMillis);
+        this.server = new ServerSocket(0, 1024, InetAddress.getLoopbackAddress());
+        daemon(this::accept, "delaying-stub-server");
+    }
+
+    private void accept() {
+        while (!server.isClosed()) {
+            try {
+                var socket = server.accept();
+                socket.setTcpNoDelay(true);
+                var due = new LinkedBlockingQueue<Long>();
+                daemon(() -> read(socket, due), "delaying-stub-reader");
+                daemon(() -> write(socket, due), "delaying-stub-writer");
+            } catch (IOException e) {
+                return; // closed
+            }
+        }
+    }
+
+    private void read(Socket socket, BlockingQueue<Long> due) {
+        try (var in = new BufferedInputStream(socket.getInputStream())) {
+            while (true) {
+                var contentLength = readHead(in);
+                if (contentLength < 0) {
+                    break;
+                }
+                in.readNBytes(contentLength);
+                due.add(System.nanoTime() + delayNanos);
+            }
+        } catch (IOException e) {
+            // connection closed
+        } finally {
+            due.add(-1L);
+        }
+    }
+
+    private void write(Socket socket, BlockingQueue<Long> due) {
+        try (socket; OutputStream out = socket.getOutputStream()) {
+            while (true) {
+                long at = due.take();
+                if (at == -1L) {
+                    return;
+                }
+                var wait = at - System.nanoTime();
+                if (wait > 0) {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                }
+                out.write(response);
+                if (due.isEmpty()) {
+                    out.flush();
+                }
+            }
+        } catch (IOException | InterruptedException e) {
+            // connection closed
+        }
+    }
+
+    /**
+     * Reads request headers.
+     *
+     * @param in input
+     * @return content length of the request, or {@code -1} at the end of the stream
+     * @throws IOException if an I/O error occurs
+     */
+    private static int readHead(InputStream in) throws IOException {
+        var line = new StringBuilder();
+        int contentLength = 0;
+        boolean started = false;
+        while (true) {
+            int c = in.read();
+            if (c < 0) {
+                return -1;
+            }
+            if (c != '\n') {
+                if (c != '\r') {
+                    line.append((char) c);
+                }
+                continue;
+            }
+            if (line.length() == 0) {
+                if (started) {
+                    return contentLength;
+                }
+                continue;
+            }
+            started = true;
+            var header = line.toString();
+            if (header.regionMatches(true, 0, "Content-Length:", 0, 15)) {
+                contentLength = Integer.parseInt(header.substring(15).trim());
+            }
+            line.setLength(0);
+        }
+    }
+
+    private static void daemon(Runnable task, String name) {
+        var thread = new Thread(task, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Returns the endpoint URL of this server.
+     *
+     * @return endpoint
+     */
+    public String getEndpoint() {
+        return "http://127.0.0.1:" + server.getLocalPort();
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+    }
+}
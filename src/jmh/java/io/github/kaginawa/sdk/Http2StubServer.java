@@ -0,0 +1,91 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import org.eclipse.jetty.http2.server.HTTP2CServerConnectionFactory;
+import org.eclipse.jetty.server.HttpConfiguration;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Local HTTP server that speaks both HTTP/1.1 and cleartext HTTP/2 (h2c), for transport benchmarks.
+ * <p>
+ * {@link StubServer} is HTTP/1.1 only, so benchmarks comparing protocol versions use this server instead.
+ * </p>
+ */
+public class Http2StubServer implements AutoCloseable {
+    private final Server server;
+    private final ServerConnector connector;
+
+    /**
+     * Starts a server on an ephemeral loopback port that responds the given body to every request.
+     *
+     * @param body          response body
+     * @param latencyMillis latency injected before every response
+     * @throws Exception if the server fails to start
+     */
+    public Http2StubServer(byte[] body, long latencyMillis) throws Exception {
+        server = new Server(new QueuedThreadPool(1024));
+        var config = new HttpConfiguration();
+        var h2c = new HTTP2CServerConnectionFactory(config);
+        h2c.setMaxConcurrentStreams(1024);
+        connector = new ServerConnector(server, new HttpConnectionFactory(config), h2c);
+        connector.setHost("127.0.0.1");
+        connector.setPort(0);
+        server.addConnector(connector);
+        server.setHandler(new AbstractHandler() {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request,
+                               HttpServletResponse response) throws IOException {
+                if (latencyMillis > 0) {
+                    try {
+                        Thread.sleep(latencyMillis);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                response.setStatus(200);
+                response.setContentType("application/json");
+                response.setContentLength(body.length);
+                response.getOutputStream().write(body);
+                baseRequest.setHandled(true);
+            }
+        });
+        server.start();
+    }
+
+    /**
+     * Returns the endpoint URL of this server.
+     *
+     * @return endpoint
+     */
+    public String getEndpoint() {
+        return "http://127.0.0.1:" + connector.getLocalPort();
+    }
+
+    @Override
+    public void close() throws Exception {
+        server.stop();
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import io.github.kaginawa.sdk.spi.JsonCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ranks the JSON codecs by the time to decode a list of reports and a single report.
+ * <p>
+ * Run with {@code -prof gc} and read {@code gc.alloc.rate.norm}, the bytes allocated per operation. Add a codec
+ * discovered through {@link java.util.ServiceLoader} to the benchmark by its name with {@code -p codec=...}.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class JsonCodecBenchmark {
+    @Param({"builtin", "jsonb"})
+    private String codec;
+
+    @Param({"100"})
+    private int reports;
+
+    private JsonCodec jsonCodec;
+    private byte[] node;
+    private byte[] list;
+
+    @Setup
+    public void setUp() throws Exception {
+        var json = Files.readString(Paths.get(getClass().getResource("/node.json").toURI())).strip();
+        var builder = new StringBuilder("[");
+        for (int i = 0; i < reports; i++) {
+            builder.append(i == 0 ? "" : ",").append(json);
+        }
+        node = json.getBytes(StandardCharsets.UTF_8);
+        list = builder.append(']').toString().getBytes(StandardCharsets.UTF_8);
+        jsonCodec = KaginawaClient.Builder.newBuilder()
+                .endpoint("http://localhost:8080")
+                .apiKey("12345")
+                .jsonCodec(codec)
+                .build()
+                .getJsonCodec();
+    }
+
+    @Benchmark
+    public List<Report> decodeReports() throws IOException {
+        return jsonCodec.decodeReports(list, 0, list.length);
+    }
+
+    @Benchmark
+    public Report decodeReport() throws IOException {
+        return jsonCodec.decodeReport(node, 0, node.length);
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the {@code nio} transport, which pipelines requests on a fixed number of connections, with the
+ * {@code jdk} transport on HTTP/1.1, which opens a connection per concurrent request.
+ * <p>
+ * Each invocation issues {@value #BATCH} concurrent {@link KaginawaClient#findNodeByIdAsync} calls to a
+ * {@link DelayingStubServer} and waits for all of them. Scores are per request: run with {@code -prof gc} and read
+ * {@code gc.alloc.rate.norm} for the bytes allocated per request.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class PipeliningBenchmark {
+    private static final int BATCH = 64;
+
+    @Param({"jdk", "nio"})
+    private String transport;
+
+    @Param({"4"})
+    private int maxConnections;
+
+    @Param({"5"})
+    private int latencyMillis;
+
+    private DelayingStubServer server;
+    private KaginawaClient client;
+
+    @Setup
+    public void setUp() throws Exception {
+        var node = Files.readAllBytes(Paths.get(getClass().getResource("/node.json").toURI()));
+        server = new DelayingStubServer(node, latencyMillis);
+        client = KaginawaClient.Builder.newBuilder()
+                .endpoint(server.getEndpoint())
+                .apiKey("12345")
+                .transport(transport)
+                .version(HttpClient.Version.HTTP_1_1)
+                .maxConnections(maxConnections)
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        server.close();
+    }
+
+    @Benchmark
+    public Report findNodeById() throws KaginawaServerException {
+        return client.findNodeById("b8:27:eb:73:90:9f");
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int findNodeByIdAsync() {
+        var futures = new CompletableFuture<?>[BATCH];
+        for (int i = 0; i < BATCH; i++) {
+            futures[i] = client.findNodeByIdAsync("b8:27:eb:73:90:9f");
+        }
+        CompletableFuture.allOf(futures).join();
+        return BATCH;
+    }
+}
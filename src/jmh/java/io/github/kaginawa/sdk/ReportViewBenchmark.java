@@ -0,0 +1,126 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import io.github.kaginawa.sdk.spi.Transport;
+import io.github.kaginawa.sdk.spi.TransportRequest;
+import io.github.kaginawa.sdk.spi.TransportResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares decoding a fleet list eagerly with {@code builtin} and into views with {@code lazy}, reading a few
+ * fields or all fields of every report.
+ * <p>
+ * The list is retrieved by {@link KaginawaClient#listNodesByCustomId(String)} from a transport answering in memory,
+ * so that the scores include reading the response body as the client does.
+ * </p>
+ * <p>
+ * Run with {@code -prof gc} and read {@code gc.alloc.rate.norm}, the bytes allocated per operation.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ReportViewBenchmark {
+    @Param({"builtin", "lazy"})
+    private String codec;
+
+    @Param({"10000"})
+    private int reports;
+
+    private KaginawaClient client;
+
+    @Setup
+    public void setUp() throws Exception {
+        var node = Files.readString(Paths.get(getClass().getResource("/node.json").toURI())).strip();
+        var builder = new StringBuilder("[");
+        for (int i = 0; i < reports; i++) {
+            builder.append(i == 0 ? "" : ",").append(node.replace("b8:27:eb:73:90:9f", String.format("%017x", i)));
+        }
+        var list = builder.append(']').toString().getBytes(StandardCharsets.UTF_8);
+        client = KaginawaClient.Builder.newBuilder()
+                .endpoint("http://localhost:8080")
+                .apiKey("12345")
+                .jsonCodec(codec)
+                .transport(new Transport() {
+                    @Override
+                    public TransportResponse send(TransportRequest request) {
+                        return InMemoryTransport.response(200, list);
+                    }
+
+                    @Override
+                    public CompletableFuture<TransportResponse> sendAsync(TransportRequest request) {
+                        return CompletableFuture.completedFuture(InMemoryTransport.response(200, list));
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * Reads the fields most consumers of fleet lists read.
+     */
+    @Benchmark
+    public long selectiveAccess() throws KaginawaServerException {
+        long sum = 0;
+        for (var report : client.listNodesByCustomId("fleet")) {
+            sum += report.getId().length() + report.getServerTimeAsLong() + (report.isSuccess() ? 1 : 0);
+        }
+        return sum;
+    }
+
+    /**
+     * Reads every field, the worst case of the views.
+     */
+    @Benchmark
+    public long fullAccess() throws KaginawaServerException {
+        long sum = 0;
+        for (var report : client.listNodesByCustomId("fleet")) {
+            sum += report.getId().length() + report.getTrigger() + (report.isSuccess() ? 1 : 0)
+                    + report.getRuntime().length() + report.getSequence() + report.getDeviceTimeAsLong()
+                    + report.getBootTimeAsLong() + report.getGenMillis() + report.getAgentVersion().length()
+                    + report.getCustomId().length() + report.getSshServerHost().length() + report.getSshRemotePort()
+                    + report.getSshConnectTimeAsLong() + report.getAdapter().length()
+                    + report.getLocalIpV4().length() + report.getLocalIpV6().length() + report.getHostname().length()
+                    + report.getRttMillis() + report.getUploadKbps() + report.getDownloadKbps()
+                    + report.getDiskTotalBytes() + report.getDiskUsedBytes() + report.getDiskLabel().length()
+                    + report.getDiskFilesystem().length() + report.getDiskMountPoint().length()
+                    + report.getDiskDevice().length() + report.getUsbDevices().size()
+                    + report.getBdLocalDevices().size() + report.getKernelVersion().length()
+                    + report.getErrors().size() + report.getGlobalIp().length() + report.getGlobalHost().length()
+                    + report.getServerTimeAsLong();
+        }
+        return sum;
+    }
+}
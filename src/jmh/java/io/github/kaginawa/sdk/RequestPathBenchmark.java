@@ -0,0 +1,90 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import io.github.kaginawa.sdk.spi.Transport;
+import io.github.kaginawa.sdk.spi.TransportRequest;
+import io.github.kaginawa.sdk.spi.TransportResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the per-call overhead of the client itself: building the path, the URI and the request, passing it
+ * through the policies and reading the response.
+ * <p>
+ * The transport answers an empty list in memory without recording requests, so that decoding and the network do
+ * not hide the request path. Run with {@code -prof gc} and read {@code gc.alloc.rate.norm}, the bytes allocated per
+ * operation.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class RequestPathBenchmark {
+    private static final byte[] EMPTY_LIST = "[]".getBytes(StandardCharsets.UTF_8);
+
+    private KaginawaClient client;
+
+    @Setup
+    public void setUp() {
+        client = KaginawaClient.Builder.newBuilder()
+                .endpoint("http://localhost:8080")
+                .apiKey("12345")
+                .transport(new Transport() {
+                    @Override
+                    public TransportResponse send(TransportRequest request) {
+                        return InMemoryTransport.response(200, EMPTY_LIST);
+                    }
+
+                    @Override
+                    public CompletableFuture<TransportResponse> sendAsync(TransportRequest request) {
+                        return CompletableFuture.completedFuture(InMemoryTransport.response(200, EMPTY_LIST));
+                    }
+                })
+                .build();
+    }
+
+    @Benchmark
+    public List<Report> listNodesByCustomId() throws KaginawaServerException {
+        return client.listNodesByCustomId("test-rpi");
+    }
+
+    @Benchmark
+    public List<Report> listHistories() throws KaginawaServerException {
+        return client.listHistories("b8:27:eb:73:90:9f", 1591270237, 1591356637);
+    }
+
+    @Benchmark
+    public List<Report> listHistoriesAsync() {
+        return client.listHistoriesAsync("b8:27:eb:73:90:9f", 1591270237, 1591356637).join();
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import io.github.kaginawa.sdk.spi.Transport;
+import io.github.kaginawa.sdk.spi.TransportRequest;
+import io.github.kaginawa.sdk.spi.TransportResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the decode-time overhead of pooling the low-cardinality fields of a synthetic fleet list, without a
+ * pool and with a pool of each eviction policy.
+ * <p>
+ * Every report of the fleet has its own id, hostname and addresses, and picks its runtime, agent version, kernel
+ * version, disk filesystem and mount point, adapter, SSH server host and errors from a few values each. The list
+ * is retrieved by {@link KaginawaClient#listNodesByCustomId(String)} from a transport answering in memory.
+ * </p>
+ * <p>
+ * Run with {@code -prof gc} and read {@code gc.alloc.rate.norm}, the bytes allocated per operation. The heap
+ * retained by the decoded list is smaller by the copies the pool saves, which the allocation rate includes.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class StringPoolBenchmark {
+    private static final String[] RUNTIMES = {"linux arm", "linux arm64", "linux amd64"};
+    private static final String[] AGENT_VERSIONS = {"v0.0.7", "v0.0.8", "v0.1.0", "v0.1.1"};
+    private static final String[] KERNEL_VERSIONS = {"4.19.118-v7+", "5.4.51-v7l+", "5.4.0-42-generic"};
+    private static final String[] FILESYSTEMS = {"ext4", "xfs", "btrfs"};
+    private static final String[] MOUNT_POINTS = {"/", "/data"};
+    private static final String[] ADAPTERS = {"eth0", "wlan0", "enp3s0"};
+    private static final String[] SSH_SERVER_HOSTS = {"ssh1.example.com", "ssh2.example.com"};
+    private static final String[] ERRORS = {"", "\"disk: no such device\"",
+            "\"speed test: timeout\", \"disk: no such device\""};
+
+    @Param({"disabled", "NONE", "REPLACE"})
+    private String pool;
+
+    @Param({"50000"})
+    private int reports;
+
+    private KaginawaClient client;
+
+    /**
+     * Generates the JSON of a synthetic fleet list.
+     *
+     * @param reports number of reports
+     * @return UTF-8 JSON array
+     * @throws IOException        if node.json cannot be read
+     * @throws URISyntaxException if node.json cannot be located
+     */
+    static byte[] fleet(int reports) throws IOException, URISyntaxException {
+        var node = Files.readString(Paths.get(StringPoolBenchmark.class.getResource("/node.json").toURI())).strip();
+        var builder = new StringBuilder("[");
+        for (int i = 0; i < reports; i++) {
+            builder.append(i == 0 ? "" : ",").append(node
+                    .replace("b8:27:eb:73:90:9f", String.format("%017x", i))
+                    .replace("test-rpi.local", "node-" + i + ".local")
+                    .replace("192.168.1.10", "10.0." + i / 256 % 256 + "." + i % 256)
+                    .replace("linux arm", RUNTIMES[i % RUNTIMES.length])
+                    .replace("v0.0.7", AGENT_VERSIONS[i % AGENT_VERSIONS.length])
+                    .replace("example.com", SSH_SERVER_HOSTS[i % SSH_SERVER_HOSTS.length])
+                    .replace("eth0", ADAPTERS[i % ADAPTERS.length])
+                    .replace("ext4", FILESYSTEMS[i % FILESYSTEMS.length])
+                    .replace("\"disk_mount_point\": \"/\"",
+                            "\"disk_mount_point\": \"" + MOUNT_POINTS[i % MOUNT_POINTS.length] + "\"")
+                    .replace("\"server_time\"", "\"kernel_version\": \"" + KERNEL_VERSIONS[i % KERNEL_VERSIONS.length]
+                            + "\", \"errors\": [" + ERRORS[i % ERRORS.length] + "], \"server_time\""));
+        }
+        return builder.append(']').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Setup
+    public void setUp() throws Exception {
+        var list = fleet(reports);
+        var builder = KaginawaClient.Builder.newBuilder()
+                .endpoint("http://localhost:8080")
+                .apiKey("12345")
+                .transport(new Transport() {
+                    @Override
+                    public TransportResponse send(TransportRequest request) {
+                        return InMemoryTransport.response(200, list);
+                    }
+
+                    @Override
+                    public CompletableFuture<TransportResponse> sendAsync(TransportRequest request) {
+                        return CompletableFuture.completedFuture(InMemoryTransport.response(200, list));
+                    }
+                });
+        if (!pool.equals("disabled")) {
+            builder.stringPool(StringPoolPolicy.Builder.newBuilder()
+                    .eviction(StringPoolPolicy.Eviction.valueOf(pool))
+                    .build());
+        }
+        client = builder.build();
+    }
+
+    @Benchmark
+    public List<Report> decode() throws KaginawaServerException {
+        return client.listNodesByCustomId("fleet");
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares throughput of HTTP/1.1 and HTTP/2 transports at different numbers of concurrent calls.
+ * <p>
+ * Each invocation issues {@code concurrency} concurrent {@link KaginawaClient#findNodeByIdAsync} calls and waits
+ * for all of them. The primary score is batches per second; the {@code requests} secondary score is requests per
+ * second.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class TransportBenchmark {
+    @Param({"HTTP_1_1", "HTTP_2"})
+    private String version;
+
+    @Param({"1", "16", "256"})
+    private int concurrency;
+
+    @Param({"5"})
+    private int latencyMillis;
+
+    private Http2StubServer server;
+    private KaginawaClient client;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+        public long requests;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            requests = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() throws Exception {
+        var node = Files.readAllBytes(Paths.get(getClass().getResource("/node.json").toURI()));
+        server = new Http2StubServer(node, latencyMillis);
+        client = KaginawaClient.Builder.newBuilder()
+                .endpoint(server.getEndpoint())
+                .apiKey("12345")
+                .version(HttpClient.Version.valueOf(version))
+                .connectTimeout(Duration.ofSeconds(5))
+                .requestTimeout(Duration.ofSeconds(30))
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        server.close();
+    }
+
+    @Benchmark
+    public void findNodeById(Counters counters) {
+        var futures = new CompletableFuture<?>[concurrency];
+        for (int i = 0; i < concurrency; i++) {
+            futures[i] = client.findNodeByIdAsync("b8:27:eb:73:90:9f");
+        }
+        CompletableFuture.allOf(futures).join();
+        counters.requests += concurrency;
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares transports chosen by provider name on identical workloads: the same requests against the same
+ * responses, through the same client pipeline.
+ * <p>
+ * Network transports talk to a local {@link StubServer}; the {@code in-memory} transport answers the same body
+ * without a network, which isolates the overhead of the client itself. Any other provider on the class path can be
+ * compared with {@code -p transport=<name>}, and allocation rates with {@code -prof gc}.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class TransportProviderBenchmark {
+    @Param({"jdk", "nio", "in-memory"})
+    private String transport;
+
+    @Param({"64"})
+    private int concurrency;
+
+    private StubServer server;
+    private KaginawaClient client;
+
+    @Setup
+    public void setUp() throws IOException, URISyntaxException {
+        var node = Files.readString(Paths.get(getClass().getResource("/node.json").toURI()));
+        server = StubServer.start().handle("/nodes", exchange -> StubServer.respond(exchange, 200, node));
+        InMemoryTransport.route(server.getEndpoint(),
+                InMemoryTransport.respond(200, node.getBytes(StandardCharsets.UTF_8)));
+        client = KaginawaClient.Builder.newBuilder()
+                .endpoint(server.getEndpoint())
+                .apiKey("12345")
+                .transport(transport)
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        InMemoryTransport.unroute(server.getEndpoint());
+        server.close();
+    }
+
+    @Benchmark
+    public Report findNodeById() throws KaginawaServerException {
+        return client.findNodeById("b8:27:eb:73:90:9f");
+    }
+
+    @Benchmark
+    public int findNodeByIdAsync() {
+        var futures = new ArrayList<CompletableFuture<Report>>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            futures.add(client.findNodeByIdAsync("b8:27:eb:73:90:9f"));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+        return concurrency;
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Compares wall-clock time of {@code calls} concurrent blocking {@link KaginawaClient#findNodeById} calls submitted
+ * to a bounded pool of platform threads against a virtual-thread-per-task executor, while the server latency is
+ * simulated.
+ * <p>
+ * The {@code virtual} mode requires Java 21 or later and fails its setup otherwise. The executor is looked up
+ * reflectively, so that the benchmark compiles on Java 11.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class VirtualThreadBenchmark {
+    @Param({"platform", "virtual"})
+    private String mode;
+
+    @Param({"10000"})
+    private int calls;
+
+    @Param({"200"})
+    private int poolSize;
+
+    @Param({"20"})
+    private int latencyMillis;
+
+    private StubServer server;
+    private KaginawaClient client;
+    private ExecutorService executor;
+
+    @Setup
+    public void setUp() throws IOException, URISyntaxException, ReflectiveOperationException {
+        var node = Files.readString(Paths.get(getClass().getResource("/node.json").toURI()));
+        server = StubServer.start()
+                .latency(Duration.ofMillis(latencyMillis))
+                .handle("/nodes", exchange -> StubServer.respond(exchange, 200, node));
+        client = KaginawaClient.Builder.newBuilder()
+                .endpoint(server.getEndpoint())
+                .apiKey("12345")
+                .version(HttpClient.Version.HTTP_1_1)
+                .build();
+        if (mode.equals("virtual")) {
+            if (Runtime.version().feature() < 21) {
+                throw new IllegalStateException("virtual threads require Java 21 or later");
+            }
+            executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } else {
+            executor = Executors.newFixedThreadPool(poolSize);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+        server.close();
+    }
+
+    @Benchmark
+    public int findNodeById() throws InterruptedException, KaginawaServerException {
+        var done = new CountDownLatch(calls);
+        var failure = new AtomicReference<KaginawaServerException>();
+        for (int i = 0; i < calls; i++) {
+            var id = String.format("b8:27:eb:%02x:%02x:%02x", i >> 16, (i >> 8) & 0xff, i & 0xff);
+            executor.execute(() -> {
+                try {
+                    client.findNodeById(id);
+                } catch (KaginawaServerException e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+        return calls;
+    }
+}
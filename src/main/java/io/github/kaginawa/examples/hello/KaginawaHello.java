@@ -15,12 +15,14 @@
  */
 package io.github.kaginawa.examples.hello;
 
+import io.github.kaginawa.sdk.BulkResult;
 import io.github.kaginawa.sdk.KaginawaClient;
 import io.github.kaginawa.sdk.KaginawaServerException;
 import io.github.kaginawa.sdk.Report;
 
 import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * Basic query example of the Kaginawa SDK for Java.
@@ -58,12 +60,24 @@ public class KaginawaHello {
             return;
         }
 
+        // Retrieve details of each node concurrently, on virtual threads with Java 21 or later
+        BulkResult<Report> details;
+        try {
+            details = client.findNodesByIds(aliveNodes.stream().map(Report::getId).collect(Collectors.toList()), 16);
+        } catch (KaginawaServerException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+            return;
+        }
+
         // Print the result
         System.out.println(aliveNodes.size() + " alive node(s) detected.");
         var formatter = DateTimeFormatter.ofPattern("yyyy/MM/dd HH:mm:ss");
         aliveNodes.forEach(n -> {
             var t = n.getServerTime().format(formatter);
-            System.out.println(t + " " + n.getId() + " " + n.getCustomId());
+            var detail = details.getResults().get(n.getId());
+            var hostname = detail != null ? detail.getHostname() : "-";
+            System.out.println(t + " " + n.getId() + " " + n.getCustomId() + " " + hostname);
         });
     }
 }
@@ -0,0 +1,777 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Compact binary format of snapshots of {@link Report}s, for shipping and storing fleet lists between JVMs.
+ * <p>
+ * Each report is written as a bitmask of the fields that differ from a reference report, followed by the values of
+ * those fields: numbers as zigzag varints of the difference from the reference, booleans by their bit alone, and
+ * strings as references to a dictionary built while writing, so that a repeated value costs a byte or two. In a
+ * full snapshot, the reference of a report is the previous report, and a report of default values for the first.
+ * </p>
+ * <p>
+ * A delta snapshot is written against a previous snapshot, the base, matching reports by ID. Runs of unchanged
+ * reports are written as their number, and a changed report as the fields that differ from its base report. A new
+ * report is written as in a full snapshot. Decoding a delta needs the same base, whose unchanged reports are
+ * returned as they are.
+ * </p>
+ * <p>
+ * Decoded reports and their lists are immutable, and equal strings are shared among them. Strings are written in
+ * UTF-8, so an unpaired surrogate does not survive a round trip.
+ * </p>
+ *
+ * @since 0.3.0
+ */
+public final class BinaryReportCodec {
+    private static final byte[] MAGIC = {'K', 'G', 'R'};
+    private static final int VERSION = 1;
+    // operations, in the low two bits of a varint whose other bits are the argument
+    private static final int ADD = 0; // reports follow, each against the previous report
+    private static final int COPY = 1; // reports of the base from the cursor are unchanged
+    private static final int MODIFY = 2; // reports follow, each against the report of the base at the cursor
+    private static final int SEEK = 3; // the cursor moves by the zigzag argument
+    // field bits, those of fields that change often first to keep masks of changed reports short
+    private static final int SERVER_TIME = 0;
+    private static final int DEVICE_TIME = 1;
+    private static final int SEQUENCE = 2;
+    private static final int GEN_MILLIS = 3;
+    private static final int RTT_MILLIS = 4;
+    private static final int UPLOAD_KBPS = 5;
+    private static final int DOWNLOAD_KBPS = 6;
+    private static final int DISK_USED_BYTES = 7;
+    private static final int TRIGGER = 8;
+    private static final int SUCCESS = 9;
+    private static final int ERRORS = 10;
+    private static final int SSH_CONNECT_TIME = 11;
+    private static final int SSH_REMOTE_PORT = 12;
+    private static final int BOOT_TIME = 13;
+    private static final int LOCAL_IP_V4 = 14;
+    private static final int LOCAL_IP_V6 = 15;
+    private static final int GLOBAL_IP = 16;
+    private static final int GLOBAL_HOST = 17;
+    private static final int USB_DEVICES = 18;
+    private static final int BD_LOCAL_DEVICES = 19;
+    private static final int AGENT_VERSION = 20;
+    private static final int ID = 21;
+    private static final int HOSTNAME = 22;
+    private static final int CUSTOM_ID = 23;
+    private static final int KERNEL_VERSION = 24;
+    private static final int RUNTIME = 25;
+    private static final int SSH_SERVER_HOST = 26;
+    private static final int ADAPTER = 27;
+    private static final int DISK_TOTAL_BYTES = 28;
+    private static final int DISK_LABEL = 29;
+    private static final int DISK_FILESYSTEM = 30;
+    private static final int DISK_MOUNT_POINT = 31;
+    private static final int DISK_DEVICE = 32;
+    private static final int FIELDS = 33;
+    private static final Report DEFAULTS = new Report();
+
+    private BinaryReportCodec() {
+    }
+
+    /**
+     * Encodes a full snapshot.
+     *
+     * @param reports reports
+     * @return encoded snapshot
+     * @throws NullPointerException if the list or a report is {@code null}
+     */
+    public static byte[] encode(List<Report> reports) {
+        return encodeDelta(Collections.emptyList(), reports);
+    }
+
+    /**
+     * Encodes a delta snapshot against a base snapshot. Only the changed fields of changed reports are written.
+     *
+     * @param base    reports of the base snapshot
+     * @param reports reports of the new snapshot
+     * @return encoded snapshot, a full snapshot if the base is empty
+     * @throws NullPointerException if a list or a report is {@code null}
+     */
+    public static byte[] encodeDelta(List<Report> base, List<Report> reports) {
+        Objects.requireNonNull(base, "base is required");
+        Objects.requireNonNull(reports, "reports is required");
+        Map<String, Integer> index = new HashMap<>(base.size() * 2);
+        for (int i = base.size() - 1; i >= 0; i--) {
+            index.put(Objects.requireNonNull(base.get(i), "base report is null").getId(), i); // first one wins
+        }
+        int count = reports.size();
+        var kinds = new int[count];
+        var targets = new int[count];
+        var masks = new long[count];
+        for (int i = 0; i < count; i++) {
+            var report = Objects.requireNonNull(reports.get(i), "report is null");
+            var target = index.get(report.getId());
+            if (target == null) {
+                kinds[i] = ADD;
+            } else {
+                targets[i] = target;
+                masks[i] = mask(base.get(target), report);
+                kinds[i] = masks[i] == 0 ? COPY : MODIFY;
+            }
+        }
+        var out = new Writer(count * 64 + 16);
+        out.bytes(MAGIC);
+        out.varint(VERSION);
+        out.varint(base.size());
+        out.varint(count);
+        int cursor = 0;
+        Report previous = DEFAULTS;
+        for (int i = 0; i < count; ) {
+            var kind = kinds[i];
+            if (kind != ADD && targets[i] != cursor) {
+                out.varint(zigzag(targets[i] - cursor) << 2 | SEEK);
+                cursor = targets[i];
+            }
+            int end = i + 1;
+            while (end < count && kinds[end] == kind && (kind == ADD || targets[end] == targets[end - 1] + 1)) {
+                end++;
+            }
+            out.varint((long) (end - i) << 2 | kind);
+            for (; i < end; i++) {
+                var report = reports.get(i);
+                if (kind == ADD) {
+                    out.report(previous, report, mask(previous, report));
+                } else if (kind == MODIFY) {
+                    out.report(base.get(cursor), report, masks[i]);
+                }
+                if (kind != ADD) {
+                    cursor++;
+                }
+                previous = report;
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Decodes a full snapshot.
+     *
+     * @param data encoded snapshot
+     * @return reports
+     * @throws IOException if the data is malformed, of an unsupported version or a delta snapshot
+     */
+    public static List<Report> decode(byte[] data) throws IOException {
+        return decode(Collections.emptyList(), data);
+    }
+
+    /**
+     * Decodes a full snapshot, or a delta snapshot against the base it was encoded against.
+     *
+     * @param base reports of the base snapshot, ignored by a full snapshot
+     * @param data encoded snapshot
+     * @return reports, sharing the unchanged reports of the base
+     * @throws IOException if the data is malformed, of an unsupported version or encoded against a base of another
+     *                     size
+     */
+    public static List<Report> decode(List<Report> base, byte[] data) throws IOException {
+        Objects.requireNonNull(base, "base is required");
+        Objects.requireNonNull(data, "data is required");
+        var in = new Reader(data);
+        for (var b : MAGIC) {
+            if (in.pos >= data.length || data[in.pos++] != b) {
+                throw new IOException("not a report snapshot");
+            }
+        }
+        var version = in.varint();
+        if (version != VERSION) {
+            throw new IOException("unsupported report snapshot version: " + version);
+        }
+        var baseSize = in.count();
+        if (baseSize != 0 && baseSize != base.size()) {
+            throw new IOException("delta snapshot of a base of " + baseSize + " reports, but " + base.size()
+                    + " reports given");
+        }
+        var count = in.count();
+        var reports = new ArrayList<Report>(Math.min(count, data.length));
+        int cursor = 0;
+        Report previous = DEFAULTS;
+        while (reports.size() < count) {
+            var op = in.varint();
+            var kind = (int) op & 3;
+            var arg = op >>> 2;
+            if (kind == SEEK) {
+                var target = cursor + unzigzag(arg);
+                if (target < 0 || target > baseSize) {
+                    throw in.error("seek out of base");
+                }
+                cursor = (int) target;
+                continue;
+            }
+            if (arg > count - reports.size() || kind != ADD && arg > baseSize - cursor) {
+                throw in.error("run too long");
+            }
+            for (long i = 0; i < arg; i++) {
+                Report report;
+                if (kind == ADD) {
+                    report = in.report(previous);
+                } else if (kind == COPY) {
+                    report = base.get(cursor++);
+                } else {
+                    report = in.report(base.get(cursor++));
+                }
+                reports.add(report);
+                previous = report;
+            }
+        }
+        if (in.pos != data.length) {
+            throw in.error("unexpected data after snapshot");
+        }
+        return reports;
+    }
+
+    /**
+     * Returns the bits of the fields that differ between two reports.
+     */
+    private static long mask(Report a, Report b) {
+        return bit(ID, a.getId(), b.getId())
+                | bit(TRIGGER, a.getTrigger() != b.getTrigger())
+                | bit(SUCCESS, a.isSuccess() != b.isSuccess())
+                | bit(RUNTIME, a.getRuntime(), b.getRuntime())
+                | bit(SEQUENCE, a.getSequence() != b.getSequence())
+                | bit(DEVICE_TIME, a.getDeviceTimeAsLong() != b.getDeviceTimeAsLong())
+                | bit(BOOT_TIME, a.getBootTimeAsLong() != b.getBootTimeAsLong())
+                | bit(GEN_MILLIS, a.getGenMillis() != b.getGenMillis())
+                | bit(AGENT_VERSION, a.getAgentVersion(), b.getAgentVersion())
+                | bit(CUSTOM_ID, a.getCustomId(), b.getCustomId())
+                | bit(SSH_SERVER_HOST, a.getSshServerHost(), b.getSshServerHost())
+                | bit(SSH_REMOTE_PORT, a.getSshRemotePort() != b.getSshRemotePort())
+                | bit(SSH_CONNECT_TIME, a.getSshConnectTimeAsLong() != b.getSshConnectTimeAsLong())
+                | bit(ADAPTER, a.getAdapter(), b.getAdapter())
+                | bit(LOCAL_IP_V4, a.getLocalIpV4(), b.getLocalIpV4())
+                | bit(LOCAL_IP_V6, a.getLocalIpV6(), b.getLocalIpV6())
+                | bit(HOSTNAME, a.getHostname(), b.getHostname())
+                | bit(RTT_MILLIS, a.getRttMillis() != b.getRttMillis())
+                | bit(UPLOAD_KBPS, a.getUploadKbps() != b.getUploadKbps())
+                | bit(DOWNLOAD_KBPS, a.getDownloadKbps() != b.getDownloadKbps())
+                | bit(DISK_TOTAL_BYTES, a.getDiskTotalBytes() != b.getDiskTotalBytes())
+                | bit(DISK_USED_BYTES, a.getDiskUsedBytes() != b.getDiskUsedBytes())
+                | bit(DISK_LABEL, a.getDiskLabel(), b.getDiskLabel())
+                | bit(DISK_FILESYSTEM, a.getDiskFilesystem(), b.getDiskFilesystem())
+                | bit(DISK_MOUNT_POINT, a.getDiskMountPoint(), b.getDiskMountPoint())
+                | bit(DISK_DEVICE, a.getDiskDevice(), b.getDiskDevice())
+                | bit(USB_DEVICES, !sameUsbDevices(a.getUsbDevices(), b.getUsbDevices()))
+                | bit(BD_LOCAL_DEVICES, a.getBdLocalDevices(), b.getBdLocalDevices())
+                | bit(KERNEL_VERSION, a.getKernelVersion(), b.getKernelVersion())
+                | bit(ERRORS, a.getErrors(), b.getErrors())
+                | bit(GLOBAL_IP, a.getGlobalIp(), b.getGlobalIp())
+                | bit(GLOBAL_HOST, a.getGlobalHost(), b.getGlobalHost())
+                | bit(SERVER_TIME, a.getServerTimeAsLong() != b.getServerTimeAsLong());
+    }
+
+    private static long bit(int field, Object a, Object b) {
+        return bit(field, !Objects.equals(a, b));
+    }
+
+    private static long bit(int field, boolean differs) {
+        return differs ? 1L << field : 0;
+    }
+
+    private static boolean sameUsbDevices(List<Report.UsbDevice> a, List<Report.UsbDevice> b) {
+        if (a == b) {
+            return true;
+        }
+        if (a == null || b == null || a.size() != b.size()) {
+            return false;
+        }
+        for (int i = 0; i < a.size(); i++) {
+            var x = a.get(i);
+            var y = b.get(i);
+            if (x != y && (x == null || y == null || !Objects.equals(x.getName(), y.getName())
+                    || !Objects.equals(x.getVendorId(), y.getVendorId())
+                    || !Objects.equals(x.getProductId(), y.getProductId())
+                    || !Objects.equals(x.getLocation(), y.getLocation()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long zigzag(long value) {
+        return value << 1 ^ value >> 63;
+    }
+
+    private static long unzigzag(long value) {
+        return value >>> 1 ^ -(value & 1);
+    }
+
+    /**
+     * Growable buffer with the dictionary of written strings.
+     */
+    private static final class Writer {
+        private final Map<String, Integer> dictionary = new HashMap<>();
+        private byte[] buf;
+        private int size;
+
+        Writer(int capacity) {
+            this.buf = new byte[capacity];
+        }
+
+        void report(Report ref, Report r, long mask) {
+            varint(mask);
+            for (var m = mask; m != 0; m &= m - 1) {
+                switch (Long.numberOfTrailingZeros(m)) {
+                    case ID:
+                        string(r.getId());
+                        break;
+                    case TRIGGER:
+                        signed((long) r.getTrigger() - ref.getTrigger());
+                        break;
+                    case SUCCESS:
+                        break; // flipped by its bit alone
+                    case RUNTIME:
+                        string(r.getRuntime());
+                        break;
+                    case SEQUENCE:
+                        signed((long) r.getSequence() - ref.getSequence());
+                        break;
+                    case DEVICE_TIME:
+                        signed(r.getDeviceTimeAsLong() - ref.getDeviceTimeAsLong());
+                        break;
+                    case BOOT_TIME:
+                        signed(r.getBootTimeAsLong() - ref.getBootTimeAsLong());
+                        break;
+                    case GEN_MILLIS:
+                        signed(r.getGenMillis() - ref.getGenMillis());
+                        break;
+                    case AGENT_VERSION:
+                        string(r.getAgentVersion());
+                        break;
+                    case CUSTOM_ID:
+                        string(r.getCustomId());
+                        break;
+                    case SSH_SERVER_HOST:
+                        string(r.getSshServerHost());
+                        break;
+                    case SSH_REMOTE_PORT:
+                        signed((long) r.getSshRemotePort() - ref.getSshRemotePort());
+                        break;
+                    case SSH_CONNECT_TIME:
+                        signed(r.getSshConnectTimeAsLong() - ref.getSshConnectTimeAsLong());
+                        break;
+                    case ADAPTER:
+                        string(r.getAdapter());
+                        break;
+                    case LOCAL_IP_V4:
+                        string(r.getLocalIpV4());
+                        break;
+                    case LOCAL_IP_V6:
+                        string(r.getLocalIpV6());
+                        break;
+                    case HOSTNAME:
+                        string(r.getHostname());
+                        break;
+                    case RTT_MILLIS:
+                        signed(r.getRttMillis() - ref.getRttMillis());
+                        break;
+                    case UPLOAD_KBPS:
+                        signed(r.getUploadKbps() - ref.getUploadKbps());
+                        break;
+                    case DOWNLOAD_KBPS:
+                        signed(r.getDownloadKbps() - ref.getDownloadKbps());
+                        break;
+                    case DISK_TOTAL_BYTES:
+                        signed(r.getDiskTotalBytes() - ref.getDiskTotalBytes());
+                        break;
+                    case DISK_USED_BYTES:
+                        signed(r.getDiskUsedBytes() - ref.getDiskUsedBytes());
+                        break;
+                    case DISK_LABEL:
+                        string(r.getDiskLabel());
+                        break;
+                    case DISK_FILESYSTEM:
+                        string(r.getDiskFilesystem());
+                        break;
+                    case DISK_MOUNT_POINT:
+                        string(r.getDiskMountPoint());
+                        break;
+                    case DISK_DEVICE:
+                        string(r.getDiskDevice());
+                        break;
+                    case USB_DEVICES:
+                        usbDevices(r.getUsbDevices());
+                        break;
+                    case BD_LOCAL_DEVICES:
+                        strings(r.getBdLocalDevices());
+                        break;
+                    case KERNEL_VERSION:
+                        string(r.getKernelVersion());
+                        break;
+                    case ERRORS:
+                        strings(r.getErrors());
+                        break;
+                    case GLOBAL_IP:
+                        string(r.getGlobalIp());
+                        break;
+                    case GLOBAL_HOST:
+                        string(r.getGlobalHost());
+                        break;
+                    case SERVER_TIME:
+                        signed(r.getServerTimeAsLong() - ref.getServerTimeAsLong());
+                        break;
+                }
+            }
+        }
+
+        private void usbDevices(List<Report.UsbDevice> devices) {
+            if (devices == null) {
+                varint(0);
+                return;
+            }
+            varint(devices.size() + 1L);
+            for (var device : devices) {
+                if (device == null) {
+                    varint(0);
+                    continue;
+                }
+                varint(1);
+                string(device.getName());
+                string(device.getVendorId());
+                string(device.getProductId());
+                string(device.getLocation());
+            }
+        }
+
+        private void strings(List<String> list) {
+            if (list == null) {
+                varint(0);
+                return;
+            }
+            varint(list.size() + 1L);
+            for (var s : list) {
+                string(s);
+            }
+        }
+
+        /**
+         * Writes 0 for {@code null}, 1 and the UTF-8 bytes for a new string, or 2 plus its index in the dictionary.
+         */
+        private void string(String s) {
+            if (s == null) {
+                varint(0);
+                return;
+            }
+            var index = dictionary.get(s);
+            if (index != null) {
+                varint(index + 2L);
+                return;
+            }
+            dictionary.put(s, dictionary.size());
+            var bytes = s.getBytes(StandardCharsets.UTF_8);
+            varint(1);
+            varint(bytes.length);
+            bytes(bytes);
+        }
+
+        private void signed(long value) {
+            varint(zigzag(value));
+        }
+
+        void varint(long value) {
+            ensure(10);
+            while ((value & ~0x7fL) != 0) {
+                buf[size++] = (byte) (value & 0x7f | 0x80);
+                value >>>= 7;
+            }
+            buf[size++] = (byte) value;
+        }
+
+        void bytes(byte[] bytes) {
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buf, size, bytes.length);
+            size += bytes.length;
+        }
+
+        private void ensure(int length) {
+            if (buf.length - size < length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, size + length));
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buf, size);
+        }
+    }
+
+    /**
+     * Cursor over encoded data with the dictionary of read strings.
+     */
+    private static final class Reader {
+        private final List<String> dictionary = new ArrayList<>();
+        private final byte[] buf;
+        private int pos;
+
+        Reader(byte[] buf) {
+            this.buf = buf;
+        }
+
+        Report report(Report ref) throws IOException {
+            var mask = varint();
+            var r = copyOf(ref);
+            for (var m = mask; m != 0; m &= m - 1) {
+                switch (Long.numberOfTrailingZeros(m)) {
+                    case ID:
+                        r.id = string();
+                        break;
+                    case TRIGGER:
+                        r.trigger = (int) (r.trigger + signed());
+                        break;
+                    case SUCCESS:
+                        r.success = !r.success;
+                        break;
+                    case RUNTIME:
+                        r.runtime = string();
+                        break;
+                    case SEQUENCE:
+                        r.sequence = (int) (r.sequence + signed());
+                        break;
+                    case DEVICE_TIME:
+                        r.deviceTime += signed();
+                        break;
+                    case BOOT_TIME:
+                        r.bootTime += signed();
+                        break;
+                    case GEN_MILLIS:
+                        r.genMillis += signed();
+                        break;
+                    case AGENT_VERSION:
+                        r.agentVersion = string();
+                        break;
+                    case CUSTOM_ID:
+                        r.customId = string();
+                        break;
+                    case SSH_SERVER_HOST:
+                        r.sshServerHost = string();
+                        break;
+                    case SSH_REMOTE_PORT:
+                        r.sshRemotePort = (int) (r.sshRemotePort + signed());
+                        break;
+                    case SSH_CONNECT_TIME:
+                        r.sshConnectTime += signed();
+                        break;
+                    case ADAPTER:
+                        r.adapter = string();
+                        break;
+                    case LOCAL_IP_V4:
+                        r.localIpV4 = string();
+                        break;
+                    case LOCAL_IP_V6:
+                        r.localIpV6 = string();
+                        break;
+                    case HOSTNAME:
+                        r.hostname = string();
+                        break;
+                    case RTT_MILLIS:
+                        r.rttMillis += signed();
+                        break;
+                    case UPLOAD_KBPS:
+                        r.uploadKbps += signed();
+                        break;
+                    case DOWNLOAD_KBPS:
+                        r.downloadKbps += signed();
+                        break;
+                    case DISK_TOTAL_BYTES:
+                        r.diskTotalBytes += signed();
+                        break;
+                    case DISK_USED_BYTES:
+                        r.diskUsedBytes += signed();
+                        break;
+                    case DISK_LABEL:
+                        r.diskLabel = string();
+                        break;
+                    case DISK_FILESYSTEM:
+                        r.diskFilesystem = string();
+                        break;
+                    case DISK_MOUNT_POINT:
+                        r.diskMountPoint = string();
+                        break;
+                    case DISK_DEVICE:
+                        r.diskDevice = string();
+                        break;
+                    case USB_DEVICES:
+                        r.usbDevices = usbDevices();
+                        break;
+                    case BD_LOCAL_DEVICES:
+                        r.bdLocalDevices = strings();
+                        break;
+                    case KERNEL_VERSION:
+                        r.kernelVersion = string();
+                        break;
+                    case ERRORS:
+                        r.errors = strings();
+                        break;
+                    case GLOBAL_IP:
+                        r.globalIp = string();
+                        break;
+                    case GLOBAL_HOST:
+                        r.globalHost = string();
+                        break;
+                    case SERVER_TIME:
+                        r.serverTime += signed();
+                        break;
+                    default:
+                        throw error("unknown field");
+                }
+            }
+            return r;
+        }
+
+        private static Report copyOf(Report ref) {
+            var r = new Report();
+            r.id = ref.getId();
+            r.trigger = ref.getTrigger();
+            r.success = ref.isSuccess();
+            r.runtime = ref.getRuntime();
+            r.sequence = ref.getSequence();
+            r.deviceTime = ref.getDeviceTimeAsLong();
+            r.bootTime = ref.getBootTimeAsLong();
+            r.genMillis = ref.getGenMillis();
+            r.agentVersion = ref.getAgentVersion();
+            r.customId = ref.getCustomId();
+            r.sshServerHost = ref.getSshServerHost();
+            r.sshRemotePort = ref.getSshRemotePort();
+            r.sshConnectTime = ref.getSshConnectTimeAsLong();
+            r.adapter = ref.getAdapter();
+            r.localIpV4 = ref.getLocalIpV4();
+            r.localIpV6 = ref.getLocalIpV6();
+            r.hostname = ref.getHostname();
+            r.rttMillis = ref.getRttMillis();
+            r.uploadKbps = ref.getUploadKbps();
+            r.downloadKbps = ref.getDownloadKbps();
+            r.diskTotalBytes = ref.getDiskTotalBytes();
+            r.diskUsedBytes = ref.getDiskUsedBytes();
+            r.diskLabel = ref.getDiskLabel();
+            r.diskFilesystem = ref.getDiskFilesystem();
+            r.diskMountPoint = ref.getDiskMountPoint();
+            r.diskDevice = ref.getDiskDevice();
+            r.usbDevices = ref.getUsbDevices();
+            r.bdLocalDevices = ref.getBdLocalDevices();
+            r.kernelVersion = ref.getKernelVersion();
+            r.errors = ref.getErrors();
+            r.globalIp = ref.getGlobalIp();
+            r.globalHost = ref.getGlobalHost();
+            r.serverTime = ref.getServerTimeAsLong();
+            return r;
+        }
+
+        private List<Report.UsbDevice> usbDevices() throws IOException {
+            var size = size();
+            if (size < 0) {
+                return null;
+            }
+            var devices = new Report.UsbDevice[size];
+            for (int i = 0; i < size; i++) {
+                var present = varint();
+                if (present > 1) {
+                    throw error("invalid usb device");
+                }
+                if (present == 1) {
+                    devices[i] = new Report.UsbDevice(string(), string(), string(), string());
+                }
+            }
+            return size == 0 ? Collections.emptyList() : Collections.unmodifiableList(Arrays.asList(devices));
+        }
+
+        private List<String> strings() throws IOException {
+            var size = size();
+            if (size < 0) {
+                return null;
+            }
+            var strings = new String[size];
+            for (int i = 0; i < size; i++) {
+                strings[i] = string();
+            }
+            return size == 0 ? Collections.emptyList() : Collections.unmodifiableList(Arrays.asList(strings));
+        }
+
+        /**
+         * Reads the size of a list whose elements take a byte at least.
+         *
+         * @return size, or -1 for {@code null}
+         */
+        private int size() throws IOException {
+            var value = varint();
+            if (value < 0 || value - 1 > buf.length - pos) {
+                throw error("list too long");
+            }
+            return (int) value - 1;
+        }
+
+        private String string() throws IOException {
+            var value = varint();
+            if (value == 0) {
+                return null;
+            }
+            if (value != 1) {
+                if (value < 0 || value - 2 >= dictionary.size()) {
+                    throw error("unknown string");
+                }
+                return dictionary.get((int) value - 2);
+            }
+            var length = varint();
+            if (length < 0 || length > buf.length - pos) {
+                throw error("string too long");
+            }
+            var s = new String(buf, pos, (int) length, StandardCharsets.UTF_8);
+            pos += (int) length;
+            dictionary.add(s);
+            return s;
+        }
+
+        private long signed() throws IOException {
+            return unzigzag(varint());
+        }
+
+        int count() throws IOException {
+            var value = varint();
+            if (value < 0 || value > Integer.MAX_VALUE) {
+                throw error("count too large");
+            }
+            return (int) value;
+        }
+
+        long varint() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                if (pos >= buf.length) {
+                    throw error("unexpected end of snapshot");
+                }
+                var b = buf[pos++];
+                value |= (long) (b & 0x7f) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw error("malformed varint");
+        }
+
+        IOException error(String message) {
+            return new IOException(message + " at byte " + pos);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Bounded excerpt of a response body for error reports, so that a large or runaway body is neither kept in memory
+ * nor copied into exception messages and logs.
+ */
+final class BodySnippet {
+    static final int MAX_LENGTH = 256;
+    static final int MAX_DRAIN = 1024 * 1024;
+    private static final String ELLIPSIS = "...";
+    private final String text;
+    private final long length;
+
+    private BodySnippet(String text, long length) {
+        this.text = text;
+        this.length = length;
+    }
+
+    /**
+     * Returns the excerpt.
+     *
+     * @return at most {@value #MAX_LENGTH} bytes of the body, marked with {@code ...} where cut
+     */
+    String getText() {
+        return text;
+    }
+
+    /**
+     * Returns the length of the whole body.
+     *
+     * @return length in bytes, or {@code -1} if the body was not read to the end
+     */
+    long getLength() {
+        return length;
+    }
+
+    /**
+     * Reads the head of a body and skips the rest, counting up to a bound.
+     *
+     * @param in body
+     * @return excerpt of the head
+     * @throws IOException if failed to read the head
+     */
+    static BodySnippet read(InputStream in) throws IOException {
+        var head = in.readNBytes(MAX_LENGTH);
+        long length = head.length;
+        if (head.length == MAX_LENGTH) {
+            var buffer = new byte[8192];
+            try {
+                for (int n = in.read(buffer); n >= 0; n = in.read(buffer)) {
+                    length += n;
+                    if (length > MAX_DRAIN) {
+                        length = -1; // runaway
+                        break;
+                    }
+                }
+            } catch (IOException e) {
+                length = -1;
+            }
+        }
+        if (length == head.length) {
+            return new BodySnippet(new String(head, StandardCharsets.UTF_8), length);
+        }
+        var end = wholeEnd(head, 0, head.length);
+        return new BodySnippet(new String(head, 0, end, StandardCharsets.UTF_8) + ELLIPSIS, length);
+    }
+
+    /**
+     * Returns an excerpt of a body around the given offset, decoding only the bytes of the excerpt.
+     *
+     * @param buf    buffer holding the body in UTF-8
+     * @param offset offset of the body in the buffer
+     * @param length length of the body in bytes
+     * @param at     byte offset of interest in the body, or {@code -1} for the head
+     * @return at most {@value #MAX_LENGTH} bytes of the body, marked with {@code ...} where cut
+     */
+    static String excerpt(byte[] buf, int offset, int length, long at) {
+        if (length <= MAX_LENGTH) {
+            return new String(buf, offset, length, StandardCharsets.UTF_8);
+        }
+        var start = at < 0 ? 0 : (int) Math.max(0, Math.min(at - MAX_LENGTH / 2, length - MAX_LENGTH));
+        var end = wholeEnd(buf, offset, start + MAX_LENGTH);
+        for (int i = 0; i < 3 && start < end && isContinuation(buf[offset + start]); i++) {
+            start++; // skips the rest of a sequence cut at the start
+        }
+        return (start > 0 ? ELLIPSIS : "") + new String(buf, offset + start, end - start, StandardCharsets.UTF_8)
+                + (end < length ? ELLIPSIS : "");
+    }
+
+    /**
+     * Returns the number of characters that the first bytes of a body decode to, without decoding them.
+     *
+     * @param buf    buffer holding the body in UTF-8
+     * @param offset offset of the body in the buffer
+     * @param length number of bytes to count
+     * @return number of UTF-16 characters
+     */
+    static int charCount(byte[] buf, int offset, int length) {
+        int count = 0;
+        for (int i = offset; i < offset + length; i++) {
+            var b = buf[i];
+            if (!isContinuation(b)) {
+                count += (b & 0xf8) == 0xf0 ? 2 : 1; // a supplementary character takes a surrogate pair
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Moves the end of an excerpt back to the start of the UTF-8 sequence it would cut, if any.
+     */
+    private static int wholeEnd(byte[] buf, int offset, int end) {
+        var lead = end - 1;
+        while (lead > 0 && end - lead < 4 && isContinuation(buf[offset + lead])) {
+            lead--;
+        }
+        var b = buf[offset + lead] & 0xff;
+        var size = b >= 0xf0 ? 4 : b >= 0xe0 ? 3 : b >= 0xc0 ? 2 : 1;
+        return end - lead < size ? lead : end;
+    }
+
+    private static boolean isContinuation(byte b) {
+        return (b & 0xc0) == 0x80;
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Runs an asynchronous operation for each key while keeping at most the given number of operations in flight.
+ * <p>
+ * Keys are dispatched in the given order. An operation that completes synchronously is handled in a loop instead of
+ * a callback, so a large batch never grows the stack. Cancelling the resulting future cancels in-flight operations
+ * and stops dispatching the rest.
+ * </p>
+ *
+ * @param <T> type of a result
+ */
+final class BoundedFanOut<T> {
+    private final List<String> keys;
+    private final Queue<String> pending;
+    private final Function<String, CompletableFuture<T>> operation;
+    private final Map<String, T> results = Collections.synchronizedMap(new HashMap<>());
+    private final Map<String, KaginawaServerException> failures = new ConcurrentHashMap<>();
+    private final Set<CompletableFuture<T>> inFlight = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger remaining;
+    private final CompletableFuture<BulkResult<T>> result = new CompletableFuture<>();
+
+    private BoundedFanOut(List<String> keys, Function<String, CompletableFuture<T>> operation) {
+        this.keys = keys;
+        this.pending = new ConcurrentLinkedQueue<>(keys);
+        this.operation = operation;
+        this.remaining = new AtomicInteger(keys.size());
+    }
+
+    /**
+     * Starts the operations.
+     *
+     * @param keys        distinct keys
+     * @param concurrency maximum number of in-flight operations
+     * @param operation   asynchronous operation for a key
+     * @param <T>         type of a result
+     * @return future of the bulk result
+     */
+    static <T> CompletableFuture<BulkResult<T>> run(List<String> keys, int concurrency,
+                                                    Function<String, CompletableFuture<T>> operation) {
+        var fanOut = new BoundedFanOut<>(keys, operation);
+        if (keys.isEmpty()) {
+            fanOut.result.complete(new BulkResult<>(Collections.emptyMap(), Collections.emptyMap()));
+            return fanOut.result;
+        }
+        fanOut.result.whenComplete((r, e) -> fanOut.inFlight.forEach(f -> f.cancel(true)));
+        for (int i = 0; i < Math.min(concurrency, keys.size()); i++) {
+            fanOut.drain();
+        }
+        return fanOut.result;
+    }
+
+    private void drain() {
+        String key;
+        while (!result.isDone() && (key = pending.poll()) != null) {
+            CompletableFuture<T> future;
+            try {
+                future = operation.apply(key);
+            } catch (RuntimeException e) {
+                future = CompletableFuture.failedFuture(e);
+            }
+            if (future.isDone()) {
+                record(key, future);
+                continue;
+            }
+            inFlight.add(future);
+            var k = key;
+            var f = future;
+            future.whenComplete((r, e) -> {
+                inFlight.remove(f);
+                record(k, f);
+                drain();
+            });
+            return;
+        }
+    }
+
+    private void record(String key, CompletableFuture<T> future) {
+        try {
+            results.put(key, future.join());
+        } catch (CompletionException | CancellationException e) {
+            var cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            failures.put(key, cause instanceof KaginawaServerException
+                    ? (KaginawaServerException) cause
+                    : new KaginawaServerException("operation failed: " + key, cause));
+        }
+        if (remaining.decrementAndGet() == 0) {
+            var orderedResults = new LinkedHashMap<String, T>();
+            var orderedFailures = new LinkedHashMap<String, KaginawaServerException>();
+            for (var k : keys) {
+                if (failures.containsKey(k)) {
+                    orderedFailures.put(k, failures.get(k));
+                } else {
+                    orderedResults.put(k, results.get(k));
+                }
+            }
+            result.complete(new BulkResult<>(orderedResults, orderedFailures));
+        }
+    }
+}
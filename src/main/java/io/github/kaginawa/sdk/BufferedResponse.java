@@ -0,0 +1,83 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import io.github.kaginawa.sdk.spi.TransportResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * {@link TransportResponse} whose body has been read into memory, so that a failure while receiving the body is a
+ * failure of the exchange rather than of decoding.
+ */
+final class BufferedResponse implements TransportResponse {
+    private final TransportResponse response;
+    private final byte[] body;
+
+    private BufferedResponse(TransportResponse response, byte[] body) {
+        this.response = response;
+        this.body = body;
+    }
+
+    /**
+     * Reads the whole body of the given response and closes it. Only the head of the body of an error response is
+     * read, as much as {@link BodySnippet} reports on.
+     *
+     * @param response response
+     * @param maxSize  maximum size of the body in bytes, or {@code 0} if unlimited
+     * @return buffered response
+     * @throws ResponseTooLargeException if the body exceeds the maximum size; the rest is not read
+     * @throws IOException               if failed to read the body
+     */
+    static TransportResponse of(TransportResponse response, long maxSize) throws IOException {
+        try (var in = response.getBody()) {
+            if (response.getStatusCode() != 200) {
+                return new BufferedResponse(response, in.readNBytes(BodySnippet.MAX_DRAIN + 1));
+            }
+            if (maxSize <= 0) {
+                return new BufferedResponse(response, in.readAllBytes());
+            }
+            var body = in.readNBytes((int) Math.min(maxSize + 1, Integer.MAX_VALUE - 8));
+            if (body.length > maxSize) {
+                throw new ResponseTooLargeException(maxSize);
+            }
+            return new BufferedResponse(response, body);
+        }
+    }
+
+    @Override
+    public int getStatusCode() {
+        return response.getStatusCode();
+    }
+
+    @Override
+    public List<String> getHeaders(String name) {
+        return response.getHeaders(name);
+    }
+
+    @Override
+    public String getFirstHeader(String name) {
+        return response.getFirstHeader(name);
+    }
+
+    @Override
+    public InputStream getBody() {
+        return new ByteArrayInputStream(body);
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import io.github.kaginawa.sdk.spi.JsonCodec;
+import io.github.kaginawa.sdk.spi.JsonCodecProvider;
+
+import java.util.List;
+
+/**
+ * Built-in {@link JsonCodec} based on {@link JsonDecoder}, which needs no JSON library.
+ */
+final class BuiltinJsonCodec implements JsonCodec {
+    static final String NAME = "builtin";
+    static final BuiltinJsonCodec INSTANCE = new BuiltinJsonCodec(null);
+    private final StringPool pool;
+
+    /**
+     * Constructs a {@link BuiltinJsonCodec}.
+     *
+     * @param pool string pool, or {@code null}
+     */
+    BuiltinJsonCodec(StringPool pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public List<Report> decodeReports(byte[] buf, int offset, int length) throws JsonDecodingException {
+        return JsonDecoder.decodeReports(buf, offset, length, pool);
+    }
+
+    @Override
+    public Report decodeReport(byte[] buf, int offset, int length) throws JsonDecodingException {
+        return JsonDecoder.decodeReport(buf, offset, length, pool);
+    }
+
+    @Override
+    public SshServer decodeSshServer(byte[] buf, int offset, int length) throws JsonDecodingException {
+        return JsonDecoder.decodeSshServer(buf, offset, length);
+    }
+
+    /**
+     * Provider of {@link BuiltinJsonCodec}, always available without registration.
+     */
+    static final class Provider implements JsonCodecProvider {
+        @Override
+        public String getName() {
+            return NAME;
+        }
+
+        @Override
+        public JsonCodec create() {
+            return INSTANCE;
+        }
+    }
+}
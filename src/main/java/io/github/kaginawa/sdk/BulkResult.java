@@ -0,0 +1,76 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Result of a bulk operation that holds successful results and failures keyed by the requested key.
+ * <p>
+ * A failure of one key does not affect the others, so a single 404 never discards the whole batch.
+ * Both maps iterate in the order of the requested keys.
+ * </p>
+ *
+ * @param <T> type of a result
+ * @since 0.3.0
+ */
+public class BulkResult<T> {
+    private final Map<String, T> results;
+    private final Map<String, KaginawaServerException> failures;
+
+    /**
+     * Constructs a {@link BulkResult}.
+     *
+     * @param results  successful results keyed by the requested key
+     * @param failures failures keyed by the requested key
+     * @throws NullPointerException if the given parameter is {@code null}
+     */
+    BulkResult(Map<String, T> results, Map<String, KaginawaServerException> failures) {
+        Objects.requireNonNull(results, "results is required");
+        Objects.requireNonNull(failures, "failures is required");
+        this.results = Collections.unmodifiableMap(results);
+        this.failures = Collections.unmodifiableMap(failures);
+    }
+
+    /**
+     * Returns the successful results.
+     *
+     * @return unmodifiable map of results keyed by the requested key
+     */
+    public Map<String, T> getResults() {
+        return results;
+    }
+
+    /**
+     * Returns the failures.
+     *
+     * @return unmodifiable map of failures keyed by the requested key
+     */
+    public Map<String, KaginawaServerException> getFailures() {
+        return failures;
+    }
+
+    /**
+     * Returns the shorthand of getFailures().isEmpty().
+     *
+     * @return {@code true} if all keys are succeeded, {@code false} otherwise
+     */
+    public boolean isSuccess() {
+        return failures.isEmpty();
+    }
+}
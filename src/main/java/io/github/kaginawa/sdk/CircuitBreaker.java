@@ -0,0 +1,239 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import io.github.kaginawa.sdk.CircuitBreakerPolicy.State;
+import io.github.kaginawa.sdk.spi.TransportResponse;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Circuit breaker guarding each HTTP exchange under a {@link CircuitBreakerPolicy}.
+ * <p>
+ * Outcomes are kept in a ring buffer of the last {@link CircuitBreakerPolicy#getWindowSize()} calls. Every
+ * transition starts a new generation, so that outcomes of calls admitted under a previous state are ignored.
+ * </p>
+ */
+final class CircuitBreaker {
+    private static final byte FAILURE = 1;
+    private static final byte SLOW = 2;
+    private final CircuitBreakerPolicy policy;
+    private final LongSupplier clock;
+    private final byte[] outcomes;
+    private int count;
+    private int index;
+    private int failures;
+    private int slows;
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int halfOpenPermits;
+    private int halfOpenSuccesses;
+    private long generation;
+
+    /**
+     * Constructs a {@link CircuitBreaker}.
+     *
+     * @param policy circuit breaker policy
+     */
+    CircuitBreaker(CircuitBreakerPolicy policy) {
+        this(policy, System::nanoTime);
+    }
+
+    /**
+     * Constructs a {@link CircuitBreaker} with custom clock designed for unit testing.
+     *
+     * @param policy circuit breaker policy
+     * @param clock  clock in nanoseconds
+     */
+    CircuitBreaker(CircuitBreakerPolicy policy, LongSupplier clock) {
+        this.policy = policy;
+        this.clock = clock;
+        this.outcomes = new byte[policy.getWindowSize()];
+    }
+
+    /**
+     * Returns the current state.
+     *
+     * @return state
+     */
+    synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Sends a request synchronously unless the breaker is open.
+     *
+     * @param call performs the exchange
+     * @return response
+     * @throws CircuitBreakerOpenException if the breaker rejects the call
+     * @throws IOException                 if the exchange failed
+     * @throws InterruptedException        if interrupted while sending
+     */
+    TransportResponse send(Retrier.Call call) throws IOException, InterruptedException {
+        if (!policy.isEnabled()) {
+            return call.send();
+        }
+        var permit = acquire();
+        var start = clock.getAsLong();
+        TransportResponse response;
+        try {
+            response = call.send();
+        } catch (ResponseTooLargeException e) {
+            release(permit); // the limit of the client, not a failure of the server
+            throw e;
+        } catch (IOException e) {
+            record(permit, start, null);
+            throw e;
+        } catch (InterruptedException | RuntimeException e) {
+            release(permit);
+            throw e;
+        }
+        record(permit, start, response);
+        return response;
+    }
+
+    /**
+     * Sends a request asynchronously unless the breaker is open.
+     *
+     * @param call starts the exchange
+     * @return future of response, or a failed future of {@link CircuitBreakerOpenException}
+     */
+    CompletableFuture<TransportResponse> sendAsync(Supplier<CompletableFuture<TransportResponse>> call) {
+        if (!policy.isEnabled()) {
+            return call.get();
+        }
+        long permit;
+        try {
+            permit = acquire();
+        } catch (CircuitBreakerOpenException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        var start = clock.getAsLong();
+        var exchange = call.get();
+        exchange.whenComplete((response, e) -> {
+            var cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            if (cause == null || cause instanceof IOException && !(cause instanceof ResponseTooLargeException)) {
+                record(permit, start, response);
+            } else {
+                release(permit);
+            }
+        });
+        return exchange;
+    }
+
+    private long acquire() throws CircuitBreakerOpenException {
+        State from;
+        State to;
+        long permit;
+        synchronized (this) {
+            from = state;
+            if (state == State.OPEN) {
+                if (clock.getAsLong() - openedAt < policy.getOpenDuration().toNanos()) {
+                    throw new CircuitBreakerOpenException("circuit breaker is open");
+                }
+                transition(State.HALF_OPEN);
+            }
+            if (state == State.HALF_OPEN) {
+                if (halfOpenPermits == 0) {
+                    throw new CircuitBreakerOpenException("circuit breaker is half-open");
+                }
+                halfOpenPermits--;
+            }
+            to = state;
+            permit = generation;
+        }
+        fire(from, to);
+        return permit;
+    }
+
+    private void record(long permit, long start, TransportResponse response) {
+        byte outcome = 0;
+        if (response == null || response.getStatusCode() >= 500) {
+            outcome |= FAILURE;
+        }
+        if (clock.getAsLong() - start > policy.getSlowCallDuration().toNanos()) {
+            outcome |= SLOW;
+        }
+        State from;
+        State to;
+        synchronized (this) {
+            if (permit != generation) {
+                return;
+            }
+            from = state;
+            if (state == State.CLOSED) {
+                push(outcome);
+                if (count >= policy.getMinimumCalls() && (failures >= policy.getFailureRateThreshold() * count
+                        || slows >= policy.getSlowCallRateThreshold() * count)) {
+                    transition(State.OPEN);
+                }
+            } else if (state == State.HALF_OPEN) {
+                if (outcome != 0) {
+                    transition(State.OPEN);
+                } else if (++halfOpenSuccesses == policy.getHalfOpenCalls()) {
+                    transition(State.CLOSED);
+                }
+            }
+            to = state;
+        }
+        fire(from, to);
+    }
+
+    private synchronized void release(long permit) {
+        if (permit == generation && state == State.HALF_OPEN) {
+            halfOpenPermits++;
+        }
+    }
+
+    private void push(byte outcome) {
+        if (count == outcomes.length) {
+            var evicted = outcomes[index];
+            failures -= evicted & FAILURE;
+            slows -= (evicted & SLOW) >> 1;
+        } else {
+            count++;
+        }
+        outcomes[index] = outcome;
+        failures += outcome & FAILURE;
+        slows += (outcome & SLOW) >> 1;
+        index = (index + 1) % outcomes.length;
+    }
+
+    private void transition(State to) {
+        state = to;
+        generation++;
+        count = 0;
+        index = 0;
+        failures = 0;
+        slows = 0;
+        if (to == State.OPEN) {
+            openedAt = clock.getAsLong();
+        } else if (to == State.HALF_OPEN) {
+            halfOpenPermits = policy.getHalfOpenCalls();
+            halfOpenSuccesses = 0;
+        }
+    }
+
+    private void fire(State from, State to) {
+        if (from != to) {
+            policy.getListener().accept(from, to);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import java.io.IOException;
+
+/**
+ * Signals that a request was rejected without being sent because the circuit breaker is open.
+ * <p>
+ * This exception is delivered as the cause of {@link KaginawaServerException}.
+ * </p>
+ *
+ * @see CircuitBreakerPolicy
+ * @since 0.3.0
+ */
+public class CircuitBreakerOpenException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Constructs a {@link CircuitBreakerOpenException}.
+     *
+     * @param message error message
+     */
+    public CircuitBreakerOpenException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,330 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+
+/**
+ * Circuit breaker policy of {@link KaginawaClient}.
+ * <p>
+ * The breaker observes the outcome of every HTTP exchange over a sliding window of the last calls. Connection
+ * failures, {@code 5xx} responses and calls slower than {@link #getSlowCallDuration()} are counted against the
+ * endpoint. Once the failure rate or the slow call rate reaches its threshold, the breaker opens and requests fail
+ * immediately with a {@link KaginawaServerException} caused by {@link CircuitBreakerOpenException}. After
+ * {@link #getOpenDuration()}, a few trial calls are let through in the half-open state; the breaker closes if all
+ * of them succeed, otherwise it opens again.
+ * </p>
+ *
+ * @since 0.3.0
+ */
+public class CircuitBreakerPolicy {
+    private static final CircuitBreakerPolicy DISABLED = new CircuitBreakerPolicy();
+    private boolean enabled;
+    private double failureRateThreshold = 0.5;
+    private double slowCallRateThreshold = 1;
+    private Duration slowCallDuration = Duration.ofSeconds(10);
+    private int windowSize = 20;
+    private int minimumCalls = 10;
+    private Duration openDuration = Duration.ofSeconds(30);
+    private int halfOpenCalls = 3;
+    private BiConsumer<State, State> listener = (from, to) -> {
+    };
+
+    /**
+     * State of a circuit breaker.
+     */
+    public enum State {
+        /**
+         * Requests are sent and their outcomes are recorded.
+         */
+        CLOSED,
+        /**
+         * Requests are rejected without being sent.
+         */
+        OPEN,
+        /**
+         * A limited number of trial requests are sent.
+         */
+        HALF_OPEN
+    }
+
+    /**
+     * @see Builder#newBuilder()
+     */
+    private CircuitBreakerPolicy() {
+    }
+
+    /**
+     * Returns a policy that never opens.
+     *
+     * @return policy
+     */
+    public static CircuitBreakerPolicy disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * Returns whether the circuit breaker is enabled.
+     *
+     * @return {@code true} if enabled, {@code false} otherwise
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the failure rate to open the breaker.
+     *
+     * @return failure rate threshold
+     */
+    public double getFailureRateThreshold() {
+        return failureRateThreshold;
+    }
+
+    /**
+     * Returns the slow call rate to open the breaker.
+     *
+     * @return slow call rate threshold
+     */
+    public double getSlowCallRateThreshold() {
+        return slowCallRateThreshold;
+    }
+
+    /**
+     * Returns the duration beyond which a call is counted as slow.
+     *
+     * @return slow call duration
+     */
+    public Duration getSlowCallDuration() {
+        return slowCallDuration;
+    }
+
+    /**
+     * Returns the number of last calls to compute the rates.
+     *
+     * @return window size
+     */
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    /**
+     * Returns the number of calls required before computing the rates.
+     *
+     * @return minimum calls
+     */
+    public int getMinimumCalls() {
+        return minimumCalls;
+    }
+
+    /**
+     * Returns how long the breaker stays open before trial calls.
+     *
+     * @return open duration
+     */
+    public Duration getOpenDuration() {
+        return openDuration;
+    }
+
+    /**
+     * Returns the number of trial calls in the half-open state.
+     *
+     * @return half-open calls
+     */
+    public int getHalfOpenCalls() {
+        return halfOpenCalls;
+    }
+
+    /**
+     * Returns the listener of state transitions.
+     *
+     * @return listener receives the previous and the new state
+     */
+    BiConsumer<State, State> getListener() {
+        return listener;
+    }
+
+    /**
+     * Builds a {@link CircuitBreakerPolicy}.
+     */
+    public static class Builder {
+        private final CircuitBreakerPolicy o = new CircuitBreakerPolicy();
+
+        /**
+         * @see #newBuilder()
+         */
+        private Builder() {
+            o.enabled = true;
+        }
+
+        /**
+         * Creates a new {@link Builder} for building a {@link CircuitBreakerPolicy}.
+         *
+         * @return a {@link Builder}
+         */
+        public static Builder newBuilder() {
+            return new Builder();
+        }
+
+        /**
+         * Sets the failure rate to open the breaker. Defaults to 0.5.
+         *
+         * @param threshold rate in (0, 1]
+         * @return this builder
+         * @throws IllegalArgumentException if the rate is out of range
+         */
+        public Builder failureRateThreshold(double threshold) {
+            o.failureRateThreshold = checkRate(threshold);
+            return this;
+        }
+
+        /**
+         * Sets the slow call rate to open the breaker. Defaults to 1, that means all calls in the window are slow.
+         *
+         * @param threshold rate in (0, 1]
+         * @return this builder
+         * @throws IllegalArgumentException if the rate is out of range
+         */
+        public Builder slowCallRateThreshold(double threshold) {
+            o.slowCallRateThreshold = checkRate(threshold);
+            return this;
+        }
+
+        /**
+         * Sets the duration beyond which a call is counted as slow. Defaults to 10 seconds.
+         *
+         * @param slowCallDuration slow call duration
+         * @return this builder
+         * @throws NullPointerException     if the duration is {@code null}
+         * @throws IllegalArgumentException if the duration is zero or negative
+         */
+        public Builder slowCallDuration(Duration slowCallDuration) {
+            o.slowCallDuration = checkDuration(slowCallDuration, "slowCallDuration");
+            return this;
+        }
+
+        /**
+         * Sets the number of last calls to compute the rates. Defaults to 20.
+         *
+         * @param windowSize window size
+         * @return this builder
+         * @throws IllegalArgumentException if the size is not a natural number
+         */
+        public Builder windowSize(int windowSize) {
+            if (windowSize < 1) {
+                throw new IllegalArgumentException("window size must be a natural number");
+            }
+            o.windowSize = windowSize;
+            return this;
+        }
+
+        /**
+         * Sets the number of calls required before computing the rates. Defaults to 10.
+         *
+         * @param minimumCalls minimum calls
+         * @return this builder
+         * @throws IllegalArgumentException if the number is not a natural number
+         */
+        public Builder minimumCalls(int minimumCalls) {
+            if (minimumCalls < 1) {
+                throw new IllegalArgumentException("minimum calls must be a natural number");
+            }
+            o.minimumCalls = minimumCalls;
+            return this;
+        }
+
+        /**
+         * Sets how long the breaker stays open before trial calls. Defaults to 30 seconds.
+         *
+         * @param openDuration open duration
+         * @return this builder
+         * @throws NullPointerException     if the duration is {@code null}
+         * @throws IllegalArgumentException if the duration is zero or negative
+         */
+        public Builder openDuration(Duration openDuration) {
+            o.openDuration = checkDuration(openDuration, "openDuration");
+            return this;
+        }
+
+        /**
+         * Sets the number of trial calls in the half-open state. Defaults to 3.
+         *
+         * @param halfOpenCalls half-open calls
+         * @return this builder
+         * @throws IllegalArgumentException if the number is not a natural number
+         */
+        public Builder halfOpenCalls(int halfOpenCalls) {
+            if (halfOpenCalls < 1) {
+                throw new IllegalArgumentException("half-open calls must be a natural number");
+            }
+            o.halfOpenCalls = halfOpenCalls;
+            return this;
+        }
+
+        /**
+         * Sets a listener of state transitions. The listener is called on the thread that caused the transition
+         * and must not block.
+         *
+         * @param listener listener receives the previous and the new state
+         * @return this builder
+         * @throws NullPointerException if the listener is {@code null}
+         */
+        public Builder onStateChange(BiConsumer<State, State> listener) {
+            o.listener = Objects.requireNonNull(listener, "listener is required");
+            return this;
+        }
+
+        /**
+         * Returns a new {@link CircuitBreakerPolicy} built from the current state of this builder.
+         *
+         * @return a new {@link CircuitBreakerPolicy}
+         * @throws IllegalStateException if the minimum calls is greater than the window size
+         */
+        public CircuitBreakerPolicy build() {
+            if (o.minimumCalls > o.windowSize) {
+                throw new IllegalStateException("minimum calls is greater than window size");
+            }
+            var policy = new CircuitBreakerPolicy();
+            policy.enabled = o.enabled;
+            policy.failureRateThreshold = o.failureRateThreshold;
+            policy.slowCallRateThreshold = o.slowCallRateThreshold;
+            policy.slowCallDuration = o.slowCallDuration;
+            policy.windowSize = o.windowSize;
+            policy.minimumCalls = o.minimumCalls;
+            policy.openDuration = o.openDuration;
+            policy.halfOpenCalls = o.halfOpenCalls;
+            policy.listener = o.listener;
+            return policy;
+        }
+
+        private static double checkRate(double rate) {
+            if (!(rate > 0 && rate <= 1)) {
+                throw new IllegalArgumentException("rate must be greater than 0 and less than or equal to 1");
+            }
+            return rate;
+        }
+
+        private static Duration checkDuration(Duration duration, String name) {
+            Objects.requireNonNull(duration, name + " is required");
+            if (duration.isZero() || duration.isNegative()) {
+                throw new IllegalArgumentException(name + " must be a positive duration");
+            }
+            return duration;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import io.github.kaginawa.sdk.spi.TransportResponse;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Decompresses {@code gzip} and {@code deflate} encoded response bodies while they are read, independently of the
+ * transport.
+ * <p>
+ * The number of bytes received on the wire and the number of bytes after decoding are accumulated to the given
+ * counters. A truncated or corrupted body fails with {@link IOException} when the end is read, and a body that
+ * decodes to more than the maximum size fails with {@link ResponseTooLargeException} as soon as the limit is
+ * passed, which also stops a compressed body from expanding without bound.
+ * </p>
+ */
+final class ContentDecoding {
+    private static final int CHUNK_SIZE = 8192;
+
+    private ContentDecoding() {
+    }
+
+    /**
+     * Returns the decoded body of the given response.
+     *
+     * @param response      response
+     * @param receivedBytes counter of bytes on the wire
+     * @param decodedBytes  counter of decoded bytes
+     * @param maxSize       maximum size of the decoded body in bytes, or {@code 0} if unlimited
+     * @return decoded body
+     * @throws IOException if the encoding is unsupported or the header of the encoded body is malformed
+     */
+    static InputStream decode(TransportResponse response, LongAdder receivedBytes, LongAdder decodedBytes,
+                              long maxSize) throws IOException {
+        var decoded = decode(response, receivedBytes, decodedBytes);
+        return maxSize > 0 ? new LimitedInputStream(decoded, maxSize) : decoded;
+    }
+
+    private static InputStream decode(TransportResponse response, LongAdder receivedBytes, LongAdder decodedBytes)
+            throws IOException {
+        var encoding = response.getFirstHeader("Content-Encoding");
+        encoding = encoding == null ? "identity" : encoding.trim().toLowerCase(Locale.ROOT);
+        var body = response.getBody();
+        switch (encoding) {
+            case "identity":
+            case "":
+                return new CountingInputStream(body, receivedBytes, decodedBytes);
+            case "gzip":
+            case "x-gzip":
+                try {
+                    var gzip = new GZIPInputStream(new CountingInputStream(body, receivedBytes, null), CHUNK_SIZE);
+                    return new CountingInputStream(gzip, decodedBytes, null);
+                } catch (IOException e) {
+                    body.close();
+                    throw e;
+                }
+            case "deflate":
+                return new CountingInputStream(inflate(new CountingInputStream(body, receivedBytes, null)),
+                        decodedBytes, null);
+            default:
+                body.close();
+                throw new IOException("unsupported content encoding: " + encoding);
+        }
+    }
+
+    private static InputStream inflate(InputStream in) throws IOException {
+        var pushback = new PushbackInputStream(in, 2);
+        var header = pushback.readNBytes(2);
+        pushback.unread(header);
+        // RFC 1950 zlib stream, or raw RFC 1951 data sent by some servers
+        var zlib = header.length == 2 && (header[0] & 0x0f) == 8
+                && (((header[0] & 0xff) << 8) | (header[1] & 0xff)) % 31 == 0;
+        return new InflaterInputStream(pushback, new Inflater(!zlib), CHUNK_SIZE) {
+            @Override
+            public void close() throws IOException {
+                super.close();
+                inf.end(); // not ended by the superclass when given
+            }
+        };
+    }
+
+    /**
+     * Fails once more bytes than the limit have been read.
+     */
+    private static final class LimitedInputStream extends FilterInputStream {
+        private final long limit;
+        private long count;
+
+        LimitedInputStream(InputStream in, long limit) {
+            super(in);
+            this.limit = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count(n);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count(skipped);
+            return skipped;
+        }
+
+        private void count(long n) throws ResponseTooLargeException {
+            count += n;
+            if (count > limit) {
+                throw new ResponseTooLargeException(limit);
+            }
+        }
+    }
+
+    /**
+     * Adds the number of bytes read to counters.
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+        private final LongAdder counter;
+        private final LongAdder another;
+
+        CountingInputStream(InputStream in, LongAdder counter, LongAdder another) {
+            super(in);
+            this.counter = counter;
+            this.another = another;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count(n);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count(skipped);
+            return skipped;
+        }
+
+        @Override
+        public byte[] readAllBytes() throws IOException {
+            var bytes = in.readAllBytes(); // a buffered body copies its array at once, rather than in 8 KB chunks
+            count(bytes.length);
+            return bytes;
+        }
+
+        private void count(long n) {
+            counter.add(n);
+            if (another != null) {
+                another.add(n);
+            }
+        }
+    }
+}
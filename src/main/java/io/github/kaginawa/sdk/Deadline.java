@@ -0,0 +1,127 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Point in time by which an operation must complete, measured by {@link System#nanoTime()}.
+ */
+final class Deadline {
+    private static final ScheduledThreadPoolExecutor TIMER = newTimer();
+    private final Duration timeout;
+    private final long expiresAt;
+
+    private Deadline(Duration timeout) {
+        this.timeout = timeout;
+        this.expiresAt = System.nanoTime() + timeout.toNanos();
+    }
+
+    private static ScheduledThreadPoolExecutor newTimer() {
+        var timer = new ScheduledThreadPoolExecutor(1, r -> {
+            var t = new Thread(r, "kaginawa-deadline");
+            t.setDaemon(true);
+            return t;
+        });
+        timer.setRemoveOnCancelPolicy(true);
+        return timer;
+    }
+
+    /**
+     * Returns a deadline after the given timeout from now.
+     *
+     * @param timeout timeout
+     * @return deadline
+     */
+    static Deadline after(Duration timeout) {
+        return new Deadline(timeout);
+    }
+
+    /**
+     * Returns the nanoseconds until the deadline.
+     *
+     * @return remaining nanoseconds, zero or negative if expired
+     */
+    long remainingNanos() {
+        return expiresAt - System.nanoTime();
+    }
+
+    /**
+     * Returns whether the deadline has passed.
+     *
+     * @return {@code true} if expired, {@code false} otherwise
+     */
+    boolean isExpired() {
+        return remainingNanos() <= 0;
+    }
+
+    /**
+     * Returns the timeout of a request sent now: the remaining time, capped by the given request timeout.
+     *
+     * @param requestTimeout request timeout, or {@code null} if not set
+     * @return positive timeout
+     */
+    Duration requestTimeout(Duration requestTimeout) {
+        var remaining = Duration.ofNanos(Math.max(remainingNanos(), TimeUnit.MILLISECONDS.toNanos(1)));
+        return requestTimeout != null && requestTimeout.compareTo(remaining) < 0 ? requestTimeout : remaining;
+    }
+
+    /**
+     * Returns an exception reporting the expiry of this deadline.
+     *
+     * @return exception
+     */
+    KaginawaTimeoutException exceeded() {
+        return new KaginawaTimeoutException("operation timed out after " + timeout.toMillis() + " ms", null);
+    }
+
+    /**
+     * Returns a future completed as the given future, or with {@link #exceeded()} once the deadline passes. The
+     * given future is cancelled on expiry and when the returned future is cancelled.
+     *
+     * @param future future of the operation
+     * @param <T>    type of result
+     * @return future bound to this deadline
+     */
+    <T> CompletableFuture<T> bind(CompletableFuture<T> future) {
+        var result = new CompletableFuture<T>();
+        var timer = TIMER.schedule(() -> {
+            if (result.completeExceptionally(exceeded())) {
+                future.cancel(true);
+            }
+        }, remainingNanos(), TimeUnit.NANOSECONDS);
+        future.whenComplete((r, e) -> {
+            timer.cancel(false);
+            if (e == null) {
+                result.complete(r);
+            } else {
+                result.completeExceptionally(e instanceof CompletionException && e.getCause() != null
+                        ? e.getCause() : e);
+            }
+        });
+        result.whenComplete((r, e) -> {
+            if (e instanceof CancellationException) {
+                future.cancel(true);
+            }
+        });
+        return result;
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Hedging policy of {@link KaginawaClient}.
+ * <p>
+ * When a read operation has not received a response within the given percentile of recently observed latencies of
+ * the operation, a second identical request is sent, to another endpoint if several are configured. The first
+ * response wins and the other request is cancelled. Hedges are limited to a fraction of the requests in a sliding
+ * window, so that hedging cannot multiply the load of an overloaded server. {@link Operation#COMMAND} is never
+ * hedged.
+ * </p>
+ *
+ * @since 0.3.0
+ */
+public class HedgePolicy {
+    private static final HedgePolicy DISABLED = new HedgePolicy();
+    private boolean enabled;
+    private double percentile = 0.95;
+    private Duration minDelay = Duration.ofMillis(10);
+    private double maxHedgeRatio = 0.05;
+    private int windowSize = 200;
+    private int minimumSamples = 20;
+
+    /**
+     * @see Builder#newBuilder()
+     */
+    private HedgePolicy() {
+    }
+
+    /**
+     * Returns a policy that never hedges.
+     *
+     * @return policy
+     */
+    public static HedgePolicy disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * Returns whether hedging is enabled.
+     *
+     * @return {@code true} if enabled, {@code false} otherwise
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the percentile of observed latencies after which a hedge is sent.
+     *
+     * @return percentile in (0, 1)
+     */
+    public double getPercentile() {
+        return percentile;
+    }
+
+    /**
+     * Returns the minimum delay before a hedge is sent.
+     *
+     * @return minimum delay
+     */
+    public Duration getMinDelay() {
+        return minDelay;
+    }
+
+    /**
+     * Returns the maximum ratio of hedges to requests.
+     *
+     * @return max hedge ratio
+     */
+    public double getMaxHedgeRatio() {
+        return maxHedgeRatio;
+    }
+
+    /**
+     * Returns the number of last latencies kept per operation.
+     *
+     * @return window size
+     */
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    /**
+     * Returns the number of latencies required before hedging an operation.
+     *
+     * @return minimum samples
+     */
+    public int getMinimumSamples() {
+        return minimumSamples;
+    }
+
+    /**
+     * Builds a {@link HedgePolicy}.
+     */
+    public static class Builder {
+        private final HedgePolicy o = new HedgePolicy();
+
+        /**
+         * @see #newBuilder()
+         */
+        private Builder() {
+            o.enabled = true;
+        }
+
+        /**
+         * Creates a new {@link Builder} for building a {@link HedgePolicy}.
+         *
+         * @return a {@link Builder}
+         */
+        public static Builder newBuilder() {
+            return new Builder();
+        }
+
+        /**
+         * Sets the percentile of observed latencies after which a hedge is sent. Defaults to 0.95.
+         *
+         * @param percentile percentile in (0, 1)
+         * @return this builder
+         * @throws IllegalArgumentException if the percentile is out of range
+         */
+        public Builder percentile(double percentile) {
+            if (!(percentile > 0 && percentile < 1)) {
+                throw new IllegalArgumentException("percentile must be greater than 0 and less than 1");
+            }
+            o.percentile = percentile;
+            return this;
+        }
+
+        /**
+         * Sets the minimum delay before a hedge is sent. Defaults to 10 milliseconds.
+         *
+         * @param minDelay minimum delay
+         * @return this builder
+         * @throws NullPointerException     if the delay is {@code null}
+         * @throws IllegalArgumentException if the delay is negative
+         */
+        public Builder minDelay(Duration minDelay) {
+            Objects.requireNonNull(minDelay, "minDelay is required");
+            if (minDelay.isNegative()) {
+                throw new IllegalArgumentException("min delay must be a positive duration");
+            }
+            o.minDelay = minDelay;
+            return this;
+        }
+
+        /**
+         * Sets the maximum ratio of hedges to requests in the last 10 seconds. Defaults to 0.05.
+         *
+         * @param maxHedgeRatio ratio in (0, 1]
+         * @return this builder
+         * @throws IllegalArgumentException if the ratio is out of range
+         */
+        public Builder maxHedgeRatio(double maxHedgeRatio) {
+            if (!(maxHedgeRatio > 0 && maxHedgeRatio <= 1)) {
+                throw new IllegalArgumentException("max hedge ratio must be greater than 0 and at most 1");
+            }
+            o.maxHedgeRatio = maxHedgeRatio;
+            return this;
+        }
+
+        /**
+         * Sets the number of last latencies kept per operation. Defaults to 200.
+         *
+         * @param windowSize window size
+         * @return this builder
+         * @throws IllegalArgumentException if the size is not positive
+         */
+        public Builder windowSize(int windowSize) {
+            if (windowSize < 1) {
+                throw new IllegalArgumentException("window size must be a natural number");
+            }
+            o.windowSize = windowSize;
+            return this;
+        }
+
+        /**
+         * Sets the number of latencies required before hedging an operation. Defaults to 20.
+         *
+         * @param minimumSamples minimum samples
+         * @return this builder
+         * @throws IllegalArgumentException if the number is not positive
+         */
+        public Builder minimumSamples(int minimumSamples) {
+            if (minimumSamples < 1) {
+                throw new IllegalArgumentException("minimum samples must be a natural number");
+            }
+            o.minimumSamples = minimumSamples;
+            return this;
+        }
+
+        /**
+         * Returns a new {@link HedgePolicy} built from the current state of this builder.
+         *
+         * @return a new {@link HedgePolicy}
+         * @throws IllegalStateException if the minimum samples is greater than the window size
+         */
+        public HedgePolicy build() {
+            if (o.minimumSamples > o.windowSize) {
+                throw new IllegalStateException("minimum samples is greater than window size");
+            }
+            var policy = new HedgePolicy();
+            policy.enabled = o.enabled;
+            policy.percentile = o.percentile;
+            policy.minDelay = o.minDelay;
+            policy.maxHedgeRatio = o.maxHedgeRatio;
+            policy.windowSize = o.windowSize;
+            policy.minimumSamples = o.minimumSamples;
+            return policy;
+        }
+    }
+}
@@ -0,0 +1,277 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import io.github.kaginawa.sdk.spi.TransportRequest;
+import io.github.kaginawa.sdk.spi.TransportResponse;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Sends HTTP exchanges through a {@link LoadBalancer} under a {@link HedgePolicy}.
+ * <p>
+ * The hedging delay of each {@link Operation} is the configured percentile of the latencies of its last exchanges.
+ * A failed attempt does not fail the request while the other attempt is still in flight.
+ * </p>
+ */
+final class Hedger {
+    private static final int RECOMPUTE_INTERVAL = 16;
+    private final HedgePolicy policy;
+    private final LoadBalancer loadBalancer;
+    private final RetryBudget budget;
+    private final LatencyWindow[] windows;
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder wins = new LongAdder();
+
+    /**
+     * Constructs a {@link Hedger}.
+     *
+     * @param policy       hedging policy
+     * @param loadBalancer load balancer sends each attempt
+     */
+    Hedger(HedgePolicy policy, LoadBalancer loadBalancer) {
+        this.policy = policy;
+        this.loadBalancer = loadBalancer;
+        if (!policy.isEnabled()) {
+            this.budget = null; // nothing to track for a disabled policy, keeping clients small
+            this.windows = null;
+            return;
+        }
+        this.budget = new RetryBudget(policy.getMaxHedgeRatio(), 0, () -> System.nanoTime() / 1_000_000_000L);
+        this.windows = new LatencyWindow[Operation.values().length];
+        for (int i = 0; i < windows.length; i++) {
+            windows[i] = new LatencyWindow(policy);
+        }
+    }
+
+    /**
+     * Returns the number of hedges sent.
+     *
+     * @return hedge count
+     */
+    long getHedges() {
+        return hedges.sum();
+    }
+
+    /**
+     * Returns the number of hedges that responded before the original request.
+     *
+     * @return hedge wins
+     */
+    long getWins() {
+        return wins.sum();
+    }
+
+    /**
+     * Sends a request synchronously, hedging it as the policy permits. Hedging runs the exchanges asynchronously;
+     * otherwise the synchronous exchange is used.
+     *
+     * @param operation     operation
+     * @param factory       builds a request for an endpoint
+     * @param exchange      performs the exchange synchronously
+     * @param asyncExchange starts the exchange asynchronously
+     * @return response
+     * @throws IOException          if the exchange failed
+     * @throws InterruptedException if interrupted while sending
+     */
+    TransportResponse send(Operation operation, Function<String, TransportRequest> factory,
+                           LoadBalancer.Exchange exchange,
+                           Function<TransportRequest, CompletableFuture<TransportResponse>> asyncExchange)
+            throws IOException, InterruptedException {
+        if (!policy.isEnabled() || !operation.isIdempotent()) {
+            return loadBalancer.send(factory, exchange);
+        }
+        var future = sendAsync(operation, factory, asyncExchange);
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            var cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Sends a request asynchronously, hedging it as the policy permits. Cancelling the returned future cancels the
+     * exchanges in flight.
+     *
+     * @param operation operation
+     * @param factory   builds a request for an endpoint
+     * @param exchange  starts the exchange
+     * @return future of the first response
+     */
+    CompletableFuture<TransportResponse> sendAsync(
+            Operation operation, Function<String, TransportRequest> factory,
+            Function<TransportRequest, CompletableFuture<TransportResponse>> exchange) {
+        if (!policy.isEnabled() || !operation.isIdempotent()) {
+            return loadBalancer.sendAsync(factory, exchange);
+        }
+        budget.recordRequest();
+        var window = windows[operation.ordinal()];
+        var delay = window.delay();
+        var endpoint = new AtomicReference<String>();
+        var primary = attempt(window, () -> loadBalancer.sendAsync(e -> {
+            endpoint.set(e);
+            return factory.apply(e);
+        }, exchange, null));
+        if (delay < 0) {
+            return primary;
+        }
+        var race = new Race(primary);
+        CompletableFuture.delayedExecutor(delay, TimeUnit.NANOSECONDS).execute(() -> {
+            if (race.startHedge()) {
+                hedges.increment();
+                race.setHedge(attempt(window, () -> loadBalancer.sendAsync(factory, exchange, endpoint.get())));
+            }
+        });
+        return race.result;
+    }
+
+    private static CompletableFuture<TransportResponse> attempt(
+            LatencyWindow window, Supplier<CompletableFuture<TransportResponse>> call) {
+        var start = System.nanoTime();
+        CompletableFuture<TransportResponse> future;
+        try {
+            future = call.get();
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        future.thenRun(() -> window.record(System.nanoTime() - start));
+        return future;
+    }
+
+    /**
+     * Race between the original request and its hedge, guarded by its monitor.
+     */
+    private final class Race {
+        final CompletableFuture<TransportResponse> result = new CompletableFuture<>();
+        private final CompletableFuture<TransportResponse> primary;
+        private CompletableFuture<TransportResponse> hedge;
+        private int running = 1;
+
+        Race(CompletableFuture<TransportResponse> primary) {
+            this.primary = primary;
+            primary.whenComplete((r, e) -> complete(r, e, false));
+            result.whenComplete((r, e) -> cancel());
+        }
+
+        synchronized boolean startHedge() {
+            if (result.isDone() || running == 0 || !budget.tryAcquire()) {
+                return false;
+            }
+            running++;
+            return true;
+        }
+
+        void setHedge(CompletableFuture<TransportResponse> hedge) {
+            synchronized (this) {
+                this.hedge = hedge;
+            }
+            if (result.isDone()) {
+                hedge.cancel(true);
+            }
+            hedge.whenComplete((r, e) -> complete(r, e, true));
+        }
+
+        private void complete(TransportResponse response, Throwable e, boolean hedged) {
+            boolean last;
+            synchronized (this) {
+                last = --running == 0;
+            }
+            if (e == null) {
+                if (result.complete(response) && hedged) {
+                    wins.increment();
+                }
+            } else if (last) {
+                var cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                result.completeExceptionally(cause);
+            }
+        }
+
+        private void cancel() {
+            CompletableFuture<TransportResponse> h;
+            synchronized (this) {
+                h = hedge;
+            }
+            primary.cancel(true);
+            if (h != null) {
+                h.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Latencies of the last exchanges of an operation, guarded by its monitor.
+     */
+    private static final class LatencyWindow {
+        private final double percentile;
+        private final long minDelay;
+        private final int minimumSamples;
+        private final long[] samples;
+        private int count;
+        private int next;
+        private int recorded;
+        private long delay = -1;
+
+        LatencyWindow(HedgePolicy policy) {
+            this.percentile = policy.getPercentile();
+            this.minDelay = policy.getMinDelay().toNanos();
+            this.minimumSamples = policy.getMinimumSamples();
+            this.samples = new long[policy.getWindowSize()];
+        }
+
+        synchronized void record(long latency) {
+            samples[next] = latency;
+            next = (next + 1) % samples.length;
+            count = Math.min(count + 1, samples.length);
+            if (count >= minimumSamples && (delay < 0 || ++recorded >= RECOMPUTE_INTERVAL)) {
+                var sorted = Arrays.copyOf(samples, count);
+                Arrays.sort(sorted);
+                delay = Math.max(sorted[(int) Math.ceil(percentile * count) - 1], minDelay);
+                recorded = 0;
+            }
+        }
+
+        /**
+         * Returns the hedging delay.
+         *
+         * @return delay in nanoseconds, or {@code -1} until enough latencies are recorded
+         */
+        synchronized long delay() {
+            return delay;
+        }
+    }
+}
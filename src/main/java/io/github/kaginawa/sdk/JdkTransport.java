@@ -0,0 +1,285 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import io.github.kaginawa.sdk.spi.Transport;
+import io.github.kaginawa.sdk.spi.TransportOptions;
+import io.github.kaginawa.sdk.spi.TransportProvider;
+import io.github.kaginawa.sdk.spi.TransportRequest;
+import io.github.kaginawa.sdk.spi.TransportResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
+/**
+ * Built-in {@link Transport} based on {@link HttpClient}.
+ * <p>
+ * Asynchronous exchanges keep only the head of the body of an error response, as much as {@link BodySnippet}
+ * reports on, and stop receiving the rest.
+ * </p>
+ */
+final class JdkTransport implements Transport {
+    static final String NAME = "jdk";
+    private final HttpClient httpClient;
+
+    /**
+     * Constructs a {@link JdkTransport}.
+     *
+     * @param httpClient HTTP client
+     */
+    JdkTransport(HttpClient httpClient) {
+        this.httpClient = httpClient;
+    }
+
+    /**
+     * Constructs a {@link JdkTransport} with a new {@link HttpClient}.
+     *
+     * @param options transport options
+     */
+    JdkTransport(TransportOptions options) {
+        var builder = HttpClient.newBuilder();
+        if (options.getProxySelector() != null) {
+            builder.proxy(options.getProxySelector());
+        }
+        if (options.getVersion() != null) {
+            builder.version(options.getVersion());
+        }
+        builder.connectTimeout(options.getConnectTimeout());
+        if (options.getExecutor() != null) {
+            builder.executor(options.getExecutor());
+        }
+        this.httpClient = builder.build();
+    }
+
+    @Override
+    public TransportResponse send(TransportRequest request) throws IOException, InterruptedException {
+        var response = httpClient.send(toHttpRequest(request), HttpResponse.BodyHandlers.ofInputStream());
+        return new Response(response.statusCode(), response.headers(), response.body());
+    }
+
+    @Override
+    public CompletableFuture<TransportResponse> sendAsync(TransportRequest request) {
+        var maxSize = request.getMaxResponseSize();
+        var exchange = httpClient.sendAsync(toHttpRequest(request), info -> {
+            if (info.statusCode() != 200) {
+                return new TruncatingSubscriber(BodySnippet.MAX_DRAIN + 1);
+            }
+            return maxSize > 0
+                    ? new LimitedSubscriber(maxSize, info.headers().firstValueAsLong("Content-Length").orElse(-1))
+                    : HttpResponse.BodySubscribers.ofByteArray();
+        });
+        var result = exchange.<TransportResponse>thenApply(response -> new Response(
+                response.statusCode(), response.headers(), new ByteArrayInputStream(response.body())));
+        result.whenComplete((r, e) -> {
+            if (result.isCancelled()) {
+                exchange.cancel(true); // a dependent future does not cancel its source
+            }
+        });
+        return result;
+    }
+
+    private static HttpRequest toHttpRequest(TransportRequest request) {
+        var builder = HttpRequest.newBuilder(request.getUri());
+        request.getHeaders().forEach((name, values) -> values.forEach(value -> builder.header(name, value)));
+        if (request.getTimeout() != null) {
+            builder.timeout(request.getTimeout());
+        }
+        if (request.getBody() != null) {
+            builder.method(request.getMethod(), HttpRequest.BodyPublishers.ofByteArray(request.getBody()));
+        } else {
+            builder.method(request.getMethod(), HttpRequest.BodyPublishers.noBody());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Collects a body into a byte array, cancelling the exchange as soon as the body exceeds the limit.
+     */
+    private static final class LimitedSubscriber implements HttpResponse.BodySubscriber<byte[]> {
+        private final HttpResponse.BodySubscriber<byte[]> delegate = HttpResponse.BodySubscribers.ofByteArray();
+        private final long limit;
+        private final long declared;
+        private Flow.Subscription subscription;
+        private long received;
+        private boolean failed;
+
+        LimitedSubscriber(long limit, long declared) {
+            this.limit = limit;
+            this.declared = declared;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            delegate.onSubscribe(subscription);
+            if (declared > limit) {
+                fail(); // known from Content-Length before anything is received
+            }
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> item) {
+            if (failed) {
+                return;
+            }
+            for (var buffer : item) {
+                received += buffer.remaining();
+            }
+            if (received > limit) {
+                fail();
+                return;
+            }
+            delegate.onNext(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            if (!failed) {
+                delegate.onError(throwable);
+            }
+        }
+
+        @Override
+        public void onComplete() {
+            if (!failed) {
+                delegate.onComplete();
+            }
+        }
+
+        @Override
+        public CompletionStage<byte[]> getBody() {
+            return delegate.getBody();
+        }
+
+        private void fail() {
+            failed = true;
+            subscription.cancel();
+            delegate.onError(new ResponseTooLargeException(limit));
+        }
+    }
+
+    /**
+     * Collects the head of a body into a byte array, cancelling the exchange once the head is received.
+     */
+    private static final class TruncatingSubscriber implements HttpResponse.BodySubscriber<byte[]> {
+        private final CompletableFuture<byte[]> body = new CompletableFuture<>();
+        private final ByteArrayOutputStream head = new ByteArrayOutputStream();
+        private final int limit;
+        private Flow.Subscription subscription;
+
+        TruncatingSubscriber(int limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> item) {
+            if (body.isDone()) {
+                return;
+            }
+            for (var buffer : item) {
+                var chunk = new byte[Math.min(buffer.remaining(), limit - head.size())];
+                buffer.get(chunk);
+                head.write(chunk, 0, chunk.length);
+            }
+            if (head.size() == limit) {
+                subscription.cancel();
+                body.complete(head.toByteArray());
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            body.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            body.complete(head.toByteArray());
+        }
+
+        @Override
+        public CompletionStage<byte[]> getBody() {
+            return body;
+        }
+    }
+
+    /**
+     * Response of {@link HttpClient}.
+     */
+    private static final class Response implements TransportResponse {
+        private final int statusCode;
+        private final HttpHeaders headers;
+        private final InputStream body;
+
+        Response(int statusCode, HttpHeaders headers, InputStream body) {
+            this.statusCode = statusCode;
+            this.headers = headers;
+            this.body = body;
+        }
+
+        @Override
+        public int getStatusCode() {
+            return statusCode;
+        }
+
+        @Override
+        public List<String> getHeaders(String name) {
+            return headers.allValues(name);
+        }
+
+        @Override
+        public String getFirstHeader(String name) {
+            return headers.firstValue(name).orElse(null);
+        }
+
+        @Override
+        public InputStream getBody() {
+            return body;
+        }
+    }
+
+    /**
+     * Provider of {@link JdkTransport}, always available without registration.
+     */
+    static final class Provider implements TransportProvider {
+        @Override
+        public String getName() {
+            return NAME;
+        }
+
+        @Override
+        public Transport create(TransportOptions options) {
+            return new JdkTransport(options);
+        }
+    }
+}
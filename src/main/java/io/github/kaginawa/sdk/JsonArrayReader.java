@@ -0,0 +1,201 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Splits a JSON array read from an {@link InputStream} into its elements one at a time.
+ * <p>
+ * Only the structure (brackets, braces and strings) is scanned; each element is copied as raw UTF-8 bytes into a
+ * buffer that is reused for the next element, so memory usage depends on the largest element rather than on the
+ * number of elements. A {@code null} literal in place of the array, as the server sends for an empty list, reads as
+ * an empty array.
+ * </p>
+ */
+final class JsonArrayReader implements Closeable {
+    private static final int READ_BUFFER_SIZE = 8192;
+    private final InputStream in;
+    private final byte[] readBuffer = new byte[READ_BUFFER_SIZE];
+    private int readPos;
+    private int readLimit;
+    private byte[] element = new byte[1024];
+    private int length;
+    private boolean started;
+    private boolean finished;
+
+    /**
+     * Constructs a {@link JsonArrayReader}.
+     *
+     * @param in source of a JSON array
+     */
+    JsonArrayReader(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * Advances to the next element.
+     *
+     * @return {@code true} if an element is available, {@code false} if the end of the array is reached
+     * @throws IOException if an I/O error occurs or the source is not a well-formed JSON array
+     */
+    boolean next() throws IOException {
+        if (finished) {
+            return false;
+        }
+        if (!started) {
+            started = true;
+            int first = skipWhitespace();
+            if (first == 'n') {
+                readNull();
+                finished = true;
+                return false;
+            }
+            if (first != '[') {
+                throw new IOException("not a json array");
+            }
+            int c = skipWhitespace();
+            if (c < 0) {
+                throw new IOException("unexpected end of json array");
+            }
+            if (c == ']') {
+                finished = true;
+                return false;
+            }
+            readPos--; // push back the first byte of the element
+        }
+        length = 0;
+        int depth = 0;
+        boolean inString = false;
+        boolean escaped = false;
+        int c = skipWhitespace();
+        while (true) {
+            if (c < 0) {
+                throw new IOException("unexpected end of json array");
+            }
+            if (inString) {
+                if (escaped) {
+                    escaped = false;
+                } else if (c == '\\') {
+                    escaped = true;
+                } else if (c == '"') {
+                    inString = false;
+                }
+            } else if (c == '"') {
+                inString = true;
+            } else if (c == '{' || c == '[') {
+                depth++;
+            } else if (c == '}' || c == ']') {
+                if (depth == 0) {
+                    if (c == '}') {
+                        throw new IOException("unexpected '}' in json array");
+                    }
+                    finished = true;
+                    return trimmed();
+                }
+                depth--;
+            } else if (c == ',' && depth == 0) {
+                return trimmed();
+            }
+            append(c);
+            c = read();
+        }
+    }
+
+    /**
+     * Returns the buffer holding the current element. The content is valid until the next call of {@link #next()}.
+     *
+     * @return buffer
+     */
+    byte[] buffer() {
+        return element;
+    }
+
+    /**
+     * Returns the length of the current element in {@link #buffer()}.
+     *
+     * @return length in bytes
+     */
+    int length() {
+        return length;
+    }
+
+    /**
+     * Returns the current element as a {@link String}.
+     *
+     * @return element
+     */
+    String elementAsString() {
+        return new String(element, 0, length, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+        finished = true;
+        in.close();
+    }
+
+    private void readNull() throws IOException {
+        if (read() != 'u' || read() != 'l' || read() != 'l' || skipWhitespace() >= 0) {
+            throw new IOException("not a json array");
+        }
+    }
+
+    private boolean trimmed() throws IOException {
+        while (length > 0 && isWhitespace(element[length - 1])) {
+            length--;
+        }
+        if (length == 0) {
+            throw new IOException("empty element in json array");
+        }
+        return true;
+    }
+
+    private void append(int c) {
+        if (length == element.length) {
+            element = Arrays.copyOf(element, element.length * 2);
+        }
+        element[length++] = (byte) c;
+    }
+
+    private int skipWhitespace() throws IOException {
+        int c;
+        do {
+            c = read();
+        } while (c >= 0 && isWhitespace((byte) c));
+        return c;
+    }
+
+    private static boolean isWhitespace(byte c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+    }
+
+    private int read() throws IOException {
+        if (readPos == readLimit) {
+            readLimit = in.read(readBuffer, 0, READ_BUFFER_SIZE);
+            readPos = 0;
+            if (readLimit <= 0) {
+                readLimit = 0;
+                return -1;
+            }
+        }
+        return readBuffer[readPos++] & 0xff;
+    }
+}
@@ -0,0 +1,984 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Decodes {@link Report}, {@link Report.UsbDevice} and {@link SshServer} directly from UTF-8 JSON bytes.
+ * <p>
+ * Field names follow the same mapping as the JSON-B binding of these classes: field names in lower case with
+ * underscores, and the names given by {@link javax.json.bind.annotation.JsonbProperty}. A field name is looked up
+ * in a precomputed table by its bytes, without decoding it, and its value is written straight into the field.
+ * Unknown fields are skipped, absent fields keep their defaults, and {@code null} sets a reference field to
+ * {@code null} and leaves a primitive field unchanged. Numbers and booleans are also accepted in string form, and
+ * as the text of a string field. Lists inside a report are unmodifiable, because decoded reports may be shared
+ * among callers.
+ * </p>
+ * <p>
+ * Given a {@link StringPool}, the values of low-cardinality report fields are taken from the pool.
+ * </p>
+ */
+final class JsonDecoder {
+    private static final int MAX_DEPTH = 256;
+    private static final String UNKNOWN = "";
+    private static final int END = -2;
+    private static final FieldNames REPORT_FIELDS = new FieldNames("id", "trigger", "success", "runtime", "seq",
+            "device_time", "boot_time", "gen_ms", "agent_version", "custom_id", "ssh_server_host", "ssh_remote_port",
+            "ssh_connect_time", "adapter", "ip4_local", "ip6_local", "hostname", "rtt_ms", "upload_bps",
+            "download_bps", "disk_total_bytes", "disk_used_bytes", "disk_label", "disk_filesystem",
+            "disk_mount_point", "disk_device", "usb_devices", "bd_local_devices", "kernel_version", "errors",
+            "ip_global", "host_global", "server_time");
+    private static final FieldNames USB_DEVICE_FIELDS = new FieldNames("name", "vendor_id", "product_id", "location");
+    private static final FieldNames SSH_SERVER_FIELDS = new FieldNames("host", "port", "user", "key", "password");
+    private final byte[] buf;
+    private final int start;
+    private final int end;
+    private final StringPool pool;
+    private int pos;
+    private int depth;
+
+    private JsonDecoder(byte[] buf, int offset, int length, StringPool pool) {
+        this.buf = buf;
+        this.start = offset;
+        this.end = offset + length;
+        this.pool = pool;
+        this.pos = offset;
+    }
+
+    /**
+     * Decodes a report.
+     *
+     * @param buf    buffer
+     * @param offset offset of the JSON object in the buffer
+     * @param length length of the JSON object in bytes
+     * @return report, or {@code null} if the JSON is {@code null}
+     * @throws JsonDecodingException if the JSON is malformed or does not match the model
+     */
+    static Report decodeReport(byte[] buf, int offset, int length) throws JsonDecodingException {
+        return decodeReport(buf, offset, length, null);
+    }
+
+    /**
+     * Decodes a report, taking the values of low-cardinality fields from a pool.
+     *
+     * @param buf    buffer
+     * @param offset offset of the JSON object in the buffer
+     * @param length length of the JSON object in bytes
+     * @param pool   string pool, or {@code null}
+     * @return report, or {@code null} if the JSON is {@code null}
+     * @throws JsonDecodingException if the JSON is malformed or does not match the model
+     */
+    static Report decodeReport(byte[] buf, int offset, int length, StringPool pool) throws JsonDecodingException {
+        var decoder = new JsonDecoder(buf, offset, length, pool);
+        return decoder.whole(decoder.report());
+    }
+
+    /**
+     * Decodes a list of reports.
+     *
+     * @param buf    buffer
+     * @param offset offset of the JSON array in the buffer
+     * @param length length of the JSON array in bytes
+     * @return list of reports, or {@code null} if the JSON is {@code null}
+     * @throws JsonDecodingException if the JSON is malformed or does not match the model
+     */
+    static List<Report> decodeReports(byte[] buf, int offset, int length) throws JsonDecodingException {
+        return decodeReports(buf, offset, length, null);
+    }
+
+    /**
+     * Decodes a list of reports, taking the values of low-cardinality fields from a pool.
+     *
+     * @param buf    buffer
+     * @param offset offset of the JSON array in the buffer
+     * @param length length of the JSON array in bytes
+     * @param pool   string pool, or {@code null}
+     * @return list of reports, or {@code null} if the JSON is {@code null}
+     * @throws JsonDecodingException if the JSON is malformed or does not match the model
+     */
+    static List<Report> decodeReports(byte[] buf, int offset, int length, StringPool pool)
+            throws JsonDecodingException {
+        var decoder = new JsonDecoder(buf, offset, length, pool);
+        return decoder.whole(decoder.reports());
+    }
+
+    /**
+     * Decodes an SSH server.
+     *
+     * @param buf    buffer
+     * @param offset offset of the JSON object in the buffer
+     * @param length length of the JSON object in bytes
+     * @return SSH server, or {@code null} if the JSON is {@code null}
+     * @throws JsonDecodingException if the JSON is malformed or does not match the model
+     */
+    static SshServer decodeSshServer(byte[] buf, int offset, int length) throws JsonDecodingException {
+        var decoder = new JsonDecoder(buf, offset, length, null);
+        return decoder.whole(decoder.sshServer());
+    }
+
+    /**
+     * Indexes a report for decoding its fields on first access. The view keeps the buffer, which must not be
+     * modified afterwards.
+     *
+     * @param buf    buffer
+     * @param offset offset of the JSON object in the buffer
+     * @param length length of the JSON object in bytes
+     * @return view of the report, or {@code null} if the JSON is {@code null}
+     * @throws JsonDecodingException if the JSON is malformed
+     * @see ReportView
+     */
+    static Report decodeReportView(byte[] buf, int offset, int length) throws JsonDecodingException {
+        return decodeReportView(buf, offset, length, null);
+    }
+
+    /**
+     * Indexes a report for decoding its fields on first access, taking the values of low-cardinality fields from
+     * a pool. The view keeps the buffer, which must not be modified afterwards.
+     *
+     * @param buf    buffer
+     * @param offset offset of the JSON object in the buffer
+     * @param length length of the JSON object in bytes
+     * @param pool   string pool, or {@code null}
+     * @return view of the report, or {@code null} if the JSON is {@code null}
+     * @throws JsonDecodingException if the JSON is malformed
+     * @see ReportView
+     */
+    static Report decodeReportView(byte[] buf, int offset, int length, StringPool pool)
+            throws JsonDecodingException {
+        var decoder = new JsonDecoder(buf, offset, length, pool);
+        return decoder.whole(decoder.reportView());
+    }
+
+    /**
+     * Indexes a list of reports for decoding their fields on first access. The views keep the buffer, which must
+     * not be modified afterwards.
+     *
+     * @param buf    buffer
+     * @param offset offset of the JSON array in the buffer
+     * @param length length of the JSON array in bytes
+     * @return list of views of the reports, or {@code null} if the JSON is {@code null}
+     * @throws JsonDecodingException if the JSON is malformed
+     * @see ReportView
+     */
+    static List<Report> decodeReportViews(byte[] buf, int offset, int length) throws JsonDecodingException {
+        return decodeReportViews(buf, offset, length, null);
+    }
+
+    /**
+     * Indexes a list of reports for decoding their fields on first access, taking the values of low-cardinality
+     * fields from a pool. The views keep the buffer, which must not be modified afterwards.
+     *
+     * @param buf    buffer
+     * @param offset offset of the JSON array in the buffer
+     * @param length length of the JSON array in bytes
+     * @param pool   string pool, or {@code null}
+     * @return list of views of the reports, or {@code null} if the JSON is {@code null}
+     * @throws JsonDecodingException if the JSON is malformed
+     * @see ReportView
+     */
+    static List<Report> decodeReportViews(byte[] buf, int offset, int length, StringPool pool)
+            throws JsonDecodingException {
+        var decoder = new JsonDecoder(buf, offset, length, pool);
+        return decoder.whole(decoder.reportViews());
+    }
+
+    /**
+     * Decodes a field of a report indexed by {@link #decodeReportView(byte[], int, int, StringPool)}.
+     *
+     * @param r     report to set the field of
+     * @param index index of the field, as returned by {@link #reportFieldIndex(String)}
+     * @param buf   buffer of the report
+     * @param from  offset of the JSON object of the report in the buffer, to which error offsets are relative
+     * @param at    offset of the value in the buffer
+     * @param to    end of the JSON object of the report in the buffer
+     * @param pool  string pool, or {@code null}
+     * @throws JsonDecodingException if the value does not match the model
+     */
+    static void decodeReportField(Report r, int index, byte[] buf, int from, int at, int to, StringPool pool)
+            throws JsonDecodingException {
+        var decoder = new JsonDecoder(buf, from, to - from, pool);
+        decoder.pos = at;
+        decoder.reportField(r, REPORT_FIELDS.name(index));
+    }
+
+    /**
+     * Returns the index of a field of a report.
+     *
+     * @param name JSON field name
+     * @return index
+     * @throws IllegalArgumentException if the field is unknown
+     */
+    static int reportFieldIndex(String name) {
+        var bytes = name.getBytes(StandardCharsets.UTF_8);
+        var index = REPORT_FIELDS.indexOf(bytes, 0, bytes.length);
+        if (index < 0) {
+            throw new IllegalArgumentException("unknown field: " + name);
+        }
+        return index;
+    }
+
+    private <T> T whole(T value) throws JsonDecodingException {
+        skipWhitespace();
+        if (pos != end) {
+            throw error("unexpected data after json value");
+        }
+        return value;
+    }
+
+    private Report report() throws JsonDecodingException {
+        if (!beginObject()) {
+            return null;
+        }
+        var r = new Report();
+        for (var first = true; ; first = false) {
+            var name = field(REPORT_FIELDS, first);
+            if (name == null) {
+                break;
+            }
+            reportField(r, name);
+        }
+        return r;
+    }
+
+    /**
+     * Indexes the fields of a report without decoding them.
+     *
+     * @return view of the report, or {@code null} if the JSON is {@code null}
+     */
+    private ReportView reportView() throws JsonDecodingException {
+        if (!beginObject()) {
+            return null;
+        }
+        var from = pos - 1;
+        var positions = new int[REPORT_FIELDS.size()];
+        Arrays.fill(positions, -1);
+        for (var first = true; ; first = false) {
+            var index = fieldIndex(REPORT_FIELDS, first);
+            if (index == END) {
+                break;
+            }
+            skipWhitespace();
+            if (index >= 0) {
+                positions[index] = pos;
+            }
+            skipValue();
+        }
+        return new ReportView(buf, from, pos, positions, pool);
+    }
+
+    /**
+     * Decodes the value of a field of a report into it.
+     *
+     * @param r    report
+     * @param name known field name, or {@link #UNKNOWN} to skip the value
+     */
+    private void reportField(Report r, String name) throws JsonDecodingException {
+        switch (name) {
+            case "id":
+                r.id = string();
+                break;
+            case "trigger":
+                r.trigger = intValue(r.trigger);
+                break;
+            case "success":
+                r.success = booleanValue(r.success);
+                break;
+            case "runtime":
+                r.runtime = pooledString();
+                break;
+            case "seq":
+                r.sequence = intValue(r.sequence);
+                break;
+            case "device_time":
+                r.deviceTime = longValue(r.deviceTime);
+                break;
+            case "boot_time":
+                r.bootTime = longValue(r.bootTime);
+                break;
+            case "gen_ms":
+                r.genMillis = longValue(r.genMillis);
+                break;
+            case "agent_version":
+                r.agentVersion = pooledString();
+                break;
+            case "custom_id":
+                r.customId = string();
+                break;
+            case "ssh_server_host":
+                r.sshServerHost = pooledString();
+                break;
+            case "ssh_remote_port":
+                r.sshRemotePort = intValue(r.sshRemotePort);
+                break;
+            case "ssh_connect_time":
+                r.sshConnectTime = longValue(r.sshConnectTime);
+                break;
+            case "adapter":
+                r.adapter = pooledString();
+                break;
+            case "ip4_local":
+                r.localIpV4 = string();
+                break;
+            case "ip6_local":
+                r.localIpV6 = string();
+                break;
+            case "hostname":
+                r.hostname = string();
+                break;
+            case "rtt_ms":
+                r.rttMillis = longValue(r.rttMillis);
+                break;
+            case "upload_bps":
+                r.uploadKbps = longValue(r.uploadKbps);
+                break;
+            case "download_bps":
+                r.downloadKbps = longValue(r.downloadKbps);
+                break;
+            case "disk_total_bytes":
+                r.diskTotalBytes = longValue(r.diskTotalBytes);
+                break;
+            case "disk_used_bytes":
+                r.diskUsedBytes = longValue(r.diskUsedBytes);
+                break;
+            case "disk_label":
+                r.diskLabel = string();
+                break;
+            case "disk_filesystem":
+                r.diskFilesystem = pooledString();
+                break;
+            case "disk_mount_point":
+                r.diskMountPoint = pooledString();
+                break;
+            case "disk_device":
+                r.diskDevice = string();
+                break;
+            case "usb_devices":
+                r.usbDevices = usbDevices();
+                break;
+            case "bd_local_devices":
+                r.bdLocalDevices = strings();
+                break;
+            case "kernel_version":
+                r.kernelVersion = pooledString();
+                break;
+            case "errors":
+                r.errors = pooledStrings();
+                break;
+            case "ip_global":
+                r.globalIp = string();
+                break;
+            case "host_global":
+                r.globalHost = string();
+                break;
+            case "server_time":
+                r.serverTime = longValue(r.serverTime);
+                break;
+            default:
+                skipValue();
+        }
+    }
+
+    private List<Report> reports() throws JsonDecodingException {
+        if (!beginArray()) {
+            return null;
+        }
+        var list = new ArrayList<Report>();
+        for (var first = true; element(first); first = false) {
+            list.add(report());
+        }
+        return list;
+    }
+
+    private List<Report> reportViews() throws JsonDecodingException {
+        if (!beginArray()) {
+            return null;
+        }
+        var list = new ArrayList<Report>();
+        for (var first = true; element(first); first = false) {
+            list.add(reportView());
+        }
+        return list;
+    }
+
+    private Report.UsbDevice usbDevice() throws JsonDecodingException {
+        if (!beginObject()) {
+            return null;
+        }
+        var device = new Report.UsbDevice();
+        for (var first = true; ; first = false) {
+            var name = field(USB_DEVICE_FIELDS, first);
+            if (name == null) {
+                break;
+            }
+            switch (name) {
+                case "name":
+                    device.name = string();
+                    break;
+                case "vendor_id":
+                    device.vendorId = string();
+                    break;
+                case "product_id":
+                    device.productId = string();
+                    break;
+                case "location":
+                    device.location = string();
+                    break;
+                default:
+                    skipValue();
+            }
+        }
+        return device;
+    }
+
+    private List<Report.UsbDevice> usbDevices() throws JsonDecodingException {
+        if (!beginArray()) {
+            return null;
+        }
+        var list = new ArrayList<Report.UsbDevice>();
+        for (var first = true; element(first); first = false) {
+            list.add(usbDevice());
+        }
+        return list.isEmpty() ? Collections.emptyList() : Collections.unmodifiableList(list);
+    }
+
+    private SshServer sshServer() throws JsonDecodingException {
+        if (!beginObject()) {
+            return null;
+        }
+        var server = new SshServer();
+        for (var first = true; ; first = false) {
+            var name = field(SSH_SERVER_FIELDS, first);
+            if (name == null) {
+                break;
+            }
+            switch (name) {
+                case "host":
+                    server.host = string();
+                    break;
+                case "port":
+                    server.port = intValue(server.port);
+                    break;
+                case "user":
+                    server.user = string();
+                    break;
+                case "key":
+                    server.key = string();
+                    break;
+                case "password":
+                    server.password = string();
+                    break;
+                default:
+                    skipValue();
+            }
+        }
+        return server;
+    }
+
+    private List<String> strings() throws JsonDecodingException {
+        if (!beginArray()) {
+            return null;
+        }
+        var list = new ArrayList<String>();
+        for (var first = true; element(first); first = false) {
+            list.add(string());
+        }
+        return list.isEmpty() ? Collections.emptyList() : Collections.unmodifiableList(list);
+    }
+
+    private List<String> pooledStrings() throws JsonDecodingException {
+        if (!beginArray()) {
+            return null;
+        }
+        var list = new ArrayList<String>();
+        for (var first = true; element(first); first = false) {
+            list.add(pooledString());
+        }
+        return list.isEmpty() ? Collections.emptyList() : Collections.unmodifiableList(list);
+    }
+
+    /**
+     * Consumes the start of an object.
+     *
+     * @return {@code true} if an object starts, {@code false} if {@code null} is consumed instead
+     */
+    private boolean beginObject() throws JsonDecodingException {
+        if (skipNull()) {
+            return false;
+        }
+        if (next() != '{') {
+            throw error("expected object", pos - 1);
+        }
+        return true;
+    }
+
+    /**
+     * Consumes the start of an array.
+     *
+     * @return {@code true} if an array starts, {@code false} if {@code null} is consumed instead
+     */
+    private boolean beginArray() throws JsonDecodingException {
+        if (skipNull()) {
+            return false;
+        }
+        if (next() != '[') {
+            throw error("expected array", pos - 1);
+        }
+        return true;
+    }
+
+    /**
+     * Consumes the separator before the next field of an object and its name, or the end of the object.
+     *
+     * @param names known field names
+     * @param first whether no field has been consumed from the object
+     * @return the known name, {@link #UNKNOWN}, or {@code null} at the end of the object
+     */
+    private String field(FieldNames names, boolean first) throws JsonDecodingException {
+        var index = fieldIndex(names, first);
+        return index == END ? null : names.name(index);
+    }
+
+    /**
+     * Consumes the separator before the next field of an object and its name, or the end of the object.
+     *
+     * @param names known field names
+     * @param first whether no field has been consumed from the object
+     * @return index of the known name, -1 if unknown, or {@link #END} at the end of the object
+     */
+    private int fieldIndex(FieldNames names, boolean first) throws JsonDecodingException {
+        int c = next();
+        if (c == '}') {
+            return END;
+        }
+        if (!first) {
+            if (c != ',') {
+                throw error("expected ',' or '}'", pos - 1);
+            }
+            c = next();
+        }
+        if (c != '"') {
+            throw error("expected field name", pos - 1);
+        }
+        int index;
+        int from = pos;
+        int to = scanString();
+        if (to >= 0) {
+            index = names.indexOf(buf, from, to - from);
+        } else {
+            pos = from - 1;
+            var bytes = string().getBytes(StandardCharsets.UTF_8);
+            index = names.indexOf(bytes, 0, bytes.length);
+        }
+        if (next() != ':') {
+            throw error("expected ':'", pos - 1);
+        }
+        return index;
+    }
+
+    /**
+     * Consumes the separator before the next element of an array, or the end of the array.
+     *
+     * @param first whether no element has been consumed from the array
+     * @return {@code true} if an element follows, {@code false} at the end of the array
+     */
+    private boolean element(boolean first) throws JsonDecodingException {
+        skipWhitespace();
+        if (pos < end && buf[pos] == ']') {
+            pos++;
+            return false;
+        }
+        if (!first) {
+            if (next() != ',') {
+                throw error("expected ',' or ']'", pos - 1);
+            }
+            skipWhitespace();
+        }
+        return true;
+    }
+
+    private String string() throws JsonDecodingException {
+        if (skipNull()) {
+            return null;
+        }
+        var c = next();
+        if (c != '"') {
+            if (c == '-' || c >= '0' && c <= '9' || c == 't' || c == 'f') {
+                var from = --pos; // a number or a boolean as its text
+                skipValue();
+                return new String(buf, from, pos - from, StandardCharsets.US_ASCII);
+            }
+            throw error("expected string", pos - 1);
+        }
+        int from = pos;
+        int to = scanString();
+        if (to >= 0) {
+            return to == from ? "" : new String(buf, from, to - from, StandardCharsets.UTF_8);
+        }
+        var builder = new StringBuilder();
+        int segment = from;
+        pos = from;
+        while (true) {
+            if (pos >= end) {
+                throw error("unterminated string");
+            }
+            var b = buf[pos];
+            if (b == '"') {
+                builder.append(new String(buf, segment, pos - segment, StandardCharsets.UTF_8));
+                pos++;
+                return builder.toString();
+            }
+            if (b != '\\') {
+                pos++;
+                continue;
+            }
+            builder.append(new String(buf, segment, pos - segment, StandardCharsets.UTF_8));
+            if (++pos >= end) {
+                throw error("unterminated string");
+            }
+            switch (buf[pos++]) {
+                case '"':
+                    builder.append('"');
+                    break;
+                case '\\':
+                    builder.append('\\');
+                    break;
+                case '/':
+                    builder.append('/');
+                    break;
+                case 'b':
+                    builder.append('\b');
+                    break;
+                case 'f':
+                    builder.append('\f');
+                    break;
+                case 'n':
+                    builder.append('\n');
+                    break;
+                case 'r':
+                    builder.append('\r');
+                    break;
+                case 't':
+                    builder.append('\t');
+                    break;
+                case 'u':
+                    builder.append(hexChar());
+                    break;
+                default:
+                    throw error("invalid escape", pos - 1);
+            }
+            segment = pos;
+        }
+    }
+
+    /**
+     * Decodes a string, taking it from the pool if any and the string has no escapes.
+     */
+    private String pooledString() throws JsonDecodingException {
+        if (pool == null || peek() != '"') {
+            return string();
+        }
+        int from = ++pos;
+        int to = scanString();
+        if (to < 0) {
+            pos = from - 1;
+            return string();
+        }
+        return pool.intern(buf, from, to - from);
+    }
+
+    /**
+     * Scans the rest of a string without escapes.
+     *
+     * @return offset of the closing quote, after which the position is left, or -1 if the string has an escape
+     */
+    private int scanString() throws JsonDecodingException {
+        for (int i = pos; i < end; i++) {
+            var b = buf[i];
+            if (b == '"') {
+                pos = i + 1;
+                return i;
+            }
+            if (b == '\\') {
+                return -1;
+            }
+            if (b >= 0 && b < 0x20) {
+                throw error("control character in string", i);
+            }
+        }
+        throw error("unterminated string", end);
+    }
+
+    private char hexChar() throws JsonDecodingException {
+        if (end - pos < 4) {
+            throw error("invalid unicode escape");
+        }
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+            int digit = Character.digit(buf[pos + i], 16);
+            if (digit < 0) {
+                throw error("invalid unicode escape", pos + i);
+            }
+            value = value << 4 | digit;
+        }
+        pos += 4;
+        return (char) value;
+    }
+
+    private int intValue(int defaultValue) throws JsonDecodingException {
+        var from = pos;
+        var value = longValue(defaultValue);
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw error("number out of int range", from);
+        }
+        return (int) value;
+    }
+
+    private long longValue(long defaultValue) throws JsonDecodingException {
+        if (skipNull()) {
+            return defaultValue;
+        }
+        if (peek() == '"') {
+            var from = pos;
+            var text = string();
+            try {
+                return Long.parseLong(text.trim());
+            } catch (NumberFormatException e) {
+                throw error("expected number", from);
+            }
+        }
+        var from = pos;
+        var negative = pos < end && buf[pos] == '-';
+        if (negative) {
+            pos++;
+        }
+        if (pos >= end || buf[pos] < '0' || buf[pos] > '9') {
+            throw error("expected number", from);
+        }
+        long value = 0;
+        while (pos < end && buf[pos] >= '0' && buf[pos] <= '9') {
+            var digit = buf[pos++] - '0';
+            if (value < (Long.MIN_VALUE + digit) / 10) {
+                throw error("number out of long range", from);
+            }
+            value = value * 10 - digit; // accumulated negatively to reach Long.MIN_VALUE
+        }
+        if (pos < end && (buf[pos] == '.' || buf[pos] == 'e' || buf[pos] == 'E')) {
+            throw error("expected integer", from);
+        }
+        if (!negative) {
+            if (value == Long.MIN_VALUE) {
+                throw error("number out of long range", from);
+            }
+            value = -value;
+        }
+        return value;
+    }
+
+    private boolean booleanValue(boolean defaultValue) throws JsonDecodingException {
+        if (skipNull()) {
+            return defaultValue;
+        }
+        if (peek() == '"') {
+            return Boolean.parseBoolean(string());
+        }
+        if (skipLiteral("true")) {
+            return true;
+        }
+        if (skipLiteral("false")) {
+            return false;
+        }
+        throw error("expected boolean");
+    }
+
+    private void skipValue() throws JsonDecodingException {
+        switch (peek()) {
+            case '"':
+                pos++;
+                if (scanString() < 0) {
+                    pos--;
+                    string();
+                }
+                return;
+            case '{':
+                enter();
+                pos++;
+                for (var first = true; field(FieldNames.NONE, first) != null; first = false) {
+                    skipValue();
+                }
+                depth--;
+                return;
+            case '[':
+                enter();
+                pos++;
+                for (var first = true; element(first); first = false) {
+                    skipValue();
+                }
+                depth--;
+                return;
+            case 't':
+            case 'f':
+                booleanValue(false);
+                return;
+            case 'n':
+                skipNull();
+                return;
+            default:
+                skipNumber();
+        }
+    }
+
+    private void skipNumber() throws JsonDecodingException {
+        var from = pos;
+        while (pos < end) {
+            var b = buf[pos];
+            if (b >= '0' && b <= '9' || b == '-' || b == '+' || b == '.' || b == 'e' || b == 'E') {
+                pos++;
+            } else {
+                break;
+            }
+        }
+        if (pos == from) {
+            throw error("unexpected character");
+        }
+    }
+
+    private void enter() throws JsonDecodingException {
+        if (++depth > MAX_DEPTH) {
+            throw error("nesting too deep");
+        }
+    }
+
+    private boolean skipNull() throws JsonDecodingException {
+        return peek() == 'n' && skipLiteral("null");
+    }
+
+    private boolean skipLiteral(String literal) {
+        if (end - pos < literal.length()) {
+            return false;
+        }
+        for (int i = 0; i < literal.length(); i++) {
+            if (buf[pos + i] != literal.charAt(i)) {
+                return false;
+            }
+        }
+        pos += literal.length();
+        return true;
+    }
+
+    /**
+     * Skips whitespace and returns the next byte without consuming it.
+     */
+    private int peek() throws JsonDecodingException {
+        skipWhitespace();
+        if (pos >= end) {
+            throw error("unexpected end of json");
+        }
+        return buf[pos];
+    }
+
+    /**
+     * Skips whitespace and consumes the next byte.
+     */
+    private int next() throws JsonDecodingException {
+        var c = peek();
+        pos++;
+        return c;
+    }
+
+    private void skipWhitespace() {
+        while (pos < end) {
+            var b = buf[pos];
+            if (b != ' ' && b != '\n' && b != '\r' && b != '\t') {
+                return;
+            }
+            pos++;
+        }
+    }
+
+    private JsonDecodingException error(String message) {
+        return error(message, pos);
+    }
+
+    private JsonDecodingException error(String message, int at) {
+        return new JsonDecodingException(message, at - start);
+    }
+
+    /**
+     * Open-addressing table of field names keyed by their UTF-8 bytes.
+     */
+    private static final class FieldNames {
+        static final FieldNames NONE = new FieldNames();
+        private final String[] names;
+        private final byte[][] bytes;
+        private final int[] slots;
+
+        FieldNames(String... names) {
+            this.names = names;
+            this.bytes = new byte[names.length][];
+            this.slots = new int[Integer.highestOneBit(Math.max(names.length, 1) * 4)];
+            for (int i = 0; i < names.length; i++) {
+                bytes[i] = names[i].getBytes(StandardCharsets.UTF_8);
+                int slot = hash(bytes[i], 0, bytes[i].length) & (slots.length - 1);
+                while (slots[slot] != 0) {
+                    slot = (slot + 1) & (slots.length - 1);
+                }
+                slots[slot] = i + 1;
+            }
+        }
+
+        /**
+         * Finds a name.
+         *
+         * @return index of the name, or -1 if not found
+         */
+        int indexOf(byte[] buf, int offset, int length) {
+            for (int slot = hash(buf, offset, length) & (slots.length - 1); slots[slot] != 0;
+                 slot = (slot + 1) & (slots.length - 1)) {
+                var candidate = bytes[slots[slot] - 1];
+                if (Arrays.equals(candidate, 0, candidate.length, buf, offset, offset + length)) {
+                    return slots[slot] - 1;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Returns a name by its index.
+         *
+         * @return the name, or {@link #UNKNOWN} if the index is -1
+         */
+        String name(int index) {
+            return index < 0 ? UNKNOWN : names[index];
+        }
+
+        int size() {
+            return names.length;
+        }
+
+        private static int hash(byte[] buf, int offset, int length) {
+            int h = length;
+            for (int i = offset; i < offset + length; i++) {
+                h = 31 * h + buf[i];
+            }
+            return h ^ (h >>> 16);
+        }
+    }
+}
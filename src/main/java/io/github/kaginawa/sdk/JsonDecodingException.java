@@ -0,0 +1,46 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import java.io.IOException;
+
+/**
+ * Signals that a response body is not well-formed JSON or does not match the expected model.
+ */
+final class JsonDecodingException extends IOException {
+    private static final long serialVersionUID = 1L;
+    private final int offset;
+
+    /**
+     * Constructs a {@link JsonDecodingException}.
+     *
+     * @param message message
+     * @param offset  byte offset in the input where decoding failed
+     */
+    JsonDecodingException(String message, int offset) {
+        super(message + " at byte " + offset);
+        this.offset = offset;
+    }
+
+    /**
+     * Returns the offset where decoding failed.
+     *
+     * @return byte offset in the input
+     */
+    int getOffset() {
+        return offset;
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import io.github.kaginawa.sdk.spi.JsonCodec;
+import io.github.kaginawa.sdk.spi.JsonCodecProvider;
+
+import javax.json.bind.Jsonb;
+import javax.json.bind.JsonbBuilder;
+import javax.json.bind.JsonbConfig;
+import javax.json.bind.JsonbException;
+import javax.json.bind.config.PropertyNamingStrategy;
+import javax.json.bind.config.PropertyVisibilityStrategy;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link JsonCodec} based on JSON-B, which binds the fields of the data classes reflectively.
+ * <p>
+ * It requires a JSON-B implementation such as Yasson at runtime, which the SDK does not depend on.
+ * </p>
+ */
+final class JsonbCodec implements JsonCodec {
+    static final String NAME = "jsonb";
+    private static final Type REPORT_LIST = new ArrayList<Report>() {
+    }.getClass().getGenericSuperclass();
+    private final Jsonb jsonb;
+
+    /**
+     * Constructs a {@link JsonbCodec}.
+     *
+     * @throws JsonbException if no JSON-B implementation is found
+     */
+    JsonbCodec() {
+        var config = new JsonbConfig()
+                .withPropertyNamingStrategy(PropertyNamingStrategy.LOWER_CASE_WITH_UNDERSCORES)
+                .withPropertyVisibilityStrategy(new PropertyVisibilityStrategy() {
+                    @Override
+                    public boolean isVisible(Field field) {
+                        return true;
+                    }
+
+                    @Override
+                    public boolean isVisible(Method method) {
+                        return false;
+                    }
+                });
+        this.jsonb = JsonbBuilder.create(config);
+    }
+
+    @Override
+    public List<Report> decodeReports(byte[] buf, int offset, int length) throws IOException {
+        return decode(buf, offset, length, REPORT_LIST);
+    }
+
+    @Override
+    public Report decodeReport(byte[] buf, int offset, int length) throws IOException {
+        return decode(buf, offset, length, Report.class);
+    }
+
+    @Override
+    public SshServer decodeSshServer(byte[] buf, int offset, int length) throws IOException {
+        return decode(buf, offset, length, SshServer.class);
+    }
+
+    private <T> T decode(byte[] buf, int offset, int length, Type type) throws IOException {
+        try {
+            return jsonb.fromJson(new String(buf, offset, length, StandardCharsets.UTF_8), type);
+        } catch (RuntimeException e) { // JsonbException, or JsonException thrown by the parser
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Provider of {@link JsonbCodec}, available without registration when JSON-B and its implementation are.
+     */
+    static final class Provider implements JsonCodecProvider {
+        @Override
+        public String getName() {
+            return NAME;
+        }
+
+        @Override
+        public JsonCodec create() {
+            try {
+                return new JsonbCodec();
+            } catch (RuntimeException | LinkageError e) {
+                throw new IllegalStateException("JSON-B implementation not found", e);
+            }
+        }
+    }
+}
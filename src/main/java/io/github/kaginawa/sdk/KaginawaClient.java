@@ -15,39 +15,86 @@
  */
 package io.github.kaginawa.sdk;
 
-import javax.json.bind.Jsonb;
-import javax.json.bind.JsonbBuilder;
-import javax.json.bind.JsonbConfig;
-import javax.json.bind.JsonbException;
-import javax.json.bind.config.PropertyNamingStrategy;
-import javax.json.bind.config.PropertyVisibilityStrategy;
+import io.github.kaginawa.sdk.spi.JsonCodec;
+import io.github.kaginawa.sdk.spi.JsonCodecProvider;
+import io.github.kaginawa.sdk.spi.Transport;
+import io.github.kaginawa.sdk.spi.TransportOptions;
+import io.github.kaginawa.sdk.spi.TransportProvider;
+import io.github.kaginawa.sdk.spi.TransportRequest;
+import io.github.kaginawa.sdk.spi.TransportResponse;
+
 import java.io.IOException;
-import java.lang.reflect.Field;
-import java.lang.reflect.Method;
-import java.lang.reflect.Type;
+import java.io.InputStream;
 import java.net.ProxySelector;
+import java.net.SocketTimeoutException;
 import java.net.URI;
 import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.ServiceLoader;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 /**
  * API client for the Kaginawa Server.
+ * <p>
+ * Every operation is available in a blocking form and an asynchronous form suffixed by {@code Async}.
+ * The asynchronous forms return a {@link CompletableFuture} that completes exceptionally with a
+ * {@link KaginawaServerException} on network or data errors, and cancelling the future aborts the exchange.
+ * </p>
+ * <p>
+ * Every operation completes within its timeout, including waiting for rate limit permits, retries and decoding,
+ * or fails with a {@link KaginawaTimeoutException}. See {@link Builder#timeout(Operation, Duration)} and
+ * {@link #withTimeout(Duration)}.
+ * </p>
  *
  * @since 0.0.1
  */
 public class KaginawaClient {
     private static final String NODE_RESOURCE = "/nodes";
     private static final String SERVER_RESOURCE = "/servers";
-    private final String endpoint;
+    private static final String ACCEPT_ENCODING = "gzip, deflate";
+    private static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(30);
+    private static final Duration DEFAULT_CONNECT_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration DEFAULT_HISTORY_WINDOW = Duration.ofDays(1);
+    private final List<String> endpoints;
     private final String apiKey;
-    private final HttpClient httpClient;
-    private final HttpResponse.BodyHandler<String> stringHandler;
-    private final Jsonb jsonb;
+    private final Transport transport;
+    private final JsonCodec jsonCodec;
+    private final Parser<List<Report>> reportsParser;
+    private final Parser<Report> reportParser;
+    private final Executor executor;
+    private final boolean compression;
+    private final Duration requestTimeout;
+    private final long maxResponseSize;
+    private final TransportRequest getTemplate;
+    private final TransportRequest commandTemplate;
+    private final Map<Operation, Duration> timeouts;
+    private final LongAdder receivedBytes;
+    private final LongAdder decodedBytes;
+    private final Retrier retrier;
+    private final CircuitBreaker circuitBreaker;
+    private final RateLimiter rateLimiter;
+    private final ResponseCache responseCache;
+    private final SingleFlight singleFlight;
+    private final LoadBalancer loadBalancer;
+    private final Hedger hedger;
 
     /**
      * Constructs a {@link KaginawaClient}.
@@ -58,7 +105,21 @@ public class KaginawaClient {
      * @throws IllegalArgumentException if the given parameter is empty or invalid
      */
     public KaginawaClient(String endpoint, String apiKey) {
-        this(endpoint, apiKey, HttpClient.newHttpClient());
+        this(Builder.newBuilder().endpoint(endpoint).apiKey(apiKey));
+    }
+
+    /**
+     * Constructs a {@link KaginawaClient} with an executor for asynchronous operations.
+     *
+     * @param endpoint endpoint url (http://foo or https://foo)
+     * @param apiKey   api key with ADMIN role
+     * @param executor executor for decoding responses of asynchronous operations
+     * @throws NullPointerException     if the given parameter is {@code null}
+     * @throws IllegalArgumentException if the given parameter is empty or invalid
+     * @since 0.3.0
+     */
+    public KaginawaClient(String endpoint, String apiKey, Executor executor) {
+        this(Builder.newBuilder().endpoint(endpoint).apiKey(apiKey).executor(executor));
     }
 
     /**
@@ -71,58 +132,178 @@ public class KaginawaClient {
      * @throws IllegalArgumentException if the given parameter is empty or invalid
      */
     public KaginawaClient(String endpoint, String apiKey, ProxySelector proxySelector) {
-        this(endpoint, apiKey, HttpClient.newBuilder().proxy(proxySelector).build());
+        this(Builder.newBuilder().endpoint(endpoint).apiKey(apiKey).proxy(proxySelector));
+    }
+
+    /**
+     * Constructs a {@link KaginawaClient} with custom {@link Transport} designed for unit testing.
+     *
+     * @param endpoint  endpoint url (http://foo or https://foo)
+     * @param apiKey    api key with ADMIN role
+     * @param transport a {@link Transport} object
+     * @throws NullPointerException     if the given parameter is {@code null}
+     * @throws IllegalArgumentException if the given parameter is empty or invalid
+     */
+    KaginawaClient(String endpoint, String apiKey, Transport transport) {
+        this(Builder.newBuilder().endpoint(endpoint).apiKey(apiKey).transport(transport));
     }
 
     /**
-     * Constructs a {@link KaginawaClient} with custom {@link HttpClient} designed for unit testing.
+     * Constructs a {@link KaginawaClient} with custom {@link Transport} and {@link Executor}.
      *
-     * @param endpoint   endpoint url (http://foo or https://foo)
-     * @param apiKey     api key with ADMIN role
-     * @param httpClient an {@link HttpClient} object
+     * @param endpoint  endpoint url (http://foo or https://foo)
+     * @param apiKey    api key with ADMIN role
+     * @param transport a {@link Transport} object
+     * @param executor  executor for decoding responses of asynchronous operations
      * @throws NullPointerException     if the given parameter is {@code null}
      * @throws IllegalArgumentException if the given parameter is empty or invalid
      */
-    KaginawaClient(String endpoint, String apiKey, HttpClient httpClient) {
-        Objects.requireNonNull(endpoint, "endpoint is required");
-        Objects.requireNonNull(apiKey, "apiKey is required");
-        Objects.requireNonNull(httpClient, "httpClient is required");
-        if (endpoint.isEmpty()) {
-            throw new IllegalArgumentException("endpoint is empty");
+    KaginawaClient(String endpoint, String apiKey, Transport transport, Executor executor) {
+        this(Builder.newBuilder().endpoint(endpoint).apiKey(apiKey).transport(transport).executor(executor));
+    }
+
+    /**
+     * Constructs a {@link KaginawaClient} from the current state of the given builder.
+     *
+     * @param builder builder
+     * @throws IllegalStateException if the required parameter(s) are not set or conflicting options are set
+     */
+    private KaginawaClient(Builder builder) {
+        if (builder.endpoints == null) {
+            throw new IllegalStateException("endpoint is not set yet");
+        }
+        if (builder.apiKey == null) {
+            throw new IllegalStateException("apiKey is not set yet");
+        }
+        this.endpoints = builder.endpoints;
+        this.apiKey = builder.apiKey;
+        this.transport = createTransport(builder);
+        this.jsonCodec = createJsonCodec(builder);
+        if (jsonCodec instanceof LazyJsonCodec) {
+            // views may keep a whole response body, which is never modified, instead of a copy
+            var lazy = (LazyJsonCodec) jsonCodec;
+            this.reportsParser = lazy::decodeReportsInPlace;
+            this.reportParser = lazy::decodeReportInPlace;
+        } else {
+            this.reportsParser = jsonCodec::decodeReports;
+            this.reportParser = jsonCodec::decodeReport;
         }
-        if (!endpoint.startsWith("http://") && !endpoint.startsWith("https://")) {
-            throw new IllegalArgumentException("not an http or https endpoint: " + endpoint);
+        this.executor = builder.executor;
+        this.compression = builder.compression;
+        this.requestTimeout = builder.requestTimeout;
+        this.maxResponseSize = builder.maxResponseSize;
+        this.getTemplate = getTemplate();
+        this.commandTemplate = commandTemplate();
+        this.timeouts = new EnumMap<>(Operation.class);
+        for (var operation : Operation.values()) {
+            timeouts.put(operation, builder.timeouts.getOrDefault(operation, builder.timeout));
         }
-        if (apiKey.isEmpty()) {
-            throw new IllegalArgumentException("apiKey is empty");
+        this.receivedBytes = new LongAdder();
+        this.decodedBytes = new LongAdder();
+        this.retrier = new Retrier(builder.retryPolicy);
+        this.circuitBreaker = new CircuitBreaker(builder.circuitBreakerPolicy);
+        this.rateLimiter = new RateLimiter(builder.rateLimitPolicy);
+        this.responseCache = new ResponseCache(builder.responseCacheSize);
+        this.singleFlight = builder.coalescing ? new SingleFlight() : null;
+        this.loadBalancer = new LoadBalancer(endpoints, builder.probeInterval);
+        this.hedger = new Hedger(builder.hedgePolicy, loadBalancer);
+    }
+
+    /**
+     * Constructs a view of the given client with other timeouts.
+     *
+     * @param base     client to share everything but timeouts
+     * @param timeouts timeouts of operations
+     */
+    private KaginawaClient(KaginawaClient base, Map<Operation, Duration> timeouts) {
+        this.endpoints = base.endpoints;
+        this.apiKey = base.apiKey;
+        this.transport = base.transport;
+        this.jsonCodec = base.jsonCodec;
+        this.reportsParser = base.reportsParser;
+        this.reportParser = base.reportParser;
+        this.executor = base.executor;
+        this.compression = base.compression;
+        this.requestTimeout = base.requestTimeout;
+        this.maxResponseSize = base.maxResponseSize;
+        this.getTemplate = base.getTemplate;
+        this.commandTemplate = base.commandTemplate;
+        this.timeouts = timeouts;
+        this.receivedBytes = base.receivedBytes;
+        this.decodedBytes = base.decodedBytes;
+        this.retrier = base.retrier;
+        this.circuitBreaker = base.circuitBreaker;
+        this.rateLimiter = base.rateLimiter;
+        this.responseCache = base.responseCache;
+        this.singleFlight = base.singleFlight;
+        this.loadBalancer = base.loadBalancer;
+        this.hedger = base.hedger;
+    }
+
+    /**
+     * Returns a view of this client whose operations time out after the given duration, instead of the timeouts
+     * set to the builder. The view shares connections, caches, counters and policies with this client.
+     * <p>
+     * As with {@link Builder#timeout(Operation, Duration)}, the timeout of
+     * {@link #command(String, String, String, String, String, int)} is added to its {@code timeoutSec}.
+     * </p>
+     *
+     * @param timeout timeout of each operation called on the view
+     * @return a view of this client
+     * @throws NullPointerException     if the timeout is {@code null}
+     * @throws IllegalArgumentException if the timeout is zero or negative
+     * @since 0.3.0
+     */
+    public KaginawaClient withTimeout(Duration timeout) {
+        Builder.checkTimeout(timeout);
+        var map = new EnumMap<Operation, Duration>(Operation.class);
+        for (var operation : Operation.values()) {
+            map.put(operation, timeout);
         }
-        this.endpoint = endpoint;
-        this.apiKey = apiKey;
-        this.httpClient = httpClient;
-        this.stringHandler = HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8);
-        var config = new JsonbConfig()
-                .withPropertyNamingStrategy(PropertyNamingStrategy.LOWER_CASE_WITH_UNDERSCORES)
-                .withPropertyVisibilityStrategy(new PropertyVisibilityStrategy() {
-                    @Override
-                    public boolean isVisible(Field field) {
-                        return true;
-                    }
+        return new KaginawaClient(this, map);
+    }
 
-                    @Override
-                    public boolean isVisible(Method method) {
-                        return false;
-                    }
-                });
-        this.jsonb = JsonbBuilder.create(config);
+    /**
+     * Returns the timeout of the given operation.
+     *
+     * @param operation operation
+     * @return timeout
+     * @throws NullPointerException if the operation is {@code null}
+     * @since 0.3.0
+     */
+    public Duration getTimeout(Operation operation) {
+        Objects.requireNonNull(operation, "operation is required");
+        return timeouts.get(operation);
     }
 
     /**
-     * Returns an endpoint URL.
+     * Returns an endpoint URL. If multiple endpoints are set, returns the first one.
      *
      * @return endpoint
      */
     public String getEndpoint() {
-        return endpoint;
+        return endpoints.get(0);
+    }
+
+    /**
+     * Returns all endpoint URLs.
+     *
+     * @return unmodifiable list of endpoints
+     * @since 0.3.0
+     */
+    public List<String> getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     * Returns endpoint URLs currently in rotation, excluding those dropped due to consecutive failures.
+     *
+     * @return list of healthy endpoints
+     * @see Builder#endpoints(List)
+     * @since 0.3.0
+     */
+    public List<String> getHealthyEndpoints() {
+        return loadBalancer.getHealthyEndpoints();
     }
 
     /**
@@ -135,13 +316,109 @@ public class KaginawaClient {
     }
 
     /**
-     * Returns a {@link HttpResponse.BodyHandler} for decoding {@link String} responses.
+     * Returns whether the response compression is requested.
+     *
+     * @return {@code true} if {@code gzip} and {@code deflate} encodings are advertised, {@code false} otherwise
+     * @since 0.3.0
+     */
+    public boolean isCompression() {
+        return compression;
+    }
+
+    /**
+     * Returns the current state of the circuit breaker. Always {@link CircuitBreakerPolicy.State#CLOSED} if the
+     * circuit breaker is disabled.
+     *
+     * @return circuit breaker state
+     * @since 0.3.0
+     */
+    public CircuitBreakerPolicy.State getCircuitBreakerState() {
+        return circuitBreaker.getState();
+    }
+
+    /**
+     * Returns the number of results served from the response cache, either fresh or revalidated by
+     * {@code 304 Not Modified}.
+     *
+     * @return number of cache hits
+     * @see Builder#responseCache(int)
+     * @since 0.3.0
+     */
+    public long getCacheHits() {
+        return responseCache.getHits();
+    }
+
+    /**
+     * Returns the number of results downloaded and decoded while the response cache is enabled.
+     *
+     * @return number of cache misses
+     * @see Builder#responseCache(int)
+     * @since 0.3.0
+     */
+    public long getCacheMisses() {
+        return responseCache.getMisses();
+    }
+
+    /**
+     * Returns the number of hedged requests sent.
+     *
+     * @return number of hedges
+     * @see Builder#hedging(HedgePolicy)
+     * @since 0.3.0
+     */
+    public long getHedgeCount() {
+        return hedger.getHedges();
+    }
+
+    /**
+     * Returns the number of hedged requests that responded before the original request.
+     *
+     * @return number of hedges won
+     * @see Builder#hedging(HedgePolicy)
+     * @since 0.3.0
+     */
+    public long getHedgeWins() {
+        return hedger.getWins();
+    }
+
+    /**
+     * Returns the total number of response body bytes received on the wire, before decompression.
+     *
+     * @return number of bytes
+     * @since 0.3.0
+     */
+    public long getReceivedBytes() {
+        return receivedBytes.sum();
+    }
+
+    /**
+     * Returns the total number of response body bytes after decompression.
+     *
+     * @return number of bytes
+     * @since 0.3.0
+     */
+    public long getDecodedBytes() {
+        return decodedBytes.sum();
+    }
+
+    /**
+     * Returns the transport performing the exchanges.
+     * This method is package-private due to designed for unit testing.
+     *
+     * @return transport
+     */
+    Transport getTransport() {
+        return transport;
+    }
+
+    /**
+     * Returns the JSON codec decoding the response bodies.
      * This method is package-private due to designed for unit testing.
      *
-     * @return handler
+     * @return JSON codec
      */
-    HttpResponse.BodyHandler<String> getStringHandler() {
-        return stringHandler;
+    JsonCodec getJsonCodec() {
+        return jsonCodec;
     }
 
     /**
@@ -161,16 +438,39 @@ public class KaginawaClient {
      * @throws KaginawaServerException if the network or data error occurs
      */
     public List<Report> listAliveNodes(int thresholdMin) throws KaginawaServerException {
-        var url = endpoint + NODE_RESOURCE + "?projection=id";
-        if (thresholdMin > 0) {
-            url += "&minutes=" + thresholdMin;
-        }
-        var body = getStringResponse(url);
-        try {
-            return jsonb.fromJson(body, typeOfReportList());
-        } catch (JsonbException e) {
-            throw new KaginawaServerException("failed to decode nodes response: " + body, e);
-        }
+        return getStringResponse(Operation.LIST_ALIVE_NODES, aliveNodesPath(thresholdMin),
+                body -> decode(body, reportsParser, "nodes"));
+    }
+
+    /**
+     * Retrieves a list of Kaginawa nodes filtered by recently reported asynchronously.
+     *
+     * @param thresholdMin freshness threshold from last received time as minutes, 0 for unlimited
+     * @return future of list of newest reports
+     * @see #listAliveNodes(int)
+     * @since 0.3.0
+     */
+    public CompletableFuture<List<Report>> listAliveNodesAsync(int thresholdMin) {
+        return getStringResponseAsync(Operation.LIST_ALIVE_NODES, aliveNodesPath(thresholdMin),
+                body -> decode(body, reportsParser, "nodes"));
+    }
+
+    /**
+     * Streams Kaginawa nodes filtered by recently reported.
+     * <p>
+     * Elements are decoded one at a time while the response body is read, so the memory usage does not depend on
+     * the number of reports. The returned stream must be closed to release the connection.
+     * Failures while reading or decoding the body are thrown as {@link java.io.UncheckedIOException}.
+     * </p>
+     *
+     * @param thresholdMin freshness threshold from last received time as minutes, 0 for unlimited
+     * @return stream of newest reports
+     * @throws KaginawaServerException if the network error occurs or the server responds an error
+     * @see #listAliveNodes(int)
+     * @since 0.3.0
+     */
+    public Stream<Report> streamAliveNodes(int thresholdMin) throws KaginawaServerException {
+        return streamReports(Operation.LIST_ALIVE_NODES, aliveNodesPath(thresholdMin), "nodes");
     }
 
     /**
@@ -186,17 +486,87 @@ public class KaginawaClient {
      * @throws KaginawaServerException  if the network or data error occurs
      */
     public List<Report> listNodesByCustomId(String customId) throws KaginawaServerException {
-        Objects.requireNonNull(customId, "customId is required");
-        if (customId.isEmpty()) {
-            throw new IllegalArgumentException("customId is empty");
-        }
-        var url = endpoint + NODE_RESOURCE + "?custom-id=" + customId;
-        var body = getStringResponse(url);
-        try {
-            return jsonb.fromJson(body, typeOfReportList());
-        } catch (JsonbException e) {
-            throw new KaginawaServerException("failed to decode nodes response: " + body, e);
+        return getStringResponse(Operation.LIST_NODES_BY_CUSTOM_ID, nodesByCustomIdPath(customId),
+                body -> decode(body, reportsParser, "nodes"));
+    }
+
+    /**
+     * Retrieves a list of Kaginawa nodes filtered by given custom ID asynchronously.
+     *
+     * @param customId custom ID
+     * @return future of list of newest reports
+     * @throws NullPointerException     if the given parameter is {@code null}
+     * @throws IllegalArgumentException if the given parameter is empty
+     * @see #listNodesByCustomId(String)
+     * @since 0.3.0
+     */
+    public CompletableFuture<List<Report>> listNodesByCustomIdAsync(String customId) {
+        return getStringResponseAsync(Operation.LIST_NODES_BY_CUSTOM_ID, nodesByCustomIdPath(customId),
+                body -> decode(body, reportsParser, "nodes"));
+    }
+
+    /**
+     * Streams Kaginawa nodes filtered by given custom ID.
+     * <p>
+     * Elements are decoded one at a time while the response body is read, so the memory usage does not depend on
+     * the number of reports. The returned stream must be closed to release the connection.
+     * Failures while reading or decoding the body are thrown as {@link java.io.UncheckedIOException}.
+     * </p>
+     *
+     * @param customId custom ID
+     * @return stream of newest reports
+     * @throws NullPointerException     if the given parameter is {@code null}
+     * @throws IllegalArgumentException if the given parameter is empty
+     * @throws KaginawaServerException  if the network error occurs or the server responds an error
+     * @see #listNodesByCustomId(String)
+     * @since 0.3.0
+     */
+    public Stream<Report> streamNodesByCustomId(String customId) throws KaginawaServerException {
+        return streamReports(Operation.LIST_NODES_BY_CUSTOM_ID, nodesByCustomIdPath(customId), "nodes");
+    }
+
+    /**
+     * Retrieves lists of Kaginawa nodes filtered by each of given custom IDs.
+     * <p>
+     * Up to {@code concurrency} requests are sent at the same time, each by a blocking call on a virtual thread
+     * of its own on Java 21 or later.
+     * A failure of one custom ID is recorded in {@link BulkResult#getFailures()} and does not affect the others.
+     * </p>
+     *
+     * @param customIds   custom IDs, duplicates are ignored
+     * @param concurrency maximum number of concurrent requests
+     * @return lists of newest reports keyed by custom ID
+     * @throws NullPointerException     if the given parameter or any custom ID is {@code null}
+     * @throws IllegalArgumentException if any custom ID is empty or the concurrency is not a natural number
+     * @throws KaginawaServerException  if the operation is interrupted
+     * @since 0.3.0
+     */
+    public BulkResult<List<Report>> listNodesByCustomIds(Collection<String> customIds, int concurrency)
+            throws KaginawaServerException {
+        var perTask = ThreadSupport.perTaskExecutor();
+        if (perTask == null) {
+            return await(listNodesByCustomIdsAsync(customIds, concurrency));
         }
+        var keys = bulkKeys(customIds, "customId", concurrency);
+        return await(BoundedFanOut.run(keys, concurrency,
+                customId -> runBlocking(perTask, () -> listNodesByCustomId(customId))));
+    }
+
+    /**
+     * Retrieves lists of Kaginawa nodes filtered by each of given custom IDs asynchronously.
+     *
+     * @param customIds   custom IDs, duplicates are ignored
+     * @param concurrency maximum number of concurrent requests
+     * @return future of lists of newest reports keyed by custom ID
+     * @throws NullPointerException     if the given parameter or any custom ID is {@code null}
+     * @throws IllegalArgumentException if any custom ID is empty or the concurrency is not a natural number
+     * @see #listNodesByCustomIds(Collection, int)
+     * @since 0.3.0
+     */
+    public CompletableFuture<BulkResult<List<Report>>> listNodesByCustomIdsAsync(Collection<String> customIds,
+                                                                                 int concurrency) {
+        var keys = bulkKeys(customIds, "customId", concurrency);
+        return BoundedFanOut.run(keys, concurrency, this::listNodesByCustomIdAsync);
     }
 
     /**
@@ -209,17 +579,66 @@ public class KaginawaClient {
      * @throws KaginawaServerException  if the network or data error occurs (incl. not found)
      */
     public Report findNodeById(String id) throws KaginawaServerException {
-        Objects.requireNonNull(id, "id is required");
-        if (id.isEmpty()) {
-            throw new IllegalArgumentException("id is empty");
-        }
-        var url = endpoint + NODE_RESOURCE + "/" + id.toLowerCase();
-        var body = getStringResponse(url);
-        try {
-            return jsonb.fromJson(body, Report.class);
-        } catch (JsonbException e) {
-            throw new KaginawaServerException("failed to decode nodes response: " + body, e);
+        return getStringResponse(Operation.FIND_NODE_BY_ID, nodePath(id),
+                body -> decode(body, reportParser, "nodes"));
+    }
+
+    /**
+     * Retrieves a single Kaginawa node asynchronously.
+     *
+     * @param id ID, commonly MAC address
+     * @return future of a report
+     * @throws NullPointerException     if the given parameter is {@code null}
+     * @throws IllegalArgumentException if the given parameter is empty
+     * @see #findNodeById(String)
+     * @since 0.3.0
+     */
+    public CompletableFuture<Report> findNodeByIdAsync(String id) {
+        return getStringResponseAsync(Operation.FIND_NODE_BY_ID, nodePath(id),
+                body -> decode(body, reportParser, "nodes"));
+    }
+
+    /**
+     * Retrieves Kaginawa nodes by given IDs.
+     * <p>
+     * Up to {@code concurrency} requests are sent at the same time, each by a blocking call on a virtual thread
+     * of its own on Java 21 or later.
+     * A failure of one ID (incl. not found) is recorded in {@link BulkResult#getFailures()} and does not affect
+     * the others.
+     * </p>
+     *
+     * @param ids         IDs, commonly MAC addresses, duplicates are ignored
+     * @param concurrency maximum number of concurrent requests
+     * @return reports keyed by ID
+     * @throws NullPointerException     if the given parameter or any ID is {@code null}
+     * @throws IllegalArgumentException if any ID is empty or the concurrency is not a natural number
+     * @throws KaginawaServerException  if the operation is interrupted
+     * @since 0.3.0
+     */
+    public BulkResult<Report> findNodesByIds(Collection<String> ids, int concurrency)
+            throws KaginawaServerException {
+        var perTask = ThreadSupport.perTaskExecutor();
+        if (perTask == null) {
+            return await(findNodesByIdsAsync(ids, concurrency));
         }
+        var keys = bulkKeys(ids, "id", concurrency);
+        return await(BoundedFanOut.run(keys, concurrency, id -> runBlocking(perTask, () -> findNodeById(id))));
+    }
+
+    /**
+     * Retrieves Kaginawa nodes by given IDs asynchronously.
+     *
+     * @param ids         IDs, commonly MAC addresses, duplicates are ignored
+     * @param concurrency maximum number of concurrent requests
+     * @return future of reports keyed by ID
+     * @throws NullPointerException     if the given parameter or any ID is {@code null}
+     * @throws IllegalArgumentException if any ID is empty or the concurrency is not a natural number
+     * @see #findNodesByIds(Collection, int)
+     * @since 0.3.0
+     */
+    public CompletableFuture<BulkResult<Report>> findNodesByIdsAsync(Collection<String> ids, int concurrency) {
+        var keys = bulkKeys(ids, "id", concurrency);
+        return BoundedFanOut.run(keys, concurrency, this::findNodeByIdAsync);
     }
 
     /**
@@ -238,35 +657,32 @@ public class KaginawaClient {
      */
     public String command(String id, String command, String user, String key, String password, int timeoutSec)
             throws KaginawaServerException {
-        Objects.requireNonNull(id, "id is required");
-        Objects.requireNonNull(command, "command is required");
-        Objects.requireNonNull(user, "user is required");
-        if (id.isEmpty()) {
-            throw new IllegalArgumentException("id is empty");
-        }
-        if (command.isEmpty()) {
-            throw new IllegalArgumentException("command is empty");
-        }
-        if (user.isEmpty()) {
-            throw new IllegalArgumentException("user is empty");
-        }
-        var param = "command=" + command + "&user=" + user;
-        if (key != null && !key.isEmpty()) {
-            param += "&key=" + key;
-        }
-        if (password != null && !password.isEmpty()) {
-            param += "&password=" + password;
-        }
-        if (timeoutSec > 0) {
-            param += "&timeout=" + timeoutSec;
-        }
-        var url = endpoint + NODE_RESOURCE + "/" + id.toLowerCase() + "/command";
-        var request = HttpRequest.newBuilder(URI.create(url))
-                .header("Content-Type", "application/x-www-form-urlencoded; charset=utf-8")
-                .header("Authorization", "token " + apiKey)
-                .POST(HttpRequest.BodyPublishers.ofString(param))
-                .build();
-        return retrieveStringResponse(request);
+        var deadline = commandDeadline(timeoutSec);
+        return retrieveStringResponse(Operation.COMMAND,
+                commandRequest(id, command, user, key, password, timeoutSec, deadline), deadline);
+    }
+
+    /**
+     * Executes a command asynchronously.
+     *
+     * @param id         target ID, commonly MAC address
+     * @param command    command
+     * @param user       login user
+     * @param key        (optional) key content of the login user
+     * @param password   (optional) password of the login user
+     * @param timeoutSec (optional) timeout in seconds, set 0 to default
+     * @return future of result of given command
+     * @throws NullPointerException     if the given non-optional parameter is {@code null}
+     * @throws IllegalArgumentException if the given non-optional parameter is empty
+     * @see #command(String, String, String, String, String, int)
+     * @since 0.3.0
+     */
+    public CompletableFuture<String> commandAsync(String id, String command, String user, String key,
+                                                  String password, int timeoutSec) {
+        var deadline = commandDeadline(timeoutSec);
+        return deadline.bind(retrieveStringResponseAsync(Operation.COMMAND,
+                commandRequest(id, command, user, key, password, timeoutSec, deadline), this::checkText,
+                deadline));
     }
 
     /**
@@ -294,23 +710,100 @@ public class KaginawaClient {
      * @throws KaginawaServerException  if the network or data error occurs
      */
     public List<Report> listHistories(String id, long begin, long end) throws KaginawaServerException {
-        Objects.requireNonNull(id, "id is required");
-        if (id.isEmpty()) {
-            throw new IllegalArgumentException("id is empty");
-        }
-        var url = endpoint + NODE_RESOURCE + "/" + id + "/histories?projection=measurement";
-        if (begin > 0) {
-            url += "&begin=" + begin;
+        return getStringResponse(Operation.LIST_HISTORIES, historiesPath(id, begin, end),
+                body -> decode(body, reportsParser, "histories"));
+    }
+
+    /**
+     * Retrieves past received data of given ID asynchronously.
+     *
+     * @param id    ID
+     * @param begin begin time, 0 for unlimited
+     * @param end   end time, 0 for unlimited
+     * @return future of list of past received reports
+     * @throws NullPointerException     if the given parameter is {@code null}
+     * @throws IllegalArgumentException if the given parameter is empty
+     * @see #listHistories(String, long, long)
+     * @since 0.3.0
+     */
+    public CompletableFuture<List<Report>> listHistoriesAsync(String id, long begin, long end) {
+        return getStringResponseAsync(Operation.LIST_HISTORIES, historiesPath(id, begin, end),
+                body -> decode(body, reportsParser, "histories"));
+    }
+
+    /**
+     * Streams past received data of given ID.
+     * <p>
+     * Elements are decoded one at a time while the response body is read, so the memory usage does not depend on
+     * the number of reports. The returned stream must be closed to release the connection.
+     * Failures while reading or decoding the body are thrown as {@link java.io.UncheckedIOException}.
+     * </p>
+     *
+     * @param id    ID
+     * @param begin begin time, 0 for unlimited
+     * @param end   end time, 0 for unlimited
+     * @return stream of past received reports
+     * @throws NullPointerException     if the given parameter is {@code null}
+     * @throws IllegalArgumentException if the given parameter is empty
+     * @throws KaginawaServerException  if the network error occurs or the server responds an error
+     * @see #listHistories(String, long, long)
+     * @since 0.3.0
+     */
+    public Stream<Report> streamHistories(String id, long begin, long end) throws KaginawaServerException {
+        return streamReports(Operation.LIST_HISTORIES, historiesPath(id, begin, end), "histories");
+    }
+
+    /**
+     * Publishes past received data of given ID, fetched one day at a time on demand.
+     *
+     * @param id    ID
+     * @param begin begin time in Unix seconds
+     * @param end   end time in Unix seconds, 0 for the time of subscription
+     * @return publisher of past received reports
+     * @throws NullPointerException     if the given parameter is {@code null}
+     * @throws IllegalArgumentException if the given parameter is empty or out of range
+     * @see #publishHistories(String, long, long, Duration)
+     * @since 0.3.0
+     */
+    public Flow.Publisher<Report> publishHistories(String id, long begin, long end) {
+        return publishHistories(id, begin, end, DEFAULT_HISTORY_WINDOW);
+    }
+
+    /**
+     * Publishes past received data of given ID, fetched window by window on demand.
+     * <p>
+     * The range is split into windows of the given length. A window is requested from the server only when the
+     * subscriber has outstanding demand and all reports of the previous windows have been delivered, so that the
+     * memory usage is bounded by the size of a window rather than the whole range. Reports are emitted in the order
+     * of server time. Each subscription fetches the range independently; cancelling it cancels the request in
+     * flight. Failures are signalled to {@link Flow.Subscriber#onError(Throwable)} as
+     * {@link KaginawaServerException}.
+     * </p>
+     *
+     * @param id     ID
+     * @param begin  begin time in Unix seconds
+     * @param end    end time in Unix seconds, 0 for the time of subscription
+     * @param window length of a window, at least one second
+     * @return publisher of past received reports
+     * @throws NullPointerException     if the given parameter is {@code null}
+     * @throws IllegalArgumentException if the given parameter is empty or out of range
+     * @see #listHistories(String, long, long)
+     * @since 0.3.0
+     */
+    public Flow.Publisher<Report> publishHistories(String id, long begin, long end, Duration window) {
+        historiesPath(id, begin, end);
+        Objects.requireNonNull(window, "window is required");
+        if (begin <= 0) {
+            throw new IllegalArgumentException("begin must be positive: " + begin);
         }
-        if (end > 0) {
-            url += "&end=" + end;
+        if (end != 0 && end < begin) {
+            throw new IllegalArgumentException("end is before begin: " + end);
         }
-        var body = getStringResponse(url);
-        try {
-            return jsonb.fromJson(body, typeOfReportList());
-        } catch (JsonbException e) {
-            throw new KaginawaServerException("failed to decode histories response: " + body, e);
+        if (window.getSeconds() < 1) {
+            throw new IllegalArgumentException("window must be at least one second: " + window);
         }
+        return new WindowedPublisher(begin, end, window.getSeconds(),
+                (from, to) -> listHistoriesAsync(id, from, to), () -> System.currentTimeMillis() / 1000);
     }
 
     /**
@@ -323,46 +816,1189 @@ public class KaginawaClient {
      * @throws KaginawaServerException  if the network or data error occurs
      */
     public SshServer findSshServerByHostname(String hostname) throws KaginawaServerException {
-        Objects.requireNonNull(hostname, "hostname is required");
-        if (hostname.isEmpty()) {
+        return getStringResponse(Operation.FIND_SSH_SERVER_BY_HOSTNAME, serverPath(hostname),
+                body -> decode(body, jsonCodec::decodeSshServer, "servers"));
+    }
+
+    /**
+     * Retrieves a SSH server information by given hostname asynchronously.
+     *
+     * @param hostname hostname
+     * @return future of SSH server information
+     * @throws NullPointerException     if the given parameter is {@code null}
+     * @throws IllegalArgumentException if the given parameter is empty
+     * @see #findSshServerByHostname(String)
+     * @since 0.3.0
+     */
+    public CompletableFuture<SshServer> findSshServerByHostnameAsync(String hostname) {
+        return getStringResponseAsync(Operation.FIND_SSH_SERVER_BY_HOSTNAME, serverPath(hostname),
+                body -> decode(body, jsonCodec::decodeSshServer, "servers"));
+    }
+
+    private String aliveNodesPath(int thresholdMin) {
+        var path = NODE_RESOURCE + "?projection=id";
+        if (thresholdMin > 0) {
+            path += "&minutes=" + thresholdMin;
+        }
+        return path;
+    }
+
+    private String nodesByCustomIdPath(String customId) {
+        Objects.requireNonNull(customId, "customId is required");
+        if (customId.isEmpty()) {
+            throw new IllegalArgumentException("customId is empty");
+        }
+        return NODE_RESOURCE + "?custom-id=" + PercentEncoding.encode(customId);
+    }
+
+    private String nodePath(String id) {
+        Objects.requireNonNull(id, "id is required");
+        if (id.isEmpty()) {
+            throw new IllegalArgumentException("id is empty");
+        }
+        return NODE_RESOURCE + "/" + PercentEncoding.encode(id.toLowerCase());
+    }
+
+    private Deadline commandDeadline(int timeoutSec) {
+        return Deadline.after(timeouts.get(Operation.COMMAND).plusSeconds(Math.max(timeoutSec, 0)));
+    }
+
+    private Function<String, TransportRequest> commandRequest(String id, String command, String user, String key,
+                                                              String password, int timeoutSec, Deadline deadline) {
+        Objects.requireNonNull(id, "id is required");
+        Objects.requireNonNull(command, "command is required");
+        Objects.requireNonNull(user, "user is required");
+        if (id.isEmpty()) {
+            throw new IllegalArgumentException("id is empty");
+        }
+        if (command.isEmpty()) {
+            throw new IllegalArgumentException("command is empty");
+        }
+        if (user.isEmpty()) {
+            throw new IllegalArgumentException("user is empty");
+        }
+        var param = new StringBuilder("command=");
+        PercentEncoding.append(param, command).append("&user=");
+        PercentEncoding.append(param, user);
+        if (key != null && !key.isEmpty()) {
+            PercentEncoding.append(param.append("&key="), key);
+        }
+        if (password != null && !password.isEmpty()) {
+            PercentEncoding.append(param.append("&password="), password);
+        }
+        if (timeoutSec > 0) {
+            param.append("&timeout=").append(timeoutSec);
+        }
+        var path = NODE_RESOURCE + "/" + PercentEncoding.encode(id.toLowerCase()) + "/command";
+        var body = param.toString().getBytes(StandardCharsets.UTF_8);
+        return endpoint -> TransportRequest.Builder.newBuilder(URI.create(endpoint + path), commandTemplate)
+                .post(body)
+                .timeout(deadline.requestTimeout(requestTimeout))
+                .build();
+    }
+
+    private String historiesPath(String id, long begin, long end) {
+        Objects.requireNonNull(id, "id is required");
+        if (id.isEmpty()) {
+            throw new IllegalArgumentException("id is empty");
+        }
+        var path = NODE_RESOURCE + "/" + PercentEncoding.encode(id) + "/histories?projection=measurement";
+        if (begin > 0) {
+            path += "&begin=" + begin;
+        }
+        if (end > 0) {
+            path += "&end=" + end;
+        }
+        return path;
+    }
+
+    private String serverPath(String hostname) {
+        Objects.requireNonNull(hostname, "hostname is required");
+        if (hostname.isEmpty()) {
             throw new IllegalArgumentException("hostname is empty");
         }
-        var url = endpoint + SERVER_RESOURCE + "/" + hostname;
-        var body = getStringResponse(url);
+        return SERVER_RESOURCE + "/" + PercentEncoding.encode(hostname);
+    }
+
+    private List<String> bulkKeys(Collection<String> keys, String name, int concurrency) {
+        Objects.requireNonNull(keys, name + "s is required");
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("concurrency must be a natural number");
+        }
+        var distinct = new LinkedHashSet<String>();
+        for (var key : keys) {
+            Objects.requireNonNull(key, name + " is required");
+            if (key.isEmpty()) {
+                throw new IllegalArgumentException(name + " is empty");
+            }
+            distinct.add(key);
+        }
+        return new ArrayList<>(distinct);
+    }
+
+    private static <T> CompletableFuture<T> runBlocking(Executor executor, BlockingCall<T> call) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return call.call();
+            } catch (KaginawaServerException e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    private static <T> T await(CompletableFuture<T> future) throws KaginawaServerException {
         try {
-            return jsonb.fromJson(body, SshServer.class);
-        } catch (JsonbException e) {
-            throw new KaginawaServerException("failed to decode servers response: " + body, e);
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new KaginawaServerException("request interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof KaginawaServerException) {
+                throw (KaginawaServerException) e.getCause();
+            }
+            throw new KaginawaServerException("operation failed", e.getCause());
         }
     }
 
-    private Type typeOfReportList() {
-        return new ArrayList<Report>() {
-        }.getClass().getGenericSuperclass();
+    private <T> T decode(byte[] body, Parser<T> parser, String resource) throws KaginawaServerException {
+        try {
+            return parser.parse(body, 0, body.length);
+        } catch (IOException e) {
+            var at = e instanceof JsonDecodingException ? ((JsonDecodingException) e).getOffset() : -1;
+            var snippet = BodySnippet.excerpt(body, 0, body.length, at);
+            var offset = at >= 0 ? BodySnippet.charCount(body, 0, at) : -1;
+            var position = offset >= 0 ? ", error at character " + offset : "";
+            throw new KaginawaServerException("failed to decode " + resource + " response (" + body.length
+                    + " bytes" + position + "): " + snippet, -1, snippet, body.length, offset, e);
+        }
     }
 
-    private String getStringResponse(String url) throws KaginawaServerException {
-        var request = HttpRequest.newBuilder(URI.create(url))
+    private Stream<Report> streamReports(Operation operation, String path, String resource)
+            throws KaginawaServerException {
+        var deadline = Deadline.after(timeouts.get(operation));
+        var response = retrieveStreamResponse(operation, getRequest(path, null, deadline), deadline);
+        var reader = new JsonArrayReader(response);
+        return new StreamingIterator<>(reader, r -> decodeElement(r, jsonCodec::decodeReport, resource), resource)
+                .stream();
+    }
+
+    private <T> T decodeElement(JsonArrayReader reader, Parser<T> parser, String resource) throws IOException {
+        try {
+            return parser.parse(reader.buffer(), 0, reader.length());
+        } catch (IOException e) {
+            var at = e instanceof JsonDecodingException ? ((JsonDecodingException) e).getOffset() : -1;
+            throw new IOException("failed to decode " + resource + " element (" + reader.length() + " bytes): "
+                    + BodySnippet.excerpt(reader.buffer(), 0, reader.length(), at), e);
+        }
+    }
+
+    /**
+     * Builds the template of {@code GET} requests, whose headers are shared by every request of this client.
+     *
+     * @return template
+     */
+    private TransportRequest getTemplate() {
+        var builder = TransportRequest.Builder.newBuilder(URI.create(endpoints.get(0)))
                 .header("Accept", "application/json")
                 .header("Authorization", "token " + apiKey)
-                .build();
-        return retrieveStringResponse(request);
+                .maxResponseSize(maxResponseSize);
+        if (compression) {
+            builder.header("Accept-Encoding", ACCEPT_ENCODING);
+        }
+        return builder.build();
     }
 
-    private String retrieveStringResponse(HttpRequest request) throws KaginawaServerException {
-        HttpResponse<String> response;
+    /**
+     * Builds the template of command requests, whose headers are shared by every command of this client.
+     *
+     * @return template
+     */
+    private TransportRequest commandTemplate() {
+        var builder = TransportRequest.Builder.newBuilder(URI.create(endpoints.get(0)))
+                .header("Content-Type", "application/x-www-form-urlencoded; charset=utf-8")
+                .header("Authorization", "token " + apiKey)
+                .maxResponseSize(maxResponseSize);
+        if (compression) {
+            builder.header("Accept-Encoding", ACCEPT_ENCODING);
+        }
+        return builder.build();
+    }
+
+    private Function<String, TransportRequest> getRequest(String path, ResponseCache.Entry cached,
+                                                          Deadline deadline) {
+        return endpoint -> {
+            var builder = TransportRequest.Builder.newBuilder(URI.create(endpoint + path), getTemplate)
+                    .timeout(deadline.requestTimeout(requestTimeout));
+            if (cached != null && cached.etag != null) {
+                builder.header("If-None-Match", cached.etag);
+            }
+            if (cached != null && cached.lastModified != null) {
+                builder.header("If-Modified-Since", cached.lastModified);
+            }
+            return builder.build();
+        };
+    }
+
+    private <T> T getStringResponse(Operation operation, String path, Decoder<T> decoder)
+            throws KaginawaServerException {
+        var deadline = Deadline.after(timeouts.get(operation));
+        T result;
+        if (singleFlight != null) {
+            result = singleFlight.execute(path, deadline,
+                    () -> getCacheableResponse(operation, path, decoder, deadline));
+        } else {
+            result = getCacheableResponse(operation, path, decoder, deadline);
+        }
+        if (deadline.isExpired()) {
+            throw deadline.exceeded(); // decoding took too long
+        }
+        return result;
+    }
+
+    private <T> CompletableFuture<T> getStringResponseAsync(Operation operation, String path, Decoder<T> decoder) {
+        var deadline = Deadline.after(timeouts.get(operation));
+        if (singleFlight != null) {
+            return deadline.bind(singleFlight.executeAsync(path,
+                    () -> getCacheableResponseAsync(operation, path, decoder, deadline)));
+        }
+        return deadline.bind(getCacheableResponseAsync(operation, path, decoder, deadline));
+    }
+
+    private <T> T getCacheableResponse(Operation operation, String path, Decoder<T> decoder, Deadline deadline)
+            throws KaginawaServerException {
+        var cached = responseCache.lookup(path);
+        T fresh = responseCache.fresh(cached);
+        if (fresh != null) {
+            return fresh;
+        }
+        var response = sendStringRequest(operation, getRequest(path, cached, deadline), deadline);
+        return handleCacheableResponse(path, cached, response, decoder);
+    }
+
+    private <T> CompletableFuture<T> getCacheableResponseAsync(Operation operation, String path,
+                                                               Decoder<T> decoder, Deadline deadline) {
+        var cached = responseCache.lookup(path);
+        T fresh = responseCache.fresh(cached);
+        if (fresh != null) {
+            return CompletableFuture.completedFuture(fresh);
+        }
+        return retrieveStringResponseAsync(operation, getRequest(path, cached, deadline),
+                response -> handleCacheableResponse(path, cached, response, decoder), deadline);
+    }
+
+    private <T> T handleCacheableResponse(String path, ResponseCache.Entry cached, TransportResponse response,
+                                          Decoder<T> decoder) throws KaginawaServerException {
+        if (cached != null && response.getStatusCode() == 304) {
+            return responseCache.revalidated(path, cached, response);
+        }
+        return responseCache.store(path, response, decoder.decode(checkResponse(response)));
+    }
+
+    private String retrieveStringResponse(Operation operation, Function<String, TransportRequest> request,
+                                          Deadline deadline) throws KaginawaServerException {
+        return checkText(sendStringRequest(operation, request, deadline));
+    }
+
+    private TransportResponse sendStringRequest(Operation operation, Function<String, TransportRequest> request,
+                                                Deadline deadline) throws KaginawaServerException {
+        TransportResponse response;
         try {
-            response = httpClient.send(request, stringHandler);
+            if (!rateLimiter.acquire(operation, deadline.remainingNanos())) {
+                throw deadline.exceeded();
+            }
+            response = retrier.send(() -> circuitBreaker.send(
+                    () -> hedger.send(operation, request, r -> BufferedResponse.of(transport.send(r), maxResponseSize),
+                            transport::sendAsync)),
+                    operation.isIdempotent(), deadline);
         } catch (IOException e) {
-            throw new KaginawaServerException("failed to connect kaginawa server: " + endpoint, e);
+            throw connectionFailure(e);
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             throw new KaginawaServerException("request interrupted", e);
         }
-        if (response.statusCode() != 200) {
-            var msg = "HTTP " + response.statusCode() + " " + response.body();
-            throw new KaginawaServerException(msg, response.statusCode());
+        return response;
+    }
+
+    private InputStream retrieveStreamResponse(Operation operation, Function<String, TransportRequest> request,
+                                               Deadline deadline) throws KaginawaServerException {
+        TransportResponse response;
+        try {
+            if (!rateLimiter.acquire(operation, deadline.remainingNanos())) {
+                throw deadline.exceeded();
+            }
+            response = retrier.send(() -> circuitBreaker.send(
+                    () -> loadBalancer.send(request, transport::send)),
+                    operation.isIdempotent(), deadline);
+        } catch (IOException e) {
+            throw connectionFailure(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new KaginawaServerException("request interrupted", e);
+        }
+        if (response.getStatusCode() != 200) {
+            throw statusFailure(response);
+        }
+        try {
+            return ContentDecoding.decode(response, receivedBytes, decodedBytes, maxResponseSize);
+        } catch (IOException e) {
+            throw readFailure(e);
+        }
+    }
+
+    private <T> CompletableFuture<T> retrieveStringResponseAsync(Operation operation,
+                                                                 Function<String, TransportRequest> request,
+                                                                 ResponseHandler<T> handler, Deadline deadline) {
+        var exchange = rateLimiter.schedule(operation, deadline, () -> retrier.sendAsync(() -> circuitBreaker.sendAsync(
+                () -> hedger.sendAsync(operation, request, transport::sendAsync)),
+                operation.isIdempotent(), deadline));
+        var future = exchange.thenApplyAsync(response -> {
+            try {
+                return handler.handle(response);
+            } catch (KaginawaServerException e) {
+                throw new CompletionException(e);
+            }
+        }, executor).exceptionally(e -> {
+            var cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof KaginawaServerException) {
+                throw new CompletionException(cause);
+            }
+            if (cause instanceof IOException) {
+                throw new CompletionException(connectionFailure((IOException) cause));
+            }
+            throw e instanceof CompletionException ? (CompletionException) e : new CompletionException(e);
+        });
+        future.whenComplete((result, e) -> {
+            if (e instanceof CancellationException) {
+                exchange.cancel(true);
+            }
+        });
+        return future;
+    }
+
+    private KaginawaServerException connectionFailure(IOException e) {
+        if (e instanceof HttpTimeoutException || e instanceof SocketTimeoutException) {
+            return new KaginawaTimeoutException("request timed out: " + String.join(", ", endpoints), e);
+        }
+        if (e instanceof CircuitBreakerOpenException || e instanceof ResponseTooLargeException) {
+            return new KaginawaServerException(e.getMessage() + ": " + String.join(", ", endpoints), e);
+        }
+        return new KaginawaServerException("failed to connect kaginawa server: " + String.join(", ", endpoints), e);
+    }
+
+    private KaginawaServerException readFailure(IOException e) {
+        if (e instanceof ResponseTooLargeException) {
+            return new KaginawaServerException(e.getMessage() + ": " + String.join(", ", endpoints), e);
+        }
+        return new KaginawaServerException("failed to read response body: " + String.join(", ", endpoints), e);
+    }
+
+    /**
+     * Builds the exception for a non-{@code 200} response, keeping only the head of its body.
+     *
+     * @param response response
+     * @return exception
+     */
+    private KaginawaServerException statusFailure(TransportResponse response) {
+        var status = response.getStatusCode();
+        try (var in = ContentDecoding.decode(response, receivedBytes, decodedBytes, maxResponseSize)) {
+            var snippet = BodySnippet.read(in);
+            return new KaginawaServerException("HTTP " + status + " " + snippet.getText(), status,
+                    snippet.getText(), snippet.getLength(), -1, null);
+        } catch (IOException e) {
+            return new KaginawaServerException("HTTP " + status + " ", status); // keep the status only
+        }
+    }
+
+    private byte[] checkResponse(TransportResponse response) throws KaginawaServerException {
+        if (response.getStatusCode() != 200) {
+            throw statusFailure(response);
+        }
+        try (var in = ContentDecoding.decode(response, receivedBytes, decodedBytes, maxResponseSize)) {
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw readFailure(e);
+        }
+    }
+
+    private String checkText(TransportResponse response) throws KaginawaServerException {
+        return new String(checkResponse(response), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Creates the transport set to the given builder, or a new transport from its transport options.
+     *
+     * @param builder builder
+     * @return transport
+     * @throws IllegalStateException if conflicting options are set or the chosen transport is not found
+     */
+    private static Transport createTransport(Builder builder) {
+        if (builder.httpClient != null || builder.transport != null) {
+            if (builder.httpClient != null && builder.transport != null) {
+                throw new IllegalStateException("httpClient cannot be combined with transport");
+            }
+            if (builder.proxySelector != null || builder.version != null || builder.connectTimeout != null
+                    || builder.httpExecutor != null || builder.maxConnections != 0 || builder.transportName != null) {
+                throw new IllegalStateException("httpClient or transport cannot be combined with proxy, version, "
+                        + "connectTimeout, httpExecutor, maxConnections or transport name");
+            }
+            return builder.transport != null ? builder.transport : new JdkTransport(builder.httpClient);
+        }
+        var httpExecutor = builder.httpExecutor;
+        if (httpExecutor == null) {
+            httpExecutor = ThreadSupport.defaultHttpExecutor();
+        }
+        var options = TransportOptions.Builder.newBuilder()
+                .proxy(builder.proxySelector)
+                .version(builder.version)
+                .connectTimeout(builder.connectTimeout != null ? builder.connectTimeout : DEFAULT_CONNECT_TIMEOUT)
+                .executor(httpExecutor)
+                .maxConnections(builder.maxConnections)
+                .build();
+        return findTransportProvider(builder.transportName).create(options);
+    }
+
+    private static TransportProvider findTransportProvider(String name) {
+        TransportProvider selected = new JdkTransport.Provider();
+        if (JdkTransport.NAME.equals(name)) {
+            return selected;
+        }
+        if (NioTransport.NAME.equals(name)) {
+            return new NioTransport.Provider();
+        }
+        for (var provider : ServiceLoader.load(TransportProvider.class)) {
+            if (name != null ? name.equals(provider.getName()) : provider.getPriority() > selected.getPriority()) {
+                selected = provider;
+            }
+        }
+        if (name != null && !name.equals(selected.getName())) {
+            throw new IllegalStateException("transport not found: " + name);
+        }
+        return selected;
+    }
+
+    private static JsonCodec createJsonCodec(Builder builder) {
+        if (builder.jsonCodec != null) {
+            return builder.jsonCodec;
+        }
+        var provider = findJsonCodecProvider(builder.jsonCodecName);
+        if (builder.stringPoolPolicy.isEnabled()) {
+            if (provider instanceof BuiltinJsonCodec.Provider) {
+                return new BuiltinJsonCodec(new StringPool(builder.stringPoolPolicy));
+            }
+            if (provider instanceof LazyJsonCodec.Provider) {
+                return new LazyJsonCodec(new StringPool(builder.stringPoolPolicy));
+            }
+        }
+        return provider.create();
+    }
+
+    private static JsonCodecProvider findJsonCodecProvider(String name) {
+        JsonCodecProvider selected = new BuiltinJsonCodec.Provider();
+        if (BuiltinJsonCodec.NAME.equals(name)) {
+            return selected;
+        }
+        if (LazyJsonCodec.NAME.equals(name)) {
+            return new LazyJsonCodec.Provider();
+        }
+        if (JsonbCodec.NAME.equals(name)) {
+            return new JsonbCodec.Provider();
+        }
+        for (var provider : ServiceLoader.load(JsonCodecProvider.class)) {
+            if (name != null ? name.equals(provider.getName()) : provider.getPriority() > selected.getPriority()) {
+                selected = provider;
+            }
+        }
+        if (name != null && !name.equals(selected.getName())) {
+            throw new IllegalStateException("JSON codec not found: " + name);
+        }
+        return selected;
+    }
+
+    /**
+     * Decodes a response body, possibly on a thread other than the caller.
+     *
+     * @param <T> type of decoded object
+     */
+    @FunctionalInterface
+    private interface Decoder<T> {
+        T decode(byte[] body) throws KaginawaServerException;
+    }
+
+    /**
+     * Parses a JSON value held in a byte array.
+     *
+     * @param <T> type of parsed object
+     */
+    @FunctionalInterface
+    private interface Parser<T> {
+        T parse(byte[] buf, int offset, int length) throws IOException;
+    }
+
+    /**
+     * Performs a blocking operation on a thread of its own.
+     *
+     * @param <T> type of result
+     */
+    @FunctionalInterface
+    private interface BlockingCall<T> {
+        T call() throws KaginawaServerException;
+    }
+
+    /**
+     * Handles a whole response, possibly on a thread other than the caller.
+     *
+     * @param <T> type of result
+     */
+    @FunctionalInterface
+    private interface ResponseHandler<T> {
+        T handle(TransportResponse response) throws KaginawaServerException;
+    }
+
+    /**
+     * Builds a {@link KaginawaClient}.
+     *
+     * @since 0.3.0
+     */
+    public static class Builder {
+        private List<String> endpoints;
+        private Duration probeInterval = Duration.ofSeconds(5);
+        private String apiKey;
+        private ProxySelector proxySelector;
+        private HttpClient httpClient;
+        private Transport transport;
+        private String transportName;
+        private JsonCodec jsonCodec;
+        private String jsonCodecName;
+        private Executor executor = ThreadSupport.defaultExecutor();
+        private boolean compression = true;
+        private HttpClient.Version version;
+        private Duration connectTimeout;
+        private Executor httpExecutor;
+        private int maxConnections;
+        private Duration requestTimeout;
+        private long maxResponseSize;
+        private RetryPolicy retryPolicy = RetryPolicy.none();
+        private CircuitBreakerPolicy circuitBreakerPolicy = CircuitBreakerPolicy.disabled();
+        private RateLimitPolicy rateLimitPolicy = RateLimitPolicy.unlimited();
+        private int responseCacheSize;
+        private boolean coalescing;
+        private HedgePolicy hedgePolicy = HedgePolicy.disabled();
+        private StringPoolPolicy stringPoolPolicy = StringPoolPolicy.disabled();
+        private Duration timeout = DEFAULT_TIMEOUT;
+        private final Map<Operation, Duration> timeouts = new EnumMap<>(Operation.class);
+
+        /**
+         * @see #newBuilder()
+         */
+        private Builder() {
+        }
+
+        /**
+         * Creates a new {@link Builder} for building a {@link KaginawaClient}.
+         *
+         * @return a {@link Builder}
+         */
+        public static Builder newBuilder() {
+            return new Builder();
+        }
+
+        /**
+         * Sets an endpoint URL.
+         *
+         * @param endpoint endpoint url (http://foo or https://foo)
+         * @return this builder
+         * @throws NullPointerException     if the endpoint is {@code null}
+         * @throws IllegalArgumentException if the endpoint is empty or invalid
+         */
+        public Builder endpoint(String endpoint) {
+            this.endpoints = List.of(checkEndpoint(endpoint));
+            return this;
+        }
+
+        /**
+         * Sets endpoint URLs of replicas of the Kaginawa Server.
+         * <p>
+         * Each request goes to the replica with the lowest product of the EWMA of recent response times and the
+         * number of outstanding requests, out of two picked at random. A replica that fails twice in a row is
+         * dropped from rotation, and a single request is sent to it every {@link #probeInterval(Duration)} to bring
+         * it back. Retries are likely to go to another replica.
+         * </p>
+         *
+         * @param endpoints endpoint urls (http://foo or https://foo)
+         * @return this builder
+         * @throws NullPointerException     if the endpoints or an element is {@code null}
+         * @throws IllegalArgumentException if the endpoints is empty or an element is empty, invalid or duplicated
+         * @since 0.3.0
+         */
+        public Builder endpoints(List<String> endpoints) {
+            Objects.requireNonNull(endpoints, "endpoints is required");
+            if (endpoints.isEmpty()) {
+                throw new IllegalArgumentException("endpoints is empty");
+            }
+            var distinct = new LinkedHashSet<String>();
+            for (var endpoint : endpoints) {
+                if (!distinct.add(checkEndpoint(endpoint))) {
+                    throw new IllegalArgumentException("duplicated endpoint: " + endpoint);
+                }
+            }
+            this.endpoints = List.copyOf(distinct);
+            return this;
+        }
+
+        /**
+         * Sets the interval of probing a replica dropped from rotation. Defaults to 5 seconds.
+         *
+         * @param probeInterval probe interval
+         * @return this builder
+         * @throws NullPointerException     if the probe interval is {@code null}
+         * @throws IllegalArgumentException if the probe interval is zero or negative
+         * @since 0.3.0
+         */
+        public Builder probeInterval(Duration probeInterval) {
+            Objects.requireNonNull(probeInterval, "probeInterval is required");
+            if (probeInterval.isZero() || probeInterval.isNegative()) {
+                throw new IllegalArgumentException("probe interval must be a positive duration");
+            }
+            this.probeInterval = probeInterval;
+            return this;
+        }
+
+        private static String checkEndpoint(String endpoint) {
+            Objects.requireNonNull(endpoint, "endpoint is required");
+            if (endpoint.isEmpty()) {
+                throw new IllegalArgumentException("endpoint is empty");
+            }
+            if (!endpoint.startsWith("http://") && !endpoint.startsWith("https://")) {
+                throw new IllegalArgumentException("not an http or https endpoint: " + endpoint);
+            }
+            return endpoint;
+        }
+
+        /**
+         * Sets an API key.
+         *
+         * @param apiKey api key with ADMIN role
+         * @return this builder
+         * @throws NullPointerException     if the api key is {@code null}
+         * @throws IllegalArgumentException if the api key is empty
+         */
+        public Builder apiKey(String apiKey) {
+            Objects.requireNonNull(apiKey, "apiKey is required");
+            if (apiKey.isEmpty()) {
+                throw new IllegalArgumentException("apiKey is empty");
+            }
+            this.apiKey = apiKey;
+            return this;
+        }
+
+        /**
+         * Sets a proxy configuration.
+         *
+         * @param proxySelector proxy selector
+         * @return this builder
+         * @throws NullPointerException if the proxy selector is {@code null}
+         */
+        public Builder proxy(ProxySelector proxySelector) {
+            Objects.requireNonNull(proxySelector, "proxySelector is required");
+            this.proxySelector = proxySelector;
+            return this;
+        }
+
+        /**
+         * Sets an executor for decoding responses of asynchronous operations.
+         * Defaults to a virtual-thread-per-task executor on Java 21 or later, {@link ForkJoinPool#commonPool()}
+         * otherwise.
+         *
+         * @param executor executor
+         * @return this builder
+         * @throws NullPointerException if the executor is {@code null}
+         */
+        public Builder executor(Executor executor) {
+            Objects.requireNonNull(executor, "executor is required");
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * Sets whether to request {@code gzip} or {@code deflate} compressed responses. Defaults to {@code true}.
+         * <p>
+         * Compressed responses are decompressed as they are received regardless of this setting.
+         * </p>
+         *
+         * @param compression {@code true} to advertise {@code Accept-Encoding: gzip, deflate}
+         * @return this builder
+         */
+        public Builder compression(boolean compression) {
+            this.compression = compression;
+            return this;
+        }
+
+        /**
+         * Sets a preferred HTTP protocol version. Defaults to the transport default, HTTP/2 for {@link HttpClient}.
+         * <p>
+         * With {@link HttpClient.Version#HTTP_2}, concurrent requests to the same server are multiplexed on a single
+         * connection when the server supports it (ALPN for https, h2c upgrade for http), and fall back to HTTP/1.1
+         * otherwise. With {@link HttpClient.Version#HTTP_1_1}, each in-flight request occupies a pooled connection.
+         * </p>
+         *
+         * @param version HTTP protocol version
+         * @return this builder
+         * @throws NullPointerException if the version is {@code null}
+         */
+        public Builder version(HttpClient.Version version) {
+            Objects.requireNonNull(version, "version is required");
+            this.version = version;
+            return this;
+        }
+
+        /**
+         * Sets a timeout for establishing connections. Defaults to 10 seconds.
+         *
+         * @param connectTimeout connect timeout
+         * @return this builder
+         * @throws NullPointerException     if the connect timeout is {@code null}
+         * @throws IllegalArgumentException if the connect timeout is zero or negative
+         */
+        public Builder connectTimeout(Duration connectTimeout) {
+            Objects.requireNonNull(connectTimeout, "connectTimeout is required");
+            if (connectTimeout.isZero() || connectTimeout.isNegative()) {
+                throw new IllegalArgumentException("connect timeout must be a positive duration");
+            }
+            this.connectTimeout = connectTimeout;
+            return this;
+        }
+
+        /**
+         * Sets an executor for the transport to run its asynchronous tasks and dependent stages.
+         * Defaults to a virtual-thread-per-task executor on Java 21 or later, the transport default, a cached thread
+         * pool for {@link HttpClient}, otherwise.
+         *
+         * @param httpExecutor executor
+         * @return this builder
+         * @throws NullPointerException if the executor is {@code null}
+         */
+        public Builder httpExecutor(Executor httpExecutor) {
+            Objects.requireNonNull(httpExecutor, "httpExecutor is required");
+            this.httpExecutor = httpExecutor;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of connections to each server, for transports that keep a fixed number of them
+         * such as {@code nio}. Defaults to the transport default, {@value NioTransport#DEFAULT_MAX_CONNECTIONS} for
+         * {@code nio}. {@link HttpClient} opens a connection per concurrent HTTP/1.1 request and ignores this option.
+         *
+         * @param maxConnections maximum number of connections
+         * @return this builder
+         * @throws IllegalArgumentException if the number is zero or negative
+         * @since 0.3.0
+         */
+        public Builder maxConnections(int maxConnections) {
+            if (maxConnections <= 0) {
+                throw new IllegalArgumentException("max connections must be a positive number");
+            }
+            this.maxConnections = maxConnections;
+            return this;
+        }
+
+        /**
+         * Sets a default timeout of each request, from sending the request until the response headers are
+         * received. Defaults to no timeout other than the remaining time of the operation.
+         *
+         * @param requestTimeout request timeout
+         * @return this builder
+         * @throws NullPointerException     if the request timeout is {@code null}
+         * @throws IllegalArgumentException if the request timeout is zero or negative
+         */
+        public Builder requestTimeout(Duration requestTimeout) {
+            Objects.requireNonNull(requestTimeout, "requestTimeout is required");
+            if (requestTimeout.isZero() || requestTimeout.isNegative()) {
+                throw new IllegalArgumentException("request timeout must be a positive duration");
+            }
+            this.requestTimeout = requestTimeout;
+            return this;
+        }
+
+        /**
+         * Sets the maximum size of a response body after decompression. Defaults to no limit.
+         * <p>
+         * The limit is enforced while the body is received, so that a runaway response fails fast with a
+         * {@link KaginawaServerException} caused by a {@link ResponseTooLargeException} instead of exhausting the
+         * heap. Such a failure is not retried. Streaming operations fail when the stream reaches the limit.
+         * </p>
+         *
+         * @param maxBytes maximum size in bytes
+         * @return this builder
+         * @throws IllegalArgumentException if the size is zero or negative
+         * @since 0.3.0
+         */
+        public Builder maxResponseSize(long maxBytes) {
+            if (maxBytes <= 0) {
+                throw new IllegalArgumentException("max response size must be a positive number");
+            }
+            this.maxResponseSize = maxBytes;
+            return this;
+        }
+
+        /**
+         * Sets the timeout of every operation without its own timeout. Defaults to 30 seconds.
+         *
+         * @param timeout timeout
+         * @return this builder
+         * @throws NullPointerException     if the timeout is {@code null}
+         * @throws IllegalArgumentException if the timeout is zero or negative
+         * @see #timeout(Operation, Duration)
+         */
+        public Builder timeout(Duration timeout) {
+            this.timeout = checkTimeout(timeout);
+            return this;
+        }
+
+        /**
+         * Sets the timeout of the given operation.
+         * <p>
+         * The timeout covers the whole call: waiting for rate limit permits, all attempts and backoffs of retries,
+         * and decoding the response. Each request is sent with the remaining time as its timeout, capped by
+         * {@link #requestTimeout(Duration)}, and no retry is made past the deadline. Expiry surfaces as a
+         * {@link KaginawaTimeoutException}. Streaming operations time out until the response headers are received;
+         * reading the stream is not limited. For {@link Operation#COMMAND}, the timeout is added to the
+         * {@code timeoutSec} sent to the server, so that the server gives up first.
+         * </p>
+         *
+         * @param operation operation
+         * @param timeout   timeout
+         * @return this builder
+         * @throws NullPointerException     if the operation or the timeout is {@code null}
+         * @throws IllegalArgumentException if the timeout is zero or negative
+         * @see KaginawaClient#withTimeout(Duration)
+         */
+        public Builder timeout(Operation operation, Duration timeout) {
+            Objects.requireNonNull(operation, "operation is required");
+            timeouts.put(operation, checkTimeout(timeout));
+            return this;
+        }
+
+        private static Duration checkTimeout(Duration timeout) {
+            Objects.requireNonNull(timeout, "timeout is required");
+            if (timeout.isZero() || timeout.isNegative()) {
+                throw new IllegalArgumentException("timeout must be a positive duration");
+            }
+            return timeout;
+        }
+
+        /**
+         * Sets a retry policy. Defaults to {@link RetryPolicy#none()}.
+         *
+         * @param retryPolicy retry policy
+         * @return this builder
+         * @throws NullPointerException if the retry policy is {@code null}
+         */
+        public Builder retryPolicy(RetryPolicy retryPolicy) {
+            Objects.requireNonNull(retryPolicy, "retryPolicy is required");
+            this.retryPolicy = retryPolicy;
+            return this;
+        }
+
+        /**
+         * Sets a circuit breaker policy. Defaults to {@link CircuitBreakerPolicy#disabled()}.
+         *
+         * @param circuitBreakerPolicy circuit breaker policy
+         * @return this builder
+         * @throws NullPointerException if the circuit breaker policy is {@code null}
+         */
+        public Builder circuitBreaker(CircuitBreakerPolicy circuitBreakerPolicy) {
+            Objects.requireNonNull(circuitBreakerPolicy, "circuitBreakerPolicy is required");
+            this.circuitBreakerPolicy = circuitBreakerPolicy;
+            return this;
+        }
+
+        /**
+         * Sets a client-side rate limit policy. Defaults to {@link RateLimitPolicy#unlimited()}.
+         *
+         * @param rateLimitPolicy rate limit policy
+         * @return this builder
+         * @throws NullPointerException if the rate limit policy is {@code null}
+         */
+        public Builder rateLimit(RateLimitPolicy rateLimitPolicy) {
+            Objects.requireNonNull(rateLimitPolicy, "rateLimitPolicy is required");
+            this.rateLimitPolicy = rateLimitPolicy;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of entries of the response cache. Defaults to 0, that disables the cache.
+         * <p>
+         * The cache stores decoded results of non-streaming read operations along with their {@code ETag} and
+         * {@code Last-Modified} validators, and sends conditional requests to revalidate them. On {@code 304 Not
+         * Modified}, the cached result is returned without decoding again. Responses fresh by
+         * {@code Cache-Control: max-age} are returned without a request, and {@code no-store} responses are not
+         * stored. Cached results are shared among callers; lists, including the lists inside reports,
+         * are unmodifiable.
+         * </p>
+         *
+         * @param maxEntries maximum number of entries
+         * @return this builder
+         * @throws IllegalArgumentException if the number is negative
+         */
+        public Builder responseCache(int maxEntries) {
+            if (maxEntries < 0) {
+                throw new IllegalArgumentException("max entries must be a positive number");
+            }
+            this.responseCacheSize = maxEntries;
+            return this;
+        }
+
+        /**
+         * Sets whether to coalesce concurrent identical read operations. Defaults to {@code false}.
+         * <p>
+         * When enabled, non-streaming read operations that request the same URL while another one is in flight
+         * share its HTTP exchange and its decoded result or failure, instead of sending their own request. The
+         * shared result is the same object for all callers; lists, including the lists inside reports, are
+         * unmodifiable. Cancelling an asynchronous operation detaches only that caller; the exchange is cancelled
+         * once all of its callers have cancelled.
+         * </p>
+         *
+         * @param coalescing {@code true} to coalesce identical requests
+         * @return this builder
+         */
+        public Builder coalescing(boolean coalescing) {
+            this.coalescing = coalescing;
+            return this;
+        }
+
+        /**
+         * Sets a hedging policy for non-streaming read operations. Defaults to {@link HedgePolicy#disabled()}.
+         * <p>
+         * Each attempt made by the {@link #retryPolicy(RetryPolicy) retry policy} is hedged independently, and the
+         * circuit breaker records the outcome of the first response. Hedged blocking operations wait for the
+         * exchanges on the calling thread while they run asynchronously on the transport.
+         * </p>
+         *
+         * @param hedgePolicy hedging policy
+         * @return this builder
+         * @throws NullPointerException if the hedging policy is {@code null}
+         * @see KaginawaClient#getHedgeCount()
+         * @see KaginawaClient#getHedgeWins()
+         */
+        public Builder hedging(HedgePolicy hedgePolicy) {
+            Objects.requireNonNull(hedgePolicy, "hedgePolicy is required");
+            this.hedgePolicy = hedgePolicy;
+            return this;
+        }
+
+        /**
+         * Sets an {@link HttpClient} to share its connection pool and selector thread among multiple clients.
+         * <p>
+         * This option cannot be combined with {@link #proxy(ProxySelector)}, {@link #version(HttpClient.Version)},
+         * {@link #connectTimeout(Duration)}, {@link #httpExecutor(Executor)} and {@link #maxConnections(int)};
+         * configure the given client instead.
+         * </p>
+         *
+         * @param httpClient an {@link HttpClient} object
+         * @return this builder
+         * @throws NullPointerException if the http client is {@code null}
+         */
+        public Builder httpClient(HttpClient httpClient) {
+            Objects.requireNonNull(httpClient, "httpClient is required");
+            this.httpClient = httpClient;
+            return this;
+        }
+
+        /**
+         * Chooses a transport by the name of its {@link TransportProvider}. The built-in transport based on
+         * {@link HttpClient} is named {@code jdk}.
+         * <p>
+         * The built-in transport named {@code nio} serves plain {@code http} endpoints over a fixed number of
+         * persistent connections per server, set by {@link #maxConnections(int)}, and pipelines concurrent
+         * {@code GET} requests on them instead of opening a connection for each. It suits many small concurrent
+         * lookups such as {@link KaginawaClient#findNodeByIdAsync(String)}. It speaks HTTP/1.1 only and cannot be
+         * combined with {@link #proxy(ProxySelector)}.
+         * </p>
+         * <p>
+         * Providers are discovered through {@link ServiceLoader}. By default, the provider of the highest priority
+         * above {@code 0} is used, or the built-in transport if there is none. The transport is created with the
+         * options {@link #proxy(ProxySelector)}, {@link #version(HttpClient.Version)},
+         * {@link #connectTimeout(Duration)}, {@link #httpExecutor(Executor)} and {@link #maxConnections(int)}.
+         * </p>
+         *
+         * @param name provider name
+         * @return this builder
+         * @throws NullPointerException     if the name is {@code null}
+         * @throws IllegalArgumentException if the name is empty
+         * @since 0.3.0
+         */
+        public Builder transport(String name) {
+            Objects.requireNonNull(name, "name is required");
+            if (name.isEmpty()) {
+                throw new IllegalArgumentException("name is empty");
+            }
+            this.transportName = name;
+            return this;
+        }
+
+        /**
+         * Sets a transport to perform the exchanges, for example to share it among multiple clients.
+         * <p>
+         * This option cannot be combined with {@link #httpClient(HttpClient)}, {@link #transport(String)} and the
+         * transport options; configure the given transport instead.
+         * </p>
+         *
+         * @param transport transport
+         * @return this builder
+         * @throws NullPointerException if the transport is {@code null}
+         * @since 0.3.0
+         */
+        public Builder transport(Transport transport) {
+            Objects.requireNonNull(transport, "transport is required");
+            this.transport = transport;
+            return this;
+        }
+
+        /**
+         * Chooses a JSON codec by the name of its {@link JsonCodecProvider}. The built-in codec, which needs no JSON
+         * library, is named {@code builtin}.
+         * <p>
+         * The built-in codec named {@code lazy} indexes each report in a single pass and decodes its fields when
+         * their getters are first called, which saves time and memory when only a few fields of many reports are
+         * read. The reports keep the response body until they are garbage collected, and a getter throws
+         * {@link java.io.UncheckedIOException} if its value cannot be decoded.
+         * </p>
+         * <p>
+         * The codec named {@code jsonb} binds the data classes with JSON-B. It needs the JSON-B API and an
+         * implementation such as Yasson on the class path or the module path, which the SDK does not depend on.
+         * </p>
+         * <p>
+         * Providers are discovered through {@link ServiceLoader}, so that an adapter to another JSON library can be
+         * plugged in. By default, the provider of the highest priority above {@code 0} is used, or the built-in codec
+         * if there is none.
+         * </p>
+         *
+         * @param name provider name
+         * @return this builder
+         * @throws NullPointerException     if the name is {@code null}
+         * @throws IllegalArgumentException if the name is empty
+         * @since 0.3.0
+         */
+        public Builder jsonCodec(String name) {
+            Objects.requireNonNull(name, "name is required");
+            if (name.isEmpty()) {
+                throw new IllegalArgumentException("name is empty");
+            }
+            this.jsonCodecName = name;
+            this.jsonCodec = null;
+            return this;
+        }
+
+        /**
+         * Sets a JSON codec to decode response bodies, for example to share it among multiple clients.
+         *
+         * @param jsonCodec JSON codec
+         * @return this builder
+         * @throws NullPointerException if the codec is {@code null}
+         * @since 0.3.0
+         */
+        public Builder jsonCodec(JsonCodec jsonCodec) {
+            Objects.requireNonNull(jsonCodec, "jsonCodec is required");
+            this.jsonCodec = jsonCodec;
+            this.jsonCodecName = null;
+            return this;
+        }
+
+        /**
+         * Sets a string pooling policy for decoding reports. Defaults to {@link StringPoolPolicy#disabled()}.
+         * <p>
+         * The pool is used by the built-in codecs named {@code builtin} and {@code lazy}, and is shared by all
+         * decodings of the client, or of all clients built by {@link #buildFactory()}. It is ignored by other
+         * codecs and by a codec set by {@link #jsonCodec(JsonCodec)}.
+         * </p>
+         *
+         * @param stringPoolPolicy string pooling policy
+         * @return this builder
+         * @throws NullPointerException if the string pooling policy is {@code null}
+         * @since 0.3.0
+         */
+        public Builder stringPool(StringPoolPolicy stringPoolPolicy) {
+            Objects.requireNonNull(stringPoolPolicy, "stringPoolPolicy is required");
+            this.stringPoolPolicy = stringPoolPolicy;
+            return this;
+        }
+
+        /**
+         * Returns a new {@link KaginawaClient} built from the current state of this builder.
+         *
+         * @return a new {@link KaginawaClient}
+         * @throws IllegalStateException if the required parameter(s) are not set, conflicting options are set or
+         *                               the chosen transport or JSON codec is not found
+         */
+        public KaginawaClient build() {
+            return new KaginawaClient(this);
+        }
+
+        /**
+         * Returns a new {@link KaginawaClientFactory} built from the current state of this builder. The endpoint
+         * and the API key of this builder, if set, are ignored; every client of the factory has its own.
+         * <p>
+         * The transport is created once here, or the one set by {@link #transport(Transport)} or
+         * {@link #httpClient(HttpClient)} is used, and shared among the clients along with the executor and the
+         * JSON codec. Each client has its own retry budget, circuit breaker, rate limiter, response cache and
+         * load balancer.
+         * </p>
+         *
+         * @return a new {@link KaginawaClientFactory}
+         * @throws IllegalStateException if conflicting options are set or the chosen transport or JSON codec
+         *                               is not found
+         * @since 0.3.0
+         */
+        public KaginawaClientFactory buildFactory() {
+            var template = copy();
+            template.transport = createTransport(this);
+            template.jsonCodec = createJsonCodec(this);
+            template.jsonCodecName = null;
+            template.httpClient = null;
+            template.transportName = null;
+            template.proxySelector = null;
+            template.version = null;
+            template.connectTimeout = null;
+            template.httpExecutor = null;
+            template.maxConnections = 0;
+            return new KaginawaClientFactory(template);
+        }
+
+        /**
+         * Returns a copy of this builder.
+         *
+         * @return a new {@link Builder} of the same state
+         */
+        Builder copy() {
+            var copy = new Builder();
+            copy.endpoints = endpoints;
+            copy.probeInterval = probeInterval;
+            copy.apiKey = apiKey;
+            copy.proxySelector = proxySelector;
+            copy.httpClient = httpClient;
+            copy.transport = transport;
+            copy.transportName = transportName;
+            copy.jsonCodec = jsonCodec;
+            copy.jsonCodecName = jsonCodecName;
+            copy.executor = executor;
+            copy.compression = compression;
+            copy.version = version;
+            copy.connectTimeout = connectTimeout;
+            copy.httpExecutor = httpExecutor;
+            copy.maxConnections = maxConnections;
+            copy.requestTimeout = requestTimeout;
+            copy.maxResponseSize = maxResponseSize;
+            copy.retryPolicy = retryPolicy;
+            copy.circuitBreakerPolicy = circuitBreakerPolicy;
+            copy.rateLimitPolicy = rateLimitPolicy;
+            copy.responseCacheSize = responseCacheSize;
+            copy.coalescing = coalescing;
+            copy.hedgePolicy = hedgePolicy;
+            copy.stringPoolPolicy = stringPoolPolicy;
+            copy.timeout = timeout;
+            copy.timeouts.putAll(timeouts);
+            return copy;
         }
-        return response.body();
     }
 }
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import java.util.List;
+
+/**
+ * Factory of {@link KaginawaClient}s for many endpoints and API keys, such as one client per tenant.
+ * <p>
+ * Clients created by a factory share one transport with its connections and threads, one executor and one JSON
+ * codec, so that each of them costs little memory and time to create. Each client has its own endpoints and API
+ * key, and its own retry budget, circuit breaker, rate limiter, response cache and load balancer, configured by
+ * the builder the factory was built from. This class is thread-safe.
+ * </p>
+ *
+ * @see KaginawaClient.Builder#buildFactory()
+ * @since 0.3.0
+ */
+public final class KaginawaClientFactory {
+    private final KaginawaClient.Builder template;
+
+    /**
+     * Constructs a {@link KaginawaClientFactory}.
+     *
+     * @param template builder bound to the shared transport and codec
+     */
+    KaginawaClientFactory(KaginawaClient.Builder template) {
+        this.template = template;
+    }
+
+    /**
+     * Creates a client for the given endpoint and API key.
+     *
+     * @param endpoint endpoint url (http://foo or https://foo)
+     * @param apiKey   api key with ADMIN role
+     * @return a new {@link KaginawaClient}
+     * @throws NullPointerException     if the given parameter is {@code null}
+     * @throws IllegalArgumentException if the given parameter is empty or invalid
+     */
+    public KaginawaClient newClient(String endpoint, String apiKey) {
+        return newBuilder().endpoint(endpoint).apiKey(apiKey).build();
+    }
+
+    /**
+     * Creates a client for the given replicas and API key.
+     *
+     * @param endpoints endpoint urls of the replicas
+     * @param apiKey    api key with ADMIN role
+     * @return a new {@link KaginawaClient}
+     * @throws NullPointerException     if the given parameter is {@code null}
+     * @throws IllegalArgumentException if the given parameter is empty or invalid
+     */
+    public KaginawaClient newClient(List<String> endpoints, String apiKey) {
+        return newBuilder().endpoints(endpoints).apiKey(apiKey).build();
+    }
+
+    /**
+     * Returns a new builder of the state this factory was built from, bound to the shared resources, to customize
+     * a client further. Its transport options cannot be changed.
+     *
+     * @return a new {@link KaginawaClient.Builder}
+     */
+    public KaginawaClient.Builder newBuilder() {
+        return template.copy();
+    }
+}
@@ -22,6 +22,9 @@ package io.github.kaginawa.sdk;
  */
 public class KaginawaServerException extends Exception {
     private final int httpStatus;
+    private final String bodySnippet;
+    private final long bodyLength;
+    private final long errorOffset;
 
     /**
      * Constructs the exception.
@@ -30,8 +33,7 @@ public class KaginawaServerException extends Exception {
      * @param cause   cause
      */
     public KaginawaServerException(String message, Throwable cause) {
-        super(message, cause);
-        this.httpStatus = -1;
+        this(message, -1, null, -1, -1, cause);
     }
 
     /**
@@ -41,8 +43,30 @@ public class KaginawaServerException extends Exception {
      * @param httpStatus HTTP status code
      */
     public KaginawaServerException(String message, int httpStatus) {
+        this(message, httpStatus, null, -1, -1, null);
+    }
+
+    /**
+     * Constructs the exception with an excerpt of the response body that caused it.
+     *
+     * @param message     message
+     * @param httpStatus  HTTP status code, or -1 if unavailable
+     * @param bodySnippet excerpt of the response body, or {@code null} if unavailable
+     * @param bodyLength  length of the whole response body in bytes, or -1 if unknown
+     * @param errorOffset character offset in the response body where parsing failed, or -1 if unknown
+     * @param cause       cause, or {@code null}
+     * @since 0.3.0
+     */
+    public KaginawaServerException(String message, int httpStatus, String bodySnippet, long bodyLength,
+                                   long errorOffset, Throwable cause) {
         super(message);
+        if (cause != null) {
+            initCause(cause); // leaves the cause unset otherwise, as the constructors of Exception do
+        }
         this.httpStatus = httpStatus;
+        this.bodySnippet = bodySnippet;
+        this.bodyLength = bodyLength;
+        this.errorOffset = errorOffset;
     }
 
     /**
@@ -53,4 +77,35 @@ public class KaginawaServerException extends Exception {
     public int getHttpStatus() {
         return httpStatus;
     }
+
+    /**
+     * Excerpt of the response body that caused this exception. A body longer than a few hundred characters is cut
+     * around the error offset, if known, or after its head, and marked with {@code ...} where cut.
+     *
+     * @return excerpt, or {@code null} if unavailable
+     * @since 0.3.0
+     */
+    public String getBodySnippet() {
+        return bodySnippet;
+    }
+
+    /**
+     * Length of the whole response body that caused this exception.
+     *
+     * @return length in bytes, or -1 if unknown
+     * @since 0.3.0
+     */
+    public long getBodyLength() {
+        return bodyLength;
+    }
+
+    /**
+     * Offset in the response body where parsing failed.
+     *
+     * @return character offset, or -1 if unknown
+     * @since 0.3.0
+     */
+    public long getErrorOffset() {
+        return errorOffset;
+    }
 }
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+/**
+ * A {@link KaginawaServerException} subclass that occurs when an operation or one of its requests does not complete
+ * in time. Catch this type to tell a slow server from a broken one.
+ *
+ * @since 0.3.0
+ */
+public class KaginawaTimeoutException extends KaginawaServerException {
+    /**
+     * Constructs the exception.
+     *
+     * @param message message
+     * @param cause   cause, or {@code null} if the deadline of the operation expired
+     */
+    public KaginawaTimeoutException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import io.github.kaginawa.sdk.spi.JsonCodec;
+import io.github.kaginawa.sdk.spi.JsonCodecProvider;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Built-in {@link JsonCodec} that decodes reports into {@link ReportView}s, whose fields are decoded on first
+ * access.
+ * <p>
+ * The input is copied once per call, and the copy is shared by the views decoded from it.
+ * </p>
+ */
+final class LazyJsonCodec implements JsonCodec {
+    static final String NAME = "lazy";
+    static final LazyJsonCodec INSTANCE = new LazyJsonCodec(null);
+    private final StringPool pool;
+
+    /**
+     * Constructs a {@link LazyJsonCodec}.
+     *
+     * @param pool string pool, or {@code null}
+     */
+    LazyJsonCodec(StringPool pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public List<Report> decodeReports(byte[] buf, int offset, int length) throws JsonDecodingException {
+        return decodeReportsInPlace(Arrays.copyOfRange(buf, offset, offset + length), 0, length);
+    }
+
+    @Override
+    public Report decodeReport(byte[] buf, int offset, int length) throws JsonDecodingException {
+        return decodeReportInPlace(Arrays.copyOfRange(buf, offset, offset + length), 0, length);
+    }
+
+    /**
+     * Decodes a list of reports whose views keep the given buffer instead of a copy.
+     *
+     * @param buf    buffer, which must not be modified afterwards
+     * @param offset offset of the JSON array in the buffer
+     * @param length length of the JSON array in bytes
+     * @return list of reports, or {@code null} if the JSON is {@code null}
+     * @throws JsonDecodingException if the JSON is malformed
+     */
+    List<Report> decodeReportsInPlace(byte[] buf, int offset, int length) throws JsonDecodingException {
+        return JsonDecoder.decodeReportViews(buf, offset, length, pool);
+    }
+
+    /**
+     * Decodes a report whose view keeps the given buffer instead of a copy.
+     *
+     * @param buf    buffer, which must not be modified afterwards
+     * @param offset offset of the JSON object in the buffer
+     * @param length length of the JSON object in bytes
+     * @return report, or {@code null} if the JSON is {@code null}
+     * @throws JsonDecodingException if the JSON is malformed
+     */
+    Report decodeReportInPlace(byte[] buf, int offset, int length) throws JsonDecodingException {
+        return JsonDecoder.decodeReportView(buf, offset, length, pool);
+    }
+
+    @Override
+    public SshServer decodeSshServer(byte[] buf, int offset, int length) throws JsonDecodingException {
+        return JsonDecoder.decodeSshServer(buf, offset, length);
+    }
+
+    /**
+     * Provider of {@link LazyJsonCodec}, always available without registration.
+     */
+    static final class Provider implements JsonCodecProvider {
+        @Override
+        public String getName() {
+            return NAME;
+        }
+
+        @Override
+        public JsonCodec create() {
+            return INSTANCE;
+        }
+    }
+}
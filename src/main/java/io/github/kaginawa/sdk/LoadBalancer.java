@@ -0,0 +1,286 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import io.github.kaginawa.sdk.spi.TransportRequest;
+import io.github.kaginawa.sdk.spi.TransportResponse;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Latency-aware load balancer over replicas of the Kaginawa Server.
+ * <p>
+ * Each request goes to the better of two randomly chosen healthy replicas, scored by the EWMA of response times
+ * of successful requests multiplied by the number of outstanding requests plus one. The EWMA decays toward zero
+ * while a replica receives no traffic, so that a replica that once looked slow is eventually tried again.
+ * </p>
+ * <p>
+ * A replica that fails {@value #FAILURE_THRESHOLD} times in a row is dropped from rotation; once per probe
+ * interval, a single request is sent to it as a probe, and it is brought back when the probe succeeds. Connection
+ * failures and {@code 5xx} responses count as failures; they do not update the EWMA, so that a replica failing
+ * fast does not look fast.
+ * </p>
+ */
+final class LoadBalancer {
+    static final int FAILURE_THRESHOLD = 2;
+    private static final double ALPHA = 0.5;
+    private static final long DECAY_NANOS = TimeUnit.SECONDS.toNanos(10);
+    private final List<Replica> replicas = new ArrayList<>();
+    private final long probeIntervalNanos;
+    private final LongSupplier clock;
+
+    /**
+     * Constructs a {@link LoadBalancer}.
+     *
+     * @param endpoints     endpoint URLs
+     * @param probeInterval interval of probing unhealthy replicas
+     */
+    LoadBalancer(List<String> endpoints, Duration probeInterval) {
+        this(endpoints, probeInterval, System::nanoTime);
+    }
+
+    /**
+     * Constructs a {@link LoadBalancer} with custom clock designed for unit testing.
+     *
+     * @param endpoints     endpoint URLs
+     * @param probeInterval interval of probing unhealthy replicas
+     * @param clock         clock in nanoseconds
+     */
+    LoadBalancer(List<String> endpoints, Duration probeInterval, LongSupplier clock) {
+        for (var endpoint : endpoints) {
+            replicas.add(new Replica(endpoint));
+        }
+        this.probeIntervalNanos = probeInterval.toNanos();
+        this.clock = clock;
+    }
+
+    /**
+     * Returns the endpoints of replicas in rotation.
+     *
+     * @return healthy endpoints
+     */
+    List<String> getHealthyEndpoints() {
+        var healthy = new ArrayList<String>();
+        for (var replica : replicas) {
+            synchronized (replica) {
+                if (replica.healthy) {
+                    healthy.add(replica.endpoint);
+                }
+            }
+        }
+        return healthy;
+    }
+
+    /**
+     * Sends a request synchronously to a selected replica.
+     *
+     * @param factory  builds a request for an endpoint
+     * @param exchange performs the exchange
+     * @return response
+     * @throws IOException          if the exchange failed
+     * @throws InterruptedException if interrupted while sending
+     */
+    TransportResponse send(Function<String, TransportRequest> factory, Exchange exchange)
+            throws IOException, InterruptedException {
+        if (replicas.size() == 1) {
+            return exchange.send(factory.apply(replicas.get(0).endpoint));
+        }
+        var replica = select(null);
+        var start = begin(replica);
+        TransportResponse response;
+        try {
+            response = exchange.send(factory.apply(replica.endpoint));
+        } catch (IOException e) {
+            end(replica, start, false);
+            throw e;
+        } catch (InterruptedException | RuntimeException e) {
+            cancel(replica);
+            throw e;
+        }
+        end(replica, start, response.getStatusCode() < 500);
+        return response;
+    }
+
+    /**
+     * Sends a request asynchronously to a selected replica.
+     *
+     * @param factory  builds a request for an endpoint
+     * @param exchange starts the exchange
+     * @return future of response
+     */
+    CompletableFuture<TransportResponse> sendAsync(
+            Function<String, TransportRequest> factory,
+            Function<TransportRequest, CompletableFuture<TransportResponse>> exchange) {
+        return sendAsync(factory, exchange, null);
+    }
+
+    /**
+     * Sends a request asynchronously to a selected replica other than the specified one, if any other is available.
+     *
+     * @param factory  builds a request for an endpoint
+     * @param exchange starts the exchange
+     * @param exclude  endpoint to avoid, or {@code null}
+     * @return future of response
+     */
+    CompletableFuture<TransportResponse> sendAsync(
+            Function<String, TransportRequest> factory,
+            Function<TransportRequest, CompletableFuture<TransportResponse>> exchange, String exclude) {
+        if (replicas.size() == 1) {
+            return exchange.apply(factory.apply(replicas.get(0).endpoint));
+        }
+        var replica = select(exclude);
+        var start = begin(replica);
+        CompletableFuture<TransportResponse> future;
+        try {
+            future = exchange.apply(factory.apply(replica.endpoint));
+        } catch (RuntimeException e) {
+            cancel(replica);
+            throw e;
+        }
+        future.whenComplete((response, e) -> {
+            var cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            if (cause == null) {
+                end(replica, start, response.getStatusCode() < 500);
+            } else if (cause instanceof IOException) {
+                end(replica, start, false);
+            } else {
+                cancel(replica);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Selects a replica: a due probe first, then the better of two healthy replicas, or the replica to be probed
+     * soonest if none is healthy. The excluded replica is selected only when it is the sole replica.
+     *
+     * @param exclude endpoint to avoid, or {@code null}
+     * @return replica
+     */
+    private Replica select(String exclude) {
+        var now = clock.getAsLong();
+        var healthy = new ArrayList<Replica>(replicas.size());
+        Replica soonest = null;
+        for (var replica : replicas) {
+            if (replica.endpoint.equals(exclude)) {
+                continue;
+            }
+            synchronized (replica) {
+                if (replica.healthy) {
+                    healthy.add(replica);
+                } else if (replica.probeAt - now <= 0) {
+                    replica.probeAt = now + probeIntervalNanos; // one probe per interval
+                    return replica;
+                } else if (soonest == null || replica.probeAt - soonest.probeAt < 0) {
+                    soonest = replica;
+                }
+            }
+        }
+        if (healthy.isEmpty()) {
+            return soonest;
+        }
+        if (healthy.size() == 1) {
+            return healthy.get(0);
+        }
+        var random = ThreadLocalRandom.current();
+        int a = random.nextInt(healthy.size());
+        int b = random.nextInt(healthy.size() - 1);
+        if (b >= a) {
+            b++;
+        }
+        var first = healthy.get(a);
+        var second = healthy.get(b);
+        return first.score(now) <= second.score(now) ? first : second;
+    }
+
+    private long begin(Replica replica) {
+        synchronized (replica) {
+            replica.outstanding++;
+        }
+        return clock.getAsLong();
+    }
+
+    private void end(Replica replica, long start, boolean success) {
+        var now = clock.getAsLong();
+        var rtt = now - start;
+        synchronized (replica) {
+            replica.outstanding--;
+            if (success) {
+                replica.observe(rtt, now);
+                replica.failures = 0;
+                replica.healthy = true;
+            } else if (++replica.failures >= FAILURE_THRESHOLD && replica.healthy) {
+                replica.healthy = false;
+                replica.probeAt = now + probeIntervalNanos;
+            }
+        }
+    }
+
+    private void cancel(Replica replica) {
+        synchronized (replica) {
+            replica.outstanding--;
+        }
+    }
+
+    /**
+     * Performs one synchronous exchange.
+     */
+    @FunctionalInterface
+    interface Exchange {
+        TransportResponse send(TransportRequest request) throws IOException, InterruptedException;
+    }
+
+    /**
+     * Load and health of a replica, guarded by its monitor.
+     */
+    private static final class Replica {
+        final String endpoint;
+        int outstanding;
+        double ewma;
+        long updatedAt;
+        boolean measured;
+        int failures;
+        boolean healthy = true;
+        long probeAt;
+
+        Replica(String endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        synchronized double score(long now) {
+            return decayed(now) * (outstanding + 1);
+        }
+
+        void observe(long rtt, long now) {
+            ewma = measured ? decayed(now) + ALPHA * (rtt - decayed(now)) : rtt;
+            measured = true;
+            updatedAt = now;
+        }
+
+        private double decayed(long now) {
+            return ewma * Math.exp(-(double) (now - updatedAt) / DECAY_NANOS);
+        }
+    }
+}
@@ -0,0 +1,941 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import io.github.kaginawa.sdk.spi.Transport;
+import io.github.kaginawa.sdk.spi.TransportOptions;
+import io.github.kaginawa.sdk.spi.TransportProvider;
+import io.github.kaginawa.sdk.spi.TransportRequest;
+import io.github.kaginawa.sdk.spi.TransportResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.net.http.HttpClient;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Built-in {@link Transport} on non-blocking {@link SocketChannel}s, speaking HTTP/1.1 over plain {@code http}.
+ * <p>
+ * Each server gets a fixed number of persistent connections, opened on demand and closed after
+ * {@value #IDLE_SECONDS} seconds without traffic. A request goes to an idle connection, or to a new connection
+ * while there are fewer than the limit; otherwise {@code GET} requests are pipelined, up to
+ * {@value #MAX_PIPELINE_DEPTH} on a connection, onto the least loaded connection that carries only {@code GET}
+ * requests, and the rest wait for a connection to free up. Requests that were sent but not answered when the server
+ * closed the connection are sent again once on another connection if they are {@code GET}.
+ * </p>
+ * <p>
+ * A single selector thread performs all I/O through direct buffers allocated once per connection, and stops while
+ * there is no connection open. Responses are buffered in full before their futures complete, on the executor of
+ * the transport options if any, or on the selector thread otherwise. Of the body of an error response, only the
+ * head that {@link BodySnippet} reports on is kept, and the rest is received and discarded.
+ * </p>
+ */
+final class NioTransport implements Transport {
+    static final String NAME = "nio";
+    static final int DEFAULT_MAX_CONNECTIONS = 4;
+    static final int MAX_PIPELINE_DEPTH = 16;
+    private static final int IDLE_SECONDS = 30;
+    private static final int BUFFER_SIZE = 16 * 1024;
+    private static final int MAX_LINE_LENGTH = 8 * 1024;
+    private static final int INITIAL_BODY_SIZE = 64 * 1024;
+    private final int maxConnections;
+    private final long connectTimeoutNanos;
+    private final Executor executor;
+    private final Queue<Exchange> submissions = new ConcurrentLinkedQueue<>();
+    private final Map<String, Host> hosts = new HashMap<>(); // selector thread only
+    private byte[] scratch = new byte[1024]; // selector thread only
+    private Selector selector; // guarded by this
+    private Thread thread; // guarded by this
+
+    /**
+     * Constructs a {@link NioTransport}.
+     *
+     * @param options transport options
+     */
+    NioTransport(TransportOptions options) {
+        this.maxConnections = options.getMaxConnections() > 0
+                ? options.getMaxConnections() : DEFAULT_MAX_CONNECTIONS;
+        this.connectTimeoutNanos = options.getConnectTimeout().toNanos();
+        this.executor = options.getExecutor();
+    }
+
+    @Override
+    public TransportResponse send(TransportRequest request) throws IOException, InterruptedException {
+        var future = sendAsync(request);
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            var cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    @Override
+    public CompletableFuture<TransportResponse> sendAsync(TransportRequest request) {
+        var exchange = new Exchange(request);
+        if (exchange.address.isUnresolved()) {
+            exchange.future.completeExceptionally(
+                    new ConnectException("unresolved host: " + exchange.address.getHostString()));
+            return exchange.future;
+        }
+        submissions.add(exchange);
+        synchronized (this) {
+            if (thread == null) {
+                try {
+                    selector = Selector.open();
+                } catch (IOException e) {
+                    submissions.remove(exchange);
+                    exchange.future.completeExceptionally(e);
+                    return exchange.future;
+                }
+                thread = new Thread(this::run, "kaginawa-nio");
+                thread.setDaemon(true);
+                thread.start();
+            } else {
+                selector.wakeup();
+            }
+        }
+        return exchange.future;
+    }
+
+    /**
+     * Runs the selector loop until there is neither a connection nor a request left.
+     */
+    private void run() {
+        Selector selector;
+        synchronized (this) {
+            selector = this.selector;
+        }
+        try {
+            while (true) {
+                for (var exchange = submissions.poll(); exchange != null; exchange = submissions.poll()) {
+                    hosts.computeIfAbsent(exchange.hostKey, k -> new Host()).pending.add(exchange);
+                }
+                var wait = expire(System.nanoTime());
+                for (var host : hosts.values()) {
+                    dispatch(host, selector);
+                }
+                hosts.values().removeIf(host -> host.connections.isEmpty() && host.pending.isEmpty());
+                if (hosts.isEmpty()) {
+                    synchronized (this) {
+                        if (submissions.isEmpty()) {
+                            thread = null;
+                            this.selector = null;
+                            selector.close();
+                            return;
+                        }
+                    }
+                    continue;
+                }
+                selector.select(wait);
+                var keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    var key = keys.next();
+                    keys.remove();
+                    ((Connection) key.attachment()).handle(key);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            var failure = e instanceof IOException ? (IOException) e : new IOException(e);
+            for (var host : hosts.values()) {
+                for (var connection : new ArrayList<>(host.connections)) {
+                    connection.close(failure, false);
+                }
+                host.pending.forEach(exchange -> fail(exchange, failure));
+            }
+            hosts.clear();
+            synchronized (this) {
+                thread = null;
+                this.selector = null;
+                try {
+                    selector.close();
+                } catch (IOException ignored) {
+                    // already failing
+                }
+                submissions.forEach(exchange -> fail(exchange, failure));
+                submissions.clear();
+            }
+        }
+    }
+
+    /**
+     * Assigns pending requests of a host to its connections in order, opening connections up to the limit.
+     *
+     * @param host     host
+     * @param selector selector to register new connections with
+     */
+    private void dispatch(Host host, Selector selector) {
+        while (!host.pending.isEmpty()) {
+            var exchange = host.pending.peekFirst();
+            if (exchange.isDone()) {
+                host.pending.pollFirst(); // cancelled or timed out
+                continue;
+            }
+            Connection connection = null;
+            Connection least = null;
+            for (var candidate : host.connections) {
+                if (candidate.load() == 0) {
+                    connection = candidate;
+                    break;
+                }
+                if (exchange.pipelined && candidate.exclusive == 0 && candidate.load() < MAX_PIPELINE_DEPTH
+                        && (least == null || candidate.load() < least.load())) {
+                    least = candidate;
+                }
+            }
+            if (connection == null && host.connections.size() < maxConnections) {
+                try {
+                    connection = new Connection(host, exchange.address, selector);
+                } catch (IOException e) {
+                    host.pending.pollFirst();
+                    fail(exchange, e);
+                    continue;
+                }
+            }
+            if (connection == null) {
+                connection = least;
+            }
+            if (connection == null) {
+                return; // waits for a connection to free up
+            }
+            host.pending.pollFirst();
+            connection.assign(exchange);
+        }
+    }
+
+    /**
+     * Fails requests past their deadlines, connections past the connect timeout and closes idle connections.
+     *
+     * @param now current time in nanoseconds
+     * @return milliseconds until the next deadline, or {@code 0} if there is none
+     */
+    private long expire(long now) {
+        var next = Long.MAX_VALUE;
+        for (var host : hosts.values()) {
+            for (var iterator = host.pending.iterator(); iterator.hasNext(); ) {
+                var exchange = iterator.next();
+                if (exchange.timedOut(now)) {
+                    iterator.remove();
+                    fail(exchange, new HttpTimeoutException("request timed out"));
+                } else if (exchange.deadline != 0) {
+                    next = Math.min(next, exchange.deadline - now);
+                }
+            }
+            for (var connection : new ArrayList<>(host.connections)) {
+                next = Math.min(next, connection.expire(now));
+            }
+        }
+        return next == Long.MAX_VALUE ? 0 : Math.max(1, TimeUnit.NANOSECONDS.toMillis(next) + 1);
+    }
+
+    private void complete(Exchange exchange, TransportResponse response) {
+        if (exchange.isDone()) {
+            return;
+        }
+        exchange.finished = true;
+        if (executor != null) {
+            executor.execute(() -> exchange.future.complete(response));
+        } else {
+            exchange.future.complete(response);
+        }
+    }
+
+    private void fail(Exchange exchange, IOException cause) {
+        if (exchange.isDone()) {
+            return;
+        }
+        exchange.finished = true;
+        if (executor != null) {
+            executor.execute(() -> exchange.future.completeExceptionally(cause));
+        } else {
+            exchange.future.completeExceptionally(cause);
+        }
+    }
+
+    /**
+     * Encodes a request into the scratch buffer.
+     *
+     * @param request request
+     * @return length of the encoded request
+     */
+    private int encode(TransportRequest request) {
+        var uri = request.getUri();
+        var path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+        int length = 0;
+        length = ascii(request.getMethod(), length);
+        length = ascii(" ", length);
+        length = ascii(path, length);
+        if (uri.getRawQuery() != null) {
+            length = ascii("?", length);
+            length = ascii(uri.getRawQuery(), length);
+        }
+        length = ascii(" HTTP/1.1\r\nHost: ", length);
+        length = ascii(uri.getHost(), length);
+        if (uri.getPort() != -1) {
+            length = ascii(":", length);
+            length = ascii(Integer.toString(uri.getPort()), length);
+        }
+        length = ascii("\r\n", length);
+        for (var header : request.getHeaders().entrySet()) {
+            var name = header.getKey();
+            if (name.equalsIgnoreCase("Host") || name.equalsIgnoreCase("Content-Length")) {
+                continue;
+            }
+            for (var value : header.getValue()) {
+                length = ascii(name, length);
+                length = ascii(": ", length);
+                length = ascii(value, length);
+                length = ascii("\r\n", length);
+            }
+        }
+        var body = request.getBody();
+        if (body != null) {
+            length = ascii("Content-Length: ", length);
+            length = ascii(Integer.toString(body.length), length);
+            length = ascii("\r\n", length);
+        }
+        length = ascii("\r\n", length);
+        if (body != null) {
+            ensureScratch(length + body.length);
+            System.arraycopy(body, 0, scratch, length, body.length);
+            length += body.length;
+        }
+        return length;
+    }
+
+    private int ascii(String s, int offset) {
+        ensureScratch(offset + s.length());
+        for (int i = 0; i < s.length(); i++) {
+            var c = s.charAt(i);
+            scratch[offset + i] = c < 0x100 ? (byte) c : (byte) '?';
+        }
+        return offset + s.length();
+    }
+
+    private void ensureScratch(int capacity) {
+        if (scratch.length < capacity) {
+            scratch = Arrays.copyOf(scratch, Math.max(capacity, scratch.length * 2));
+        }
+    }
+
+    /**
+     * Request in flight, with its future.
+     * <p>
+     * The server address is resolved by the thread that sends the request, so that a slow name lookup never stalls
+     * the selector thread.
+     * </p>
+     */
+    private static final class Exchange {
+        final TransportRequest request;
+        final String hostKey;
+        final InetSocketAddress address;
+        final boolean pipelined;
+        final long deadline;
+        final CompletableFuture<TransportResponse> future = new CompletableFuture<>();
+        boolean finished; // completed on the selector thread, possibly before the future
+        boolean resent;
+
+        Exchange(TransportRequest request) {
+            var uri = request.getUri();
+            if (!"http".equalsIgnoreCase(uri.getScheme()) || uri.getHost() == null) {
+                throw new IllegalArgumentException("nio transport supports http URIs only: " + uri);
+            }
+            this.request = request;
+            this.hostKey = uri.getHost() + ":" + uri.getPort();
+            var host = uri.getHost();
+            if (host.startsWith("[") && host.endsWith("]")) {
+                host = host.substring(1, host.length() - 1);
+            }
+            this.address = new InetSocketAddress(host, uri.getPort() != -1 ? uri.getPort() : 80);
+            this.pipelined = request.getMethod().equals("GET") && request.getBody() == null;
+            var timeout = request.getTimeout();
+            var deadline = timeout != null ? System.nanoTime() + timeout.toNanos() : 0;
+            this.deadline = deadline == 0 && timeout != null ? 1 : deadline; // 0 means no deadline
+        }
+
+        boolean timedOut(long now) {
+            return deadline != 0 && deadline - now <= 0;
+        }
+
+        boolean isDone() {
+            return finished || future.isDone();
+        }
+    }
+
+    /**
+     * Connections and waiting requests of a server.
+     */
+    private static final class Host {
+        final List<Connection> connections = new ArrayList<>();
+        final ArrayDeque<Exchange> pending = new ArrayDeque<>();
+    }
+
+    /**
+     * Persistent connection with its pipeline of requests and its response parser.
+     */
+    private final class Connection {
+        private static final int STATUS_LINE = 0;
+        private static final int HEADERS = 1;
+        private static final int BODY = 2;
+        private static final int BODY_TO_EOF = 3;
+        private static final int CHUNK_SIZE = 4;
+        private static final int CHUNK_END = 5;
+        private static final int TRAILERS = 6;
+        final Host host;
+        final SocketChannel channel;
+        final SelectionKey key;
+        final ByteBuffer in = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        final ByteBuffer out = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        final ArrayDeque<Exchange> sent = new ArrayDeque<>(); // encoded, awaiting responses in order
+        final ArrayDeque<Exchange> queued = new ArrayDeque<>(); // assigned, not encoded yet
+        ByteBuffer large; // request that does not fit the output buffer
+        int exclusive; // assigned requests that must not be pipelined with others
+        long connectDeadline;
+        long idleSince;
+        int state = STATUS_LINE;
+        final StringBuilder line = new StringBuilder();
+        int status;
+        boolean keepAlive;
+        boolean chunked;
+        boolean closing;
+        List<String> fields;
+        long remaining;
+        long limit; // maximum body size of the current response, or 0
+        int keep; // maximum number of body bytes kept of the current response
+        byte[] body;
+        int bodyLength;
+
+        Connection(Host host, InetSocketAddress address, Selector selector) throws IOException {
+            this.host = host;
+            this.channel = SocketChannel.open();
+            try {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                channel.setOption(StandardSocketOptions.SO_KEEPALIVE, true);
+                if (channel.connect(address)) {
+                    this.key = channel.register(selector, SelectionKey.OP_READ, this);
+                } else {
+                    this.key = channel.register(selector, SelectionKey.OP_CONNECT, this);
+                    this.connectDeadline = System.nanoTime() + connectTimeoutNanos;
+                }
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+            in.flip(); // kept in read mode between reads
+            this.idleSince = System.nanoTime();
+            host.connections.add(this);
+        }
+
+        int load() {
+            return sent.size() + queued.size();
+        }
+
+        void assign(Exchange exchange) {
+            queued.add(exchange);
+            if (!exchange.pipelined) {
+                exclusive++;
+            }
+            if (channel.isConnected()) {
+                flush();
+            }
+        }
+
+        void handle(SelectionKey key) {
+            try {
+                if (key.isConnectable()) {
+                    channel.finishConnect();
+                    connectDeadline = 0;
+                    key.interestOps(SelectionKey.OP_READ);
+                    flush();
+                    return;
+                }
+                if (key.isWritable()) {
+                    flush();
+                }
+                if (key.isValid() && key.isReadable()) {
+                    read();
+                }
+            } catch (IOException e) {
+                close(e, channel.isConnected());
+            }
+        }
+
+        /**
+         * Encodes queued requests into the output buffer and writes as much as the socket accepts.
+         */
+        void flush() {
+            try {
+                while (true) {
+                    while (large == null && !queued.isEmpty()) {
+                        var exchange = queued.peekFirst();
+                        if (exchange.isDone()) {
+                            dequeue(); // cancelled or timed out before it was sent
+                            continue;
+                        }
+                        var length = encode(exchange.request);
+                        if (length <= out.remaining()) {
+                            out.put(scratch, 0, length);
+                        } else if (out.position() == 0) {
+                            large = ByteBuffer.wrap(Arrays.copyOf(scratch, length));
+                        } else {
+                            break;
+                        }
+                        sent.add(queued.pollFirst());
+                    }
+                    out.flip();
+                    channel.write(out);
+                    var drained = !out.hasRemaining();
+                    out.compact();
+                    if (drained && large != null) {
+                        channel.write(large);
+                        if (!large.hasRemaining()) {
+                            large = null;
+                        }
+                    }
+                    if (!drained || large != null || queued.isEmpty()) {
+                        break;
+                    }
+                }
+                var writing = out.position() > 0 || large != null;
+                key.interestOps(writing ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+            } catch (IOException e) {
+                close(e, true);
+            }
+        }
+
+        private Exchange dequeue() {
+            var exchange = queued.pollFirst();
+            if (!exchange.pipelined) {
+                exclusive--;
+            }
+            return exchange;
+        }
+
+        private void read() throws IOException {
+            in.compact();
+            int n;
+            try {
+                n = channel.read(in);
+            } finally {
+                in.flip();
+            }
+            if (n < 0) {
+                if (state == BODY_TO_EOF) {
+                    respond();
+                }
+                close(new IOException("connection closed by server"), true);
+                return;
+            }
+            while (in.hasRemaining() && key.isValid()) {
+                if (state == BODY || state == BODY_TO_EOF) {
+                    int count = state == BODY ? (int) Math.min(remaining, in.remaining()) : in.remaining();
+                    if (limit > 0 && bodyLength + count > limit) {
+                        tooLarge();
+                        return;
+                    }
+                    int kept = Math.min(count, keep - bodyLength);
+                    if (body.length - bodyLength < kept) {
+                        var bound = state == BODY && !chunked ? bodyLength + remaining : Integer.MAX_VALUE - 8;
+                        body = Arrays.copyOf(body, (int) Math.min(Math.max(body.length * 2L, bodyLength + kept),
+                                Math.min(bound, keep)));
+                    }
+                    in.get(body, bodyLength, kept);
+                    in.position(in.position() + count - kept);
+                    bodyLength += kept;
+                    remaining -= count;
+                    if (state == BODY && remaining == 0) {
+                        if (chunked) {
+                            state = CHUNK_END;
+                        } else {
+                            respond();
+                        }
+                    }
+                } else if (readLine()) {
+                    parseLine();
+                    line.setLength(0);
+                }
+                if (closing) {
+                    close(new IOException("connection closed by server"), true);
+                    return;
+                }
+            }
+        }
+
+        private boolean readLine() throws IOException {
+            while (in.hasRemaining()) {
+                var c = (char) (in.get() & 0xff);
+                if (c == '\n') {
+                    if (line.length() > 0 && line.charAt(line.length() - 1) == '\r') {
+                        line.setLength(line.length() - 1);
+                    }
+                    return true;
+                }
+                if (line.length() >= MAX_LINE_LENGTH) {
+                    throw new IOException("response line too long");
+                }
+                line.append(c);
+            }
+            return false;
+        }
+
+        private void parseLine() throws IOException {
+            switch (state) {
+                case STATUS_LINE:
+                    if (line.length() == 0) {
+                        return;
+                    }
+                    if (sent.isEmpty()) {
+                        throw new IOException("unexpected response");
+                    }
+                    if (line.length() < 12 || !line.substring(0, 7).equals("HTTP/1.") || line.charAt(8) != ' ') {
+                        throw new IOException("malformed status line: " + line);
+                    }
+                    try {
+                        status = Integer.parseInt(line.substring(9, 12));
+                    } catch (NumberFormatException e) {
+                        throw new IOException("malformed status line: " + line, e);
+                    }
+                    keepAlive = line.charAt(7) != '0';
+                    fields = new ArrayList<>();
+                    state = HEADERS;
+                    return;
+                case HEADERS:
+                    if (line.length() == 0) {
+                        endHeaders();
+                        return;
+                    }
+                    var colon = line.indexOf(":");
+                    if (colon <= 0) {
+                        throw new IOException("malformed header: " + line);
+                    }
+                    fields.add(line.substring(0, colon).trim());
+                    fields.add(line.substring(colon + 1).trim());
+                    return;
+                case CHUNK_SIZE:
+                    var end = line.indexOf(";");
+                    long size;
+                    try {
+                        size = Long.parseLong((end < 0 ? line.toString() : line.substring(0, end)).trim(), 16);
+                    } catch (NumberFormatException e) {
+                        throw new IOException("malformed chunk size: " + line, e);
+                    }
+                    if (size == 0) {
+                        state = TRAILERS;
+                    } else {
+                        if (size > Integer.MAX_VALUE - 8 - bodyLength) {
+                            throw new IOException("response too large");
+                        }
+                        remaining = size;
+                        state = BODY;
+                    }
+                    return;
+                case CHUNK_END:
+                    if (line.length() != 0) {
+                        throw new IOException("malformed chunk");
+                    }
+                    state = CHUNK_SIZE;
+                    return;
+                case TRAILERS:
+                    if (line.length() == 0) {
+                        respond();
+                    }
+                    return;
+                default:
+                    throw new IllegalStateException("unexpected state: " + state);
+            }
+        }
+
+        private void endHeaders() throws IOException {
+            if (status / 100 == 1) {
+                state = STATUS_LINE; // interim response
+                fields = null;
+                return;
+            }
+            var connection = header(fields, "Connection");
+            if ("close".equalsIgnoreCase(connection)) {
+                keepAlive = false;
+            } else if ("keep-alive".equalsIgnoreCase(connection)) {
+                keepAlive = true;
+            }
+            var transferEncoding = header(fields, "Transfer-Encoding");
+            var contentLength = header(fields, "Content-Length");
+            limit = status == 200 ? sent.peekFirst().request.getMaxResponseSize() : 0;
+            keep = status == 200 ? Integer.MAX_VALUE - 8 : BodySnippet.MAX_DRAIN + 1;
+            if (status == 204 || status == 304) {
+                body = new byte[0];
+                respond();
+            } else if (transferEncoding != null && transferEncoding.toLowerCase().contains("chunked")) {
+                body = new byte[256];
+                chunked = true;
+                state = CHUNK_SIZE;
+            } else if (contentLength != null) {
+                long length;
+                try {
+                    length = Long.parseLong(contentLength);
+                } catch (NumberFormatException e) {
+                    throw new IOException("malformed content length: " + contentLength, e);
+                }
+                if (length < 0 || length > Integer.MAX_VALUE - 8) {
+                    throw new IOException("unsupported content length: " + contentLength);
+                }
+                if (limit > 0 && length > limit) {
+                    tooLarge(); // known before receiving the body
+                    return;
+                }
+                body = new byte[(int) Math.min(Math.min(length, INITIAL_BODY_SIZE), keep)];
+                remaining = length;
+                state = BODY;
+                if (length == 0) {
+                    respond();
+                }
+            } else {
+                keepAlive = false;
+                body = new byte[256];
+                remaining = Long.MAX_VALUE;
+                state = BODY_TO_EOF;
+            }
+        }
+
+        /**
+         * Fails the oldest sent request whose response exceeds its limit, and closes this connection in the middle of
+         * the response. Requests pipelined behind it are sent again.
+         */
+        private void tooLarge() {
+            fail(sent.peekFirst(), new ResponseTooLargeException(limit));
+            close(new IOException("response too large"), true);
+        }
+
+        /**
+         * Completes the oldest sent request with the parsed response.
+         */
+        private void respond() {
+            var exchange = sent.pollFirst();
+            if (!exchange.pipelined) {
+                exclusive--;
+            }
+            var content = bodyLength == body.length ? body : Arrays.copyOf(body, bodyLength);
+            complete(exchange, new Response(status, fields, content));
+            state = STATUS_LINE;
+            fields = null;
+            body = null;
+            bodyLength = 0;
+            remaining = 0;
+            limit = 0;
+            chunked = false;
+            closing = !keepAlive;
+            if (load() == 0) {
+                idleSince = System.nanoTime();
+            }
+        }
+
+        /**
+         * Fails requests past their deadlines, or closes this connection if it is idle too long.
+         *
+         * @param now current time in nanoseconds
+         * @return nanoseconds until the next deadline of this connection
+         */
+        long expire(long now) {
+            if (connectDeadline != 0 && connectDeadline - now <= 0) {
+                close(new HttpConnectTimeoutException("connect timed out"), false);
+                return Long.MAX_VALUE;
+            }
+            if (load() == 0) {
+                var idle = TimeUnit.SECONDS.toNanos(IDLE_SECONDS);
+                if (now - idleSince >= idle) {
+                    close(null, false);
+                    return Long.MAX_VALUE;
+                }
+                return idleSince + idle - now;
+            }
+            var next = connectDeadline != 0 ? connectDeadline - now : Long.MAX_VALUE;
+            for (var iterator = queued.iterator(); iterator.hasNext(); ) {
+                var exchange = iterator.next();
+                if (exchange.timedOut(now)) {
+                    iterator.remove();
+                    if (!exchange.pipelined) {
+                        exclusive--;
+                    }
+                    fail(exchange, new HttpTimeoutException("request timed out"));
+                } else if (exchange.deadline != 0) {
+                    next = Math.min(next, exchange.deadline - now);
+                }
+            }
+            for (var exchange : sent) {
+                if (!exchange.timedOut(now)) {
+                    next = exchange.deadline != 0 ? Math.min(next, exchange.deadline - now) : next;
+                } else if (exchange == sent.peekFirst()) {
+                    // the responses after it would wait behind it, so they are sent again elsewhere
+                    fail(exchange, new HttpTimeoutException("request timed out"));
+                    close(new HttpTimeoutException("request timed out"), true);
+                    return Long.MAX_VALUE;
+                } else {
+                    fail(exchange, new HttpTimeoutException("request timed out")); // its response is discarded
+                }
+            }
+            return next;
+        }
+
+        /**
+         * Closes this connection. Unanswered {@code GET} requests are sent again once on another connection, and
+         * requests not sent yet wait for another connection; the others fail with the cause.
+         *
+         * @param cause   cause, or {@code null} when closing an idle connection
+         * @param resend  whether unanswered requests may be sent again
+         */
+        void close(IOException cause, boolean resend) {
+            host.connections.remove(this);
+            key.cancel();
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // closing anyway
+            }
+            var retries = new ArrayList<Exchange>();
+            for (var exchange : sent) {
+                if (exchange.isDone()) {
+                    continue;
+                }
+                if (resend && exchange.pipelined && !exchange.resent && (exchange != sent.peekFirst() || !partial())) {
+                    exchange.resent = true;
+                    retries.add(exchange);
+                } else {
+                    fail(exchange, cause);
+                }
+            }
+            for (var exchange : queued) {
+                if (exchange.isDone()) {
+                    continue;
+                }
+                if (resend) {
+                    retries.add(exchange);
+                } else {
+                    fail(exchange, cause);
+                }
+            }
+            sent.clear();
+            queued.clear();
+            Collections.reverse(retries);
+            retries.forEach(host.pending::addFirst);
+        }
+
+        private boolean partial() {
+            return state != STATUS_LINE || line.length() > 0;
+        }
+    }
+
+    private static String header(List<String> fields, String name) {
+        for (int i = 0; i < fields.size(); i += 2) {
+            if (fields.get(i).equalsIgnoreCase(name)) {
+                return fields.get(i + 1);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Response buffered in full, with its header fields as a flat list of names and values.
+     */
+    private static final class Response implements TransportResponse {
+        private final int statusCode;
+        private final List<String> fields;
+        private final InputStream body;
+
+        Response(int statusCode, List<String> fields, byte[] body) {
+            this.statusCode = statusCode;
+            this.fields = fields;
+            this.body = new ByteArrayInputStream(body);
+        }
+
+        @Override
+        public int getStatusCode() {
+            return statusCode;
+        }
+
+        @Override
+        public List<String> getHeaders(String name) {
+            var values = new ArrayList<String>(1);
+            for (int i = 0; i < fields.size(); i += 2) {
+                if (fields.get(i).equalsIgnoreCase(name)) {
+                    values.add(fields.get(i + 1));
+                }
+            }
+            return values;
+        }
+
+        @Override
+        public String getFirstHeader(String name) {
+            return header(fields, name);
+        }
+
+        @Override
+        public InputStream getBody() {
+            return body;
+        }
+    }
+
+    /**
+     * Provider of {@link NioTransport}, always available without registration.
+     */
+    static final class Provider implements TransportProvider {
+        @Override
+        public String getName() {
+            return NAME;
+        }
+
+        @Override
+        public Transport create(TransportOptions options) {
+            if (options.getProxySelector() != null) {
+                throw new IllegalStateException("nio transport does not support proxies");
+            }
+            if (options.getVersion() != null && options.getVersion() != HttpClient.Version.HTTP_1_1) {
+                throw new IllegalStateException("nio transport supports HTTP/1.1 only");
+            }
+            return new NioTransport(options);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+/**
+ * Kinds of operations of {@link KaginawaClient}, including their asynchronous, bulk and streaming forms.
+ *
+ * @since 0.3.0
+ */
+public enum Operation {
+    /**
+     * {@link KaginawaClient#listAliveNodes(int)}.
+     */
+    LIST_ALIVE_NODES(true),
+    /**
+     * {@link KaginawaClient#listNodesByCustomId(String)}.
+     */
+    LIST_NODES_BY_CUSTOM_ID(true),
+    /**
+     * {@link KaginawaClient#findNodeById(String)}.
+     */
+    FIND_NODE_BY_ID(true),
+    /**
+     * {@link KaginawaClient#command(String, String, String, String, String, int)}.
+     */
+    COMMAND(false),
+    /**
+     * {@link KaginawaClient#listHistories(String, long, long)}.
+     */
+    LIST_HISTORIES(true),
+    /**
+     * {@link KaginawaClient#findSshServerByHostname(String)}.
+     */
+    FIND_SSH_SERVER_BY_HOSTNAME(true);
+
+    private final boolean idempotent;
+
+    Operation(boolean idempotent) {
+        this.idempotent = idempotent;
+    }
+
+    /**
+     * Returns whether the operation is safe to repeat.
+     *
+     * @return {@code true} if idempotent, {@code false} otherwise
+     */
+    boolean isIdempotent() {
+        return idempotent;
+    }
+}
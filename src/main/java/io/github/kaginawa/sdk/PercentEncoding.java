@@ -0,0 +1,80 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Percent-encoding of path segments, query parameters and form parameters.
+ * <p>
+ * Everything but the unreserved characters of RFC 3986, {@code :} and {@code @} is encoded as UTF-8 octets, so
+ * that an encoded value is safe in any of these positions. A value that needs no encoding, such as a node ID, is
+ * appended as it is without allocating.
+ * </p>
+ */
+final class PercentEncoding {
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private PercentEncoding() {
+    }
+
+    /**
+     * Appends a value percent-encoded.
+     *
+     * @param builder destination
+     * @param value   value
+     * @return the destination
+     */
+    static StringBuilder append(StringBuilder builder, String value) {
+        int i = 0;
+        while (i < value.length() && isSafe(value.charAt(i))) {
+            i++;
+        }
+        if (i == value.length()) {
+            return builder.append(value);
+        }
+        builder.append(value, 0, i);
+        for (var b : value.substring(i).getBytes(StandardCharsets.UTF_8)) {
+            var c = (char) (b & 0xff);
+            if (isSafe(c)) {
+                builder.append(c);
+            } else {
+                builder.append('%').append(HEX[c >> 4]).append(HEX[c & 0xf]);
+            }
+        }
+        return builder;
+    }
+
+    /**
+     * Returns a value percent-encoded.
+     *
+     * @param value value
+     * @return encoded value, or the value itself if it needs no encoding
+     */
+    static String encode(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (!isSafe(value.charAt(i))) {
+                return append(new StringBuilder(value.length() + 16), value).toString();
+            }
+        }
+        return value;
+    }
+
+    private static boolean isSafe(char c) {
+        return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9'
+                || c == '-' || c == '.' || c == '_' || c == '~' || c == ':' || c == '@';
+    }
+}
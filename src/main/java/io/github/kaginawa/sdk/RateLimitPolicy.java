@@ -0,0 +1,162 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Client-side rate limit policy of {@link KaginawaClient}.
+ * <p>
+ * Each limit is a token bucket that refills at {@code permitsPerSecond} and holds up to {@code burst} permits.
+ * An operation takes one permit from the client-wide bucket and one from the bucket of its {@link Operation}, if
+ * configured. Callers wait for permits instead of failing: blocking operations sleep, and asynchronous operations
+ * are started later without occupying a thread. Retries of an operation do not take extra permits.
+ * </p>
+ *
+ * @since 0.3.0
+ */
+public class RateLimitPolicy {
+    private static final RateLimitPolicy UNLIMITED = Builder.newBuilder().build();
+    private Limit clientLimit;
+    private Map<Operation, Limit> operationLimits = new EnumMap<>(Operation.class);
+
+    /**
+     * @see Builder#newBuilder()
+     */
+    private RateLimitPolicy() {
+    }
+
+    /**
+     * Returns a policy without limits.
+     *
+     * @return policy
+     */
+    public static RateLimitPolicy unlimited() {
+        return UNLIMITED;
+    }
+
+    /**
+     * Returns whether any limit is configured.
+     *
+     * @return {@code true} if limited, {@code false} otherwise
+     */
+    public boolean isLimited() {
+        return clientLimit != null || !operationLimits.isEmpty();
+    }
+
+    /**
+     * Returns the client-wide limit.
+     *
+     * @return limit, or {@code null} if not limited
+     */
+    Limit getClientLimit() {
+        return clientLimit;
+    }
+
+    /**
+     * Returns the limit of the given operation.
+     *
+     * @param operation operation
+     * @return limit, or {@code null} if not limited
+     */
+    Limit getOperationLimit(Operation operation) {
+        return operationLimits.get(operation);
+    }
+
+    /**
+     * Refill rate and capacity of a token bucket.
+     */
+    static final class Limit {
+        final double permitsPerSecond;
+        final int burst;
+
+        Limit(double permitsPerSecond, int burst) {
+            if (!(permitsPerSecond > 0) || Double.isInfinite(permitsPerSecond)) {
+                throw new IllegalArgumentException("permits per second must be a positive number");
+            }
+            if (burst < 1) {
+                throw new IllegalArgumentException("burst must be a natural number");
+            }
+            this.permitsPerSecond = permitsPerSecond;
+            this.burst = burst;
+        }
+    }
+
+    /**
+     * Builds a {@link RateLimitPolicy}.
+     */
+    public static class Builder {
+        private final RateLimitPolicy o = new RateLimitPolicy();
+
+        /**
+         * @see #newBuilder()
+         */
+        private Builder() {
+        }
+
+        /**
+         * Creates a new {@link Builder} for building a {@link RateLimitPolicy}.
+         *
+         * @return a {@link Builder}
+         */
+        public static Builder newBuilder() {
+            return new Builder();
+        }
+
+        /**
+         * Sets the client-wide limit shared by all operations.
+         *
+         * @param permitsPerSecond refill rate
+         * @param burst            maximum number of permits taken at once
+         * @return this builder
+         * @throws IllegalArgumentException if the rate or the burst is not positive
+         */
+        public Builder limit(double permitsPerSecond, int burst) {
+            o.clientLimit = new Limit(permitsPerSecond, burst);
+            return this;
+        }
+
+        /**
+         * Sets the limit of the given operation.
+         *
+         * @param operation        operation
+         * @param permitsPerSecond refill rate
+         * @param burst            maximum number of permits taken at once
+         * @return this builder
+         * @throws NullPointerException     if the operation is {@code null}
+         * @throws IllegalArgumentException if the rate or the burst is not positive
+         */
+        public Builder limit(Operation operation, double permitsPerSecond, int burst) {
+            Objects.requireNonNull(operation, "operation is required");
+            o.operationLimits.put(operation, new Limit(permitsPerSecond, burst));
+            return this;
+        }
+
+        /**
+         * Returns a new {@link RateLimitPolicy} built from the current state of this builder.
+         *
+         * @return a new {@link RateLimitPolicy}
+         */
+        public RateLimitPolicy build() {
+            var policy = new RateLimitPolicy();
+            policy.clientLimit = o.clientLimit;
+            policy.operationLimits = new EnumMap<>(o.operationLimits);
+            return policy;
+        }
+    }
+}
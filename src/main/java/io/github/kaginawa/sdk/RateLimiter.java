@@ -0,0 +1,181 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Rate limiter holding the token buckets of a {@link RateLimitPolicy}.
+ */
+final class RateLimiter {
+    private final TokenBucket clientBucket;
+    private final TokenBucket[] operationBuckets = new TokenBucket[Operation.values().length];
+
+    /**
+     * Constructs a {@link RateLimiter}.
+     *
+     * @param policy rate limit policy
+     */
+    RateLimiter(RateLimitPolicy policy) {
+        this(policy, System::nanoTime);
+    }
+
+    /**
+     * Constructs a {@link RateLimiter} with custom clock designed for unit testing.
+     *
+     * @param policy rate limit policy
+     * @param clock  clock in nanoseconds
+     */
+    RateLimiter(RateLimitPolicy policy, LongSupplier clock) {
+        this.clientBucket = newBucket(policy.getClientLimit(), clock);
+        for (var operation : Operation.values()) {
+            operationBuckets[operation.ordinal()] = newBucket(policy.getOperationLimit(operation), clock);
+        }
+    }
+
+    private static TokenBucket newBucket(RateLimitPolicy.Limit limit, LongSupplier clock) {
+        return limit == null ? null : new TokenBucket(limit.permitsPerSecond, limit.burst, clock);
+    }
+
+    /**
+     * Reserves permits of the given operation.
+     *
+     * @param operation operation
+     * @return nanoseconds to wait, 0 if permitted now
+     */
+    long reserve(Operation operation) {
+        return reserve(operation, Long.MAX_VALUE);
+    }
+
+    /**
+     * Reserves permits of the given operation unless the wait for them would exceed the given timeout. No permit is
+     * taken if the wait is too long, so that rejected calls do not delay the others.
+     *
+     * @param operation operation
+     * @param timeout   maximum wait in nanoseconds
+     * @return nanoseconds to wait, 0 if permitted now, or -1 if no permit was reserved
+     */
+    private long reserve(Operation operation, long timeout) {
+        long wait = 0;
+        if (clientBucket != null) {
+            wait = clientBucket.reserve(timeout);
+            if (wait < 0) {
+                return -1;
+            }
+        }
+        var bucket = operationBuckets[operation.ordinal()];
+        if (bucket != null) {
+            var operationWait = bucket.reserve(timeout);
+            if (operationWait < 0) {
+                if (clientBucket != null) {
+                    clientBucket.release();
+                }
+                return -1;
+            }
+            wait = Math.max(wait, operationWait);
+        }
+        return wait;
+    }
+
+    /**
+     * Gives back permits of the given operation reserved but not used.
+     *
+     * @param operation operation
+     */
+    private void release(Operation operation) {
+        if (clientBucket != null) {
+            clientBucket.release();
+        }
+        var bucket = operationBuckets[operation.ordinal()];
+        if (bucket != null) {
+            bucket.release();
+        }
+    }
+
+    /**
+     * Waits for permits of the given operation, unless the wait is longer than the given timeout. No permit is taken
+     * if not waited for, so that rejected calls do not delay the others.
+     *
+     * @param operation operation
+     * @param timeout   maximum wait in nanoseconds
+     * @return {@code true} if acquired, {@code false} without waiting if the wait would exceed the timeout
+     * @throws InterruptedException if interrupted while waiting
+     */
+    boolean acquire(Operation operation, long timeout) throws InterruptedException {
+        var wait = reserve(operation, timeout);
+        if (wait < 0) {
+            return false;
+        }
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+        return true;
+    }
+
+    /**
+     * Starts an asynchronous call once permits of the given operation are available. The returned future fails with
+     * {@link Deadline#exceeded()} without taking a permit if the wait would exceed the deadline. Completing the
+     * returned future before the start, by cancellation or expiry, prevents the call and gives the permits back;
+     * after the start, it cancels the call.
+     *
+     * @param operation operation
+     * @param deadline  deadline of the operation
+     * @param call      starts the call
+     * @param <T>       type of result
+     * @return future of result
+     */
+    <T> CompletableFuture<T> schedule(Operation operation, Deadline deadline, Supplier<CompletableFuture<T>> call) {
+        var wait = reserve(operation, deadline.remainingNanos());
+        if (wait < 0) {
+            return CompletableFuture.failedFuture(deadline.exceeded());
+        }
+        if (wait == 0) {
+            return call.get();
+        }
+        var result = new CompletableFuture<T>();
+        var started = new AtomicBoolean();
+        result.whenComplete((r, e) -> {
+            if (started.compareAndSet(false, true)) {
+                release(operation);
+            }
+        });
+        CompletableFuture.delayedExecutor(wait, TimeUnit.NANOSECONDS).execute(() -> {
+            if (!started.compareAndSet(false, true)) {
+                return;
+            }
+            CompletableFuture<T> inner;
+            try {
+                inner = call.get();
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+                return;
+            }
+            result.whenComplete((r, e) -> inner.cancel(true));
+            inner.whenComplete((r, e) -> {
+                if (e != null) {
+                    result.completeExceptionally(e);
+                } else {
+                    result.complete(r);
+                }
+            });
+        });
+        return result;
+    }
+}
@@ -0,0 +1,348 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import java.io.UncheckedIOException;
+import java.time.ZonedDateTime;
+import java.util.List;
+
+/**
+ * {@link Report} backed by the undecoded JSON of the report, whose fields are decoded on first access.
+ * <p>
+ * The positions of the values are indexed in a single pass when the view is created, which also checks that the
+ * JSON is well-formed. A getter decodes its field with {@link JsonDecoder} the first time it is called; a value that
+ * does not match the model is thrown as {@link UncheckedIOException} by the getter. The view keeps the buffer,
+ * shared by all reports of a list, until it is garbage collected.
+ * </p>
+ * <p>
+ * Fields are decoded under the monitor of the view and published through a volatile bit set, so a view may be read
+ * from multiple threads; each field is decoded at most once, and a decoded field is read without locking.
+ * </p>
+ */
+final class ReportView extends Report {
+    private static final int ID = JsonDecoder.reportFieldIndex("id");
+    private static final int TRIGGER = JsonDecoder.reportFieldIndex("trigger");
+    private static final int SUCCESS = JsonDecoder.reportFieldIndex("success");
+    private static final int RUNTIME = JsonDecoder.reportFieldIndex("runtime");
+    private static final int SEQUENCE = JsonDecoder.reportFieldIndex("seq");
+    private static final int DEVICE_TIME = JsonDecoder.reportFieldIndex("device_time");
+    private static final int BOOT_TIME = JsonDecoder.reportFieldIndex("boot_time");
+    private static final int GEN_MILLIS = JsonDecoder.reportFieldIndex("gen_ms");
+    private static final int AGENT_VERSION = JsonDecoder.reportFieldIndex("agent_version");
+    private static final int CUSTOM_ID = JsonDecoder.reportFieldIndex("custom_id");
+    private static final int SSH_SERVER_HOST = JsonDecoder.reportFieldIndex("ssh_server_host");
+    private static final int SSH_REMOTE_PORT = JsonDecoder.reportFieldIndex("ssh_remote_port");
+    private static final int SSH_CONNECT_TIME = JsonDecoder.reportFieldIndex("ssh_connect_time");
+    private static final int ADAPTER = JsonDecoder.reportFieldIndex("adapter");
+    private static final int LOCAL_IP_V4 = JsonDecoder.reportFieldIndex("ip4_local");
+    private static final int LOCAL_IP_V6 = JsonDecoder.reportFieldIndex("ip6_local");
+    private static final int HOSTNAME = JsonDecoder.reportFieldIndex("hostname");
+    private static final int RTT_MILLIS = JsonDecoder.reportFieldIndex("rtt_ms");
+    private static final int UPLOAD_KBPS = JsonDecoder.reportFieldIndex("upload_bps");
+    private static final int DOWNLOAD_KBPS = JsonDecoder.reportFieldIndex("download_bps");
+    private static final int DISK_TOTAL_BYTES = JsonDecoder.reportFieldIndex("disk_total_bytes");
+    private static final int DISK_USED_BYTES = JsonDecoder.reportFieldIndex("disk_used_bytes");
+    private static final int DISK_LABEL = JsonDecoder.reportFieldIndex("disk_label");
+    private static final int DISK_FILESYSTEM = JsonDecoder.reportFieldIndex("disk_filesystem");
+    private static final int DISK_MOUNT_POINT = JsonDecoder.reportFieldIndex("disk_mount_point");
+    private static final int DISK_DEVICE = JsonDecoder.reportFieldIndex("disk_device");
+    private static final int USB_DEVICES = JsonDecoder.reportFieldIndex("usb_devices");
+    private static final int BD_LOCAL_DEVICES = JsonDecoder.reportFieldIndex("bd_local_devices");
+    private static final int KERNEL_VERSION = JsonDecoder.reportFieldIndex("kernel_version");
+    private static final int ERRORS = JsonDecoder.reportFieldIndex("errors");
+    private static final int GLOBAL_IP = JsonDecoder.reportFieldIndex("ip_global");
+    private static final int GLOBAL_HOST = JsonDecoder.reportFieldIndex("host_global");
+    private static final int SERVER_TIME = JsonDecoder.reportFieldIndex("server_time");
+    private final byte[] buf;
+    private final int from;
+    private final int to;
+    private final int[] positions;
+    private final StringPool pool;
+    private volatile long decoded;
+
+    /**
+     * Constructs a {@link ReportView}.
+     *
+     * @param buf       buffer
+     * @param from      offset of the JSON object in the buffer
+     * @param to        end of the JSON object in the buffer
+     * @param positions offsets of the values in the buffer by field index, or -1 for absent fields
+     * @param pool      string pool, or {@code null}
+     */
+    ReportView(byte[] buf, int from, int to, int[] positions, StringPool pool) {
+        this.buf = buf;
+        this.from = from;
+        this.to = to;
+        this.positions = positions;
+        this.pool = pool;
+    }
+
+    /**
+     * Decodes a field unless decoded.
+     *
+     * @param index field index
+     * @throws UncheckedIOException if the value does not match the model
+     */
+    private void load(int index) {
+        var bit = 1L << index;
+        if ((decoded & bit) != 0) {
+            return;
+        }
+        synchronized (this) {
+            if ((decoded & bit) != 0) {
+                return;
+            }
+            var at = positions[index];
+            if (at >= 0) {
+                try {
+                    JsonDecoder.decodeReportField(this, index, buf, from, at, to, pool);
+                } catch (JsonDecodingException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            decoded |= bit;
+        }
+    }
+
+    @Override
+    public String getId() {
+        load(ID);
+        return super.getId();
+    }
+
+    @Override
+    public int getTrigger() {
+        load(TRIGGER);
+        return super.getTrigger();
+    }
+
+    @Override
+    public boolean isSuccess() {
+        load(SUCCESS);
+        return super.isSuccess();
+    }
+
+    @Override
+    public String getRuntime() {
+        load(RUNTIME);
+        return super.getRuntime();
+    }
+
+    @Override
+    public int getSequence() {
+        load(SEQUENCE);
+        return super.getSequence();
+    }
+
+    @Override
+    public ZonedDateTime getDeviceTime() {
+        load(DEVICE_TIME);
+        return super.getDeviceTime();
+    }
+
+    @Override
+    public long getDeviceTimeAsLong() {
+        load(DEVICE_TIME);
+        return super.getDeviceTimeAsLong();
+    }
+
+    @Override
+    public ZonedDateTime getBootTime() {
+        load(BOOT_TIME);
+        return super.getBootTime();
+    }
+
+    @Override
+    public long getBootTimeAsLong() {
+        load(BOOT_TIME);
+        return super.getBootTimeAsLong();
+    }
+
+    @Override
+    public long getGenMillis() {
+        load(GEN_MILLIS);
+        return super.getGenMillis();
+    }
+
+    @Override
+    public String getAgentVersion() {
+        load(AGENT_VERSION);
+        return super.getAgentVersion();
+    }
+
+    @Override
+    public String getCustomId() {
+        load(CUSTOM_ID);
+        return super.getCustomId();
+    }
+
+    @Override
+    public String getSshServerHost() {
+        load(SSH_SERVER_HOST);
+        return super.getSshServerHost();
+    }
+
+    @Override
+    public int getSshRemotePort() {
+        load(SSH_REMOTE_PORT);
+        return super.getSshRemotePort();
+    }
+
+    @Override
+    public ZonedDateTime getSshConnectTime() {
+        load(SSH_CONNECT_TIME);
+        return super.getSshConnectTime();
+    }
+
+    @Override
+    public long getSshConnectTimeAsLong() {
+        load(SSH_CONNECT_TIME);
+        return super.getSshConnectTimeAsLong();
+    }
+
+    @Override
+    public String getAdapter() {
+        load(ADAPTER);
+        return super.getAdapter();
+    }
+
+    @Override
+    public String getLocalIpV4() {
+        load(LOCAL_IP_V4);
+        return super.getLocalIpV4();
+    }
+
+    @Override
+    public String getLocalIpV6() {
+        load(LOCAL_IP_V6);
+        return super.getLocalIpV6();
+    }
+
+    @Override
+    public String getHostname() {
+        load(HOSTNAME);
+        return super.getHostname();
+    }
+
+    @Override
+    public long getRttMillis() {
+        load(RTT_MILLIS);
+        return super.getRttMillis();
+    }
+
+    @Override
+    public long getUploadKbps() {
+        load(UPLOAD_KBPS);
+        return super.getUploadKbps();
+    }
+
+    @Override
+    public long getDownloadKbps() {
+        load(DOWNLOAD_KBPS);
+        return super.getDownloadKbps();
+    }
+
+    @Override
+    public long getDiskTotalBytes() {
+        load(DISK_TOTAL_BYTES);
+        return super.getDiskTotalBytes();
+    }
+
+    @Override
+    public long getDiskUsedBytes() {
+        load(DISK_USED_BYTES);
+        return super.getDiskUsedBytes();
+    }
+
+    @Override
+    public double getDiskUtilizationPercentage() {
+        load(DISK_TOTAL_BYTES);
+        load(DISK_USED_BYTES);
+        return super.getDiskUtilizationPercentage();
+    }
+
+    @Override
+    public String getDiskLabel() {
+        load(DISK_LABEL);
+        return super.getDiskLabel();
+    }
+
+    @Override
+    public String getDiskFilesystem() {
+        load(DISK_FILESYSTEM);
+        return super.getDiskFilesystem();
+    }
+
+    @Override
+    public String getDiskMountPoint() {
+        load(DISK_MOUNT_POINT);
+        return super.getDiskMountPoint();
+    }
+
+    @Override
+    public String getDiskDevice() {
+        load(DISK_DEVICE);
+        return super.getDiskDevice();
+    }
+
+    @Override
+    public List<UsbDevice> getUsbDevices() {
+        load(USB_DEVICES);
+        return super.getUsbDevices();
+    }
+
+    @Override
+    public List<String> getBdLocalDevices() {
+        load(BD_LOCAL_DEVICES);
+        return super.getBdLocalDevices();
+    }
+
+    @Override
+    public String getKernelVersion() {
+        load(KERNEL_VERSION);
+        return super.getKernelVersion();
+    }
+
+    @Override
+    public List<String> getErrors() {
+        load(ERRORS);
+        return super.getErrors();
+    }
+
+    @Override
+    public String getGlobalIp() {
+        load(GLOBAL_IP);
+        return super.getGlobalIp();
+    }
+
+    @Override
+    public String getGlobalHost() {
+        load(GLOBAL_HOST);
+        return super.getGlobalHost();
+    }
+
+    @Override
+    public ZonedDateTime getServerTime() {
+        load(SERVER_TIME);
+        return super.getServerTime();
+    }
+
+    @Override
+    public long getServerTimeAsLong() {
+        load(SERVER_TIME);
+        return super.getServerTimeAsLong();
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import io.github.kaginawa.sdk.spi.TransportResponse;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * LRU cache of decoded responses with their HTTP validators.
+ * <p>
+ * A {@code 200} response is stored if it carries an {@code ETag}, a {@code Last-Modified} or a positive
+ * {@code max-age} and is not marked {@code no-store}. While the entry is fresh by {@code max-age} it is returned
+ * without a request; otherwise the request is made conditional, and on {@code 304} the decoded object is returned
+ * without parsing again.
+ * </p>
+ */
+final class ResponseCache {
+    private final int maxEntries;
+    private final LongSupplier clock;
+    private final Map<String, Entry> entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Constructs a {@link ResponseCache}.
+     *
+     * @param maxEntries maximum number of entries, 0 to disable
+     */
+    ResponseCache(int maxEntries) {
+        this(maxEntries, System::nanoTime);
+    }
+
+    /**
+     * Constructs a {@link ResponseCache} with custom clock designed for unit testing.
+     *
+     * @param maxEntries maximum number of entries, 0 to disable
+     * @param clock      clock in nanoseconds
+     */
+    ResponseCache(int maxEntries, LongSupplier clock) {
+        this.maxEntries = maxEntries;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ResponseCache.Entry> eldest) {
+                return size() > ResponseCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns the number of responses served from the cache, either fresh or revalidated.
+     *
+     * @return number of hits
+     */
+    long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of responses downloaded and decoded while the cache is enabled.
+     *
+     * @return number of misses
+     */
+    long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Looks up an entry.
+     *
+     * @param key request URL
+     * @return entry, or {@code null} if absent or the cache is disabled
+     */
+    Entry lookup(String key) {
+        if (maxEntries == 0) {
+            return null;
+        }
+        synchronized (entries) {
+            return entries.get(key);
+        }
+    }
+
+    /**
+     * Returns the value of a fresh entry.
+     *
+     * @param entry entry
+     * @param <T>   type of value
+     * @return value, or {@code null} if the entry is absent or stale
+     */
+    <T> T fresh(Entry entry) {
+        if (entry == null || entry.expiresAt == 0 || entry.expiresAt - clock.getAsLong() <= 0) {
+            return null;
+        }
+        hits.increment();
+        return cast(entry.value);
+    }
+
+    /**
+     * Returns the value of an entry revalidated by a {@code 304} response, refreshing its validators.
+     *
+     * @param key      request URL
+     * @param entry    entry
+     * @param response {@code 304} response
+     * @param <T>      type of value
+     * @return value
+     */
+    <T> T revalidated(String key, Entry entry, TransportResponse response) {
+        hits.increment();
+        var etag = response.getFirstHeader("ETag");
+        var lastModified = response.getFirstHeader("Last-Modified");
+        if (etag == null) {
+            etag = entry.etag;
+        }
+        if (lastModified == null) {
+            lastModified = entry.lastModified;
+        }
+        put(key, new Entry(etag, lastModified, entry.value, expiresAt(response)));
+        return cast(entry.value);
+    }
+
+    /**
+     * Stores a decoded value of a {@code 200} response if cacheable. Lists are stored and returned unmodifiable,
+     * because cached values are shared among callers; the lists inside reports are already unmodifiable as decoded.
+     *
+     * @param key      request URL
+     * @param response {@code 200} response
+     * @param value    decoded value
+     * @param <T>      type of value
+     * @return value to return to the caller
+     */
+    <T> T store(String key, TransportResponse response, T value) {
+        if (maxEntries == 0) {
+            return value;
+        }
+        misses.increment();
+        if (cacheControl(response).contains("no-store")) {
+            return value;
+        }
+        var etag = response.getFirstHeader("ETag");
+        var lastModified = response.getFirstHeader("Last-Modified");
+        var expiresAt = expiresAt(response);
+        if (etag == null && lastModified == null && expiresAt == 0) {
+            return value;
+        }
+        var shared = value instanceof List ? Collections.unmodifiableList((List<?>) value) : value;
+        put(key, new Entry(etag, lastModified, shared, expiresAt));
+        return cast(shared);
+    }
+
+    private void put(String key, Entry entry) {
+        synchronized (entries) {
+            entries.put(key, entry);
+        }
+    }
+
+    private long expiresAt(TransportResponse response) {
+        var cacheControl = cacheControl(response);
+        if (cacheControl.contains("no-cache")) {
+            return 0;
+        }
+        for (var directive : cacheControl.split(",")) {
+            directive = directive.trim();
+            if (directive.startsWith("max-age=")) {
+                try {
+                    var maxAge = Long.parseLong(directive.substring("max-age=".length()));
+                    if (maxAge > 0) {
+                        return clock.getAsLong() + TimeUnit.SECONDS.toNanos(maxAge);
+                    }
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 0;
+    }
+
+    private static String cacheControl(TransportResponse response) {
+        return String.join(",", response.getHeaders("Cache-Control")).toLowerCase();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T cast(Object value) {
+        return (T) value;
+    }
+
+    /**
+     * Cached value with its validators.
+     */
+    static final class Entry {
+        final String etag;
+        final String lastModified;
+        final Object value;
+        final long expiresAt;
+
+        Entry(String etag, String lastModified, Object value, long expiresAt) {
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
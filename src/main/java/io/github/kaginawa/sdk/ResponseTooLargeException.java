@@ -0,0 +1,52 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import java.io.IOException;
+
+/**
+ * Signals that a response body exceeds the maximum response size, and the rest of it was not received. Such a
+ * response is not retried.
+ * <p>
+ * This exception is delivered as the cause of {@link KaginawaServerException}.
+ * </p>
+ *
+ * @see KaginawaClient.Builder#maxResponseSize(long)
+ * @since 0.3.0
+ */
+public class ResponseTooLargeException extends IOException {
+    private static final long serialVersionUID = 1L;
+    private final long maxResponseSize;
+
+    /**
+     * Constructs a {@link ResponseTooLargeException}.
+     *
+     * @param maxResponseSize maximum response size in bytes
+     */
+    public ResponseTooLargeException(long maxResponseSize) {
+        super("response exceeds the maximum size of " + maxResponseSize + " bytes");
+        this.maxResponseSize = maxResponseSize;
+    }
+
+    /**
+     * Returns the maximum response size that was exceeded.
+     *
+     * @return maximum response size in bytes
+     */
+    public long getMaxResponseSize() {
+        return maxResponseSize;
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import io.github.kaginawa.sdk.spi.TransportResponse;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Executes HTTP exchanges under a {@link RetryPolicy}.
+ * <p>
+ * The final outcome is passed through as is: either the last response, whatever its status, or the last
+ * {@link IOException}. Mapping them to {@link KaginawaServerException} is up to the caller. No retry is made when
+ * its backoff would end after the deadline of the operation.
+ * </p>
+ */
+final class Retrier {
+    private final RetryPolicy policy;
+    private final RetryBudget budget;
+
+    /**
+     * Constructs a {@link Retrier}.
+     *
+     * @param policy retry policy
+     */
+    Retrier(RetryPolicy policy) {
+        this.policy = policy;
+        this.budget = new RetryBudget(policy);
+    }
+
+    /**
+     * Sends a request synchronously, retrying as the policy permits.
+     *
+     * @param call       performs one attempt
+     * @param idempotent whether the request is safe to repeat
+     * @param deadline   deadline of the operation
+     * @return last response
+     * @throws IOException          if the last attempt failed
+     * @throws InterruptedException if interrupted while sending or backing off
+     */
+    TransportResponse send(Call call, boolean idempotent, Deadline deadline)
+            throws IOException, InterruptedException {
+        if (policy.getMaxAttempts() == 1) {
+            return call.send();
+        }
+        budget.recordRequest();
+        for (int attempt = 1; ; attempt++) {
+            TransportResponse response = null;
+            IOException failure = null;
+            try {
+                response = call.send();
+            } catch (IOException e) {
+                failure = e;
+            }
+            var delay = retryDelay(attempt, response, failure, idempotent, deadline);
+            if (delay == null) {
+                if (failure != null) {
+                    throw failure;
+                }
+                return response;
+            }
+            discard(response);
+            TimeUnit.NANOSECONDS.sleep(delay.toNanos());
+        }
+    }
+
+    /**
+     * Sends a request asynchronously, retrying as the policy permits. Cancelling the returned future cancels the
+     * exchange in flight.
+     *
+     * @param call       starts one attempt
+     * @param idempotent whether the request is safe to repeat
+     * @param deadline   deadline of the operation
+     * @return future of last response
+     */
+    CompletableFuture<TransportResponse> sendAsync(Supplier<CompletableFuture<TransportResponse>> call,
+                                                   boolean idempotent, Deadline deadline) {
+        if (policy.getMaxAttempts() == 1) {
+            return call.get();
+        }
+        budget.recordRequest();
+        var result = new CompletableFuture<TransportResponse>();
+        attemptAsync(call, idempotent, deadline, 1, result);
+        return result;
+    }
+
+    private void attemptAsync(Supplier<CompletableFuture<TransportResponse>> call, boolean idempotent,
+                              Deadline deadline, int attempt, CompletableFuture<TransportResponse> result) {
+        if (result.isDone()) {
+            return;
+        }
+        var exchange = call.get();
+        result.whenComplete((r, e) -> exchange.cancel(true));
+        exchange.whenComplete((response, e) -> {
+            var cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            var delay = cause == null || cause instanceof IOException
+                    ? retryDelay(attempt, response, cause, idempotent, deadline) : null;
+            if (delay == null) {
+                if (cause != null) {
+                    result.completeExceptionally(cause);
+                } else {
+                    result.complete(response);
+                }
+                return;
+            }
+            discard(response);
+            CompletableFuture.delayedExecutor(delay.toNanos(), TimeUnit.NANOSECONDS)
+                    .execute(() -> attemptAsync(call, idempotent, deadline, attempt + 1, result));
+        });
+    }
+
+    /**
+     * Decides whether to retry after the given attempt.
+     *
+     * @param attempt    attempt count starts from 1
+     * @param response   response, or {@code null} if the attempt failed
+     * @param failure    failure of the attempt, or {@code null} if a response is received
+     * @param idempotent whether the request is safe to repeat
+     * @param deadline   deadline of the operation
+     * @return delay before the next attempt, or {@code null} to give up
+     */
+    private Duration retryDelay(int attempt, TransportResponse response, Throwable failure, boolean idempotent,
+                                Deadline deadline) {
+        if (attempt >= policy.getMaxAttempts() || !(idempotent || policy.isRetryCommand())) {
+            return null;
+        }
+        if (failure instanceof CircuitBreakerOpenException) {
+            return null; // retrying would not reach the server anyway
+        }
+        if (failure instanceof ResponseTooLargeException) {
+            return null; // the same response would be too large again
+        }
+        if (response != null && !policy.isRetryableStatus(response.getStatusCode())) {
+            return null;
+        }
+        var delay = policy.backoff(attempt);
+        if (response != null && (response.getStatusCode() == 429 || response.getStatusCode() == 503)) {
+            var retryAfter = retryAfter(response);
+            if (retryAfter != null) {
+                if (retryAfter.compareTo(policy.getMaxBackoff()) > 0) {
+                    return null;
+                }
+                delay = retryAfter;
+            }
+        }
+        if (delay.toNanos() >= deadline.remainingNanos()) {
+            return null;
+        }
+        return budget.tryAcquire() ? delay : null;
+    }
+
+    /**
+     * Parses the {@code Retry-After} header in either delay-seconds or HTTP-date form.
+     *
+     * @param response response
+     * @return delay, or {@code null} if absent or malformed
+     */
+    static Duration retryAfter(TransportResponse response) {
+        var value = response.getFirstHeader("Retry-After");
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+        value = value.trim();
+        if (value.chars().allMatch(c -> c >= '0' && c <= '9')) {
+            try {
+                return Duration.ofSeconds(Long.parseLong(value));
+            } catch (NumberFormatException e) {
+                return null; // overflow
+            }
+        }
+        try {
+            var date = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME);
+            var delay = Duration.between(ZonedDateTime.now(date.getZone()), date);
+            return delay.isNegative() ? Duration.ZERO : delay;
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static void discard(TransportResponse response) {
+        if (response != null) {
+            try {
+                response.getBody().close();
+            } catch (IOException e) {
+                // nothing to do
+            }
+        }
+    }
+
+    /**
+     * Performs one synchronous attempt.
+     */
+    @FunctionalInterface
+    interface Call {
+        TransportResponse send() throws IOException, InterruptedException;
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Client-wide limit of retries as a fraction of the traffic in a sliding window.
+ * <p>
+ * Within the last {@value #WINDOW_SECONDS} seconds, a retry is permitted while the number of retries is less than
+ * {@code ratio * requests + minRetriesPerSecond * window}. The same budget caps hedged requests.
+ * </p>
+ */
+final class RetryBudget {
+    static final int WINDOW_SECONDS = 10;
+    private final double ratio;
+    private final int minRetriesPerSecond;
+    private final LongSupplier clock;
+    private final long[] seconds = new long[WINDOW_SECONDS];
+    private final long[] requests = new long[WINDOW_SECONDS];
+    private final long[] retries = new long[WINDOW_SECONDS];
+
+    /**
+     * Constructs a {@link RetryBudget}.
+     *
+     * @param policy retry policy
+     */
+    RetryBudget(RetryPolicy policy) {
+        this(policy, () -> System.nanoTime() / 1_000_000_000L);
+    }
+
+    /**
+     * Constructs a {@link RetryBudget} with custom clock designed for unit testing.
+     *
+     * @param policy retry policy
+     * @param clock  clock in seconds
+     */
+    RetryBudget(RetryPolicy policy, LongSupplier clock) {
+        this(policy.getBudgetRatio(), policy.getMinRetriesPerSecond(), clock);
+    }
+
+    /**
+     * Constructs a {@link RetryBudget} with explicit limits.
+     *
+     * @param ratio               ratio of retries to requests
+     * @param minRetriesPerSecond retries per second permitted regardless of the ratio
+     * @param clock               clock in seconds
+     */
+    RetryBudget(double ratio, int minRetriesPerSecond, LongSupplier clock) {
+        this.ratio = ratio;
+        this.minRetriesPerSecond = minRetriesPerSecond;
+        this.clock = clock;
+        var now = clock.getAsLong();
+        for (int i = 0; i < WINDOW_SECONDS; i++) {
+            seconds[i] = now - WINDOW_SECONDS; // expired
+        }
+    }
+
+    /**
+     * Records a request, not a retry.
+     */
+    synchronized void recordRequest() {
+        requests[slot(clock.getAsLong())]++;
+    }
+
+    /**
+     * Withdraws a retry from the budget.
+     *
+     * @return {@code true} if the retry is permitted, {@code false} if the budget is exhausted
+     */
+    synchronized boolean tryAcquire() {
+        var now = clock.getAsLong();
+        int current = slot(now);
+        long totalRequests = 0;
+        long totalRetries = 0;
+        for (int i = 0; i < WINDOW_SECONDS; i++) {
+            if (now - seconds[i] < WINDOW_SECONDS) {
+                totalRequests += requests[i];
+                totalRetries += retries[i];
+            }
+        }
+        if (totalRetries >= ratio * totalRequests + (double) minRetriesPerSecond * WINDOW_SECONDS) {
+            return false;
+        }
+        retries[current]++;
+        return true;
+    }
+
+    private int slot(long now) {
+        int i = (int) Math.floorMod(now, (long) WINDOW_SECONDS);
+        if (seconds[i] != now) {
+            seconds[i] = now;
+            requests[i] = 0;
+            retries[i] = 0;
+        }
+        return i;
+    }
+}
@@ -0,0 +1,318 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Retry policy of {@link KaginawaClient}.
+ * <p>
+ * Failed requests are retried with exponential backoff and full jitter. For {@code 429} and {@code 503} responses,
+ * the {@code Retry-After} header is honoured instead of the backoff. Retries are additionally limited by a
+ * client-wide retry budget, so that retries cannot multiply the load on the server during an outage.
+ * </p>
+ * <p>
+ * Only idempotent read operations are retried by default; {@link KaginawaClient#command} is retried only if
+ * {@link Builder#retryCommand(boolean)} is enabled.
+ * </p>
+ *
+ * @since 0.3.0
+ */
+public class RetryPolicy {
+    private static final RetryPolicy NONE = Builder.newBuilder().maxAttempts(1).build();
+    private int maxAttempts = 3;
+    private Duration initialBackoff = Duration.ofMillis(100);
+    private Duration maxBackoff = Duration.ofSeconds(10);
+    private double multiplier = 2;
+    private int[] retryStatuses = {429, 502, 503, 504};
+    private double budgetRatio = 0.1;
+    private int minRetriesPerSecond = 10;
+    private boolean retryCommand;
+
+    /**
+     * @see Builder#newBuilder()
+     */
+    private RetryPolicy() {
+    }
+
+    /**
+     * Returns a policy that never retries.
+     *
+     * @return policy
+     */
+    public static RetryPolicy none() {
+        return NONE;
+    }
+
+    /**
+     * Returns the maximum number of attempts including the first one.
+     *
+     * @return maximum number of attempts
+     */
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * Returns the backoff before the first retry.
+     *
+     * @return initial backoff
+     */
+    public Duration getInitialBackoff() {
+        return initialBackoff;
+    }
+
+    /**
+     * Returns the upper bound of backoff and accepted {@code Retry-After}.
+     *
+     * @return maximum backoff
+     */
+    public Duration getMaxBackoff() {
+        return maxBackoff;
+    }
+
+    /**
+     * Returns the backoff multiplier applied on each retry.
+     *
+     * @return multiplier
+     */
+    public double getMultiplier() {
+        return multiplier;
+    }
+
+    /**
+     * Returns the ratio of retries allowed against the number of requests.
+     *
+     * @return budget ratio
+     */
+    public double getBudgetRatio() {
+        return budgetRatio;
+    }
+
+    /**
+     * Returns the number of retries per second allowed regardless of the traffic.
+     *
+     * @return minimum retries per second
+     */
+    public int getMinRetriesPerSecond() {
+        return minRetriesPerSecond;
+    }
+
+    /**
+     * Returns whether {@link KaginawaClient#command} is retried.
+     *
+     * @return {@code true} if commands are retried, {@code false} otherwise
+     */
+    public boolean isRetryCommand() {
+        return retryCommand;
+    }
+
+    /**
+     * Returns whether the given HTTP status is retryable.
+     *
+     * @param status HTTP status
+     * @return {@code true} if retryable, {@code false} otherwise
+     */
+    public boolean isRetryableStatus(int status) {
+        for (int s : retryStatuses) {
+            if (s == status) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns a jittered backoff before the given retry.
+     *
+     * @param retry retry count starts from 1
+     * @return backoff
+     */
+    Duration backoff(int retry) {
+        var max = initialBackoff.toNanos() * Math.pow(multiplier, retry - 1);
+        var capped = (long) Math.min(max, maxBackoff.toNanos());
+        return Duration.ofNanos(capped <= 0 ? 0 : ThreadLocalRandom.current().nextLong(capped + 1));
+    }
+
+    /**
+     * Builds a {@link RetryPolicy}.
+     */
+    public static class Builder {
+        private final RetryPolicy o = new RetryPolicy();
+
+        /**
+         * @see #newBuilder()
+         */
+        private Builder() {
+        }
+
+        /**
+         * Creates a new {@link Builder} for building a {@link RetryPolicy}.
+         *
+         * @return a {@link Builder}
+         */
+        public static Builder newBuilder() {
+            return new Builder();
+        }
+
+        /**
+         * Sets the maximum number of attempts including the first one. Defaults to 3.
+         *
+         * @param maxAttempts maximum number of attempts
+         * @return this builder
+         * @throws IllegalArgumentException if the max attempts is not a natural number
+         */
+        public Builder maxAttempts(int maxAttempts) {
+            if (maxAttempts < 1) {
+                throw new IllegalArgumentException("max attempts must be a natural number");
+            }
+            o.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        /**
+         * Sets the backoff before the first retry. Defaults to 100 milliseconds.
+         *
+         * @param initialBackoff initial backoff
+         * @return this builder
+         * @throws NullPointerException     if the initial backoff is {@code null}
+         * @throws IllegalArgumentException if the initial backoff is negative
+         */
+        public Builder initialBackoff(Duration initialBackoff) {
+            Objects.requireNonNull(initialBackoff, "initialBackoff is required");
+            if (initialBackoff.isNegative()) {
+                throw new IllegalArgumentException("initial backoff must be a positive duration");
+            }
+            o.initialBackoff = initialBackoff;
+            return this;
+        }
+
+        /**
+         * Sets the upper bound of backoff. A {@code Retry-After} longer than this fails without retrying.
+         * Defaults to 10 seconds.
+         *
+         * @param maxBackoff maximum backoff
+         * @return this builder
+         * @throws NullPointerException     if the maximum backoff is {@code null}
+         * @throws IllegalArgumentException if the maximum backoff is negative
+         */
+        public Builder maxBackoff(Duration maxBackoff) {
+            Objects.requireNonNull(maxBackoff, "maxBackoff is required");
+            if (maxBackoff.isNegative()) {
+                throw new IllegalArgumentException("max backoff must be a positive duration");
+            }
+            o.maxBackoff = maxBackoff;
+            return this;
+        }
+
+        /**
+         * Sets the backoff multiplier applied on each retry. Defaults to 2.
+         *
+         * @param multiplier multiplier
+         * @return this builder
+         * @throws IllegalArgumentException if the multiplier is less than 1
+         */
+        public Builder multiplier(double multiplier) {
+            if (!(multiplier >= 1)) {
+                throw new IllegalArgumentException("multiplier must be 1 or greater");
+            }
+            o.multiplier = multiplier;
+            return this;
+        }
+
+        /**
+         * Sets the HTTP statuses to retry. Defaults to 429, 502, 503 and 504.
+         *
+         * @param statuses HTTP statuses
+         * @return this builder
+         * @throws NullPointerException if the statuses is {@code null}
+         */
+        public Builder retryStatuses(int... statuses) {
+            Objects.requireNonNull(statuses, "statuses is required");
+            o.retryStatuses = Arrays.copyOf(statuses, statuses.length);
+            return this;
+        }
+
+        /**
+         * Sets the ratio of retries allowed against the number of requests in the last 10 seconds.
+         * Defaults to 0.1, that means retries can add at most 10% to the traffic.
+         *
+         * @param budgetRatio budget ratio
+         * @return this builder
+         * @throws IllegalArgumentException if the ratio is negative
+         */
+        public Builder budgetRatio(double budgetRatio) {
+            if (!(budgetRatio >= 0)) {
+                throw new IllegalArgumentException("budget ratio must be a positive number");
+            }
+            o.budgetRatio = budgetRatio;
+            return this;
+        }
+
+        /**
+         * Sets the number of retries per second allowed regardless of the traffic, so that low-traffic clients
+         * can still retry. Defaults to 10.
+         *
+         * @param minRetriesPerSecond minimum retries per second
+         * @return this builder
+         * @throws IllegalArgumentException if the number is negative
+         */
+        public Builder minRetriesPerSecond(int minRetriesPerSecond) {
+            if (minRetriesPerSecond < 0) {
+                throw new IllegalArgumentException("min retries per second must be a positive number");
+            }
+            o.minRetriesPerSecond = minRetriesPerSecond;
+            return this;
+        }
+
+        /**
+         * Sets whether to retry {@link KaginawaClient#command}, a non-idempotent operation. Defaults to
+         * {@code false}.
+         *
+         * @param retryCommand {@code true} to retry commands
+         * @return this builder
+         */
+        public Builder retryCommand(boolean retryCommand) {
+            o.retryCommand = retryCommand;
+            return this;
+        }
+
+        /**
+         * Returns a new {@link RetryPolicy} built from the current state of this builder.
+         *
+         * @return a new {@link RetryPolicy}
+         * @throws IllegalStateException if the initial backoff is greater than the max backoff
+         */
+        public RetryPolicy build() {
+            if (o.initialBackoff.compareTo(o.maxBackoff) > 0) {
+                throw new IllegalStateException("initial backoff is greater than max backoff");
+            }
+            var policy = new RetryPolicy();
+            policy.maxAttempts = o.maxAttempts;
+            policy.initialBackoff = o.initialBackoff;
+            policy.maxBackoff = o.maxBackoff;
+            policy.multiplier = o.multiplier;
+            policy.retryStatuses = o.retryStatuses;
+            policy.budgetRatio = o.budgetRatio;
+            policy.minRetriesPerSecond = o.minRetriesPerSecond;
+            policy.retryCommand = o.retryCommand;
+            return policy;
+        }
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent identical calls into a single in-flight call.
+ * <p>
+ * The first caller of a key runs the call, and callers arriving until it completes wait for the same result or
+ * failure. Lists are returned unmodifiable, because the result is shared among waiters. Each asynchronous waiter
+ * receives its own future; cancelling it detaches only that waiter, and the shared call is cancelled once every
+ * waiter has cancelled.
+ * </p>
+ */
+final class SingleFlight {
+    private final ConcurrentHashMap<String, Flight> flights = new ConcurrentHashMap<>();
+
+    /**
+     * Runs a blocking call, or waits for the identical call in flight until the given deadline.
+     *
+     * @param key      call key
+     * @param deadline deadline of the caller
+     * @param call     performs the call
+     * @param <T>      type of result
+     * @return result
+     * @throws KaginawaServerException if the call failed, the deadline passed while waiting, or interrupted while
+     *                                 waiting
+     */
+    <T> T execute(String key, Deadline deadline, Call<T> call) throws KaginawaServerException {
+        while (true) {
+            var flight = new Flight(1); // the leader never detaches
+            var existing = flights.putIfAbsent(key, flight);
+            if (existing == null) {
+                try {
+                    T value = shared(call.call());
+                    flight.result.complete(value);
+                    return value;
+                } catch (Throwable e) {
+                    flight.result.completeExceptionally(e);
+                    throw e;
+                } finally {
+                    flights.remove(key, flight);
+                }
+            }
+            CompletableFuture<T> joined = existing.join();
+            if (joined == null) {
+                flights.remove(key, existing);
+                continue;
+            }
+            try {
+                return joined.get(deadline.remainingNanos(), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                joined.cancel(true);
+                throw deadline.exceeded();
+            } catch (InterruptedException e) {
+                joined.cancel(true);
+                Thread.currentThread().interrupt();
+                throw new KaginawaServerException("request interrupted", e);
+            } catch (ExecutionException e) {
+                var cause = e.getCause();
+                if (cause instanceof KaginawaServerException) {
+                    throw (KaginawaServerException) cause;
+                }
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new KaginawaServerException("request failed", cause);
+            }
+        }
+    }
+
+    /**
+     * Starts an asynchronous call, or joins the identical call in flight.
+     *
+     * @param key  call key
+     * @param call starts the call
+     * @param <T>  type of result
+     * @return future of result dedicated to the caller
+     */
+    <T> CompletableFuture<T> executeAsync(String key, Supplier<CompletableFuture<T>> call) {
+        while (true) {
+            var flight = new Flight(0);
+            CompletableFuture<T> leader = flight.join(); // counted before followers can see the flight
+            var existing = flights.putIfAbsent(key, flight);
+            if (existing == null) {
+                CompletableFuture<T> source;
+                try {
+                    source = call.get();
+                } catch (RuntimeException | Error e) {
+                    flights.remove(key, flight);
+                    flight.result.completeExceptionally(e);
+                    throw e;
+                }
+                flight.source = source;
+                source.whenComplete((value, e) -> {
+                    flights.remove(key, flight);
+                    if (e != null) {
+                        flight.result.completeExceptionally(e);
+                    } else {
+                        flight.result.complete(shared(value));
+                    }
+                });
+                return leader;
+            }
+            CompletableFuture<T> joined = existing.join();
+            if (joined != null) {
+                return joined;
+            }
+            flights.remove(key, existing);
+        }
+    }
+
+    /**
+     * Call in flight shared by its waiters.
+     */
+    private static final class Flight {
+        final CompletableFuture<Object> result = new CompletableFuture<>();
+        volatile CompletableFuture<?> source;
+        int waiters;
+        boolean abandoned;
+
+        /**
+         * Constructs a {@link Flight}.
+         *
+         * @param waiters number of waiters registered before the flight is published
+         */
+        Flight(int waiters) {
+            this.waiters = waiters;
+        }
+
+        /**
+         * Registers a waiter.
+         *
+         * @param <T> type of result
+         * @return future dedicated to the waiter, or {@code null} if every waiter has already cancelled
+         */
+        synchronized <T> CompletableFuture<T> join() {
+            if (abandoned) {
+                return null;
+            }
+            waiters++;
+            CompletableFuture<T> dependent = result.thenApply(SingleFlight::cast);
+            dependent.whenComplete((value, e) -> {
+                if (dependent.isCancelled()) {
+                    detach();
+                }
+            });
+            return dependent;
+        }
+
+        private void detach() {
+            synchronized (this) {
+                if (--waiters > 0 || result.isDone()) {
+                    return;
+                }
+                abandoned = true;
+            }
+            var s = source;
+            if (s != null) {
+                s.cancel(true);
+            }
+        }
+    }
+
+    private static <T> T shared(T value) {
+        return value instanceof List ? cast(Collections.unmodifiableList((List<?>) value)) : value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T cast(Object value) {
+        return (T) value;
+    }
+
+    /**
+     * Performs a blocking call.
+     *
+     * @param <T> type of result
+     */
+    @FunctionalInterface
+    interface Call<T> {
+        T call() throws KaginawaServerException;
+    }
+}
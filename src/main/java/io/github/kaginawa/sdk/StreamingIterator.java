@@ -0,0 +1,110 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Iterator that decodes elements of a JSON array lazily while reading the response body.
+ * <p>
+ * Failures while reading or decoding are thrown as {@link UncheckedIOException}.
+ * </p>
+ *
+ * @param <T> type of an element
+ */
+final class StreamingIterator<T> implements Iterator<T>, AutoCloseable {
+    private final JsonArrayReader reader;
+    private final ElementDecoder<T> decoder;
+    private final String resource;
+    private T next;
+
+    /**
+     * Constructs a {@link StreamingIterator}.
+     *
+     * @param reader   source of elements
+     * @param decoder  element decoder
+     * @param resource resource name used in error messages
+     */
+    StreamingIterator(JsonArrayReader reader, ElementDecoder<T> decoder, String resource) {
+        this.reader = reader;
+        this.decoder = decoder;
+        this.resource = resource;
+    }
+
+    /**
+     * Returns a sequential {@link Stream} backed by this iterator. Closing the stream closes the response body.
+     *
+     * @return stream of elements
+     */
+    Stream<T> stream() {
+        var spliterator = Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(this::close);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next != null) {
+            return true;
+        }
+        try {
+            if (!reader.next()) {
+                close();
+                return false;
+            }
+            next = decoder.decode(reader);
+        } catch (IOException e) {
+            close();
+            throw new UncheckedIOException("failed to read " + resource + " response", e);
+        }
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        var result = next;
+        next = null;
+        return result;
+    }
+
+    @Override
+    public void close() {
+        try {
+            reader.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Decodes the current element of a {@link JsonArrayReader}.
+     *
+     * @param <T> type of an element
+     */
+    @FunctionalInterface
+    interface ElementDecoder<T> {
+        T decode(JsonArrayReader reader) throws IOException;
+    }
+}
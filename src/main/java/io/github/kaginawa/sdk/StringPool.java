@@ -0,0 +1,133 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Bounded pool of strings looked up by their UTF-8 bytes.
+ * <p>
+ * The table is split into buckets of {@value #WAYS} entries chosen by the hash of the bytes. Entries are immutable
+ * and published by plain array writes, which is safe through their final fields; a write lost by a race only
+ * leaves a value unpooled or pooled twice.
+ * </p>
+ *
+ * @see StringPoolPolicy
+ */
+final class StringPool {
+    static final int WAYS = 4;
+    private final Entry[] entries;
+    private final int maxLength;
+    private final boolean replace;
+
+    /**
+     * Constructs a {@link StringPool}.
+     *
+     * @param policy enabled pooling policy
+     */
+    StringPool(StringPoolPolicy policy) {
+        var size = Math.max(policy.getMaxSize(), WAYS);
+        this.entries = new Entry[Integer.bitCount(size) == 1 ? size : Integer.highestOneBit(size) << 1];
+        this.maxLength = policy.getMaxLength();
+        this.replace = policy.getEviction() == StringPoolPolicy.Eviction.REPLACE;
+    }
+
+    /**
+     * Returns the pooled string of the given UTF-8 bytes, pooling a new one if possible.
+     *
+     * @param buf    buffer
+     * @param offset offset of the bytes in the buffer
+     * @param length length of the bytes
+     * @return string
+     */
+    String intern(byte[] buf, int offset, int length) {
+        if (length == 0) {
+            return "";
+        }
+        if (length > maxLength) {
+            return new String(buf, offset, length, StandardCharsets.UTF_8);
+        }
+        int hash = hash(buf, offset, length);
+        int bucket = hash & (entries.length - WAYS);
+        for (int i = bucket; i < bucket + WAYS; i++) {
+            var entry = entries[i];
+            if (entry == null) {
+                return add(i, hash, buf, offset, length); // entries are never removed, so no match follows
+            }
+            if (entry.hash == hash
+                    && Arrays.equals(entry.bytes, 0, entry.bytes.length, buf, offset, offset + length)) {
+                return entry.value;
+            }
+        }
+        if (replace) {
+            return add(bucket + (hash >>> 30), hash, buf, offset, length); // top two bits pick one of four
+        }
+        return new String(buf, offset, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the number of pooled strings.
+     *
+     * @return size
+     */
+    int size() {
+        int size = 0;
+        for (var entry : entries) {
+            if (entry != null) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Returns the maximum number of pooled strings.
+     *
+     * @return capacity
+     */
+    int capacity() {
+        return entries.length;
+    }
+
+    private String add(int index, int hash, byte[] buf, int offset, int length) {
+        var bytes = Arrays.copyOfRange(buf, offset, offset + length);
+        var value = new String(bytes, StandardCharsets.UTF_8);
+        entries[index] = new Entry(hash, bytes, value);
+        return value;
+    }
+
+    private static int hash(byte[] buf, int offset, int length) {
+        int h = length;
+        for (int i = offset; i < offset + length; i++) {
+            h = 31 * h + buf[i];
+        }
+        h *= 0x9e3779b9;
+        return h ^ (h >>> 16);
+    }
+
+    private static final class Entry {
+        final int hash;
+        final byte[] bytes;
+        final String value;
+
+        Entry(int hash, byte[] bytes, String value) {
+            this.hash = hash;
+            this.bytes = bytes;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import java.util.Objects;
+
+/**
+ * String pooling policy of {@link KaginawaClient}.
+ * <p>
+ * In a large list of reports, fields such as the runtime, the agent version, the kernel version, the filesystem
+ * and mount point of the disk, the network adapter, the SSH server host and the errors repeat a few values. When
+ * pooling is enabled, the built-in JSON codecs look these values up by their UTF-8 bytes in a bounded pool shared
+ * by all decodings of the client, so that the reports share one {@link String} per value instead of holding their
+ * own copies. Values of other fields are never pooled.
+ * </p>
+ * <p>
+ * The pool is a set-associative table of four entries per bucket, read and written without locks. Lookups of a
+ * pooled value allocate nothing; two threads adding the same value at once may keep two copies of it.
+ * </p>
+ *
+ * @since 0.3.0
+ */
+public class StringPoolPolicy {
+    static final int MAX_SIZE = 1 << 20;
+    private static final StringPoolPolicy DISABLED = new StringPoolPolicy();
+    private boolean enabled;
+    private int maxSize = 1024;
+    private int maxLength = 64;
+    private Eviction eviction = Eviction.REPLACE;
+
+    /**
+     * @see Builder#newBuilder()
+     */
+    private StringPoolPolicy() {
+    }
+
+    /**
+     * Returns a policy that never pools strings.
+     *
+     * @return policy
+     */
+    public static StringPoolPolicy disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * Returns whether pooling is enabled.
+     *
+     * @return {@code true} if enabled, {@code false} otherwise
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the maximum number of pooled values.
+     *
+     * @return max size
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Returns the maximum length of a pooled value in UTF-8 bytes.
+     *
+     * @return max length
+     */
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    /**
+     * Returns what happens when a value is added to a full bucket of the pool.
+     *
+     * @return eviction policy
+     */
+    public Eviction getEviction() {
+        return eviction;
+    }
+
+    /**
+     * What happens when a value is added to a full bucket of the pool.
+     */
+    public enum Eviction {
+        /**
+         * The value is not pooled, and the values pooled first stay forever. Suits fleets whose values are known
+         * to fit in the pool.
+         */
+        NONE,
+
+        /**
+         * The value replaces a pooled value of the bucket chosen by its hash, so that the pool follows changing
+         * values such as agent versions after an upgrade.
+         */
+        REPLACE
+    }
+
+    /**
+     * Builds a {@link StringPoolPolicy}.
+     */
+    public static class Builder {
+        private final StringPoolPolicy o = new StringPoolPolicy();
+
+        /**
+         * @see #newBuilder()
+         */
+        private Builder() {
+            o.enabled = true;
+        }
+
+        /**
+         * Creates a new {@link Builder} for building a {@link StringPoolPolicy}.
+         *
+         * @return a {@link Builder}
+         */
+        public static Builder newBuilder() {
+            return new Builder();
+        }
+
+        /**
+         * Sets the maximum number of pooled values, rounded up to a power of two of at least 4. Defaults to 1024.
+         *
+         * @param maxSize max size, at most 1048576
+         * @return this builder
+         * @throws IllegalArgumentException if the size is out of range
+         */
+        public Builder maxSize(int maxSize) {
+            if (maxSize < 1 || maxSize > MAX_SIZE) {
+                throw new IllegalArgumentException("max size must be between 1 and " + MAX_SIZE);
+            }
+            o.maxSize = maxSize;
+            return this;
+        }
+
+        /**
+         * Sets the maximum length of a pooled value in UTF-8 bytes; longer values are never pooled. Defaults to 64.
+         *
+         * @param maxLength max length
+         * @return this builder
+         * @throws IllegalArgumentException if the length is not positive
+         */
+        public Builder maxLength(int maxLength) {
+            if (maxLength < 1) {
+                throw new IllegalArgumentException("max length must be a natural number");
+            }
+            o.maxLength = maxLength;
+            return this;
+        }
+
+        /**
+         * Sets what happens when a value is added to a full bucket of the pool. Defaults to
+         * {@link Eviction#REPLACE}.
+         *
+         * @param eviction eviction policy
+         * @return this builder
+         * @throws NullPointerException if the eviction policy is {@code null}
+         */
+        public Builder eviction(Eviction eviction) {
+            Objects.requireNonNull(eviction, "eviction is required");
+            o.eviction = eviction;
+            return this;
+        }
+
+        /**
+         * Returns a new {@link StringPoolPolicy} built from the current state of this builder.
+         *
+         * @return a new {@link StringPoolPolicy}
+         */
+        public StringPoolPolicy build() {
+            var policy = new StringPoolPolicy();
+            policy.enabled = o.enabled;
+            policy.maxSize = o.maxSize;
+            policy.maxLength = o.maxLength;
+            policy.eviction = o.eviction;
+            return policy;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Executors of the running Java version.
+ * <p>
+ * This is the Java 11 variant. The multi-release JAR replaces it with the variant in {@code src/main/java21} on
+ * Java 21 or later, where the executors run each task on a new virtual thread.
+ * </p>
+ */
+final class ThreadSupport {
+    private ThreadSupport() {
+    }
+
+    /**
+     * Returns whether tasks run on virtual threads.
+     *
+     * @return {@code false}
+     */
+    static boolean isVirtual() {
+        return false;
+    }
+
+    /**
+     * Returns the default executor for decoding responses of asynchronous operations.
+     *
+     * @return the common {@link ForkJoinPool}
+     */
+    static Executor defaultExecutor() {
+        return ForkJoinPool.commonPool();
+    }
+
+    /**
+     * Returns the default executor of the {@link java.net.http.HttpClient}.
+     *
+     * @return {@code null} to use the {@link java.net.http.HttpClient} default
+     */
+    static Executor defaultHttpExecutor() {
+        return null;
+    }
+
+    /**
+     * Returns an executor that runs each blocking task on its own thread.
+     *
+     * @return {@code null}, blocking tasks are not started on threads of their own
+     */
+    static Executor perTaskExecutor() {
+        return null;
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Lock-free token bucket implemented as the generic cell rate algorithm.
+ * <p>
+ * The whole state is a single theoretical arrival time updated by CAS. A caller reserves a permit and receives
+ * the time to wait for it; the permit is consumed even if the caller gives up waiting, unless it is reserved with a
+ * timeout that the wait would exceed.
+ * </p>
+ */
+final class TokenBucket {
+    private final long interval;
+    private final long tolerance;
+    private final LongSupplier clock;
+    private final AtomicLong arrival;
+
+    /**
+     * Constructs a {@link TokenBucket}.
+     *
+     * @param permitsPerSecond refill rate
+     * @param burst            capacity
+     * @param clock            clock in nanoseconds
+     */
+    TokenBucket(double permitsPerSecond, int burst, LongSupplier clock) {
+        this.interval = Math.max(1, (long) (1_000_000_000L / permitsPerSecond));
+        this.tolerance = interval * (burst - 1);
+        this.clock = clock;
+        this.arrival = new AtomicLong(clock.getAsLong());
+    }
+
+    /**
+     * Reserves a permit.
+     *
+     * @return nanoseconds to wait before using the permit, 0 if available now
+     */
+    long reserve() {
+        return reserve(Long.MAX_VALUE);
+    }
+
+    /**
+     * Reserves a permit unless the wait for it would exceed the given timeout.
+     *
+     * @param timeout maximum wait in nanoseconds
+     * @return nanoseconds to wait before using the permit, 0 if available now, or -1 if no permit was reserved
+     */
+    long reserve(long timeout) {
+        while (true) {
+            var now = clock.getAsLong();
+            var current = arrival.get();
+            var start = current - now > 0 ? current : now;
+            var wait = Math.max(0, start - tolerance - now);
+            if (wait > timeout) {
+                return -1;
+            }
+            if (arrival.compareAndSet(current, start + interval)) {
+                return wait;
+            }
+        }
+    }
+
+    /**
+     * Gives back a permit reserved but not used, as if it had not been reserved unless later permits were.
+     */
+    void release() {
+        arrival.addAndGet(-interval);
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.LongSupplier;
+
+/**
+ * Publishes reports of a time range, fetched window by window on demand.
+ * <p>
+ * The range {@code [begin, end]} in Unix seconds is split into windows {@code [from, to)}. The next window is
+ * fetched only when the subscriber has outstanding demand and all reports of the previous windows have been
+ * delivered. Each window is requested with one more second on both sides and filtered by the client, so that no
+ * report is lost or duplicated whether the server treats the bounds as inclusive or exclusive. Reports of a window
+ * are emitted in the order of server time.
+ * </p>
+ * <p>
+ * Signals to a subscriber are serialized by a drain loop: whichever thread increments the work-in-progress counter
+ * from zero runs the loop, and the others leave their work to it.
+ * </p>
+ */
+final class WindowedPublisher implements Flow.Publisher<Report> {
+    private static final Comparator<Report> BY_SERVER_TIME = Comparator.comparingLong(Report::getServerTimeAsLong);
+    private final long begin;
+    private final long end;
+    private final long window;
+    private final BiFunction<Long, Long, CompletableFuture<List<Report>>> fetcher;
+    private final LongSupplier clock;
+
+    /**
+     * Constructs a {@link WindowedPublisher}.
+     *
+     * @param begin   begin time in Unix seconds, inclusive
+     * @param end     end time in Unix seconds, inclusive, or 0 for the time of subscription
+     * @param window  length of a window in seconds
+     * @param fetcher fetches reports between the given begin and end times
+     * @param clock   current time in Unix seconds
+     */
+    WindowedPublisher(long begin, long end, long window,
+                      BiFunction<Long, Long, CompletableFuture<List<Report>>> fetcher, LongSupplier clock) {
+        this.begin = begin;
+        this.end = end;
+        this.window = window;
+        this.fetcher = fetcher;
+        this.clock = clock;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super Report> subscriber) {
+        Objects.requireNonNull(subscriber, "subscriber is required");
+        var subscription = new WindowSubscription(subscriber, end > 0 ? end : clock.getAsLong());
+        subscriber.onSubscribe(subscription);
+        subscription.drain();
+    }
+
+    private final class WindowSubscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super Report> subscriber;
+        private final long last;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private final Deque<Report> buffer = new ArrayDeque<>();
+        private volatile List<Report> fetched;
+        private volatile Throwable error;
+        private volatile boolean cancelled;
+        private volatile CompletableFuture<List<Report>> inFlight;
+        private long next;
+        private boolean fetching;
+        private boolean done;
+
+        WindowSubscription(Flow.Subscriber<? super Report> subscriber, long last) {
+            this.subscriber = subscriber;
+            this.last = last;
+            this.next = begin;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                error = new IllegalArgumentException("non-positive request: " + n);
+            } else {
+                demand.getAndUpdate(d -> d + n < 0 ? Long.MAX_VALUE : d + n);
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            var future = inFlight;
+            if (future != null) {
+                future.cancel(true);
+            }
+            drain();
+        }
+
+        void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            do {
+                drainOnce();
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void drainOnce() {
+            if (done) {
+                return;
+            }
+            if (cancelled) {
+                done = true;
+                buffer.clear();
+                return;
+            }
+            var reports = fetched;
+            if (reports != null) {
+                fetched = null;
+                fetching = false;
+                buffer.addAll(reports);
+            }
+            var e = error;
+            if (e != null) {
+                done = true;
+                buffer.clear();
+                var future = inFlight;
+                if (future != null) {
+                    future.cancel(true);
+                }
+                subscriber.onError(e);
+                return;
+            }
+            while (!buffer.isEmpty() && demand.get() > 0 && !cancelled) {
+                demand.decrementAndGet();
+                subscriber.onNext(buffer.poll());
+            }
+            if (!buffer.isEmpty() || fetching || cancelled) {
+                return;
+            }
+            if (next > last) {
+                done = true;
+                subscriber.onComplete();
+            } else if (demand.get() > 0) {
+                fetch();
+            }
+        }
+
+        private void fetch() {
+            var from = next;
+            var to = last - from < window ? last + 1 : from + window;
+            next = to;
+            fetching = true;
+            CompletableFuture<List<Report>> future;
+            try {
+                future = fetcher.apply(Math.max(from - 1, 1), to);
+            } catch (RuntimeException e) {
+                future = CompletableFuture.failedFuture(e);
+            }
+            inFlight = future;
+            future.whenComplete((list, e) -> {
+                try {
+                    if (e != null) {
+                        error = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    } else {
+                        fetched = filter(list, from, to);
+                    }
+                } catch (Throwable t) {
+                    error = t;
+                }
+                inFlight = null;
+                drain();
+            });
+        }
+
+        /**
+         * Picks the reports of the window {@code [from, to)} in the order of server time. A {@code null} list, which
+         * the server sends for an empty window, is treated as empty.
+         */
+        private List<Report> filter(List<Report> list, long from, long to) {
+            if (list == null) {
+                return List.of();
+            }
+            var reports = new ArrayList<Report>(list.size());
+            for (var report : list) {
+                var time = report.getServerTimeAsLong();
+                if (time >= from && time < to) {
+                    reports.add(report);
+                }
+            }
+            reports.sort(BY_SERVER_TIME);
+            return reports;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk.spi;
+
+import io.github.kaginawa.sdk.Report;
+import io.github.kaginawa.sdk.SshServer;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * JSON library that decodes the response bodies of a {@link io.github.kaginawa.sdk.KaginawaClient}.
+ * <p>
+ * The input is UTF-8 JSON held in a range of a byte array, which must not be modified or retained after the call.
+ * Field names are in lower case with underscores, as named by {@link javax.json.bind.annotation.JsonbProperty} on
+ * {@link Report} and {@link SshServer}; unknown fields are ignored. Input that is not well-formed or does not
+ * match the model is reported as {@link IOException}. A codec that decodes fields on first access may instead
+ * report a value that does not match the model as {@link java.io.UncheckedIOException} from its getter.
+ * </p>
+ * <p>
+ * Implementations must be thread-safe.
+ * </p>
+ *
+ * @see JsonCodecProvider
+ * @since 0.3.0
+ */
+public interface JsonCodec {
+    /**
+     * Decodes a JSON array of reports.
+     *
+     * @param buf    buffer
+     * @param offset offset of the JSON value in the buffer
+     * @param length length of the JSON value in bytes
+     * @return list of reports, or {@code null} if the value is {@code null}
+     * @throws IOException if the value cannot be decoded
+     */
+    List<Report> decodeReports(byte[] buf, int offset, int length) throws IOException;
+
+    /**
+     * Decodes a JSON object of a report.
+     *
+     * @param buf    buffer
+     * @param offset offset of the JSON value in the buffer
+     * @param length length of the JSON value in bytes
+     * @return report, or {@code null} if the value is {@code null}
+     * @throws IOException if the value cannot be decoded
+     */
+    Report decodeReport(byte[] buf, int offset, int length) throws IOException;
+
+    /**
+     * Decodes a JSON object of an SSH server.
+     *
+     * @param buf    buffer
+     * @param offset offset of the JSON value in the buffer
+     * @param length length of the JSON value in bytes
+     * @return SSH server, or {@code null} if the value is {@code null}
+     * @throws IOException if the value cannot be decoded
+     */
+    SshServer decodeSshServer(byte[] buf, int offset, int length) throws IOException;
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk.spi;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * HTTP engine that performs the exchanges of a {@link io.github.kaginawa.sdk.KaginawaClient}.
+ * <p>
+ * Everything above a single exchange, such as load balancing, retries, hedging, caching and decompression, is done
+ * by the client, so a transport only has to send the request as is and hand over the response as received:
+ * </p>
+ * <ul>
+ *     <li>The response body is passed through without decoding its {@code Content-Encoding}.</li>
+ *     <li>If the request timeout elapses, the exchange fails with {@link java.net.http.HttpTimeoutException} or
+ *     {@link java.net.SocketTimeoutException}.</li>
+ *     <li>Other failures to exchange are reported as {@link IOException}; an HTTP error status is not a
+ *     failure.</li>
+ * </ul>
+ * <p>
+ * Implementations must be thread-safe.
+ * </p>
+ *
+ * @see TransportProvider
+ * @since 0.3.0
+ */
+public interface Transport {
+    /**
+     * Sends a request and waits for the response. The body of the returned response may be read as it is
+     * received; the caller closes it.
+     *
+     * @param request request
+     * @return response
+     * @throws IOException          if the exchange failed
+     * @throws InterruptedException if interrupted while sending
+     */
+    TransportResponse send(TransportRequest request) throws IOException, InterruptedException;
+
+    /**
+     * Sends a request asynchronously. The returned future completes once the whole body has been received, so
+     * that reading it does not block. Cancelling the future should abort the exchange.
+     *
+     * @param request request
+     * @return future of response, completed exceptionally with {@link IOException} if the exchange failed
+     */
+    CompletableFuture<TransportResponse> sendAsync(TransportRequest request);
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk.spi;
+
+import java.net.ProxySelector;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+
+/**
+ * Options of a {@link Transport} set to the client builder. A transport ignores options it does not support.
+ *
+ * @since 0.3.0
+ */
+public class TransportOptions {
+    private ProxySelector proxySelector;
+    private HttpClient.Version version;
+    private Duration connectTimeout = Duration.ofSeconds(10);
+    private Executor executor;
+    private int maxConnections;
+
+    /**
+     * @see Builder#newBuilder()
+     */
+    private TransportOptions() {
+    }
+
+    /**
+     * Returns the proxy configuration.
+     *
+     * @return proxy selector, or {@code null} for the transport default
+     */
+    public ProxySelector getProxySelector() {
+        return proxySelector;
+    }
+
+    /**
+     * Returns the preferred HTTP protocol version.
+     *
+     * @return version, or {@code null} for the transport default
+     */
+    public HttpClient.Version getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns the timeout to establish a connection.
+     *
+     * @return connect timeout
+     */
+    public Duration getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    /**
+     * Returns the executor for the internal tasks of the transport.
+     *
+     * @return executor, or {@code null} for the transport default
+     */
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Returns the maximum number of connections to a server, for transports that keep a fixed number of them.
+     *
+     * @return maximum number of connections, or {@code 0} for the transport default
+     */
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * Builds a {@link TransportOptions}.
+     */
+    public static class Builder {
+        private final TransportOptions o = new TransportOptions();
+
+        /**
+         * @see #newBuilder()
+         */
+        private Builder() {
+        }
+
+        /**
+         * Creates a new {@link Builder} for building a {@link TransportOptions}.
+         *
+         * @return a {@link Builder}
+         */
+        public static Builder newBuilder() {
+            return new Builder();
+        }
+
+        /**
+         * Sets a proxy configuration.
+         *
+         * @param proxySelector proxy selector, or {@code null} for the transport default
+         * @return this builder
+         */
+        public Builder proxy(ProxySelector proxySelector) {
+            o.proxySelector = proxySelector;
+            return this;
+        }
+
+        /**
+         * Sets a preferred HTTP protocol version.
+         *
+         * @param version version, or {@code null} for the transport default
+         * @return this builder
+         */
+        public Builder version(HttpClient.Version version) {
+            o.version = version;
+            return this;
+        }
+
+        /**
+         * Sets the timeout to establish a connection. Defaults to 10 seconds.
+         *
+         * @param connectTimeout connect timeout
+         * @return this builder
+         * @throws NullPointerException     if the connect timeout is {@code null}
+         * @throws IllegalArgumentException if the connect timeout is zero or negative
+         */
+        public Builder connectTimeout(Duration connectTimeout) {
+            Objects.requireNonNull(connectTimeout, "connectTimeout is required");
+            if (connectTimeout.isZero() || connectTimeout.isNegative()) {
+                throw new IllegalArgumentException("connect timeout must be a positive duration");
+            }
+            o.connectTimeout = connectTimeout;
+            return this;
+        }
+
+        /**
+         * Sets an executor for the internal tasks of the transport.
+         *
+         * @param executor executor, or {@code null} for the transport default
+         * @return this builder
+         */
+        public Builder executor(Executor executor) {
+            o.executor = executor;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of connections to a server, for transports that keep a fixed number of them.
+         *
+         * @param maxConnections maximum number of connections, or {@code 0} for the transport default
+         * @return this builder
+         * @throws IllegalArgumentException if the maximum number of connections is negative
+         */
+        public Builder maxConnections(int maxConnections) {
+            if (maxConnections < 0) {
+                throw new IllegalArgumentException("maxConnections must be zero or positive");
+            }
+            o.maxConnections = maxConnections;
+            return this;
+        }
+
+        /**
+         * Returns a new {@link TransportOptions} built from the current state of this builder.
+         *
+         * @return a new {@link TransportOptions}
+         */
+        public TransportOptions build() {
+            var options = new TransportOptions();
+            options.proxySelector = o.proxySelector;
+            options.version = o.version;
+            options.connectTimeout = o.connectTimeout;
+            options.executor = o.executor;
+            options.maxConnections = o.maxConnections;
+            return options;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk.spi;
+
+/**
+ * Factory of a {@link Transport}, discovered through {@link java.util.ServiceLoader}.
+ * <p>
+ * Register an implementation in {@code META-INF/services/io.github.kaginawa.sdk.spi.TransportProvider}, or with
+ * {@code provides} in {@code module-info.java}. Unless a transport is chosen by name, a client uses the provider of
+ * the highest priority above {@code 0}, or the built-in {@code jdk} transport if there is none.
+ * </p>
+ *
+ * @see io.github.kaginawa.sdk.KaginawaClient.Builder#transport(String)
+ * @since 0.3.0
+ */
+public interface TransportProvider {
+    /**
+     * Returns the name to choose this provider by.
+     *
+     * @return name
+     */
+    String getName();
+
+    /**
+     * Returns the priority to choose a provider by default. Defaults to {@code 0}, which never wins over the
+     * built-in transport.
+     *
+     * @return priority
+     */
+    default int getPriority() {
+        return 0;
+    }
+
+    /**
+     * Creates a transport. Each client creates its own transport.
+     *
+     * @param options options set to the client builder
+     * @return transport
+     */
+    Transport create(TransportOptions options);
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk.spi;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * HTTP request to be sent by a {@link Transport}.
+ *
+ * @since 0.3.0
+ */
+public class TransportRequest {
+    private final String method;
+    private final URI uri;
+    private final Map<String, List<String>> headers;
+    private final byte[] body;
+    private final Duration timeout;
+    private final long maxResponseSize;
+
+    /**
+     * @see Builder#newBuilder(URI)
+     */
+    private TransportRequest(Builder builder) {
+        this.method = builder.method;
+        this.uri = builder.uri;
+        if (builder.template != null) {
+            this.headers = builder.template.headers; // unchanged since the template
+        } else {
+            var copy = new TreeMap<String, List<String>>(String.CASE_INSENSITIVE_ORDER);
+            builder.headers.forEach((name, values) -> copy.put(name, List.copyOf(values)));
+            this.headers = Collections.unmodifiableMap(copy);
+        }
+        this.body = builder.body;
+        this.timeout = builder.timeout;
+        this.maxResponseSize = builder.maxResponseSize;
+    }
+
+    /**
+     * Returns the request method.
+     *
+     * @return {@code GET} or {@code POST}
+     */
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * Returns the request URI.
+     *
+     * @return URI
+     */
+    public URI getUri() {
+        return uri;
+    }
+
+    /**
+     * Returns the request headers.
+     *
+     * @return unmodifiable map of header names, case-insensitive, to their values
+     */
+    public Map<String, List<String>> getHeaders() {
+        return headers;
+    }
+
+    /**
+     * Returns the request body. The returned array must not be modified.
+     *
+     * @return body, or {@code null} if the request has no body
+     */
+    public byte[] getBody() {
+        return body;
+    }
+
+    /**
+     * Returns the timeout to receive the response.
+     *
+     * @return timeout, or {@code null} if the request does not time out by itself
+     */
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Returns the maximum size of the response body the caller accepts. A transport that buffers the body should
+     * fail with an {@link java.io.IOException} as soon as the body is known to exceed it, rather than receiving
+     * the rest.
+     *
+     * @return maximum size in bytes, or {@code 0} if unlimited
+     */
+    public long getMaxResponseSize() {
+        return maxResponseSize;
+    }
+
+    @Override
+    public String toString() {
+        return method + " " + uri;
+    }
+
+    /**
+     * Builds a {@link TransportRequest}.
+     */
+    public static class Builder {
+        private final URI uri;
+        private final Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        private TransportRequest template; // whose headers are shared until a header is added
+        private String method = "GET";
+        private byte[] body;
+        private Duration timeout;
+        private long maxResponseSize;
+
+        /**
+         * @see #newBuilder(URI)
+         */
+        private Builder(URI uri) {
+            this.uri = uri;
+        }
+
+        /**
+         * Creates a new {@link Builder} for building a {@code GET} request.
+         *
+         * @param uri request URI
+         * @return a {@link Builder}
+         * @throws NullPointerException if the URI is {@code null}
+         */
+        public static Builder newBuilder(URI uri) {
+            Objects.requireNonNull(uri, "uri is required");
+            return new Builder(uri);
+        }
+
+        /**
+         * Creates a new {@link Builder} for building a request like the given template, but to another URI.
+         * <p>
+         * The method, headers, body, timeout and maximum response size are copied from the template. The headers are
+         * shared with the template rather than copied unless another header is added, so that building many requests
+         * from a template costs little more than the URI.
+         * </p>
+         *
+         * @param uri      request URI
+         * @param template request to copy
+         * @return a {@link Builder}
+         * @throws NullPointerException if the given parameter is {@code null}
+         */
+        public static Builder newBuilder(URI uri, TransportRequest template) {
+            Objects.requireNonNull(uri, "uri is required");
+            Objects.requireNonNull(template, "template is required");
+            var builder = new Builder(uri);
+            builder.template = template;
+            builder.method = template.method;
+            builder.body = template.body;
+            builder.timeout = template.timeout;
+            builder.maxResponseSize = template.maxResponseSize;
+            return builder;
+        }
+
+        /**
+         * Adds a header value.
+         *
+         * @param name  header name
+         * @param value header value
+         * @return this builder
+         * @throws NullPointerException     if the given parameter is {@code null}
+         * @throws IllegalArgumentException if the name is empty or not a token, or the value contains a control
+         *                                  character such as CR or LF
+         */
+        public Builder header(String name, String value) {
+            Objects.requireNonNull(name, "name is required");
+            Objects.requireNonNull(value, "value is required");
+            if (name.isEmpty()) {
+                throw new IllegalArgumentException("name is empty");
+            }
+            for (int i = 0; i < name.length(); i++) {
+                if (!isTokenChar(name.charAt(i))) {
+                    throw new IllegalArgumentException("invalid character in header name: " + name);
+                }
+            }
+            for (int i = 0; i < value.length(); i++) {
+                var c = value.charAt(i);
+                if ((c < 0x20 && c != '\t') || c == 0x7f) { // the value itself is not shown, it may be a secret
+                    throw new IllegalArgumentException("invalid character in header value of " + name);
+                }
+            }
+            if (template != null) {
+                template.headers.forEach((n, values) -> headers.put(n, new ArrayList<>(values)));
+                template = null;
+            }
+            headers.computeIfAbsent(name, n -> new ArrayList<>(1)).add(value);
+            return this;
+        }
+
+        private static boolean isTokenChar(char c) {
+            return c > 0x20 && c < 0x7f && "\"(),/:;<=>?@[\\]{}".indexOf(c) < 0;
+        }
+
+        /**
+         * Makes the request a {@code POST} request with the given body. The array is not copied.
+         *
+         * @param body request body
+         * @return this builder
+         * @throws NullPointerException if the body is {@code null}
+         */
+        public Builder post(byte[] body) {
+            Objects.requireNonNull(body, "body is required");
+            this.method = "POST";
+            this.body = body;
+            return this;
+        }
+
+        /**
+         * Sets the timeout to receive the response.
+         *
+         * @param timeout timeout
+         * @return this builder
+         * @throws NullPointerException     if the timeout is {@code null}
+         * @throws IllegalArgumentException if the timeout is zero or negative
+         */
+        public Builder timeout(Duration timeout) {
+            Objects.requireNonNull(timeout, "timeout is required");
+            if (timeout.isZero() || timeout.isNegative()) {
+                throw new IllegalArgumentException("timeout must be a positive duration");
+            }
+            this.timeout = timeout;
+            return this;
+        }
+
+        /**
+         * Sets the maximum size of the response body the caller accepts. Defaults to unlimited.
+         *
+         * @param maxResponseSize maximum size in bytes, or {@code 0} if unlimited
+         * @return this builder
+         * @throws IllegalArgumentException if the size is negative
+         */
+        public Builder maxResponseSize(long maxResponseSize) {
+            if (maxResponseSize < 0) {
+                throw new IllegalArgumentException("max response size must be zero or positive");
+            }
+            this.maxResponseSize = maxResponseSize;
+            return this;
+        }
+
+        /**
+         * Returns a new {@link TransportRequest} built from the current state of this builder.
+         *
+         * @return a new {@link TransportRequest}
+         */
+        public TransportRequest build() {
+            return new TransportRequest(this);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk.spi;
+
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * HTTP response received by a {@link Transport}.
+ *
+ * @since 0.3.0
+ */
+public interface TransportResponse {
+    /**
+     * Returns the status code.
+     *
+     * @return status code
+     */
+    int getStatusCode();
+
+    /**
+     * Returns all values of a header.
+     *
+     * @param name header name, case-insensitive
+     * @return unmodifiable list of values, empty if absent
+     */
+    List<String> getHeaders(String name);
+
+    /**
+     * Returns the first value of a header.
+     *
+     * @param name header name, case-insensitive
+     * @return first value, or {@code null} if absent
+     */
+    default String getFirstHeader(String name) {
+        var values = getHeaders(name);
+        return values.isEmpty() ? null : values.get(0);
+    }
+
+    /**
+     * Returns the body as received on the wire, still encoded if the {@code Content-Encoding} header is present.
+     *
+     * @return body
+     */
+    InputStream getBody();
+}
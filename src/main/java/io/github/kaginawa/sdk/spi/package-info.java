@@ -0,0 +1,29 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+/**
+ * Service provider interface for plugging HTTP engines and JSON libraries into the Kaginawa SDK.
+ * <p>
+ * A {@link io.github.kaginawa.sdk.spi.TransportProvider} is discovered through {@link java.util.ServiceLoader};
+ * the SDK falls back to the built-in transport based on {@link java.net.http.HttpClient}.
+ * </p>
+ * <p>
+ * A {@link io.github.kaginawa.sdk.spi.JsonCodecProvider} is discovered likewise; the SDK falls back to its built-in
+ * JSON decoder.
+ * </p>
+ *
+ * @since 0.3.0
+ */
+package io.github.kaginawa.sdk.spi;
@@ -1,6 +1,9 @@
 module io.github.kaginawa.sdk {
     exports io.github.kaginawa.sdk;
-    requires java.net.http;
-    requires java.json.bind;
+    exports io.github.kaginawa.sdk.spi;
+    requires transitive java.net.http;
+    requires static java.json.bind;
     opens io.github.kaginawa.sdk to org.eclipse.yasson;
+    uses io.github.kaginawa.sdk.spi.TransportProvider;
+    uses io.github.kaginawa.sdk.spi.JsonCodecProvider;
 }
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Executors of the running Java version.
+ * <p>
+ * This is the Java 21 variant, packaged in {@code META-INF/versions/21} of the multi-release JAR. All executors
+ * share a single virtual-thread-per-task executor, so that blocking {@link java.net.http.HttpClient#send} calls
+ * park their virtual thread instead of occupying a platform thread.
+ * </p>
+ */
+final class ThreadSupport {
+    private static final ExecutorService VIRTUAL =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("kaginawa-", 0).factory());
+
+    private ThreadSupport() {
+    }
+
+    /**
+     * Returns whether tasks run on virtual threads.
+     *
+     * @return {@code true}
+     */
+    static boolean isVirtual() {
+        return true;
+    }
+
+    /**
+     * Returns the default executor for decoding responses of asynchronous operations.
+     *
+     * @return virtual-thread-per-task executor
+     */
+    static Executor defaultExecutor() {
+        return VIRTUAL;
+    }
+
+    /**
+     * Returns the default executor of the {@link java.net.http.HttpClient}.
+     *
+     * @return virtual-thread-per-task executor
+     */
+    static Executor defaultHttpExecutor() {
+        return VIRTUAL;
+    }
+
+    /**
+     * Returns an executor that runs each blocking task on its own thread.
+     *
+     * @return virtual-thread-per-task executor
+     */
+    static Executor perTaskExecutor() {
+        return VIRTUAL;
+    }
+}
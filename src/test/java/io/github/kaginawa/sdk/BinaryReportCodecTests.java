@@ -0,0 +1,327 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BinaryReportCodecTests {
+    private static final String[] STRINGS = {"", "linux arm", "v0.0.7", "eth0", "ext4", "/", "example.com",
+            "é", "日本語", "😀", "a\"b\\c\n", "\u0000"};
+    private static final long[] LONGS = {0, 1, -1, 63, 64, -64, -65, 1591270237, Integer.MIN_VALUE,
+            Integer.MAX_VALUE, Long.MIN_VALUE, Long.MAX_VALUE};
+
+    private byte[] readFile(String filename) {
+        try {
+            return Files.readAllBytes(Paths.get(getClass().getResource("/" + filename).toURI()));
+        } catch (IOException | URISyntaxException | NullPointerException e) {
+            throw new RuntimeException("unable to read test file: " + filename, e);
+        }
+    }
+
+    /**
+     * Returns the fields of a report as a list, with USB devices as lists of their fields.
+     */
+    private static List<Object> fields(Report r) {
+        List<Object> devices = null;
+        if (r.getUsbDevices() != null) {
+            devices = new ArrayList<>();
+            for (var d : r.getUsbDevices()) {
+                devices.add(d == null ? null
+                        : Arrays.asList(d.getName(), d.getVendorId(), d.getProductId(), d.getLocation()));
+            }
+        }
+        return Arrays.asList(r.getId(), r.getTrigger(), r.isSuccess(), r.getRuntime(), r.getSequence(),
+                r.getDeviceTimeAsLong(), r.getBootTimeAsLong(), r.getGenMillis(), r.getAgentVersion(),
+                r.getCustomId(), r.getSshServerHost(), r.getSshRemotePort(), r.getSshConnectTimeAsLong(),
+                r.getAdapter(), r.getLocalIpV4(), r.getLocalIpV6(), r.getHostname(), r.getRttMillis(),
+                r.getUploadKbps(), r.getDownloadKbps(), r.getDiskTotalBytes(), r.getDiskUsedBytes(),
+                r.getDiskLabel(), r.getDiskFilesystem(), r.getDiskMountPoint(), r.getDiskDevice(), devices,
+                r.getBdLocalDevices(), r.getKernelVersion(), r.getErrors(), r.getGlobalIp(), r.getGlobalHost(),
+                r.getServerTimeAsLong());
+    }
+
+    private static void assertSameReports(List<Report> expected, List<Report> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(fields(expected.get(i)), fields(actual.get(i)), "report " + i);
+        }
+    }
+
+    private static String randomString(Random random) {
+        switch (random.nextInt(4)) {
+            case 0:
+                return null;
+            case 1:
+                var chars = new char[random.nextInt(40)];
+                for (int i = 0; i < chars.length; i++) {
+                    chars[i] = (char) (random.nextBoolean() ? ' ' + random.nextInt(95) : 0xa0 + random.nextInt(0x3000));
+                }
+                return new String(chars);
+            default:
+                return STRINGS[random.nextInt(STRINGS.length)];
+        }
+    }
+
+    private static long randomLong(Random random) {
+        return random.nextBoolean() ? LONGS[random.nextInt(LONGS.length)] : random.nextLong() >> random.nextInt(64);
+    }
+
+    private static List<String> randomStrings(Random random) {
+        if (random.nextInt(8) == 0) {
+            return null;
+        }
+        var list = new ArrayList<String>();
+        for (int i = random.nextInt(4); i > 0; i--) {
+            list.add(randomString(random));
+        }
+        return list;
+    }
+
+    private static Report randomReport(Random random, String id) {
+        var r = new Report();
+        r.id = id;
+        if (random.nextInt(4) == 0) {
+            return r; // defaults
+        }
+        r.trigger = (int) randomLong(random);
+        r.success = random.nextBoolean();
+        r.runtime = randomString(random);
+        r.sequence = (int) randomLong(random);
+        r.deviceTime = randomLong(random);
+        r.bootTime = randomLong(random);
+        r.genMillis = randomLong(random);
+        r.agentVersion = randomString(random);
+        r.customId = randomString(random);
+        r.sshServerHost = randomString(random);
+        r.sshRemotePort = (int) randomLong(random);
+        r.sshConnectTime = randomLong(random);
+        r.adapter = randomString(random);
+        r.localIpV4 = randomString(random);
+        r.localIpV6 = randomString(random);
+        r.hostname = randomString(random);
+        r.rttMillis = randomLong(random);
+        r.uploadKbps = randomLong(random);
+        r.downloadKbps = randomLong(random);
+        r.diskTotalBytes = randomLong(random);
+        r.diskUsedBytes = randomLong(random);
+        r.diskLabel = randomString(random);
+        r.diskFilesystem = randomString(random);
+        r.diskMountPoint = randomString(random);
+        r.diskDevice = randomString(random);
+        if (random.nextInt(8) == 0) {
+            r.usbDevices = null;
+        } else {
+            var devices = new ArrayList<Report.UsbDevice>();
+            for (int i = random.nextInt(3); i > 0; i--) {
+                devices.add(random.nextInt(8) == 0 ? null : new Report.UsbDevice(randomString(random),
+                        randomString(random), randomString(random), randomString(random)));
+            }
+            r.usbDevices = devices;
+        }
+        r.bdLocalDevices = randomStrings(random);
+        r.kernelVersion = randomString(random);
+        r.errors = randomStrings(random);
+        r.globalIp = randomString(random);
+        r.globalHost = randomString(random);
+        r.serverTime = randomLong(random);
+        return r;
+    }
+
+    private static List<Report> randomSnapshot(Random random) {
+        var reports = new ArrayList<Report>();
+        for (int i = random.nextInt(200); i > 0; i--) {
+            reports.add(randomReport(random, random.nextInt(16) == 0 ? randomString(random) : "node-" + i));
+        }
+        return reports;
+    }
+
+    /**
+     * Derives a snapshot from another by removing, moving, changing and adding reports.
+     */
+    private static List<Report> mutate(Random random, List<Report> base) throws IOException {
+        var reports = new ArrayList<Report>();
+        for (var report : base) {
+            switch (random.nextInt(10)) {
+                case 0:
+                    break; // removed
+                case 1:
+                    reports.add(randomReport(random, report.getId())); // changed
+                    break;
+                case 2:
+                    var changed = BinaryReportCodec.decode(BinaryReportCodec.encode(List.of(report))).get(0);
+                    changed.sequence++;
+                    changed.serverTime += 60;
+                    changed.success = !changed.success;
+                    reports.add(changed);
+                    break;
+                case 3:
+                    reports.add(randomReport(random, "new-" + random.nextInt(100))); // added
+                    reports.add(report);
+                    break;
+                default:
+                    reports.add(report); // unchanged
+            }
+        }
+        if (!reports.isEmpty() && random.nextBoolean()) {
+            Collections.swap(reports, random.nextInt(reports.size()), random.nextInt(reports.size()));
+        }
+        return reports;
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"nodes_alive_3.json", "nodes_cid_3.json", "histories_9.json", "nodes_alive_0.json"})
+    public void testRoundTrip(String filename) throws IOException {
+        var json = readFile(filename);
+        var reports = JsonDecoder.decodeReports(json, 0, json.length);
+        var data = BinaryReportCodec.encode(reports);
+        assertTrue(data.length < json.length / 3 || reports.isEmpty());
+        assertSameReports(reports, BinaryReportCodec.decode(data));
+        var views = LazyJsonCodec.INSTANCE.decodeReports(json, 0, json.length);
+        assertSameReports(reports, BinaryReportCodec.decode(BinaryReportCodec.encode(views)));
+    }
+
+    @ParameterizedTest
+    @ValueSource(longs = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16})
+    public void testRandomRoundTrip(long seed) throws IOException {
+        var random = new Random(seed);
+        var reports = randomSnapshot(random);
+        var decoded = BinaryReportCodec.decode(BinaryReportCodec.encode(reports));
+        assertSameReports(reports, decoded);
+        assertSameReports(decoded, BinaryReportCodec.decode(BinaryReportCodec.encode(decoded)));
+    }
+
+    @ParameterizedTest
+    @ValueSource(longs = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16})
+    public void testRandomDeltaRoundTrip(long seed) throws IOException {
+        var random = new Random(seed);
+        var base = randomSnapshot(random);
+        var reports = mutate(random, base);
+        var delta = BinaryReportCodec.encodeDelta(base, reports);
+        var decoded = BinaryReportCodec.decode(base, delta);
+        assertSameReports(reports, decoded);
+        var ids = new HashMap<String, Integer>();
+        for (var report : base) {
+            ids.merge(report.getId(), 1, Integer::sum);
+        }
+        for (int i = 0; i < reports.size(); i++) {
+            if (base.contains(reports.get(i)) && ids.get(reports.get(i).getId()) == 1) {
+                assertTrue(base.contains(decoded.get(i)), "unchanged report " + i + " is not shared");
+            }
+        }
+        var next = mutate(random, decoded);
+        assertSameReports(next, BinaryReportCodec.decode(decoded, BinaryReportCodec.encodeDelta(decoded, next)));
+    }
+
+    @Test
+    public void testDeltaSize() throws IOException {
+        var node = new String(readFile("node.json"), StandardCharsets.UTF_8);
+        var base = new ArrayList<Report>();
+        for (int i = 0; i < 1000; i++) {
+            var json = node.replace("b8:27:eb:73:90:9f", String.format("%017x", i)).getBytes(StandardCharsets.UTF_8);
+            base.add(JsonDecoder.decodeReport(json, 0, json.length));
+        }
+        var reports = new ArrayList<>(base);
+        for (int i = 0; i < 1000; i += 100) {
+            var changed = BinaryReportCodec.decode(BinaryReportCodec.encode(List.of(base.get(i)))).get(0);
+            changed.sequence++;
+            changed.serverTime += 60;
+            reports.set(i, changed);
+        }
+        var full = BinaryReportCodec.encode(reports);
+        var delta = BinaryReportCodec.encodeDelta(base, reports);
+        assertTrue(delta.length < 100, "delta of " + delta.length + " bytes");
+        assertTrue(full.length < 1000 * 40, "full snapshot of " + full.length + " bytes");
+        var decoded = BinaryReportCodec.decode(base, delta);
+        assertSameReports(reports, decoded);
+        assertSame(base.get(1), decoded.get(1));
+        assertEquals(6, BinaryReportCodec.encodeDelta(List.of(), List.of()).length);
+    }
+
+    @Test
+    public void testDefaults() throws IOException {
+        var data = BinaryReportCodec.encode(List.of(new Report(), new Report()));
+        assertEquals(9, data.length); // magic, version, base size, count, run and two empty masks
+        var decoded = BinaryReportCodec.decode(data);
+        assertSameReports(List.of(new Report(), new Report()), decoded);
+        assertSame(Collections.emptyList(), decoded.get(0).getErrors());
+    }
+
+    @Test
+    public void testImmutableLists() throws IOException {
+        var json = readFile("node.json");
+        var report = BinaryReportCodec.decode(BinaryReportCodec.encode(List.of(
+                JsonDecoder.decodeReport(json, 0, json.length)))).get(0);
+        assertThrows(UnsupportedOperationException.class, () -> report.getUsbDevices().clear());
+        assertThrows(UnsupportedOperationException.class, () -> report.getBdLocalDevices().add("x"));
+    }
+
+    @Test
+    public void testMalformed() throws IOException {
+        var json = readFile("nodes_cid_3.json");
+        var base = JsonDecoder.decodeReports(json, 0, json.length);
+        var data = BinaryReportCodec.encode(base);
+        for (int length = 0; length < data.length; length++) {
+            var truncated = Arrays.copyOf(data, length);
+            assertThrows(IOException.class, () -> BinaryReportCodec.decode(truncated), "length " + length);
+        }
+        var trailing = Arrays.copyOf(data, data.length + 1);
+        assertEquals("unexpected data after snapshot at byte " + data.length,
+                assertThrows(IOException.class, () -> BinaryReportCodec.decode(trailing)).getMessage());
+        var magic = data.clone();
+        magic[0] = '{';
+        assertEquals("not a report snapshot",
+                assertThrows(IOException.class, () -> BinaryReportCodec.decode(magic)).getMessage());
+        var version = data.clone();
+        version[3] = 2;
+        assertEquals("unsupported report snapshot version: 2",
+                assertThrows(IOException.class, () -> BinaryReportCodec.decode(version)).getMessage());
+        var delta = BinaryReportCodec.encodeDelta(base, base.subList(1, 3));
+        assertEquals("delta snapshot of a base of 3 reports, but 0 reports given",
+                assertThrows(IOException.class, () -> BinaryReportCodec.decode(delta)).getMessage());
+        assertThrows(IOException.class, () -> BinaryReportCodec.decode(base.subList(0, 2), delta));
+        assertSameReports(base.subList(1, 3), BinaryReportCodec.decode(base, delta));
+        assertSameReports(base, BinaryReportCodec.decode(base.subList(0, 1), data)); // base ignored
+        var random = new Random(1);
+        for (int i = 0; i < 1000; i++) {
+            var corrupted = data.clone();
+            corrupted[4 + random.nextInt(data.length - 4)] = (byte) random.nextInt(256);
+            try {
+                BinaryReportCodec.decode(base, corrupted);
+            } catch (IOException e) {
+                // expected for most of them
+            }
+        }
+    }
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import io.github.kaginawa.sdk.spi.Transport;
+import io.github.kaginawa.sdk.spi.TransportOptions;
+import io.github.kaginawa.sdk.spi.TransportProvider;
+import io.github.kaginawa.sdk.spi.TransportRequest;
+import io.github.kaginawa.sdk.spi.TransportResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ConnectException;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * {@link Transport} that stands in for the network in tests and benchmarks, answering requests with a handler.
+ * <p>
+ * It honours the transport contract: request timeouts fail with {@link HttpTimeoutException}, cancelling an
+ * asynchronous exchange cancels the future of the handler, and bodies are passed through as is. Instances created by
+ * the {@code in-memory} provider answer with the handlers routed to the endpoint of each request.
+ * </p>
+ */
+public class InMemoryTransport implements Transport {
+    private static final Map<String, Handler> ROUTES = new ConcurrentHashMap<>();
+    private final Handler handler;
+    private final Queue<TransportRequest> requests = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Constructs an {@link InMemoryTransport}.
+     *
+     * @param handler answers requests
+     */
+    public InMemoryTransport(Handler handler) {
+        this.handler = handler;
+    }
+
+    /**
+     * Returns a transport that answers every request with the given status and body.
+     *
+     * @param status  status code
+     * @param body    body
+     * @param headers header names and values in turn
+     * @return transport
+     */
+    public static InMemoryTransport of(int status, String body, String... headers) {
+        return new InMemoryTransport(respond(status, body.getBytes(StandardCharsets.UTF_8), headers));
+    }
+
+    /**
+     * Returns a handler that answers every request with the given status and body.
+     *
+     * @param status  status code
+     * @param body    body
+     * @param headers header names and values in turn
+     * @return handler
+     */
+    public static Handler respond(int status, byte[] body, String... headers) {
+        return request -> CompletableFuture.completedFuture(response(status, body, headers));
+    }
+
+    /**
+     * Returns a response.
+     *
+     * @param status  status code
+     * @param body    body
+     * @param headers header names and values in turn
+     * @return response
+     */
+    public static TransportResponse response(int status, byte[] body, String... headers) {
+        var map = new TreeMap<String, List<String>>(String.CASE_INSENSITIVE_ORDER);
+        for (int i = 0; i + 1 < headers.length; i += 2) {
+            map.computeIfAbsent(headers[i], n -> new ArrayList<>()).add(headers[i + 1]);
+        }
+        return new Response(status, map, new ByteArrayInputStream(body));
+    }
+
+    /**
+     * Routes requests to the given endpoint to a handler, for transports created by the provider.
+     *
+     * @param endpoint endpoint url
+     * @param handler  answers requests
+     */
+    public static void route(String endpoint, Handler handler) {
+        ROUTES.put(endpoint, handler);
+    }
+
+    /**
+     * Removes the route to the given endpoint.
+     *
+     * @param endpoint endpoint url
+     */
+    public static void unroute(String endpoint) {
+        ROUTES.remove(endpoint);
+    }
+
+    /**
+     * Returns the requests received so far.
+     *
+     * @return requests in order
+     */
+    public List<TransportRequest> getRequests() {
+        return new ArrayList<>(requests);
+    }
+
+    @Override
+    public TransportResponse send(TransportRequest request) throws IOException, InterruptedException {
+        var future = handle(request);
+        var timeout = request.getTimeout();
+        try {
+            return timeout == null ? future.get() : future.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new HttpTimeoutException("request timed out");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            var cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    @Override
+    public CompletableFuture<TransportResponse> sendAsync(TransportRequest request) {
+        var future = handle(request);
+        var result = new CompletableFuture<TransportResponse>();
+        future.whenComplete((response, e) -> {
+            if (e != null) {
+                result.completeExceptionally(e instanceof CompletionException && e.getCause() != null
+                        ? e.getCause() : e);
+            } else {
+                result.complete(response);
+            }
+        });
+        var timeout = request.getTimeout();
+        if (timeout != null) {
+            CompletableFuture.delayedExecutor(timeout.toNanos(), TimeUnit.NANOSECONDS).execute(
+                    () -> result.completeExceptionally(new HttpTimeoutException("request timed out")));
+        }
+        result.whenComplete((r, e) -> {
+            if (!future.isDone()) {
+                future.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    private CompletableFuture<TransportResponse> handle(TransportRequest request) {
+        requests.add(request);
+        try {
+            return handler.handle(request);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Answers a request.
+     */
+    @FunctionalInterface
+    public interface Handler {
+        CompletableFuture<TransportResponse> handle(TransportRequest request);
+    }
+
+    /**
+     * Response held in memory.
+     */
+    private static final class Response implements TransportResponse {
+        private final int status;
+        private final Map<String, List<String>> headers;
+        private final InputStream body;
+
+        Response(int status, Map<String, List<String>> headers, InputStream body) {
+            this.status = status;
+            this.headers = headers;
+            this.body = body;
+        }
+
+        @Override
+        public int getStatusCode() {
+            return status;
+        }
+
+        @Override
+        public List<String> getHeaders(String name) {
+            return List.copyOf(headers.getOrDefault(name, List.of()));
+        }
+
+        @Override
+        public InputStream getBody() {
+            return body;
+        }
+    }
+
+    /**
+     * Provider of transports answering with the routed handlers, chosen by the name {@code in-memory}.
+     */
+    public static class Provider implements TransportProvider {
+        @Override
+        public String getName() {
+            return "in-memory";
+        }
+
+        @Override
+        public int getPriority() {
+            return -1; // never chosen by default
+        }
+
+        @Override
+        public Transport create(TransportOptions options) {
+            return new InMemoryTransport(request -> {
+                var uri = request.getUri();
+                var handler = ROUTES.get(uri.getScheme() + "://" + uri.getAuthority());
+                if (handler == null) {
+                    return CompletableFuture.failedFuture(new ConnectException("no route to " + uri));
+                }
+                return handler.handle(request);
+            });
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class JsonArrayReaderTests {
+    private static JsonArrayReader reader(String json) {
+        return new JsonArrayReader(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static List<String> readAll(JsonArrayReader reader) throws IOException {
+        var list = new ArrayList<String>();
+        while (reader.next()) {
+            list.add(reader.elementAsString());
+        }
+        return list;
+    }
+
+    @Test
+    public void testNext() throws IOException {
+        var json = " [ {\"a\": \"x]}\\\"\", \"b\": [1, 2]} ,\n{\"c\":{\"d\":\"\u65e5\u672c\"}}, 3, \"s,t\" ] ";
+        assertEquals(List.of("{\"a\": \"x]}\\\"\", \"b\": [1, 2]}", "{\"c\":{\"d\":\"\u65e5\u672c\"}}", "3", "\"s,t\""),
+                readAll(reader(json)));
+    }
+
+    @Test
+    public void testNext_Empty() throws IOException {
+        var reader = reader("[ ]");
+        assertFalse(reader.next());
+        assertFalse(reader.next());
+    }
+
+    @Test
+    public void testNext_Null() throws IOException {
+        var reader = reader(" null\n");
+        assertFalse(reader.next());
+        assertFalse(reader.next());
+    }
+
+    @Test
+    public void testNext_Malformed() {
+        assertThrows(IOException.class, () -> readAll(reader("{}")));
+        assertThrows(IOException.class, () -> readAll(reader("nul")));
+        assertThrows(IOException.class, () -> readAll(reader("null,")));
+        assertThrows(IOException.class, () -> readAll(reader("")));
+        assertThrows(IOException.class, () -> readAll(reader("[{\"a\":1}")));
+        assertThrows(IOException.class, () -> readAll(reader("[{\"a\":1},,]")));
+        assertThrows(IOException.class, () -> readAll(reader("[1}")));
+    }
+
+    @Test
+    public void testNext_BoundedBuffer() throws IOException {
+        var element = "{\"id\":\"b8:27:eb:73:90:9f\",\"custom_id\":\"test-rpi\",\"success\":true}";
+        var parts = new ArrayList<InputStream>();
+        parts.add(new ByteArrayInputStream("[".getBytes(StandardCharsets.UTF_8)));
+        var repeated = (element + ",").getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < 50_000; i++) {
+            parts.add(new ByteArrayInputStream(repeated));
+        }
+        parts.add(new ByteArrayInputStream((element + "]").getBytes(StandardCharsets.UTF_8)));
+        var reader = new JsonArrayReader(new SequenceInputStream(Collections.enumeration(parts)));
+        int count = 0;
+        while (reader.next()) {
+            assertEquals(element, reader.elementAsString());
+            assertTrue(reader.buffer().length < 1024 * 2);
+            count++;
+        }
+        assertEquals(50_001, count);
+    }
+}
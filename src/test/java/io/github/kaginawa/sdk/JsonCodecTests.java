@@ -0,0 +1,242 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import io.github.kaginawa.sdk.spi.JsonCodec;
+import io.github.kaginawa.sdk.spi.JsonCodecProvider;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Conformance tests that every {@link JsonCodec} is expected to pass, driven by the JSON fixtures.
+ */
+public class JsonCodecTests {
+    private static final String ENDPOINT = "http://in-memory.example.com";
+    private static final List<String> REPORT_LISTS = List.of("nodes_alive_0.json", "nodes_alive_3.json",
+            "nodes_cid_0.json", "nodes_cid_3.json", "histories_0.json", "histories_9.json");
+
+    private static byte[] readFile(String filename) {
+        try {
+            return Files.readAllBytes(Paths.get(JsonCodecTests.class.getResource("/" + filename).toURI()));
+        } catch (IOException | URISyntaxException | NullPointerException e) {
+            throw new RuntimeException("unable to read test file: " + filename, e);
+        }
+    }
+
+    private static byte[] bytes(String json) {
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+
+    static Stream<JsonCodec> codecs() {
+        return Stream.of(BuiltinJsonCodec.INSTANCE, LazyJsonCodec.INSTANCE, new JsonbCodec());
+    }
+
+    static Stream<Arguments> reportLists() {
+        return codecs().flatMap(codec -> REPORT_LISTS.stream().map(filename -> Arguments.of(codec, filename)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("reportLists")
+    public void testDecodeReports(JsonCodec codec, String filename) throws IOException {
+        var json = readFile(filename);
+        var reports = codec.decodeReports(json, 0, json.length);
+        var expected = BuiltinJsonCodec.INSTANCE.decodeReports(json, 0, json.length);
+        assertEquals(Integer.parseInt(filename.replaceAll("\\D", "")), reports.size());
+        for (int i = 0; i < expected.size(); i++) {
+            JsonDecoderTests.assertSameReport(expected.get(i), reports.get(i));
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("codecs")
+    public void testDecodeReport(JsonCodec codec) throws IOException {
+        var json = readFile("node.json");
+        var report = codec.decodeReport(json, 0, json.length);
+        assertEquals("b8:27:eb:73:90:9f", report.getId());
+        assertEquals("test-rpi", report.getCustomId());
+        assertEquals(3, report.getTrigger());
+        assertTrue(report.isSuccess());
+        assertEquals(9994, report.getSequence());
+        assertEquals(2691837952L, report.getDiskTotalBytes());
+        assertEquals(4, report.getUsbDevices().size());
+        assertEquals("ec00", report.getUsbDevices().get(1).getProductId());
+        assertEquals(List.of("B8:27:EB:D9:3A:35"), report.getBdLocalDevices());
+        assertEquals(1591270237, report.getServerTimeAsLong());
+    }
+
+    @ParameterizedTest
+    @MethodSource("codecs")
+    public void testDecodeSshServer(JsonCodec codec) throws IOException {
+        var json = readFile("server.json");
+        var server = codec.decodeSshServer(json, 0, json.length);
+        assertEquals("example.com", server.getHost());
+        assertEquals(22, server.getPort());
+        assertTrue(server.getKey().contains("\n"));
+    }
+
+    @ParameterizedTest
+    @MethodSource("codecs")
+    public void testOffsetAndLength(JsonCodec codec) throws IOException {
+        var json = bytes("[[{\"id\":\"a\"},{\"id\":\"b\"}]]");
+        var reports = codec.decodeReports(json, 1, json.length - 2);
+        assertEquals(2, reports.size());
+        assertEquals("b", reports.get(1).getId());
+        assertEquals("a", codec.decodeReport(json, 2, 10).getId());
+    }
+
+    @ParameterizedTest
+    @MethodSource("codecs")
+    public void testUnknownFieldsAndNull(JsonCodec codec) throws IOException {
+        var json = bytes("{\"x\":{\"id\":\"no\"},\"id\":\"yes\",\"y\":[1,2]}");
+        assertEquals("yes", codec.decodeReport(json, 0, json.length).getId());
+        var nullJson = bytes("null");
+        assertNull(codec.decodeReport(nullJson, 0, nullJson.length));
+        assertNull(codec.decodeSshServer(nullJson, 0, nullJson.length));
+    }
+
+    @ParameterizedTest
+    @MethodSource("codecs")
+    public void testMalformed(JsonCodec codec) {
+        var text = readFile("not_a_json.txt");
+        assertThrows(IOException.class, () -> codec.decodeReports(text, 0, text.length));
+        assertThrows(IOException.class, () -> codec.decodeReport(text, 0, text.length));
+        assertThrows(IOException.class, () -> codec.decodeSshServer(text, 0, text.length));
+        var truncated = bytes("[{\"id\":\"a\"}");
+        assertThrows(IOException.class, () -> codec.decodeReports(truncated, 0, truncated.length));
+        var mismatch = bytes("{\"seq\":\"x\"}");
+        try {
+            codec.decodeReport(mismatch, 0, mismatch.length).getSequence();
+            fail("decoded a string as a number");
+        } catch (IOException | UncheckedIOException e) {
+            // decoded on first access by lazy codecs
+        }
+    }
+
+    @Test
+    public void testClientCodec() throws KaginawaServerException {
+        var node = readFile("node.json");
+        var provider = new Provider();
+        var client = KaginawaClient.Builder.newBuilder()
+                .endpoint(ENDPOINT)
+                .apiKey("12345")
+                .transport(InMemoryTransport.of(200, new String(node, StandardCharsets.UTF_8)))
+                .jsonCodec(provider.getName())
+                .build();
+        var before = Provider.DECODED.get();
+        assertEquals("test-rpi", client.findNodeById("b8:27:eb:73:90:9f").getCustomId());
+        assertEquals(before + 1, Provider.DECODED.get());
+        var jsonb = KaginawaClient.Builder.newBuilder()
+                .endpoint(ENDPOINT)
+                .apiKey("12345")
+                .transport(InMemoryTransport.of(200, new String(node, StandardCharsets.UTF_8)))
+                .jsonCodec("jsonb")
+                .build();
+        assertEquals("test-rpi", jsonb.findNodeById("b8:27:eb:73:90:9f").getCustomId());
+        assertTrue(jsonb.getJsonCodec() instanceof JsonbCodec);
+        var builtin = KaginawaClient.Builder.newBuilder().endpoint(ENDPOINT).apiKey("12345").build();
+        assertTrue(builtin.getJsonCodec() instanceof BuiltinJsonCodec);
+        var builder = KaginawaClient.Builder.newBuilder().endpoint(ENDPOINT).apiKey("12345").jsonCodec("missing");
+        assertThrows(IllegalStateException.class, builder::build);
+        assertThrows(IllegalArgumentException.class, () -> KaginawaClient.Builder.newBuilder().jsonCodec(""));
+    }
+
+    @Test
+    public void testFactorySharesCodec() throws KaginawaServerException {
+        var created = Provider.CREATED.get();
+        var factory = KaginawaClient.Builder.newBuilder()
+                .transport(InMemoryTransport.of(200, "[]"))
+                .jsonCodec(new Provider().getName())
+                .buildFactory();
+        for (var apiKey : List.of("a", "b", "c")) {
+            assertEquals(List.of(), factory.newClient(ENDPOINT, apiKey).listNodesByCustomId("test-rpi"));
+        }
+        assertEquals(created + 1, Provider.CREATED.get());
+    }
+
+    @Test
+    public void testMalformedResponse() {
+        var codecs = new ArrayList<JsonCodec>();
+        codecs().forEach(codecs::add);
+        for (var codec : codecs) {
+            var client = KaginawaClient.Builder.newBuilder()
+                    .endpoint(ENDPOINT)
+                    .apiKey("12345")
+                    .transport(InMemoryTransport.of(200, "[{\"id\":\"a\"},"))
+                    .jsonCodec(codec)
+                    .build();
+            var e = assertThrows(KaginawaServerException.class, () -> client.listNodesByCustomId("test-rpi"));
+            assertTrue(e.getCause() instanceof IOException);
+            assertEquals("[{\"id\":\"a\"},", e.getBodySnippet());
+            assertEquals(codec instanceof JsonbCodec ? -1 : 12, e.getErrorOffset());
+        }
+    }
+
+    /**
+     * Provider of a codec that counts decoded reports, registered for testing discovery.
+     */
+    public static class Provider implements JsonCodecProvider {
+        static final AtomicInteger CREATED = new AtomicInteger();
+        static final AtomicInteger DECODED = new AtomicInteger();
+
+        @Override
+        public String getName() {
+            return "counting";
+        }
+
+        @Override
+        public JsonCodec create() {
+            CREATED.incrementAndGet();
+            return new JsonCodec() {
+                @Override
+                public List<Report> decodeReports(byte[] buf, int offset, int length) throws IOException {
+                    var reports = BuiltinJsonCodec.INSTANCE.decodeReports(buf, offset, length);
+                    DECODED.addAndGet(reports.size());
+                    return reports;
+                }
+
+                @Override
+                public Report decodeReport(byte[] buf, int offset, int length) throws IOException {
+                    DECODED.incrementAndGet();
+                    return BuiltinJsonCodec.INSTANCE.decodeReport(buf, offset, length);
+                }
+
+                @Override
+                public SshServer decodeSshServer(byte[] buf, int offset, int length) throws IOException {
+                    return BuiltinJsonCodec.INSTANCE.decodeSshServer(buf, offset, length);
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class JsonDecoderTests {
+    private byte[] readFile(String filename) {
+        try {
+            return Files.readAllBytes(Paths.get(getClass().getResource("/" + filename).toURI()));
+        } catch (IOException | URISyntaxException | NullPointerException e) {
+            throw new RuntimeException("unable to read test file: " + filename, e);
+        }
+    }
+
+    private static byte[] bytes(String json) {
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static Report report(String json) throws JsonDecodingException {
+        var bytes = bytes(json);
+        return JsonDecoder.decodeReport(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Asserts that two reports have the same values in all fields.
+     *
+     * @param expected expected report
+     * @param actual   actual report
+     */
+    static void assertSameReport(Report expected, Report actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getTrigger(), actual.getTrigger());
+        assertEquals(expected.isSuccess(), actual.isSuccess());
+        assertEquals(expected.getRuntime(), actual.getRuntime());
+        assertEquals(expected.getSequence(), actual.getSequence());
+        assertEquals(expected.getDeviceTimeAsLong(), actual.getDeviceTimeAsLong());
+        assertEquals(expected.getBootTimeAsLong(), actual.getBootTimeAsLong());
+        assertEquals(expected.getGenMillis(), actual.getGenMillis());
+        assertEquals(expected.getAgentVersion(), actual.getAgentVersion());
+        assertEquals(expected.getCustomId(), actual.getCustomId());
+        assertEquals(expected.getSshServerHost(), actual.getSshServerHost());
+        assertEquals(expected.getSshRemotePort(), actual.getSshRemotePort());
+        assertEquals(expected.getSshConnectTimeAsLong(), actual.getSshConnectTimeAsLong());
+        assertEquals(expected.getAdapter(), actual.getAdapter());
+        assertEquals(expected.getLocalIpV4(), actual.getLocalIpV4());
+        assertEquals(expected.getLocalIpV6(), actual.getLocalIpV6());
+        assertEquals(expected.getHostname(), actual.getHostname());
+        assertEquals(expected.getRttMillis(), actual.getRttMillis());
+        assertEquals(expected.getUploadKbps(), actual.getUploadKbps());
+        assertEquals(expected.getDownloadKbps(), actual.getDownloadKbps());
+        assertEquals(expected.getDiskTotalBytes(), actual.getDiskTotalBytes());
+        assertEquals(expected.getDiskUsedBytes(), actual.getDiskUsedBytes());
+        assertEquals(expected.getDiskLabel(), actual.getDiskLabel());
+        assertEquals(expected.getDiskFilesystem(), actual.getDiskFilesystem());
+        assertEquals(expected.getDiskMountPoint(), actual.getDiskMountPoint());
+        assertEquals(expected.getDiskDevice(), actual.getDiskDevice());
+        assertEquals(expected.getUsbDevices().size(), actual.getUsbDevices().size());
+        for (int i = 0; i < expected.getUsbDevices().size(); i++) {
+            var e = expected.getUsbDevices().get(i);
+            var a = actual.getUsbDevices().get(i);
+            assertEquals(List.of(e.getName(), e.getVendorId(), e.getProductId(), e.getLocation()),
+                    List.of(a.getName(), a.getVendorId(), a.getProductId(), a.getLocation()));
+        }
+        assertEquals(expected.getBdLocalDevices(), actual.getBdLocalDevices());
+        assertEquals(expected.getKernelVersion(), actual.getKernelVersion());
+        assertEquals(expected.getErrors(), actual.getErrors());
+        assertEquals(expected.getGlobalIp(), actual.getGlobalIp());
+        assertEquals(expected.getGlobalHost(), actual.getGlobalHost());
+        assertEquals(expected.getServerTimeAsLong(), actual.getServerTimeAsLong());
+    }
+
+    @Test
+    public void testDecodeReport() throws IOException {
+        var json = readFile("node.json");
+        var report = JsonDecoder.decodeReport(json, 0, json.length);
+        assertEquals("b8:27:eb:73:90:9f", report.getId());
+        assertEquals(3, report.getTrigger());
+        assertTrue(report.isSuccess());
+        assertEquals(9994, report.getSequence());
+        assertEquals(774, report.getGenMillis());
+        assertEquals("fe80::54eb:2148:986:9f7a", report.getLocalIpV6());
+        assertEquals(2691837952L, report.getDiskTotalBytes());
+        assertEquals(4, report.getUsbDevices().size());
+        assertEquals("Standard Microsystems Corp. ", report.getUsbDevices().get(2).getName());
+        assertEquals("ec00", report.getUsbDevices().get(1).getProductId());
+        assertEquals(List.of("B8:27:EB:D9:3A:35"), report.getBdLocalDevices());
+        assertEquals("", report.getKernelVersion()); // absent
+        assertEquals(List.of(), report.getErrors());
+        assertEquals(1591270237, report.getServerTimeAsLong());
+        assertSameReport(new JsonbCodec().decodeReport(json, 0, json.length), report);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"nodes_alive_0.json", "nodes_alive_3.json", "nodes_cid_0.json", "nodes_cid_3.json",
+            "histories_0.json", "histories_9.json"})
+    public void testDecodeReports(String filename) throws IOException {
+        var json = readFile(filename);
+        var reports = JsonDecoder.decodeReports(json, 0, json.length);
+        var expected = new JsonbCodec().decodeReports(json, 0, json.length);
+        assertEquals(expected.size(), reports.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertSameReport(expected.get(i), reports.get(i));
+        }
+    }
+
+    @Test
+    public void testDecodeSshServer() throws IOException {
+        var json = readFile("server.json");
+        var server = JsonDecoder.decodeSshServer(json, 0, json.length);
+        var expected = new JsonbCodec().decodeSshServer(json, 0, json.length);
+        assertEquals("example.com", server.getHost());
+        assertEquals(22, server.getPort());
+        assertEquals(expected.getUser(), server.getUser());
+        assertEquals(expected.getKey(), server.getKey());
+        assertTrue(server.getKey().contains("\n"));
+        assertEquals(expected.getPassword(), server.getPassword());
+    }
+
+    @Test
+    public void testOffsetAndLength() throws JsonDecodingException {
+        var json = bytes("xx[{\"id\":\"a\"},{\"id\":\"b\"}]yy");
+        var reports = JsonDecoder.decodeReports(json, 2, json.length - 4);
+        assertEquals(2, reports.size());
+        assertEquals("b", reports.get(1).getId());
+    }
+
+    @Test
+    public void testUnknownFields() throws JsonDecodingException {
+        var report = report("{\"x\":{\"id\":\"no\",\"y\":[1,{\"z\":null},\"]\"]},\"id\":\"yes\",\"n\":-1.5e3,"
+                + "\"t\":true,\"s\":\"a\\\"b\",\"\":0,\"usb_devices\":[{\"name\":\"u\",\"serial\":\"1\"}]}");
+        assertEquals("yes", report.getId());
+        assertEquals("u", report.getUsbDevices().get(0).getName());
+        assertNull(report.getUsbDevices().get(0).getVendorId());
+    }
+
+    @Test
+    public void testStrings() throws JsonDecodingException {
+        var report = report("{\"id\":\"\\u0041\\/\\\\\\\"\\b\\f\\n\\r\\t\",\"hostname\":\"\u65e5\u672c\","
+                + "\"adapter\":\"\\ud83d\\ude00\u00e9\",\"custom_id\":\"\",\"runtime\":123,\"i\\u0064\":\"x\"}");
+        assertEquals("x", report.getId()); // escaped field name
+        assertEquals("\u65e5\u672c", report.getHostname());
+        assertEquals("\ud83d\ude00\u00e9", report.getAdapter());
+        assertEquals("", report.getCustomId());
+        assertEquals("123", report.getRuntime());
+        assertEquals("A/\\\"\b\f\n\r\t", report("{\"id\":\"\\u0041\\/\\\\\\\"\\b\\f\\n\\r\\t\"}").getId());
+    }
+
+    @Test
+    public void testNumbersAndNulls() throws JsonDecodingException {
+        var report = report("{\"seq\":\"42\",\"trigger\":null,\"success\":\"true\","
+                + "\"server_time\":-9223372036854775808,\"disk_used_bytes\":9223372036854775807,"
+                + "\"custom_id\":null,\"errors\":null,\"bd_local_devices\":[]}");
+        assertEquals(42, report.getSequence());
+        assertEquals(0, report.getTrigger());
+        assertTrue(report.isSuccess());
+        assertEquals(Long.MIN_VALUE, report.getServerTimeAsLong());
+        assertEquals(Long.MAX_VALUE, report.getDiskUsedBytes());
+        assertNull(report.getCustomId());
+        assertNull(report.getErrors());
+        assertEquals(List.of(), report.getBdLocalDevices());
+        assertNull(report(" null "));
+    }
+
+    @Test
+    public void testMalformed() {
+        assertOffset(0, "");
+        assertOffset(0, "[]");
+        assertOffset(7, "{\"seq\":1.5}");
+        assertOffset(0, "this is a broken json test");
+        assertOffset(9, "{\"seq\":1}}");
+        assertOffset(10, "{\"id\":\"a\",}");
+        assertOffset(8, "{\"id\":\"a");
+        assertOffset(7, "{\"seq\":2147483648}");
+        assertOffset(6, "{\"id\" \"a\"}");
+        assertOffset(10, "{\"id\":\"a\" \"b\":1}");
+        assertOffset(8, "{\"id\":\"\\x\"}");
+        assertOffset(7, "{\"id\":\"\n\"}");
+        assertOffset(7, "{\"seq\":99999999999999999999}");
+        assertOffset(7, "{\"seq\":\"x\"}");
+        var deep = "{\"x\":" + "[".repeat(1000) + "]".repeat(1000) + "}";
+        assertThrows(JsonDecodingException.class, () -> report(deep));
+        var json = bytes("[{\"id\":\"a\"},]");
+        var e = assertThrows(JsonDecodingException.class, () -> JsonDecoder.decodeReports(json, 0, json.length));
+        assertEquals(12, e.getOffset());
+    }
+
+    private static void assertOffset(int offset, String json) {
+        var e = assertThrows(JsonDecodingException.class, () -> report(json), json);
+        assertEquals(offset, e.getOffset(), e.getMessage());
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+public class KaginawaClientBulkTests {
+    private StubServer server;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    private String readFile(String filename) {
+        try {
+            return Files.readString(Paths.get(getClass().getResource("/" + filename).toURI()));
+        } catch (IOException | URISyntaxException | NullPointerException e) {
+            throw new RuntimeException("unable to read test file: " + filename, e);
+        }
+    }
+
+    @BeforeEach
+    public void setUp() {
+        var node = readFile("node.json");
+        var nodes = readFile("nodes_cid_3.json");
+        server = StubServer.start().handle("/nodes", exchange -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(20);
+                var path = exchange.getRequestURI().getPath();
+                var query = exchange.getRequestURI().getQuery();
+                if (path.endsWith("/missing") || (query != null && query.endsWith("missing"))) {
+                    StubServer.respond(exchange, 404, "not found");
+                } else if (query != null && query.startsWith("custom-id=")) {
+                    StubServer.respond(exchange, 200, nodes);
+                } else {
+                    StubServer.respond(exchange, 200, node);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        });
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.close();
+    }
+
+    @Test
+    public void testFindNodesByIds() {
+        var client = new KaginawaClient(server.getEndpoint(), "12345");
+        var ids = new ArrayList<String>();
+        for (int i = 0; i < 20; i++) {
+            ids.add("b8:27:eb:73:90:" + i);
+        }
+        ids.add("missing");
+        ids.add("b8:27:eb:73:90:0"); // duplicate
+        BulkResult<Report> result = null;
+        try {
+            result = client.findNodesByIds(ids, 4);
+        } catch (KaginawaServerException e) {
+            fail(e);
+        }
+        assertFalse(result.isSuccess());
+        assertEquals(20, result.getResults().size());
+        assertEquals(1, result.getFailures().size());
+        assertEquals(404, result.getFailures().get("missing").getHttpStatus());
+        assertEquals("b8:27:eb:73:90:0", result.getResults().keySet().iterator().next());
+        result.getResults().values().forEach(r -> assertEquals("test-rpi", r.getCustomId()));
+        assertEquals(21, server.getRequestCount());
+        assertTrue(maxInFlight.get() <= 4, "max in flight: " + maxInFlight.get());
+    }
+
+    @Test
+    public void testListNodesByCustomIds() {
+        var client = new KaginawaClient(server.getEndpoint(), "12345");
+        BulkResult<List<Report>> result = null;
+        try {
+            result = client.listNodesByCustomIds(Arrays.asList("test-rpi", "missing"), 8);
+        } catch (KaginawaServerException e) {
+            fail(e);
+        }
+        assertEquals(1, result.getResults().size());
+        assertEquals(3, result.getResults().get("test-rpi").size());
+        assertEquals(404, result.getFailures().get("missing").getHttpStatus());
+    }
+
+    @Test
+    public void testFindNodesByIds_Empty() {
+        var client = new KaginawaClient(server.getEndpoint(), "12345");
+        try {
+            var result = client.findNodesByIds(Collections.emptyList(), 4);
+            assertTrue(result.isSuccess());
+            assertTrue(result.getResults().isEmpty());
+        } catch (KaginawaServerException e) {
+            fail(e);
+        }
+    }
+
+    @Test
+    public void testFindNodesByIdsAsync_Cancel() {
+        server.latency(Duration.ofSeconds(1));
+        var client = new KaginawaClient(server.getEndpoint(), "12345");
+        var future = client.findNodesByIdsAsync(Arrays.asList("a", "b", "c"), 1);
+        assertTrue(future.cancel(true));
+        assertTrue(future.isCancelled());
+    }
+
+    @Test
+    public void testFindNodesByIds_NPE() {
+        var client = new KaginawaClient(server.getEndpoint(), "12345");
+        assertThrows(NullPointerException.class, () -> client.findNodesByIds(null, 4));
+        assertThrows(NullPointerException.class, () -> client.findNodesByIds(Arrays.asList("a", null), 4));
+    }
+
+    @Test
+    public void testFindNodesByIds_IAE() {
+        var client = new KaginawaClient(server.getEndpoint(), "12345");
+        assertThrows(IllegalArgumentException.class, () -> client.findNodesByIds(List.of("a", ""), 4));
+        assertThrows(IllegalArgumentException.class, () -> client.findNodesByIds(List.of("a"), 0));
+        assertThrows(IllegalArgumentException.class, () -> client.listNodesByCustomIds(List.of(""), 4));
+    }
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import com.sun.net.httpserver.HttpExchange;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.fail;
+
+public class KaginawaClientCacheTests {
+    private static final String ID = "02:00:00:00:00:01";
+    private static final String LAST_MODIFIED = "Wed, 21 Oct 2020 07:28:00 GMT";
+    private StubServer server;
+    private final AtomicInteger fullResponses = new AtomicInteger();
+    private volatile String etag = "\"v1\"";
+    private volatile String lastModified;
+    private volatile String cacheControl;
+    private volatile String ifNoneMatch;
+    private volatile String ifModifiedSince;
+
+    private String readFile(String filename) {
+        try {
+            return Files.readString(Paths.get(getClass().getResource("/" + filename).toURI()));
+        } catch (IOException | URISyntaxException | NullPointerException e) {
+            throw new RuntimeException("unable to read test file: " + filename, e);
+        }
+    }
+
+    private KaginawaClient newClient(int maxEntries) {
+        return KaginawaClient.Builder.newBuilder()
+                .endpoint(server.getEndpoint())
+                .apiKey("12345")
+                .responseCache(maxEntries)
+                .build();
+    }
+
+    private void respond(HttpExchange exchange, String body) throws IOException {
+        ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        ifModifiedSince = exchange.getRequestHeaders().getFirst("If-Modified-Since");
+        var headers = exchange.getResponseHeaders();
+        if (etag != null) {
+            headers.set("ETag", etag);
+        }
+        if (lastModified != null) {
+            headers.set("Last-Modified", lastModified);
+        }
+        if (cacheControl != null) {
+            headers.set("Cache-Control", cacheControl);
+        }
+        if ((etag != null && etag.equals(ifNoneMatch))
+                || (etag == null && lastModified != null && lastModified.equals(ifModifiedSince))) {
+            StubServer.respond(exchange, 304, "");
+            return;
+        }
+        fullResponses.incrementAndGet();
+        StubServer.respond(exchange, 200, body);
+    }
+
+    @BeforeEach
+    public void setUp() {
+        var node = readFile("node.json");
+        var nodes = readFile("nodes_cid_3.json");
+        server = StubServer.start().handle("/nodes", exchange -> {
+            var query = exchange.getRequestURI().getQuery();
+            respond(exchange, query != null && query.startsWith("custom-id=") ? nodes : node);
+        });
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.close();
+    }
+
+    @Test
+    public void testETag() {
+        var client = newClient(16);
+        try {
+            var first = client.findNodeById(ID);
+            assertNull(ifNoneMatch);
+            var second = client.findNodeById(ID);
+            assertEquals("\"v1\"", ifNoneMatch);
+            assertSame(first, second);
+        } catch (KaginawaServerException e) {
+            fail(e);
+        }
+        assertEquals(2, server.getRequestCount());
+        assertEquals(1, fullResponses.get());
+        assertEquals(1, client.getCacheHits());
+        assertEquals(1, client.getCacheMisses());
+    }
+
+    @Test
+    public void testETag_Changed() {
+        var client = newClient(16);
+        try {
+            var first = client.findNodeById(ID);
+            etag = "\"v2\"";
+            var second = client.findNodeById(ID);
+            assertNotSame(first, second);
+            assertSame(second, client.findNodeById(ID));
+            assertEquals("\"v2\"", ifNoneMatch);
+        } catch (KaginawaServerException e) {
+            fail(e);
+        }
+        assertEquals(1, client.getCacheHits());
+        assertEquals(2, client.getCacheMisses());
+    }
+
+    @Test
+    public void testLastModified() {
+        etag = null;
+        lastModified = LAST_MODIFIED;
+        var client = newClient(16);
+        try {
+            var first = client.findNodeById(ID);
+            assertSame(first, client.findNodeById(ID));
+            assertEquals(LAST_MODIFIED, ifModifiedSince);
+            assertNull(ifNoneMatch);
+        } catch (KaginawaServerException e) {
+            fail(e);
+        }
+        assertEquals(1, fullResponses.get());
+    }
+
+    @Test
+    public void testMaxAge() {
+        cacheControl = "private, max-age=60";
+        var client = newClient(16);
+        try {
+            var first = client.findNodeById(ID);
+            assertSame(first, client.findNodeById(ID));
+        } catch (KaginawaServerException e) {
+            fail(e);
+        }
+        assertEquals(1, server.getRequestCount());
+        assertEquals(1, client.getCacheHits());
+    }
+
+    @Test
+    public void testNoStore() {
+        cacheControl = "no-store";
+        var client = newClient(16);
+        try {
+            client.findNodeById(ID);
+            client.findNodeById(ID);
+        } catch (KaginawaServerException e) {
+            fail(e);
+        }
+        assertNull(ifNoneMatch);
+        assertEquals(2, fullResponses.get());
+        assertEquals(0, client.getCacheHits());
+        assertEquals(2, client.getCacheMisses());
+    }
+
+    @Test
+    public void testDisabled() {
+        var client = new KaginawaClient(server.getEndpoint(), "12345");
+        try {
+            client.findNodeById(ID);
+            client.findNodeById(ID);
+        } catch (KaginawaServerException e) {
+            fail(e);
+        }
+        assertNull(ifNoneMatch);
+        assertEquals(2, fullResponses.get());
+        assertEquals(0, client.getCacheMisses());
+    }
+
+    @Test
+    public void testEviction() {
+        var client = newClient(1);
+        try {
+            client.findNodeById(ID);
+            client.listNodesByCustomId("test-rpi");
+            client.findNodeById(ID);
+        } catch (KaginawaServerException e) {
+            fail(e);
+        }
+        assertEquals(3, fullResponses.get());
+        assertEquals(0, client.getCacheHits());
+    }
+
+    @Test
+    public void testList() {
+        var client = newClient(16);
+        try {
+            var first = client.listNodesByCustomId("test-rpi");
+            assertEquals(3, first.size());
+            assertSame(first, client.listNodesByCustomId("test-rpi"));
+            assertThrows(UnsupportedOperationException.class, () -> first.add(first.get(0)));
+        } catch (KaginawaServerException e) {
+            fail(e);
+        }
+        assertEquals(1, fullResponses.get());
+    }
+
+    @Test
+    public void testInnerList() {
+        var client = newClient(16);
+        try {
+            var report = client.findNodeById(ID);
+            assertThrows(UnsupportedOperationException.class, () -> report.getUsbDevices().clear());
+            assertThrows(UnsupportedOperationException.class, () -> report.getBdLocalDevices().add("AA:BB"));
+            assertThrows(UnsupportedOperationException.class, () -> report.getErrors().add("error"));
+            assertEquals(report.getUsbDevices(), client.findNodeById(ID).getUsbDevices());
+        } catch (KaginawaServerException e) {
+            fail(e);
+        }
+        assertEquals(1, fullResponses.get());
+    }
+
+    @Test
+    public void testAsync() {
+        var client = newClient(16);
+        try {
+            var first = client.findNodeByIdAsync(ID).get();
+            assertSame(first, client.findNodeByIdAsync(ID).get());
+            assertSame(first, client.findNodeById(ID));
+        } catch (InterruptedException | ExecutionException | KaginawaServerException e) {
+            fail(e);
+        }
+        assertEquals(1, fullResponses.get());
+        assertEquals(2, client.getCacheHits());
+    }
+
+    @Test
+    public void testBuilder_IAE() {
+        assertThrows(IllegalArgumentException.class, () -> KaginawaClient.Builder.newBuilder().responseCache(-1));
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import io.github.kaginawa.sdk.CircuitBreakerPolicy.State;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+public class KaginawaClientCircuitBreakerTests {
+    private static final String ID = "02:00:00:00:00:01";
+    private StubServer server;
+    private volatile int status = 500;
+    private final List<String> transitions = new CopyOnWriteArrayList<>();
+
+    private String readFile(String filename) {
+        try {
+            return Files.readString(Paths.get(getClass().getResource("/" + filename).toURI()));
+        } catch (IOException | URISyntaxException | NullPointerException e) {
+            throw new RuntimeException("unable to read test file: " + filename, e);
+        }
+    }
+
+    private KaginawaClient newClient(CircuitBreakerPolicy.Builder policy) {
+        return KaginawaClient.Builder.newBuilder()
+                .endpoint(server.getEndpoint())
+                .apiKey("12345")
+                .circuitBreaker(policy.onStateChange((from, to) -> transitions.add(from + ">" + to)).build())
+                .build();
+    }
+
+    private static CircuitBreakerPolicy.Builder smallWindow() {
+        return CircuitBreakerPolicy.Builder.newBuilder()
+                .windowSize(4)
+                .minimumCalls(4)
+                .openDuration(Duration.ofHours(1));
+    }
+
+    @BeforeEach
+    public void setUp() {
+        var node = readFile("node.json");
+        server = StubServer.start().handle("/nodes", exchange -> {
+            int s = status;
+            StubServer.respond(exchange, s, s == 200 ? node : "failure " + s);
+        });
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.close();
+    }
+
+    @Test
+    public void testOpen() {
+        var client = newClient(smallWindow());
+        assertEquals(State.CLOSED, client.getCircuitBreakerState());
+        for (int i = 0; i < 4; i++) {
+            var e = assertThrows(KaginawaServerException.class, () -> client.findNodeById(ID));
+            assertEquals(500, e.getHttpStatus());
+        }
+        assertEquals(State.OPEN, client.getCircuitBreakerState());
+        var e = assertThrows(KaginawaServerException.class, () -> client.findNodeById(ID));
+        assertTrue(e.getCause() instanceof CircuitBreakerOpenException);
+        assertEquals(4, server.getRequestCount());
+        assertEquals(List.of("CLOSED>OPEN"), transitions);
+    }
+
+    @Test
+    public void testOpen_ClientErrorsIgnored() {
+        status = 404;
+        var client = newClient(smallWindow());
+        for (int i = 0; i < 8; i++) {
+            assertThrows(KaginawaServerException.class, () -> client.findNodeById(ID));
+        }
+        assertEquals(State.CLOSED, client.getCircuitBreakerState());
+        assertEquals(8, server.getRequestCount());
+    }
+
+    @Test
+    public void testOpen_ResponseTooLargeIgnored() {
+        status = 200;
+        var client = KaginawaClient.Builder.newBuilder()
+                .endpoint(server.getEndpoint())
+                .apiKey("12345")
+                .maxResponseSize(16)
+                .circuitBreaker(smallWindow().build())
+                .build();
+        for (int i = 0; i < 8; i++) {
+            var e = assertThrows(KaginawaServerException.class, () -> client.findNodeById(ID));
+            assertTrue(e.getCause() instanceof ResponseTooLargeException);
+            var async = assertThrows(ExecutionException.class, () -> client.findNodeByIdAsync(ID).get());
+            assertTrue(async.getCause().getCause() instanceof ResponseTooLargeException);
+        }
+        assertEquals(State.CLOSED, client.getCircuitBreakerState());
+        assertEquals(16, server.getRequestCount());
+    }
+
+    @Test
+    public void testOpen_BelowThreshold() {
+        var client = newClient(smallWindow().failureRateThreshold(0.75));
+        for (int i = 0; i < 8; i++) {
+            status = i % 2 == 0 ? 500 : 200;
+            try {
+                client.findNodeById(ID);
+            } catch (KaginawaServerException e) {
+                assertEquals(500, e.getHttpStatus());
+            }
+        }
+        assertEquals(State.CLOSED, client.getCircuitBreakerState());
+    }
+
+    @Test
+    public void testOpen_SlowCalls() {
+        status = 200;
+        server.latency(Duration.ofMillis(100));
+        var client = newClient(CircuitBreakerPolicy.Builder.newBuilder()
+                .windowSize(2)
+                .minimumCalls(2)
+                .slowCallDuration(Duration.ofMillis(50))
+                .openDuration(Duration.ofHours(1)));
+        try {
+            assertNotNull(client.findNodeById(ID));
+            assertNotNull(client.findNodeById(ID));
+        } catch (KaginawaServerException e) {
+            fail(e);
+        }
+        assertEquals(State.OPEN, client.getCircuitBreakerState());
+    }
+
+    @Test
+    public void testHalfOpen() throws InterruptedException {
+        var client = newClient(smallWindow().openDuration(Duration.ofMillis(100)).halfOpenCalls(2));
+        for (int i = 0; i < 4; i++) {
+            assertThrows(KaginawaServerException.class, () -> client.findNodeById(ID));
+        }
+        Thread.sleep(150);
+        var e = assertThrows(KaginawaServerException.class, () -> client.findNodeById(ID));
+        assertEquals(500, e.getHttpStatus()); // trial call failed
+        assertEquals(State.OPEN, client.getCircuitBreakerState());
+
+        status = 200;
+        Thread.sleep(150);
+        try {
+            assertNotNull(client.findNodeById(ID));
+            assertEquals(State.HALF_OPEN, client.getCircuitBreakerState());
+            assertNotNull(client.findNodeById(ID));
+        } catch (KaginawaServerException ex) {
+            fail(ex);
+        }
+        assertEquals(State.CLOSED, client.getCircuitBreakerState());
+        assertEquals(Arrays.asList("CLOSED>OPEN", "OPEN>HALF_OPEN", "HALF_OPEN>OPEN", "OPEN>HALF_OPEN",
+                "HALF_OPEN>CLOSED"), transitions);
+    }
+
+    @Test
+    public void testOpenAsync() {
+        var client = newClient(smallWindow());
+        for (int i = 0; i < 4; i++) {
+            assertThrows(ExecutionException.class, () -> client.findNodeByIdAsync(ID).get());
+        }
+        var e = assertThrows(ExecutionException.class, () -> client.findNodeByIdAsync(ID).get());
+        assertTrue(e.getCause() instanceof KaginawaServerException);
+        assertTrue(e.getCause().getCause() instanceof CircuitBreakerOpenException);
+        assertEquals(4, server.getRequestCount());
+    }
+
+    @Test
+    public void testOpen_NotRetried() {
+        status = 503;
+        var client = KaginawaClient.Builder.newBuilder()
+                .endpoint(server.getEndpoint())
+                .apiKey("12345")
+                .retryPolicy(RetryPolicy.Builder.newBuilder().maxAttempts(10).initialBackoff(Duration.ZERO).build())
+                .circuitBreaker(smallWindow().build())
+                .build();
+        var e = assertThrows(KaginawaServerException.class, () -> client.findNodeById(ID));
+        assertTrue(e.getCause() instanceof CircuitBreakerOpenException);
+        assertEquals(4, server.getRequestCount());
+    }
+
+    @Test
+    public void testPolicy_IAE() {
+        var builder = CircuitBreakerPolicy.Builder.newBuilder();
+        assertThrows(IllegalArgumentException.class, () -> builder.failureRateThreshold(0));
+        assertThrows(IllegalArgumentException.class, () -> builder.slowCallRateThreshold(1.5));
+        assertThrows(IllegalArgumentException.class, () -> builder.windowSize(0));
+        assertThrows(IllegalArgumentException.class, () -> builder.openDuration(Duration.ZERO));
+        assertThrows(NullPointerException.class, () -> builder.onStateChange(null));
+        assertThrows(IllegalStateException.class, () -> builder.windowSize(5).minimumCalls(6).build());
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+public class KaginawaClientCoalescingTests {
+    private static final String ID = "02:00:00:00:00:01";
+    private static final int THREADS = 16;
+    private StubServer server;
+    private ExecutorService pool;
+
+    private String readFile(String filename) {
+        try {
+            return Files.readString(Paths.get(getClass().getResource("/" + filename).toURI()));
+        } catch (IOException | URISyntaxException | NullPointerException e) {
+            throw new RuntimeException("unable to read test file: " + filename, e);
+        }
+    }
+
+    private KaginawaClient newClient(boolean coalescing) {
+        return KaginawaClient.Builder.newBuilder()
+                .endpoint(server.getEndpoint())
+                .apiKey("12345")
+                .coalescing(coalescing)
+                .build();
+    }
+
+    private <T> List<Future<T>> runConcurrently(Callable<T> task) {
+        var ready = new CountDownLatch(THREADS);
+        var futures = new ArrayList<Future<T>>();
+        for (int i = 0; i < THREADS; i++) {
+            futures.add(pool.submit(() -> {
+                ready.countDown();
+                ready.await();
+                return task.call();
+            }));
+        }
+        return futures;
+    }
+
+    @BeforeEach
+    public void setUp() {
+        var node = readFile("node.json");
+        pool = Executors.newFixedThreadPool(THREADS);
+        server = StubServer.start().latency(Duration.ofMillis(300)).handle("/nodes", exchange -> {
+            var query = exchange.getRequestURI().getQuery();
+            if (exchange.getRequestURI().getPath().endsWith("/missing")) {
+                StubServer.respond(exchange, 404, "not found");
+            } else if (query != null && query.contains("custom-id=")) {
+                StubServer.respond(exchange, 200, "[" + node + "]");
+            } else {
+                StubServer.respond(exchange, 200, node);
+            }
+        });
+    }
+
+    @AfterEach
+    public void tearDown() {
+        pool.shutdownNow();
+        server.close();
+    }
+
+    @Test
+    public void testCoalescing() throws InterruptedException {
+        var client = newClient(true);
+        Report first = null;
+        for (var future : runConcurrently(() -> client.findNodeById(ID))) {
+            try {
+                var report = future.get();
+                assertNotNull(report);
+                if (first == null) {
+                    first = report;
+                }
+                assertSame(first, report);
+            } catch (ExecutionException e) {
+                fail(e);
+            }
+        }
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void testCoalescing_Error() throws InterruptedException {
+        var client = newClient(true);
+        for (var future : runConcurrently(() -> client.findNodeById("missing"))) {
+            var e = assertThrows(ExecutionException.class, future::get);
+            assertTrue(e.getCause() instanceof KaginawaServerException);
+            assertEquals(404, ((KaginawaServerException) e.getCause()).getHttpStatus());
+        }
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void testCoalescing_Deadline() throws InterruptedException, ExecutionException {
+        server.latency(Duration.ofSeconds(2));
+        var client = newClient(true);
+        var leader = client.findNodeByIdAsync(ID);
+        var start = System.nanoTime();
+        assertThrows(KaginawaTimeoutException.class, () -> client.withTimeout(Duration.ofMillis(100)).findNodeById(ID));
+        assertTrue(System.nanoTime() - start < Duration.ofSeconds(1).toNanos()); // does not wait for the leader
+        assertNotNull(leader.get()); // unaffected by the follower
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void testCoalescing_UnmodifiableList() throws InterruptedException, ExecutionException {
+        var client = newClient(true);
+        var futures = runConcurrently(() -> client.listNodesByCustomId("test-rpi"));
+        futures.add(pool.submit(() -> client.listNodesByCustomIdAsync("test-rpi").get()));
+        for (var future : futures) {
+            var list = future.get();
+            assertEquals(1, list.size());
+            assertThrows(UnsupportedOperationException.class, list::clear);
+        }
+    }
+
+    @Test
+    public void testCoalescing_Disabled() throws InterruptedException, ExecutionException {
+        var client = newClient(false);
+        for (var future : runConcurrently(() -> client.findNodeById(ID))) {
+            future.get();
+        }
+        assertEquals(THREADS, server.getRequestCount());
+    }
+
+    @Test
+    public void testCoalescing_DifferentKeys() throws InterruptedException, ExecutionException {
+        var client = newClient(true);
+        var a = client.findNodeByIdAsync(ID);
+        var b = client.findNodeByIdAsync("02:00:00:00:00:02");
+        var c = client.listAliveNodesAsync(5);
+        a.get();
+        b.get();
+        c.handle((v, e) -> null).get(); // not a list in this stub, only the request count matters
+        assertEquals(3, server.getRequestCount());
+    }
+
+    @Test
+    public void testCoalescingAsync() throws InterruptedException {
+        var client = newClient(true);
+        var futures = new ArrayList<Future<Report>>();
+        for (int i = 0; i < THREADS; i++) {
+            futures.add(client.findNodeByIdAsync(ID));
+        }
+        futures.addAll(runConcurrently(() -> client.findNodeById(ID)));
+        for (var future : futures) {
+            try {
+                assertSame(futures.get(0).get(), future.get());
+            } catch (ExecutionException e) {
+                fail(e);
+            }
+        }
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void testCoalescingAsync_Cancel() throws InterruptedException {
+        var client = newClient(true);
+        var cancelled = client.findNodeByIdAsync(ID);
+        var waiting = client.findNodeByIdAsync(ID);
+        assertTrue(cancelled.cancel(true));
+        try {
+            assertNotNull(waiting.get()); // unaffected by the other waiter
+        } catch (ExecutionException e) {
+            fail(e);
+        }
+
+        var abandoned = List.of(client.findNodeByIdAsync(ID), client.findNodeByIdAsync(ID));
+        abandoned.forEach(f -> f.cancel(true));
+        var next = client.findNodeByIdAsync(ID);
+        try {
+            assertNotNull(next.get()); // starts a new exchange
+        } catch (ExecutionException e) {
+            fail(e);
+        }
+        assertFalse(next.isCancelled());
+    }
+}
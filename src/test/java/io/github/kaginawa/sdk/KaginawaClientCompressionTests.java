@@ -0,0 +1,190 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import com.sun.net.httpserver.HttpExchange;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+public class KaginawaClientCompressionTests {
+    private StubServer server;
+    private volatile String encoding;
+    private volatile String acceptEncoding;
+    private byte[] nodes;
+
+    private String readFile(String filename) {
+        try {
+            return Files.readString(Paths.get(getClass().getResource("/" + filename).toURI()));
+        } catch (IOException | URISyntaxException | NullPointerException e) {
+            throw new RuntimeException("unable to read test file: " + filename, e);
+        }
+    }
+
+    private static byte[] compress(byte[] body, String encoding) throws IOException {
+        var out = new ByteArrayOutputStream();
+        OutputStream compressor;
+        switch (encoding) {
+            case "gzip":
+                compressor = new GZIPOutputStream(out);
+                break;
+            case "deflate":
+                compressor = new DeflaterOutputStream(out);
+                break;
+            case "raw-deflate":
+                compressor = new DeflaterOutputStream(out, new Deflater(Deflater.DEFAULT_COMPRESSION, true));
+                break;
+            default:
+                return body;
+        }
+        compressor.write(body);
+        compressor.close();
+        return out.toByteArray();
+    }
+
+    private void respond(HttpExchange exchange, byte[] body) throws IOException {
+        acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        var bytes = body;
+        if (encoding != null && acceptEncoding != null) {
+            bytes = compress(body, encoding);
+            exchange.getResponseHeaders().set("Content-Encoding", encoding.replace("raw-", ""));
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, 0); // chunked
+        try (var out = exchange.getResponseBody()) {
+            for (int i = 0; i < bytes.length; i += 512) {
+                out.write(bytes, i, Math.min(512, bytes.length - i));
+                out.flush();
+            }
+        }
+    }
+
+    @BeforeEach
+    public void setUp() {
+        nodes = readFile("nodes_cid_3.json").getBytes(StandardCharsets.UTF_8);
+        server = StubServer.start().handle("/nodes", exchange -> respond(exchange, nodes));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.close();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"gzip", "deflate", "raw-deflate"})
+    public void testListNodesByCustomId(String encoding) {
+        this.encoding = encoding;
+        var client = new KaginawaClient(server.getEndpoint(), "12345");
+        try {
+            var list = client.listNodesByCustomId("test-rpi");
+            assertEquals(3, list.size());
+            list.forEach(n -> assertEquals("test-rpi", n.getCustomId()));
+        } catch (KaginawaServerException e) {
+            fail(e);
+        }
+        assertEquals("gzip, deflate", acceptEncoding);
+        assertEquals(nodes.length, client.getDecodedBytes());
+        assertTrue(client.getReceivedBytes() * 3 < client.getDecodedBytes(),
+                client.getReceivedBytes() + " / " + client.getDecodedBytes());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"gzip", "deflate"})
+    public void testStreamNodesByCustomId(String encoding) {
+        this.encoding = encoding;
+        var client = new KaginawaClient(server.getEndpoint(), "12345");
+        try (var stream = client.streamNodesByCustomId("test-rpi")) {
+            assertEquals(Arrays.asList("test-rpi", "test-rpi", "test-rpi"),
+                    stream.map(Report::getCustomId).collect(Collectors.toList()));
+        } catch (KaginawaServerException e) {
+            fail(e);
+        }
+        assertTrue(client.getReceivedBytes() < client.getDecodedBytes());
+    }
+
+    @Test
+    public void testListNodesByCustomIdAsync() {
+        encoding = "gzip";
+        var client = new KaginawaClient(server.getEndpoint(), "12345");
+        try {
+            assertEquals(3, client.listNodesByCustomIdAsync("test-rpi").get().size());
+        } catch (InterruptedException | ExecutionException e) {
+            fail(e);
+        }
+    }
+
+    @Test
+    public void testCompressionDisabled() {
+        encoding = "gzip";
+        var client = KaginawaClient.Builder.newBuilder()
+                .endpoint(server.getEndpoint())
+                .apiKey("12345")
+                .compression(false)
+                .build();
+        assertFalse(client.isCompression());
+        try {
+            assertEquals(3, client.listNodesByCustomId("test-rpi").size());
+        } catch (KaginawaServerException e) {
+            fail(e);
+        }
+        assertNull(acceptEncoding);
+        assertEquals(nodes.length, client.getReceivedBytes());
+        assertEquals(nodes.length, client.getDecodedBytes());
+    }
+
+    @Test
+    public void testCorruptedBody() {
+        encoding = "gzip";
+        var compressed = new byte[0];
+        try {
+            compressed = compress(nodes, "gzip");
+        } catch (IOException e) {
+            fail(e);
+        }
+        compressed[compressed.length - 5] ^= 0x7f; // break the CRC trailer
+        var corrupted = compressed;
+        server.handle("/broken", exchange -> {
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            exchange.sendResponseHeaders(200, corrupted.length);
+            exchange.getResponseBody().write(corrupted);
+        });
+        var client = new KaginawaClient(server.getEndpoint() + "/broken", "12345");
+        assertThrows(KaginawaServerException.class, () -> client.listNodesByCustomId("test-rpi"));
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import com.sun.net.httpserver.HttpExchange;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+public class KaginawaClientErrorBodyTests {
+    private static final int MAX_SNIPPET = BodySnippet.MAX_LENGTH + 6;
+    private StubServer server;
+    private volatile int status;
+    private volatile byte[] body;
+    private volatile boolean gzip;
+
+    private String readFile(String filename) {
+        try {
+            return Files.readString(Paths.get(getClass().getResource("/" + filename).toURI()));
+        } catch (IOException | URISyntaxException | NullPointerException e) {
+            throw new RuntimeException("unable to read test file: " + filename, e);
+        }
+    }
+
+    private void respond(HttpExchange exchange) throws IOException {
+        var bytes = body;
+        if (gzip) {
+            var out = new ByteArrayOutputStream();
+            try (var compressor = new GZIPOutputStream(out)) {
+                compressor.write(bytes);
+            }
+            bytes = out.toByteArray();
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (var out = exchange.getResponseBody()) {
+            out.write(bytes);
+        } catch (IOException e) {
+            // the client may hang up on a large body
+        }
+    }
+
+    private String reports(int count) {
+        var node = readFile("node.json");
+        var builder = new StringBuilder("[");
+        for (int i = 0; i < count; i++) {
+            builder.append(i == 0 ? "" : ",").append(node);
+        }
+        return builder.append("]").toString();
+    }
+
+    private KaginawaClient.Builder newBuilder() {
+        return KaginawaClient.Builder.newBuilder()
+                .endpoint(server.getEndpoint())
+                .apiKey("12345")
+                .retryPolicy(RetryPolicy.Builder.newBuilder().initialBackoff(Duration.ofMillis(1)).build());
+    }
+
+    @BeforeEach
+    public void setUp() {
+        status = 200;
+        server = StubServer.start().handle("/nodes", this::respond);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.close();
+    }
+
+    @Test
+    public void testMalformedLargeBody() {
+        var text = "[{\"id\":\"" + "a".repeat(100_000) + "\"}}}]";
+        body = text.getBytes(StandardCharsets.UTF_8);
+        var client = newBuilder().build();
+        var e = assertThrows(KaginawaServerException.class, () -> client.listNodesByCustomId("test-rpi"));
+        assertEquals(-1, e.getHttpStatus());
+        assertEquals(body.length, e.getBodyLength());
+        assertTrue(e.getBodySnippet().length() <= MAX_SNIPPET, e.getBodySnippet());
+        assertTrue(e.getMessage().length() < MAX_SNIPPET + 100, e.getMessage());
+        assertTrue(e.getMessage().contains(body.length + " bytes"), e.getMessage());
+        assertTrue(e.getErrorOffset() >= -1 && e.getErrorOffset() < text.length());
+        if (e.getErrorOffset() >= 0) {
+            assertTrue(e.getBodySnippet().startsWith("..."), e.getBodySnippet()); // cut around the error
+        }
+    }
+
+    @Test
+    public void testMalformedSmallBody() {
+        body = readFile("not_a_json.txt").getBytes(StandardCharsets.UTF_8);
+        var client = newBuilder().build();
+        var e = assertThrows(KaginawaServerException.class, () -> client.findNodeById("b8:27:eb:73:90:9f"));
+        assertEquals(new String(body, StandardCharsets.UTF_8), e.getBodySnippet());
+        assertEquals(body.length, e.getBodyLength());
+    }
+
+    @Test
+    public void testErrorStatusLargeBody() {
+        status = 500;
+        body = "x".repeat(512 * 1024).getBytes(StandardCharsets.UTF_8);
+        var client = newBuilder().build();
+        var e = assertThrows(KaginawaServerException.class, () -> client.listNodesByCustomId("test-rpi"));
+        assertEquals(500, e.getHttpStatus());
+        assertEquals(body.length, e.getBodyLength());
+        assertEquals("x".repeat(BodySnippet.MAX_LENGTH) + "...", e.getBodySnippet());
+        assertEquals("HTTP 500 " + e.getBodySnippet(), e.getMessage());
+    }
+
+    @Test
+    public void testErrorStatusRunawayBody() {
+        status = 500;
+        body = new byte[4 * 1024 * 1024];
+        var client = newBuilder().build();
+        var e = assertThrows(KaginawaServerException.class, () -> client.streamNodesByCustomId("test-rpi"));
+        assertEquals(500, e.getHttpStatus());
+        assertEquals(-1, e.getBodyLength());
+        assertTrue(e.getMessage().length() <= MAX_SNIPPET + 10);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"jdk", "nio"})
+    public void testErrorStatusRunawayBodyAsync(String transport) {
+        status = 500;
+        body = new byte[4 * 1024 * 1024];
+        var client = newBuilder().transport(transport).retryPolicy(RetryPolicy.none()).build();
+        var e = assertThrows(ExecutionException.class, () -> client.listNodesByCustomIdAsync("test-rpi").get());
+        assertTrue(e.getCause() instanceof KaginawaServerException, String.valueOf(e.getCause()));
+        assertEquals(500, ((KaginawaServerException) e.getCause()).getHttpStatus());
+        assertEquals(-1, ((KaginawaServerException) e.getCause()).getBodyLength());
+    }
+
+    @Test
+    public void testErrorStatusBuffered() throws IOException {
+        var response = InMemoryTransport.response(500, new byte[4 * 1024 * 1024]);
+        var buffered = BufferedResponse.of(response, 0);
+        assertEquals(500, buffered.getStatusCode());
+        assertEquals(BodySnippet.MAX_DRAIN + 1, buffered.getBody().readAllBytes().length);
+    }
+
+    @Test
+    public void testExcerpt() {
+        var text = "\u3042".repeat(200) + "!" + "\ud83d\ude00".repeat(200);
+        var bytes = text.getBytes(StandardCharsets.UTF_8);
+        var at = 600; // the '!'
+        var excerpt = BodySnippet.excerpt(bytes, 0, bytes.length, at);
+        assertTrue(excerpt.startsWith("...\u3042"), excerpt);
+        assertTrue(excerpt.endsWith("\ud83d\ude00..."), excerpt);
+        assertTrue(excerpt.contains("!"), excerpt);
+        assertTrue(excerpt.getBytes(StandardCharsets.UTF_8).length <= BodySnippet.MAX_LENGTH + 6, excerpt);
+        assertEquals(-1, excerpt.indexOf('\ufffd'), excerpt); // no sequence is cut
+        assertEquals(text.indexOf('!'), BodySnippet.charCount(bytes, 0, at));
+        assertEquals(text.length(), BodySnippet.charCount(bytes, 0, bytes.length));
+        assertEquals("\u3042".repeat(85) + "...", BodySnippet.excerpt(bytes, 0, bytes.length, -1));
+    }
+
+    @Test
+    public void testErrorStatusSmallBody() {
+        status = 404;
+        body = "{\"error\":\"not found\"}".getBytes(StandardCharsets.UTF_8);
+        var client = newBuilder().build();
+        var e = assertThrows(KaginawaServerException.class, () -> client.findNodeById("b8:27:eb:73:90:9f"));
+        assertEquals("HTTP 404 {\"error\":\"not found\"}", e.getMessage());
+        assertEquals(body.length, e.getBodyLength());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"jdk", "nio"})
+    public void testMaxResponseSize(String transport) {
+        body = reports(100).getBytes(StandardCharsets.UTF_8);
+        var client = newBuilder().transport(transport).maxResponseSize(body.length - 1).build();
+        var e = assertThrows(KaginawaServerException.class, () -> client.listNodesByCustomId("test-rpi"));
+        assertTrue(e.getCause() instanceof ResponseTooLargeException, String.valueOf(e.getCause()));
+        assertEquals(body.length - 1, ((ResponseTooLargeException) e.getCause()).getMaxResponseSize());
+        assertEquals(1, server.getRequestCount()); // not retried
+
+        body = reports(3).getBytes(StandardCharsets.UTF_8);
+        try {
+            assertEquals(3, client.listNodesByCustomId("test-rpi").size());
+        } catch (KaginawaServerException ex) {
+            fail(ex);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"jdk", "nio"})
+    public void testMaxResponseSizeAsync(String transport) {
+        body = reports(100).getBytes(StandardCharsets.UTF_8);
+        var client = newBuilder().transport(transport).maxResponseSize(4096).build();
+        var e = assertThrows(ExecutionException.class, () -> client.listNodesByCustomIdAsync("test-rpi").get());
+        assertTrue(e.getCause() instanceof KaginawaServerException, String.valueOf(e.getCause()));
+        assertTrue(e.getCause().getCause() instanceof ResponseTooLargeException,
+                String.valueOf(e.getCause().getCause()));
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void testMaxResponseSizeStream() {
+        body = reports(100).getBytes(StandardCharsets.UTF_8);
+        var client = newBuilder().maxResponseSize(body.length / 2).build();
+        try (var stream = client.streamNodesByCustomId("test-rpi")) {
+            var e = assertThrows(UncheckedIOException.class, () -> stream.forEach(report -> {
+            }));
+            assertTrue(e.getCause() instanceof ResponseTooLargeException, String.valueOf(e.getCause()));
+        } catch (KaginawaServerException e) {
+            fail(e);
+        }
+    }
+
+    @Test
+    public void testMaxResponseSizeDecompressed() {
+        gzip = true;
+        body = new byte[8 * 1024 * 1024]; // compresses to a few KB
+        var client = newBuilder().maxResponseSize(1024 * 1024).build();
+        var e = assertThrows(KaginawaServerException.class, () -> client.listNodesByCustomId("test-rpi"));
+        assertTrue(e.getCause() instanceof ResponseTooLargeException, String.valueOf(e.getCause()));
+        assertTrue(client.getDecodedBytes() <= 1024 * 1024 + 64 * 1024, String.valueOf(client.getDecodedBytes()));
+    }
+
+    @Test
+    public void testInvalidMaxResponseSize() {
+        var builder = KaginawaClient.Builder.newBuilder();
+        assertThrows(IllegalArgumentException.class, () -> builder.maxResponseSize(0));
+        assertThrows(IllegalArgumentException.class, () -> builder.maxResponseSize(-1));
+    }
+}
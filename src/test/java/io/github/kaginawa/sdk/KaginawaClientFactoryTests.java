@@ -0,0 +1,127 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.ProxySelector;
+import java.net.URISyntaxException;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class KaginawaClientFactoryTests {
+    private static final String ID = "b8:27:eb:73:90:9f";
+
+    private String readFile(String filename) {
+        try {
+            return Files.readString(Paths.get(getClass().getResource("/" + filename).toURI()));
+        } catch (IOException | URISyntaxException | NullPointerException e) {
+            throw new RuntimeException("unable to read test file: " + filename, e);
+        }
+    }
+
+    @Test
+    public void testNewClient() throws KaginawaServerException {
+        var node = readFile("node.json").getBytes(StandardCharsets.UTF_8);
+        var transport = new InMemoryTransport(InMemoryTransport.respond(200, node));
+        var factory = KaginawaClient.Builder.newBuilder().transport(transport).buildFactory();
+        var a = factory.newClient("https://a.example.com", "key-a");
+        var b = factory.newClient(List.of("https://b1.example.com"), "key-b");
+        assertEquals(ID, a.findNodeById(ID).getId());
+        assertEquals(ID, b.findNodeById(ID).getId());
+        assertSame(transport, a.getTransport());
+        assertSame(transport, b.getTransport());
+        var requests = transport.getRequests();
+        assertEquals(2, requests.size());
+        assertEquals("a.example.com", requests.get(0).getUri().getHost());
+        assertEquals(List.of("token key-a"), requests.get(0).getHeaders().get("Authorization"));
+        assertEquals("b1.example.com", requests.get(1).getUri().getHost());
+        assertEquals(List.of("token key-b"), requests.get(1).getHeaders().get("Authorization"));
+    }
+
+    @Test
+    public void testSharedTransport() {
+        var factory = KaginawaClient.Builder.newBuilder()
+                .endpoint("https://ignored.example.com")
+                .apiKey("ignored")
+                .version(HttpClient.Version.HTTP_1_1)
+                .buildFactory();
+        var a = factory.newClient("https://a.example.com", "key-a");
+        var b = factory.newClient("https://b.example.com", "key-b");
+        assertSame(a.getTransport(), b.getTransport());
+        assertEquals(List.of("https://a.example.com"), a.getEndpoints());
+        var c = KaginawaClient.Builder.newBuilder().endpoint("https://a.example.com").apiKey("key-a").build();
+        assertNotSame(a.getTransport(), c.getTransport());
+    }
+
+    @Test
+    public void testNewBuilder() {
+        var factory = KaginawaClient.Builder.newBuilder()
+                .timeout(Operation.FIND_NODE_BY_ID, Duration.ofSeconds(3))
+                .buildFactory();
+        var a = factory.newBuilder()
+                .endpoint("https://a.example.com")
+                .apiKey("key-a")
+                .timeout(Operation.LIST_HISTORIES, Duration.ofMinutes(1))
+                .build();
+        var b = factory.newClient("https://b.example.com", "key-b");
+        assertSame(a.getTransport(), b.getTransport());
+        assertEquals(Duration.ofSeconds(3), a.getTimeout(Operation.FIND_NODE_BY_ID));
+        assertEquals(Duration.ofMinutes(1), a.getTimeout(Operation.LIST_HISTORIES));
+        assertEquals(Duration.ofSeconds(3), b.getTimeout(Operation.FIND_NODE_BY_ID));
+        assertEquals(Duration.ofSeconds(30), b.getTimeout(Operation.LIST_HISTORIES));
+        assertThrows(IllegalStateException.class, () -> factory.newBuilder()
+                .endpoint("https://c.example.com")
+                .apiKey("key-c")
+                .connectTimeout(Duration.ofSeconds(1))
+                .build());
+    }
+
+    @Test
+    public void testNewClient_NPE() {
+        var factory = KaginawaClient.Builder.newBuilder().buildFactory();
+        assertThrows(NullPointerException.class, () -> factory.newClient((String) null, "key"));
+        assertThrows(NullPointerException.class, () -> factory.newClient("https://a.example.com", null));
+    }
+
+    @Test
+    public void testNewClient_IAE() {
+        var factory = KaginawaClient.Builder.newBuilder().buildFactory();
+        assertThrows(IllegalArgumentException.class, () -> factory.newClient("", "key"));
+        assertThrows(IllegalArgumentException.class, () -> factory.newClient("ftp://a.example.com", "key"));
+        assertThrows(IllegalArgumentException.class, () -> factory.newClient("https://a.example.com", ""));
+    }
+
+    @Test
+    public void testBuildFactory_ISE() {
+        assertThrows(IllegalStateException.class,
+                () -> KaginawaClient.Builder.newBuilder().transport("no-such-transport").buildFactory());
+        assertThrows(IllegalStateException.class, () -> KaginawaClient.Builder.newBuilder()
+                .httpClient(HttpClient.newHttpClient())
+                .proxy(ProxySelector.getDefault())
+                .buildFactory());
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+public class KaginawaClientHedgingTests {
+    private static final String ID = "02:00:00:00:00:01";
+    private final AtomicBoolean stallNext = new AtomicBoolean();
+    private StubServer server;
+    private StubServer other;
+
+    private String readFile(String filename) {
+        try {
+            return Files.readString(Paths.get(getClass().getResource("/" + filename).toURI()));
+        } catch (IOException | URISyntaxException | NullPointerException e) {
+            throw new RuntimeException("unable to read test file: " + filename, e);
+        }
+    }
+
+    @BeforeEach
+    public void setUp() {
+        var node = readFile("node.json");
+        server = StubServer.start().handle("/nodes", exchange -> {
+            if (stallNext.compareAndSet(true, false)) {
+                try {
+                    Thread.sleep(2000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            StubServer.respond(exchange, 200, node);
+        });
+        other = StubServer.start().handle("/nodes", exchange -> StubServer.respond(exchange, 200, node));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.close();
+        other.close();
+    }
+
+    private static HedgePolicy.Builder policy() {
+        return HedgePolicy.Builder.newBuilder().minimumSamples(10).maxHedgeRatio(1).minDelay(Duration.ofMillis(200));
+    }
+
+    private static void warmUp(KaginawaClient client) {
+        try {
+            for (int i = 0; i < 20; i++) {
+                client.findNodeById(ID);
+            }
+        } catch (KaginawaServerException e) {
+            fail(e);
+        }
+    }
+
+    @Test
+    public void testHedge() {
+        var client = KaginawaClient.Builder.newBuilder()
+                .endpoint(server.getEndpoint())
+                .apiKey("12345")
+                .hedging(policy().build())
+                .build();
+        warmUp(client);
+        assertEquals(0, client.getHedgeCount());
+        stallNext.set(true);
+        var start = System.nanoTime();
+        try {
+            assertNotNull(client.findNodeById(ID));
+        } catch (KaginawaServerException e) {
+            fail(e);
+        }
+        var elapsed = Duration.ofNanos(System.nanoTime() - start);
+        assertTrue(elapsed.toMillis() < 1000, "elapsed: " + elapsed);
+        assertEquals(1, client.getHedgeCount());
+        assertEquals(22, server.getRequestCount());
+    }
+
+    @Test
+    public void testHedgeWins() throws InterruptedException, ExecutionException, TimeoutException {
+        var client = KaginawaClient.Builder.newBuilder()
+                .endpoints(Arrays.asList(server.getEndpoint(), other.getEndpoint()))
+                .apiKey("12345")
+                .hedging(policy().build())
+                .build();
+        warmUp(client);
+        var hedges = client.getHedgeCount();
+        var wins = client.getHedgeWins();
+        server.latency(Duration.ofSeconds(2));
+        for (int i = 0; i < 10; i++) {
+            assertNotNull(client.findNodeByIdAsync(ID).get(1, TimeUnit.SECONDS)); // hedged to the other endpoint
+        }
+        assertTrue(client.getHedgeCount() > hedges);
+        assertTrue(client.getHedgeWins() > wins);
+    }
+
+    @Test
+    public void testBudget() {
+        var client = KaginawaClient.Builder.newBuilder()
+                .endpoint(server.getEndpoint())
+                .apiKey("12345")
+                .hedging(policy().maxHedgeRatio(0.01).build())
+                .build();
+        warmUp(client);
+        var hedges = client.getHedgeCount();
+        server.latency(Duration.ofMillis(300));
+        try {
+            for (int i = 0; i < 3; i++) {
+                client.findNodeById(ID);
+            }
+        } catch (KaginawaServerException e) {
+            fail(e);
+        }
+        assertEquals(hedges + 1, client.getHedgeCount());
+    }
+
+    @Test
+    public void testDisabled() {
+        var client = new KaginawaClient(server.getEndpoint(), "12345");
+        warmUp(client);
+        stallNext.set(true);
+        try {
+            client.findNodeById(ID);
+        } catch (KaginawaServerException e) {
+            fail(e);
+        }
+        assertEquals(0, client.getHedgeCount());
+        assertEquals(21, server.getRequestCount());
+    }
+
+    @Test
+    public void testPolicy_IAE() {
+        var builder = HedgePolicy.Builder.newBuilder();
+        assertThrows(IllegalArgumentException.class, () -> builder.percentile(1));
+        assertThrows(IllegalArgumentException.class, () -> builder.maxHedgeRatio(0));
+        assertThrows(IllegalArgumentException.class, () -> builder.windowSize(0));
+        assertThrows(IllegalArgumentException.class, () -> builder.minDelay(Duration.ofMillis(-1)));
+        assertThrows(NullPointerException.class, () -> builder.minDelay(null));
+        assertThrows(IllegalStateException.class, () -> builder.windowSize(5).minimumSamples(6).build());
+    }
+}
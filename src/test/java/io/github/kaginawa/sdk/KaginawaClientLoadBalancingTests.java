@@ -0,0 +1,202 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+public class KaginawaClientLoadBalancingTests {
+    private static final String ID = "02:00:00:00:00:01";
+    private StubServer fast;
+    private StubServer medium;
+    private StubServer slow;
+    private volatile boolean fastFailing;
+
+    private String readFile(String filename) {
+        try {
+            return Files.readString(Paths.get(getClass().getResource("/" + filename).toURI()));
+        } catch (IOException | URISyntaxException | NullPointerException e) {
+            throw new RuntimeException("unable to read test file: " + filename, e);
+        }
+    }
+
+    private static StubServer startServer(String body, long latencyMillis) {
+        return StubServer.start()
+                .latency(Duration.ofMillis(latencyMillis))
+                .handle("/nodes", exchange -> StubServer.respond(exchange, 200, body));
+    }
+
+    @BeforeEach
+    public void setUp() {
+        var node = readFile("node.json");
+        fast = StubServer.start().handle("/nodes", exchange -> {
+            if (fastFailing) {
+                StubServer.respond(exchange, 500, "internal server error");
+            } else {
+                StubServer.respond(exchange, 200, node);
+            }
+        });
+        medium = startServer(node, 50);
+        slow = startServer(node, 200);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        fast.close();
+        medium.close();
+        slow.close();
+    }
+
+    @Test
+    public void testLatencyAware() {
+        try {
+            new KaginawaClient(medium.getEndpoint(), "12345").findNodeById(ID); // warm up the JVM, not the replicas
+        } catch (KaginawaServerException e) {
+            fail(e);
+        }
+        var mediumBefore = medium.getRequestCount();
+        var client = KaginawaClient.Builder.newBuilder()
+                .endpoints(Arrays.asList(slow.getEndpoint(), medium.getEndpoint(), fast.getEndpoint()))
+                .apiKey("12345")
+                .build();
+        assertEquals(slow.getEndpoint(), client.getEndpoint());
+        assertEquals(3, client.getEndpoints().size());
+        try {
+            for (int i = 0; i < 60; i++) {
+                client.findNodeById(ID);
+            }
+        } catch (KaginawaServerException e) {
+            fail(e);
+        }
+        var mediumCount = medium.getRequestCount() - mediumBefore;
+        assertTrue(slow.getRequestCount() <= 3, "slow: " + slow.getRequestCount());
+        assertTrue(fast.getRequestCount() > mediumCount,
+                "fast: " + fast.getRequestCount() + ", medium: " + mediumCount);
+    }
+
+    @Test
+    public void testFailover() {
+        var down = StubServer.start();
+        var downEndpoint = down.getEndpoint();
+        down.close(); // connection refused
+        var client = KaginawaClient.Builder.newBuilder()
+                .endpoints(Arrays.asList(downEndpoint, medium.getEndpoint()))
+                .apiKey("12345")
+                .retryPolicy(RetryPolicy.Builder.newBuilder().initialBackoff(Duration.ZERO).build())
+                .build();
+        try {
+            for (int i = 0; i < 10; i++) {
+                client.findNodeById(ID);
+            }
+        } catch (KaginawaServerException e) {
+            fail(e);
+        }
+        assertEquals(10, medium.getRequestCount());
+        assertEquals(List.of(medium.getEndpoint()), client.getHealthyEndpoints());
+    }
+
+    @Test
+    public void testProbe() throws InterruptedException {
+        fastFailing = true;
+        var client = KaginawaClient.Builder.newBuilder()
+                .endpoints(Arrays.asList(fast.getEndpoint(), medium.getEndpoint()))
+                .apiKey("12345")
+                .probeInterval(Duration.ofMillis(200))
+                .build();
+        for (int i = 0; i < 50 && client.getHealthyEndpoints().size() == 2; i++) {
+            try {
+                client.findNodeById(ID);
+            } catch (KaginawaServerException e) {
+                assertEquals(500, e.getHttpStatus());
+            }
+        }
+        assertEquals(List.of(medium.getEndpoint()), client.getHealthyEndpoints());
+
+        var dropped = fast.getRequestCount();
+        fastFailing = false;
+        Thread.sleep(250);
+        try {
+            client.findNodeById(ID); // probe
+        } catch (KaginawaServerException e) {
+            fail(e);
+        }
+        assertEquals(dropped + 1, fast.getRequestCount());
+        assertEquals(Arrays.asList(fast.getEndpoint(), medium.getEndpoint()), client.getHealthyEndpoints());
+    }
+
+    @Test
+    public void testAllDown() {
+        var down = StubServer.start();
+        var downEndpoint = down.getEndpoint();
+        down.close();
+        var client = KaginawaClient.Builder.newBuilder()
+                .endpoints(Arrays.asList(downEndpoint, downEndpoint.replace("127.0.0.1", "localhost")))
+                .apiKey("12345")
+                .build();
+        for (int i = 0; i < 5; i++) {
+            var e = assertThrows(KaginawaServerException.class, () -> client.findNodeById(ID));
+            assertTrue(e.getCause() instanceof IOException);
+        }
+        assertEquals(Collections.emptyList(), client.getHealthyEndpoints());
+    }
+
+    @Test
+    public void testAsync() {
+        try {
+            new KaginawaClient(medium.getEndpoint(), "12345").findNodeByIdAsync(ID).get();
+        } catch (Exception e) {
+            fail(e);
+        }
+        var client = KaginawaClient.Builder.newBuilder()
+                .endpoints(Arrays.asList(fast.getEndpoint(), slow.getEndpoint()))
+                .apiKey("12345")
+                .build();
+        try {
+            for (int i = 0; i < 20; i++) {
+                client.findNodeByIdAsync(ID).get();
+            }
+        } catch (Exception e) {
+            fail(e);
+        }
+        assertTrue(slow.getRequestCount() <= 3, "slow: " + slow.getRequestCount());
+    }
+
+    @Test
+    public void testBuilder_IAE() {
+        var builder = KaginawaClient.Builder.newBuilder();
+        assertThrows(IllegalArgumentException.class, () -> builder.endpoints(Collections.emptyList()));
+        assertThrows(IllegalArgumentException.class, () -> builder.endpoints(List.of("ftp://example.com")));
+        assertThrows(IllegalArgumentException.class,
+                () -> builder.endpoints(List.of("https://example.com", "https://example.com")));
+        assertThrows(NullPointerException.class, () -> builder.endpoints(Arrays.asList("https://example.com", null)));
+        assertThrows(IllegalArgumentException.class, () -> builder.probeInterval(Duration.ZERO));
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.ProxySelector;
+import java.net.ServerSocket;
+import java.net.URISyntaxException;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class KaginawaClientPipeliningTests {
+    private static final String ID = "b8:27:eb:73:90:9f";
+    private String node;
+    private StubServer server;
+
+    private String readFile(String filename) {
+        try {
+            return Files.readString(Paths.get(getClass().getResource("/" + filename).toURI()));
+        } catch (IOException | URISyntaxException | NullPointerException e) {
+            throw new RuntimeException("unable to read test file: " + filename, e);
+        }
+    }
+
+    private KaginawaClient.Builder newBuilder(String endpoint) {
+        return KaginawaClient.Builder.newBuilder().endpoint(endpoint).apiKey("12345").transport("nio");
+    }
+
+    @BeforeEach
+    public void setUp() {
+        node = readFile("node.json");
+        server = StubServer.start().handle("/nodes", exchange -> {
+            if (exchange.getRequestURI().getPath().endsWith("/command")) {
+                var body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+                StubServer.respond(exchange, 200, body.contains("command=uptime") ? "ok" : "bad request");
+            } else {
+                StubServer.respond(exchange, 200, node);
+            }
+        });
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.close();
+    }
+
+    @Test
+    public void testFindNodeById() throws KaginawaServerException {
+        var client = newBuilder(server.getEndpoint()).build();
+        assertEquals(ID, client.findNodeById(ID).getId());
+        assertEquals(ID, client.findNodeById(ID).getId());
+    }
+
+    @Test
+    public void testCommand() throws KaginawaServerException {
+        var client = newBuilder(server.getEndpoint()).build();
+        assertEquals("ok", client.command(ID, "uptime", "pi", null, null, 2));
+    }
+
+    @Test
+    public void testConcurrentRequests() throws InterruptedException, ExecutionException, TimeoutException {
+        var client = newBuilder(server.getEndpoint()).maxConnections(2).build();
+        var futures = new ArrayList<CompletableFuture<Report>>();
+        for (int i = 0; i < 200; i++) {
+            futures.add(client.findNodeByIdAsync(ID));
+        }
+        for (var future : futures) {
+            assertEquals(ID, future.get(10, TimeUnit.SECONDS).getId());
+        }
+        assertEquals(200, server.getRequestCount());
+    }
+
+    @Test
+    public void testPipelining() throws Exception {
+        try (var raw = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            var client = newBuilder("http://127.0.0.1:" + raw.getLocalPort()).maxConnections(1).build();
+            var futures = List.of(client.findNodeByIdAsync(ID), client.findNodeByIdAsync(ID),
+                    client.findNodeByIdAsync(ID));
+            try (var socket = raw.accept()) {
+                readRequests(socket.getInputStream(), 3); // all sent before any response
+                var out = socket.getOutputStream();
+                out.write(fixedResponse(node, false));
+                out.write(chunkedResponse(node));
+                out.write(fixedResponse(node, false));
+                for (var future : futures) {
+                    assertEquals(ID, future.get(5, TimeUnit.SECONDS).getId());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testResendAfterClose() throws Exception {
+        try (var raw = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            var client = newBuilder("http://127.0.0.1:" + raw.getLocalPort()).maxConnections(1).build();
+            var first = client.findNodeByIdAsync(ID);
+            var second = client.findNodeByIdAsync(ID);
+            try (var socket = raw.accept()) {
+                readRequests(socket.getInputStream(), 2);
+                socket.getOutputStream().write(fixedResponse(node, true)); // the second is left unanswered
+            }
+            assertEquals(ID, first.get(5, TimeUnit.SECONDS).getId());
+            try (var socket = raw.accept()) {
+                readRequests(socket.getInputStream(), 1);
+                socket.getOutputStream().write(fixedResponse(node, false));
+                assertEquals(ID, second.get(5, TimeUnit.SECONDS).getId());
+            }
+        }
+    }
+
+    @Test
+    public void testTimeout() throws KaginawaServerException {
+        server.latency(Duration.ofSeconds(2));
+        var client = newBuilder(server.getEndpoint()).maxConnections(1).timeout(Duration.ofMillis(300)).build();
+        assertThrows(KaginawaTimeoutException.class, () -> client.findNodeById(ID));
+        server.latency(Duration.ZERO);
+        assertEquals(ID, client.findNodeById(ID).getId()); // on a new connection
+    }
+
+    @Test
+    public void testUnresolvedHost() {
+        var client = newBuilder("http://kaginawa.invalid").build();
+        assertThrows(KaginawaServerException.class, () -> client.findNodeById(ID));
+    }
+
+    @Test
+    public void testBuilder_IAE() {
+        assertThrows(IllegalArgumentException.class, () -> KaginawaClient.Builder.newBuilder().maxConnections(0));
+    }
+
+    @Test
+    public void testBuilder_ISE() {
+        assertThrows(IllegalStateException.class,
+                () -> newBuilder(server.getEndpoint()).proxy(ProxySelector.getDefault()).build());
+        assertThrows(IllegalStateException.class,
+                () -> newBuilder(server.getEndpoint()).version(HttpClient.Version.HTTP_2).build());
+        assertThrows(IllegalStateException.class, () -> KaginawaClient.Builder.newBuilder()
+                .endpoint(server.getEndpoint())
+                .apiKey("12345")
+                .httpClient(HttpClient.newHttpClient())
+                .maxConnections(2)
+                .build());
+    }
+
+    private static void readRequests(InputStream in, int count) throws IOException {
+        var received = new StringBuilder();
+        while (received.toString().split("\r\n\r\n", -1).length <= count) {
+            int c = in.read();
+            if (c < 0) {
+                throw new IOException("connection closed after " + received);
+            }
+            received.append((char) c);
+        }
+    }
+
+    private static byte[] fixedResponse(String body, boolean close) {
+        var bytes = body.getBytes(StandardCharsets.UTF_8);
+        var head = "HTTP/1.1 200 OK\r\nContent-Type: application/json\r\nContent-Length: " + bytes.length + "\r\n"
+                + (close ? "Connection: close\r\n" : "") + "\r\n";
+        var out = new ByteArrayOutputStream();
+        out.writeBytes(head.getBytes(StandardCharsets.US_ASCII));
+        out.writeBytes(bytes);
+        return out.toByteArray();
+    }
+
+    private static byte[] chunkedResponse(String body) {
+        var bytes = body.getBytes(StandardCharsets.UTF_8);
+        int half = bytes.length / 2;
+        var out = new ByteArrayOutputStream();
+        out.writeBytes(("HTTP/1.1 200 OK\r\nContent-Type: application/json\r\nTransfer-Encoding: chunked\r\n\r\n"
+                + Integer.toHexString(half) + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.write(bytes, 0, half);
+        out.writeBytes(("\r\n" + Integer.toHexString(bytes.length - half) + ";ext=1\r\n")
+                .getBytes(StandardCharsets.US_ASCII));
+        out.write(bytes, half, bytes.length - half);
+        out.writeBytes("\r\n0\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+        return out.toByteArray();
+    }
+}
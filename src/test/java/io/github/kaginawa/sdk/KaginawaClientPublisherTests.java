@@ -0,0 +1,229 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class KaginawaClientPublisherTests {
+    private static final String ID = "02:00:00:00:00:01";
+    private static final long BEGIN = 1591315200;
+    private static final long DAY = 86400;
+    private static final long INTERVAL = 600;
+    private static final int REPORTS_PER_DAY = (int) (DAY / INTERVAL);
+    private volatile int status = 200;
+    private volatile boolean nullIfEmpty;
+    private StubServer server;
+    private KaginawaClient client;
+
+    @BeforeEach
+    public void setUp() {
+        server = StubServer.start().handle("/nodes", exchange -> {
+            if (status != 200) {
+                StubServer.respond(exchange, status, "unavailable");
+                return;
+            }
+            long begin = 0;
+            long end = Long.MAX_VALUE;
+            for (var param : exchange.getRequestURI().getQuery().split("&")) {
+                if (param.startsWith("begin=")) {
+                    begin = Long.parseLong(param.substring(6));
+                } else if (param.startsWith("end=")) {
+                    end = Long.parseLong(param.substring(4));
+                }
+            }
+            var body = new StringJoiner(",", "[", "]");
+            for (int i = 3 * REPORTS_PER_DAY - 1; i >= 0; i--) { // newest first
+                var time = BEGIN + i * INTERVAL;
+                if (time >= begin && time <= end) {
+                    body.add("{\"id\":\"" + ID + "\",\"seq\":" + i + ",\"server_time\":" + time + "}");
+                }
+            }
+            StubServer.respond(exchange, 200, nullIfEmpty && body.length() == 2 ? "null" : body.toString());
+        });
+        client = KaginawaClient.Builder.newBuilder().endpoint(server.getEndpoint()).apiKey("12345").build();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.close();
+    }
+
+    @Test
+    public void testPublishAll() throws InterruptedException {
+        var subscriber = new TestSubscriber();
+        client.publishHistories(ID, BEGIN, BEGIN + 3 * DAY - 1).subscribe(subscriber);
+        subscriber.subscription.request(Long.MAX_VALUE);
+        assertTrue(subscriber.done.await(10, TimeUnit.SECONDS));
+        assertNull(subscriber.error);
+        assertEquals(3 * REPORTS_PER_DAY, subscriber.items.size());
+        for (int i = 0; i < subscriber.items.size(); i++) {
+            assertEquals(BEGIN + i * INTERVAL, subscriber.items.get(i).getServerTimeAsLong());
+        }
+        assertEquals(3, server.getRequestCount());
+    }
+
+    @Test
+    public void testWindowBoundaries() throws InterruptedException {
+        var subscriber = new TestSubscriber();
+        client.publishHistories(ID, BEGIN + INTERVAL, BEGIN + DAY, Duration.ofHours(3)).subscribe(subscriber);
+        subscriber.subscription.request(Long.MAX_VALUE);
+        assertTrue(subscriber.done.await(10, TimeUnit.SECONDS));
+        assertEquals(REPORTS_PER_DAY, subscriber.items.size());
+        assertEquals(BEGIN + INTERVAL, subscriber.items.get(0).getServerTimeAsLong());
+        assertEquals(BEGIN + DAY, subscriber.items.get(REPORTS_PER_DAY - 1).getServerTimeAsLong());
+    }
+
+    @Test
+    public void testFetchOnDemand() throws InterruptedException {
+        var subscriber = new TestSubscriber();
+        var publisher = client.publishHistories(ID, BEGIN, BEGIN + 3 * DAY - 1);
+        assertEquals(0, server.getRequestCount());
+        publisher.subscribe(subscriber);
+        Thread.sleep(100);
+        assertEquals(0, server.getRequestCount());
+        subscriber.subscription.request(1);
+        subscriber.await(1);
+        assertEquals(1, server.getRequestCount());
+        subscriber.subscription.request(REPORTS_PER_DAY - 1);
+        subscriber.await(REPORTS_PER_DAY);
+        Thread.sleep(100);
+        assertEquals(1, server.getRequestCount());
+        subscriber.subscription.request(1);
+        subscriber.await(REPORTS_PER_DAY + 1);
+        assertEquals(2, server.getRequestCount());
+        assertEquals(1, subscriber.done.getCount());
+    }
+
+    @Test
+    public void testCancel() throws InterruptedException {
+        var subscriber = new TestSubscriber();
+        client.publishHistories(ID, BEGIN, BEGIN + 3 * DAY - 1).subscribe(subscriber);
+        subscriber.subscription.request(1);
+        subscriber.await(1);
+        subscriber.subscription.cancel();
+        subscriber.subscription.request(Long.MAX_VALUE);
+        Thread.sleep(100);
+        assertEquals(1, subscriber.items.size());
+        assertEquals(1, server.getRequestCount());
+        assertEquals(1, subscriber.done.getCount());
+    }
+
+    @Test
+    public void testError() throws InterruptedException {
+        status = 500;
+        var subscriber = new TestSubscriber();
+        client.publishHistories(ID, BEGIN, BEGIN + 3 * DAY - 1).subscribe(subscriber);
+        subscriber.subscription.request(10);
+        assertTrue(subscriber.done.await(10, TimeUnit.SECONDS));
+        assertTrue(subscriber.error instanceof KaginawaServerException);
+        assertTrue(subscriber.items.isEmpty());
+    }
+
+    @Test
+    public void testNullWindow() throws InterruptedException {
+        nullIfEmpty = true;
+        var subscriber = new TestSubscriber();
+        client.publishHistories(ID, BEGIN + 2 * DAY, BEGIN + 4 * DAY - 1).subscribe(subscriber);
+        subscriber.subscription.request(Long.MAX_VALUE);
+        assertTrue(subscriber.done.await(10, TimeUnit.SECONDS));
+        assertNull(subscriber.error);
+        assertEquals(REPORTS_PER_DAY, subscriber.items.size());
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void testNonPositiveRequest() throws InterruptedException {
+        var subscriber = new TestSubscriber();
+        client.publishHistories(ID, BEGIN, BEGIN + 3 * DAY - 1).subscribe(subscriber);
+        subscriber.subscription.request(0);
+        assertTrue(subscriber.done.await(10, TimeUnit.SECONDS));
+        assertTrue(subscriber.error instanceof IllegalArgumentException);
+        assertEquals(0, server.getRequestCount());
+    }
+
+    @Test
+    public void testResubscribe() throws InterruptedException {
+        var publisher = client.publishHistories(ID, BEGIN, BEGIN + DAY - 1);
+        for (int i = 0; i < 2; i++) {
+            var subscriber = new TestSubscriber();
+            publisher.subscribe(subscriber);
+            subscriber.subscription.request(Long.MAX_VALUE);
+            assertTrue(subscriber.done.await(10, TimeUnit.SECONDS));
+            assertEquals(REPORTS_PER_DAY, subscriber.items.size());
+        }
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        assertThrows(NullPointerException.class, () -> client.publishHistories(null, BEGIN, 0));
+        assertThrows(IllegalArgumentException.class, () -> client.publishHistories("", BEGIN, 0));
+        assertThrows(IllegalArgumentException.class, () -> client.publishHistories(ID, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> client.publishHistories(ID, BEGIN, BEGIN - 1));
+        assertThrows(IllegalArgumentException.class,
+                () -> client.publishHistories(ID, BEGIN, 0, Duration.ofMillis(500)));
+    }
+
+    private static class TestSubscriber implements Flow.Subscriber<Report> {
+        final List<Report> items = new CopyOnWriteArrayList<>();
+        final CountDownLatch done = new CountDownLatch(1);
+        volatile Flow.Subscription subscription;
+        volatile Throwable error;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(Report item) {
+            items.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            done.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            done.countDown();
+        }
+
+        void await(int count) throws InterruptedException {
+            var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (items.size() < count && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(count, items.size());
+        }
+    }
+}
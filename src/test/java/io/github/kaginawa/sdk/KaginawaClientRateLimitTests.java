@@ -0,0 +1,254 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+public class KaginawaClientRateLimitTests {
+    private static final String ID = "02:00:00:00:00:01";
+    private static final long INTERVAL = TimeUnit.MILLISECONDS.toNanos(100);
+    private StubServer server;
+
+    private String readFile(String filename) {
+        try {
+            return Files.readString(Paths.get(getClass().getResource("/" + filename).toURI()));
+        } catch (IOException | URISyntaxException | NullPointerException e) {
+            throw new RuntimeException("unable to read test file: " + filename, e);
+        }
+    }
+
+    private KaginawaClient newClient(RateLimitPolicy policy) {
+        return KaginawaClient.Builder.newBuilder()
+                .endpoint(server.getEndpoint())
+                .apiKey("12345")
+                .rateLimit(policy)
+                .build();
+    }
+
+    @BeforeEach
+    public void setUp() {
+        var node = readFile("node.json");
+        var histories = readFile("histories_9.json");
+        server = StubServer.start().handle("/nodes", exchange -> {
+            var path = exchange.getRequestURI().getPath();
+            StubServer.respond(exchange, 200, path.endsWith("/histories") ? histories : node);
+        });
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.close();
+    }
+
+    @Test
+    public void testTokenBucket() {
+        var now = new long[]{0};
+        var bucket = new TokenBucket(10, 3, () -> now[0]);
+        assertEquals(0, bucket.reserve());
+        assertEquals(0, bucket.reserve());
+        assertEquals(0, bucket.reserve());
+        assertEquals(INTERVAL, bucket.reserve());
+        assertEquals(2 * INTERVAL, bucket.reserve());
+        now[0] += TimeUnit.SECONDS.toNanos(1); // refilled up to the burst, not beyond
+        assertEquals(0, bucket.reserve());
+        assertEquals(0, bucket.reserve());
+        assertEquals(0, bucket.reserve());
+        assertEquals(INTERVAL, bucket.reserve());
+    }
+
+    @Test
+    public void testTokenBucket_Timeout() {
+        var bucket = new TokenBucket(10, 1, () -> 0);
+        assertEquals(0, bucket.reserve(0));
+        assertEquals(-1, bucket.reserve(INTERVAL - 1));
+        assertEquals(-1, bucket.reserve(0));
+        assertEquals(INTERVAL, bucket.reserve(INTERVAL));
+        bucket.release();
+        assertEquals(INTERVAL, bucket.reserve());
+    }
+
+    @Test
+    public void testTokenBucket_Concurrent() throws InterruptedException {
+        var bucket = new TokenBucket(10, 1, () -> 0);
+        var waits = new ConcurrentLinkedQueue<Long>();
+        var pool = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 8; i++) {
+            pool.execute(() -> {
+                for (int j = 0; j < 1000; j++) {
+                    waits.add(bucket.reserve());
+                }
+            });
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        var expected = LongStream.range(0, 8000).map(i -> i * INTERVAL).boxed().collect(Collectors.toSet());
+        assertEquals(expected, new HashSet<>(waits)); // no permit is lost or granted twice
+    }
+
+    @Test
+    public void testRateLimit_Operation() {
+        var client = newClient(RateLimitPolicy.Builder.newBuilder().limit(Operation.FIND_NODE_BY_ID, 20, 1).build());
+        var start = System.nanoTime();
+        try {
+            for (int i = 0; i < 5; i++) {
+                client.findNodeById(ID);
+            }
+        } catch (KaginawaServerException e) {
+            fail(e);
+        }
+        assertTrue(System.nanoTime() - start >= Duration.ofMillis(190).toNanos());
+    }
+
+    @Test
+    public void testRateLimiter() {
+        var policy = RateLimitPolicy.Builder.newBuilder()
+                .limit(20, 3)
+                .limit(Operation.FIND_NODE_BY_ID, 10, 1)
+                .build();
+        var limiter = new RateLimiter(policy, () -> 0);
+        assertEquals(0, limiter.reserve(Operation.FIND_NODE_BY_ID));
+        assertEquals(INTERVAL, limiter.reserve(Operation.FIND_NODE_BY_ID));
+        assertEquals(0, limiter.reserve(Operation.LIST_HISTORIES)); // client-wide bucket only
+        assertEquals(INTERVAL / 2, limiter.reserve(Operation.LIST_HISTORIES));
+        assertEquals(0, new RateLimiter(RateLimitPolicy.unlimited(), () -> 0).reserve(Operation.COMMAND));
+    }
+
+    @Test
+    public void testRateLimiter_Timeout() throws InterruptedException {
+        var policy = RateLimitPolicy.Builder.newBuilder()
+                .limit(20, 1)
+                .limit(Operation.FIND_NODE_BY_ID, 10, 1)
+                .build();
+        var limiter = new RateLimiter(policy, () -> 0);
+        assertTrue(limiter.acquire(Operation.FIND_NODE_BY_ID, 0));
+        for (int i = 0; i < 10; i++) {
+            assertFalse(limiter.acquire(Operation.FIND_NODE_BY_ID, INTERVAL / 2)); // takes no permit
+        }
+        assertEquals(INTERVAL / 2, limiter.reserve(Operation.LIST_HISTORIES));
+        assertEquals(INTERVAL, limiter.reserve(Operation.FIND_NODE_BY_ID));
+    }
+
+    @Test
+    public void testRateLimiter_ScheduleTimeout() throws InterruptedException {
+        var policy = RateLimitPolicy.Builder.newBuilder()
+                .limit(20, 1)
+                .limit(Operation.FIND_NODE_BY_ID, 10, 1)
+                .build();
+        var limiter = new RateLimiter(policy, () -> 0);
+        var calls = new AtomicInteger();
+        Supplier<CompletableFuture<String>> call = () -> {
+            calls.incrementAndGet();
+            return CompletableFuture.completedFuture("OK");
+        };
+        assertTrue(limiter.acquire(Operation.FIND_NODE_BY_ID, 0));
+        for (int i = 0; i < 10; i++) {
+            var future = limiter.schedule(Operation.FIND_NODE_BY_ID, Deadline.after(Duration.ofMillis(50)), call);
+            var e = assertThrows(ExecutionException.class, future::get); // takes no permit
+            assertTrue(e.getCause() instanceof KaginawaTimeoutException);
+        }
+        var pending = limiter.schedule(Operation.FIND_NODE_BY_ID, Deadline.after(Duration.ofSeconds(1)), call);
+        assertTrue(pending.cancel(true)); // gives the permits back
+        Thread.sleep(200);
+        assertEquals(0, calls.get());
+        assertEquals(INTERVAL / 2, limiter.reserve(Operation.LIST_HISTORIES));
+        assertEquals(INTERVAL, limiter.reserve(Operation.FIND_NODE_BY_ID));
+    }
+
+    @Test
+    public void testRateLimit_Client() {
+        var client = newClient(RateLimitPolicy.Builder.newBuilder().limit(20, 2).build());
+        var start = System.nanoTime();
+        try {
+            for (int i = 0; i < 3; i++) {
+                client.findNodeById(ID);
+                client.listHistories(ID, 0, 1);
+            }
+        } catch (KaginawaServerException e) {
+            fail(e);
+        }
+        assertTrue(System.nanoTime() - start >= Duration.ofMillis(190).toNanos());
+    }
+
+    @Test
+    public void testRateLimitAsync() {
+        var client = newClient(RateLimitPolicy.Builder.newBuilder().limit(Operation.FIND_NODE_BY_ID, 20, 1).build());
+        var start = System.nanoTime();
+        var futures = new ArrayList<CompletableFuture<Report>>();
+        for (int i = 0; i < 5; i++) {
+            futures.add(client.findNodeByIdAsync(ID));
+        }
+        assertTrue(System.nanoTime() - start < Duration.ofMillis(100).toNanos()); // does not block the caller
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get();
+        } catch (InterruptedException | ExecutionException e) {
+            fail(e);
+        }
+        assertTrue(System.nanoTime() - start >= Duration.ofMillis(190).toNanos());
+        assertEquals(5, server.getRequestCount());
+    }
+
+    @Test
+    public void testRateLimitAsync_Cancel() throws InterruptedException {
+        var client = newClient(RateLimitPolicy.Builder.newBuilder().limit(Operation.FIND_NODE_BY_ID, 5, 1).build());
+        var first = client.findNodeByIdAsync(ID);
+        var second = client.findNodeByIdAsync(ID);
+        assertTrue(second.cancel(true));
+        try {
+            first.get();
+        } catch (ExecutionException e) {
+            fail(e);
+        }
+        Thread.sleep(300);
+        assertFalse(first.isCompletedExceptionally());
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void testPolicy_IAE() {
+        var builder = RateLimitPolicy.Builder.newBuilder();
+        assertThrows(IllegalArgumentException.class, () -> builder.limit(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> builder.limit(Double.NaN, 1));
+        assertThrows(IllegalArgumentException.class, () -> builder.limit(Operation.COMMAND, 1, 0));
+        assertThrows(NullPointerException.class, () -> builder.limit(null, 1, 1));
+        assertFalse(RateLimitPolicy.unlimited().isLimited());
+        assertTrue(builder.limit(1, 1).build().isLimited());
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+public class KaginawaClientRetryTests {
+    private static final String ID = "02:00:00:00:00:01";
+    private StubServer server;
+    private final Queue<Integer> failures = new ConcurrentLinkedQueue<>();
+    private volatile String retryAfter;
+
+    private String readFile(String filename) {
+        try {
+            return Files.readString(Paths.get(getClass().getResource("/" + filename).toURI()));
+        } catch (IOException | URISyntaxException | NullPointerException e) {
+            throw new RuntimeException("unable to read test file: " + filename, e);
+        }
+    }
+
+    private KaginawaClient newClient(RetryPolicy.Builder policy) {
+        return KaginawaClient.Builder.newBuilder()
+                .endpoint(server.getEndpoint())
+                .apiKey("12345")
+                .retryPolicy(policy.build())
+                .build();
+    }
+
+    private static RetryPolicy.Builder fastPolicy() {
+        return RetryPolicy.Builder.newBuilder().initialBackoff(Duration.ofMillis(1)).maxBackoff(Duration.ofSeconds(2));
+    }
+
+    @BeforeEach
+    public void setUp() {
+        var node = readFile("node.json");
+        server = StubServer.start();
+        server.handle("/nodes", exchange -> {
+            var status = failures.poll();
+            if (status == null) {
+                StubServer.respond(exchange, 200, node);
+                return;
+            }
+            if (retryAfter != null) {
+                exchange.getResponseHeaders().set("Retry-After", retryAfter);
+            }
+            StubServer.respond(exchange, status, "failure " + status);
+        });
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.close();
+    }
+
+    @Test
+    public void testRetry() {
+        failures.addAll(Arrays.asList(503, 502));
+        var client = newClient(fastPolicy());
+        try {
+            assertNotNull(client.findNodeById(ID));
+        } catch (KaginawaServerException e) {
+            fail(e);
+        }
+        assertEquals(3, server.getRequestCount());
+    }
+
+    @Test
+    public void testRetry_MaxAttempts() {
+        failures.addAll(Arrays.asList(503, 503, 503));
+        var client = newClient(fastPolicy().maxAttempts(2));
+        var e = assertThrows(KaginawaServerException.class, () -> client.findNodeById(ID));
+        assertEquals(503, e.getHttpStatus());
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void testRetry_NotRetryableStatus() {
+        failures.add(404);
+        var client = newClient(fastPolicy());
+        var e = assertThrows(KaginawaServerException.class, () -> client.findNodeById(ID));
+        assertEquals(404, e.getHttpStatus());
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void testRetry_Disabled() {
+        failures.add(503);
+        var client = new KaginawaClient(server.getEndpoint(), "12345");
+        assertThrows(KaginawaServerException.class, () -> client.findNodeById(ID));
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void testRetryAfter() {
+        failures.add(429);
+        retryAfter = "1";
+        var client = newClient(fastPolicy());
+        var start = System.nanoTime();
+        try {
+            assertNotNull(client.findNodeById(ID));
+        } catch (KaginawaServerException e) {
+            fail(e);
+        }
+        assertTrue(System.nanoTime() - start >= Duration.ofMillis(900).toNanos());
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void testRetryAfter_TooLong() {
+        failures.add(503);
+        retryAfter = "3600";
+        var client = newClient(fastPolicy());
+        var e = assertThrows(KaginawaServerException.class, () -> client.findNodeById(ID));
+        assertEquals(503, e.getHttpStatus());
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void testRetry_Command() {
+        failures.add(503);
+        var client = newClient(fastPolicy());
+        assertThrows(KaginawaServerException.class, () -> client.command(ID, "uptime", "pi", "", "", 0));
+        assertEquals(1, server.getRequestCount());
+
+        failures.add(503);
+        var retrying = newClient(fastPolicy().retryCommand(true));
+        try {
+            assertNotNull(retrying.command(ID, "uptime", "pi", "", "", 0));
+        } catch (KaginawaServerException e) {
+            fail(e);
+        }
+        assertEquals(3, server.getRequestCount());
+    }
+
+    @Test
+    public void testRetryAsync() {
+        failures.addAll(Arrays.asList(503, 504));
+        var client = newClient(fastPolicy());
+        try {
+            assertNotNull(client.findNodeByIdAsync(ID).get());
+        } catch (InterruptedException | ExecutionException e) {
+            fail(e);
+        }
+        assertEquals(3, server.getRequestCount());
+    }
+
+    @Test
+    public void testRetryAsync_MaxAttempts() {
+        failures.addAll(Arrays.asList(503, 503, 503));
+        var client = newClient(fastPolicy());
+        var e = assertThrows(ExecutionException.class, () -> client.findNodeByIdAsync(ID).get());
+        assertTrue(e.getCause() instanceof KaginawaServerException);
+        assertEquals(503, ((KaginawaServerException) e.getCause()).getHttpStatus());
+        assertEquals(3, server.getRequestCount());
+    }
+
+    @Test
+    public void testRetryBudget() {
+        var now = new AtomicLong(1000);
+        var policy = RetryPolicy.Builder.newBuilder().budgetRatio(0.2).minRetriesPerSecond(0).build();
+        var budget = new RetryBudget(policy, now::get);
+        assertFalse(budget.tryAcquire());
+        for (int i = 0; i < 10; i++) {
+            budget.recordRequest();
+        }
+        assertTrue(budget.tryAcquire());
+        assertTrue(budget.tryAcquire());
+        assertFalse(budget.tryAcquire());
+        now.addAndGet(RetryBudget.WINDOW_SECONDS); // slide out both requests and retries
+        for (int i = 0; i < 5; i++) {
+            budget.recordRequest();
+        }
+        assertTrue(budget.tryAcquire());
+        assertFalse(budget.tryAcquire());
+    }
+
+    @Test
+    public void testRetryPolicy_IAE() {
+        var builder = RetryPolicy.Builder.newBuilder();
+        assertThrows(IllegalArgumentException.class, () -> builder.maxAttempts(0));
+        assertThrows(IllegalArgumentException.class, () -> builder.initialBackoff(Duration.ofMillis(-1)));
+        assertThrows(IllegalArgumentException.class, () -> builder.multiplier(0.5));
+        assertThrows(IllegalArgumentException.class, () -> builder.budgetRatio(-1));
+        assertThrows(NullPointerException.class, () -> builder.maxBackoff(null));
+        assertThrows(IllegalStateException.class,
+                () -> builder.initialBackoff(Duration.ofSeconds(20)).maxBackoff(Duration.ofSeconds(1)).build());
+    }
+}
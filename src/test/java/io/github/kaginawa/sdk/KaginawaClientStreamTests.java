@@ -0,0 +1,133 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+public class KaginawaClientStreamTests {
+    private StubServer server;
+
+    private String readFile(String filename) {
+        try {
+            return Files.readString(Paths.get(getClass().getResource("/" + filename).toURI()));
+        } catch (IOException | URISyntaxException | NullPointerException e) {
+            throw new RuntimeException("unable to read test file: " + filename, e);
+        }
+    }
+
+    @BeforeEach
+    public void setUp() {
+        var alive = readFile("nodes_alive_3.json");
+        var cid = readFile("nodes_cid_3.json");
+        var histories = readFile("histories_9.json");
+        var broken = readFile("not_a_json.txt");
+        server = StubServer.start().handle("/nodes", exchange -> {
+            var uri = exchange.getRequestURI();
+            if (uri.getPath().endsWith("/histories")) {
+                StubServer.respond(exchange, 200, histories);
+            } else if (uri.getQuery().contains("custom-id=broken")) {
+                StubServer.respond(exchange, 200, broken);
+            } else if (uri.getQuery().contains("custom-id=none")) {
+                StubServer.respond(exchange, 200, "null");
+            } else if (uri.getQuery().contains("custom-id=missing")) {
+                StubServer.respond(exchange, 404, "not found");
+            } else if (uri.getQuery().contains("custom-id=")) {
+                StubServer.respond(exchange, 200, cid);
+            } else {
+                StubServer.respond(exchange, 200, alive);
+            }
+        });
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.close();
+    }
+
+    @Test
+    public void testStreamAliveNodes() {
+        var client = new KaginawaClient(server.getEndpoint(), "12345");
+        try (var stream = client.streamAliveNodes(5)) {
+            var ids = stream.map(Report::getCustomId).collect(Collectors.toList());
+            assertEquals(3, ids.size());
+            ids.forEach(id -> assertTrue(id.startsWith("pi")));
+        } catch (KaginawaServerException e) {
+            fail(e);
+        }
+    }
+
+    @Test
+    public void testStreamNodesByCustomId() {
+        var client = new KaginawaClient(server.getEndpoint(), "12345");
+        try (var stream = client.streamNodesByCustomId("test-rpi")) {
+            var list = stream.collect(Collectors.toList());
+            assertEquals(3, list.size());
+            list.forEach(n -> {
+                assertEquals("test-rpi", n.getCustomId());
+                assertTrue(n.getUsbDevices().size() > 0);
+            });
+        } catch (KaginawaServerException e) {
+            fail(e);
+        }
+    }
+
+    @Test
+    public void testStreamHistories() {
+        var client = new KaginawaClient(server.getEndpoint(), "12345");
+        try (var stream = client.streamHistories("test-rpi", 1591361000, 1591362600)) {
+            assertEquals(9, stream.filter(n -> n.getSequence() > 0).count());
+        } catch (KaginawaServerException e) {
+            fail(e);
+        }
+    }
+
+    @Test
+    public void testStreamNodesByCustomId_Null() throws KaginawaServerException {
+        var client = new KaginawaClient(server.getEndpoint(), "12345");
+        try (var stream = client.streamNodesByCustomId("none")) {
+            assertEquals(0, stream.count());
+        }
+    }
+
+    @Test
+    public void testStreamNodesByCustomId_404() {
+        var client = new KaginawaClient(server.getEndpoint(), "12345");
+        var e = assertThrows(KaginawaServerException.class, () -> client.streamNodesByCustomId("missing"));
+        assertEquals(404, e.getHttpStatus());
+    }
+
+    @Test
+    public void testStreamNodesByCustomId_Broken() throws KaginawaServerException {
+        var client = new KaginawaClient(server.getEndpoint(), "12345");
+        try (var stream = client.streamNodesByCustomId("broken")) {
+            assertThrows(UncheckedIOException.class, stream::count);
+        }
+    }
+}
@@ -15,40 +15,32 @@
  */
 package io.github.kaginawa.sdk;
 
+import io.github.kaginawa.sdk.spi.TransportResponse;
 import org.junit.jupiter.api.Test;
-import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
-import org.mockito.Mock;
-import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.io.IOException;
 import java.net.ProxySelector;
 import java.net.URISyntaxException;
 import java.net.http.HttpClient;
-import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
-import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.eq;
-import static org.mockito.Mockito.when;
 
-@ExtendWith(MockitoExtension.class)
 public class KaginawaClientTests {
 
-    @Mock
-    private HttpClient httpClient;
-
-    @Mock
-    private HttpResponse<String> stringResponse;
-
     private String readFile(String filename) {
         try {
             return Files.readString(Paths.get(getClass().getResource("/" + filename).toURI()));
@@ -81,17 +73,90 @@ public class KaginawaClientTests {
         assertThrows(IllegalArgumentException.class, () -> new KaginawaClient("https://example.com", ""));
     }
 
+    @Test
+    public void testBuilder() {
+        var client = KaginawaClient.Builder.newBuilder()
+                .endpoint("https://example.com")
+                .apiKey("12345")
+                .proxy(ProxySelector.getDefault())
+                .compression(false)
+                .build();
+        assertEquals("https://example.com", client.getEndpoint());
+        assertEquals("12345", client.getApiKey());
+        assertFalse(client.isCompression());
+        assertTrue(new KaginawaClient("https://example.com", "12345").isCompression());
+    }
+
+    @Test
+    public void testBuilder_Transport() {
+        var client = KaginawaClient.Builder.newBuilder()
+                .endpoint("https://example.com")
+                .apiKey("12345")
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(3))
+                .httpExecutor(Runnable::run)
+                .requestTimeout(Duration.ofSeconds(10))
+                .build();
+        assertEquals("https://example.com", client.getEndpoint());
+        var shared = HttpClient.newHttpClient();
+        var a = KaginawaClient.Builder.newBuilder().endpoint("https://a.example.com").apiKey("1").httpClient(shared);
+        var b = KaginawaClient.Builder.newBuilder().endpoint("https://b.example.com").apiKey("2").httpClient(shared);
+        assertNotNull(a.build());
+        assertNotNull(b.build());
+    }
+
+    @Test
+    public void testBuilder_ISE() {
+        assertThrows(IllegalStateException.class, () -> KaginawaClient.Builder.newBuilder().build());
+        assertThrows(IllegalStateException.class,
+                () -> KaginawaClient.Builder.newBuilder().endpoint("https://example.com").build());
+        assertThrows(IllegalStateException.class, () -> KaginawaClient.Builder.newBuilder()
+                .endpoint("https://example.com")
+                .apiKey("12345")
+                .httpClient(HttpClient.newHttpClient())
+                .version(HttpClient.Version.HTTP_2)
+                .build());
+        assertThrows(IllegalStateException.class, () -> KaginawaClient.Builder.newBuilder()
+                .endpoint("https://example.com")
+                .apiKey("12345")
+                .transport(InMemoryTransport.of(200, ""))
+                .httpClient(HttpClient.newHttpClient())
+                .build());
+        assertThrows(IllegalStateException.class, () -> KaginawaClient.Builder.newBuilder()
+                .endpoint("https://example.com")
+                .apiKey("12345")
+                .transport("no-such-transport")
+                .build());
+    }
+
+    @Test
+    public void testBuilder_IAE() {
+        var builder = KaginawaClient.Builder.newBuilder();
+        assertThrows(IllegalArgumentException.class, () -> builder.endpoint("foo"));
+        assertThrows(IllegalArgumentException.class, () -> builder.apiKey(""));
+        assertThrows(IllegalArgumentException.class, () -> builder.connectTimeout(Duration.ZERO));
+        assertThrows(IllegalArgumentException.class, () -> builder.requestTimeout(Duration.ofSeconds(-1)));
+    }
+
+    @Test
+    public void testRequestTimeout() {
+        try (var server = StubServer.start()) {
+            server.latency(Duration.ofSeconds(2)).handle("/nodes", e -> StubServer.respond(e, 200, "[]"));
+            var client = KaginawaClient.Builder.newBuilder()
+                    .endpoint(server.getEndpoint())
+                    .apiKey("12345")
+                    .requestTimeout(Duration.ofMillis(100))
+                    .build();
+            var e = assertThrows(KaginawaServerException.class, () -> client.listAliveNodes(5));
+            assertTrue(e.getCause() instanceof HttpTimeoutException);
+        }
+    }
+
     @ParameterizedTest
     @ValueSource(ints = {0, 3}) // nodes_alive_0.json and nodes_alive_3.json
     public void testListAliveNodes(int nOfResponse) {
-        var client = new KaginawaClient("http://example.com", "12345", httpClient);
-        try {
-            when(stringResponse.body()).thenReturn(readFile("nodes_alive_" + nOfResponse + ".json"));
-            when(stringResponse.statusCode()).thenReturn(200);
-            when(httpClient.send(any(), eq(client.getStringHandler()))).thenReturn(stringResponse);
-        } catch (IOException | InterruptedException e) {
-            fail(e);
-        }
+        var transport = InMemoryTransport.of(200, readFile("nodes_alive_" + nOfResponse + ".json"));
+        var client = new KaginawaClient("http://example.com", "12345", transport);
         List<Report> list = null;
         try {
             list = client.listAliveNodes(5);
@@ -114,13 +179,8 @@ public class KaginawaClientTests {
 
     @Test
     public void testListAliveNodes_404() {
-        var client = new KaginawaClient("http://example.com", "12345", httpClient);
-        try {
-            when(stringResponse.statusCode()).thenReturn(404);
-            when(httpClient.send(any(), eq(client.getStringHandler()))).thenReturn(stringResponse);
-        } catch (IOException | InterruptedException e) {
-            fail(e);
-        }
+        var transport = InMemoryTransport.of(404, "");
+        var client = new KaginawaClient("http://example.com", "12345", transport);
         try {
             client.listAliveNodes(5);
             fail("no expected exceptions are thrown");
@@ -131,28 +191,16 @@ public class KaginawaClientTests {
 
     @Test
     public void testListAliveNodes_KSE() {
-        var client = new KaginawaClient("http://example.com", "12345", httpClient);
-        try {
-            when(stringResponse.body()).thenReturn(readFile("not_a_json.txt"));
-            when(stringResponse.statusCode()).thenReturn(200);
-            when(httpClient.send(any(), eq(client.getStringHandler()))).thenReturn(stringResponse);
-        } catch (IOException | InterruptedException e) {
-            fail(e);
-        }
+        var transport = InMemoryTransport.of(200, readFile("not_a_json.txt"));
+        var client = new KaginawaClient("http://example.com", "12345", transport);
         assertThrows(KaginawaServerException.class, () -> client.listAliveNodes(5));
     }
 
     @ParameterizedTest
     @ValueSource(ints = {0, 3}) // nodes_cid_0.json and nodes_cid_3.json
     public void testListNodesByCustomId(int nOfResponse) {
-        var client = new KaginawaClient("http://example.com", "12345", httpClient);
-        try {
-            when(stringResponse.body()).thenReturn(readFile("nodes_cid_" + nOfResponse + ".json"));
-            when(stringResponse.statusCode()).thenReturn(200);
-            when(httpClient.send(any(), eq(client.getStringHandler()))).thenReturn(stringResponse);
-        } catch (IOException | InterruptedException e) {
-            fail(e);
-        }
+        var transport = InMemoryTransport.of(200, readFile("nodes_cid_" + nOfResponse + ".json"));
+        var client = new KaginawaClient("http://example.com", "12345", transport);
         List<Report> list = null;
         try {
             list = client.listNodesByCustomId("test-rpi");
@@ -184,14 +232,8 @@ public class KaginawaClientTests {
 
     @Test
     public void testFindNodeById() {
-        var client = new KaginawaClient("http://example.com", "12345", httpClient);
-        try {
-            when(stringResponse.body()).thenReturn(readFile("node.json"));
-            when(stringResponse.statusCode()).thenReturn(200);
-            when(httpClient.send(any(), eq(client.getStringHandler()))).thenReturn(stringResponse);
-        } catch (IOException | InterruptedException e) {
-            fail(e);
-        }
+        var transport = InMemoryTransport.of(200, readFile("node.json"));
+        var client = new KaginawaClient("http://example.com", "12345", transport);
         Report report = null;
         try {
             report = client.findNodeById("b8:27:eb:73:90:9f");
@@ -208,14 +250,8 @@ public class KaginawaClientTests {
 
     @Test
     public void testFindNodeById_KSE() {
-        var client = new KaginawaClient("http://example.com", "12345", httpClient);
-        try {
-            when(stringResponse.body()).thenReturn("");
-            when(stringResponse.statusCode()).thenReturn(404);
-            when(httpClient.send(any(), eq(client.getStringHandler()))).thenReturn(stringResponse);
-        } catch (IOException | InterruptedException e) {
-            fail(e);
-        }
+        var transport = InMemoryTransport.of(404, "");
+        var client = new KaginawaClient("http://example.com", "12345", transport);
         assertThrows(KaginawaServerException.class, () -> client.findNodeById("foo"));
     }
 
@@ -227,14 +263,8 @@ public class KaginawaClientTests {
 
     @Test
     public void testCommand() {
-        var client = new KaginawaClient("http://example.com", "12345", httpClient);
-        try {
-            when(stringResponse.body()).thenReturn("OK");
-            when(stringResponse.statusCode()).thenReturn(200);
-            when(httpClient.send(any(), eq(client.getStringHandler()))).thenReturn(stringResponse);
-        } catch (IOException | InterruptedException e) {
-            fail(e);
-        }
+        var transport = InMemoryTransport.of(200, "OK");
+        var client = new KaginawaClient("http://example.com", "12345", transport);
         String resp = null;
         try {
             resp = client.command("b8:27:eb:73:90:9f", "echo \"OK\"", "user", "key", "pass", 10);
@@ -256,14 +286,8 @@ public class KaginawaClientTests {
     @ParameterizedTest
     @ValueSource(ints = {0, 9}) // histories_0.json and histories_9.json
     public void testListHistories(int nOfResponse) {
-        var client = new KaginawaClient("http://example.com", "12345", httpClient);
-        try {
-            when(stringResponse.body()).thenReturn(readFile("histories_" + nOfResponse + ".json"));
-            when(stringResponse.statusCode()).thenReturn(200);
-            when(httpClient.send(any(), eq(client.getStringHandler()))).thenReturn(stringResponse);
-        } catch (IOException | InterruptedException e) {
-            fail(e);
-        }
+        var transport = InMemoryTransport.of(200, readFile("histories_" + nOfResponse + ".json"));
+        var client = new KaginawaClient("http://example.com", "12345", transport);
         List<Report> list = null;
         try {
             list = client.listHistories("test-rpi", 1591361000, 1591362600);
@@ -296,14 +320,8 @@ public class KaginawaClientTests {
 
     @Test
     public void testFindSshServerByHostname() {
-        var client = new KaginawaClient("http://example.com", "12345", httpClient);
-        try {
-            when(stringResponse.body()).thenReturn(readFile("server.json"));
-            when(stringResponse.statusCode()).thenReturn(200);
-            when(httpClient.send(any(), eq(client.getStringHandler()))).thenReturn(stringResponse);
-        } catch (IOException | InterruptedException e) {
-            fail(e);
-        }
+        var transport = InMemoryTransport.of(200, readFile("server.json"));
+        var client = new KaginawaClient("http://example.com", "12345", transport);
         SshServer server = null;
         try {
             server = client.findSshServerByHostname("example.com");
@@ -332,14 +350,92 @@ public class KaginawaClientTests {
 
     @Test
     public void testFindSshServerByHostname_KSE() {
-        var client = new KaginawaClient("http://example.com", "12345", httpClient);
+        var transport = InMemoryTransport.of(200, readFile("not_a_json.txt"));
+        var client = new KaginawaClient("http://example.com", "12345", transport);
+        assertThrows(KaginawaServerException.class, () -> client.findSshServerByHostname("example.com"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 3}) // nodes_alive_0.json and nodes_alive_3.json
+    public void testListAliveNodesAsync(int nOfResponse) {
+        var transport = InMemoryTransport.of(200, readFile("nodes_alive_" + nOfResponse + ".json"));
+        var client = new KaginawaClient("http://example.com", "12345", transport, Runnable::run);
+        List<Report> list = null;
         try {
-            when(stringResponse.body()).thenReturn(readFile("not_a_json.txt"));
-            when(stringResponse.statusCode()).thenReturn(200);
-            when(httpClient.send(any(), eq(client.getStringHandler()))).thenReturn(stringResponse);
-        } catch (IOException | InterruptedException e) {
+            list = client.listAliveNodesAsync(5).get();
+        } catch (InterruptedException | ExecutionException e) {
             fail(e);
         }
-        assertThrows(KaginawaServerException.class, () -> client.findSshServerByHostname("example.com"));
+        assertNotNull(list);
+        assertEquals(nOfResponse, list.size());
+    }
+
+    @Test
+    public void testFindNodeByIdAsync() {
+        var transport = InMemoryTransport.of(200, readFile("node.json"));
+        var client = new KaginawaClient("http://example.com", "12345", transport);
+        Report report = null;
+        try {
+            report = client.findNodeByIdAsync("b8:27:eb:73:90:9f").get();
+        } catch (InterruptedException | ExecutionException e) {
+            fail(e);
+        }
+        assertNotNull(report);
+        assertEquals("test-rpi", report.getCustomId());
+    }
+
+    @Test
+    public void testFindNodeByIdAsync_KSE() {
+        var transport = InMemoryTransport.of(404, "");
+        var client = new KaginawaClient("http://example.com", "12345", transport);
+        var e = assertThrows(ExecutionException.class, () -> client.findNodeByIdAsync("foo").get());
+        assertTrue(e.getCause() instanceof KaginawaServerException);
+        assertEquals(404, ((KaginawaServerException) e.getCause()).getHttpStatus());
+    }
+
+    @Test
+    public void testFindNodeByIdAsync_IOException() {
+        var transport = new InMemoryTransport(
+                request -> CompletableFuture.failedFuture(new IOException("connection refused")));
+        var client = new KaginawaClient("http://example.com", "12345", transport);
+        var e = assertThrows(ExecutionException.class, () -> client.findNodeByIdAsync("foo").get());
+        assertTrue(e.getCause() instanceof KaginawaServerException);
+        assertTrue(e.getCause().getCause() instanceof IOException);
+    }
+
+    @Test
+    public void testFindNodeByIdAsync_IAE() {
+        var client = new KaginawaClient("http://example.com", "12345");
+        assertThrows(IllegalArgumentException.class, () -> client.findNodeByIdAsync(""));
+    }
+
+    @Test
+    public void testFindNodeByIdAsync_Cancel() {
+        var exchange = new CompletableFuture<TransportResponse>();
+        var client = new KaginawaClient("http://example.com", "12345", new InMemoryTransport(request -> exchange));
+        var future = client.findNodeByIdAsync("b8:27:eb:73:90:9f");
+        assertTrue(future.cancel(true));
+        assertTrue(exchange.isCancelled());
+    }
+
+    @Test
+    public void testCommandAsync() {
+        var transport = InMemoryTransport.of(200, "OK");
+        var client = new KaginawaClient("http://example.com", "12345", transport);
+        String resp = null;
+        try {
+            resp = client.commandAsync("b8:27:eb:73:90:9f", "echo \"OK\"", "user", "key", "pass", 10).get();
+        } catch (InterruptedException | ExecutionException e) {
+            fail(e);
+        }
+        assertEquals("OK", resp);
+    }
+
+    @Test
+    public void testFindSshServerByHostnameAsync_KSE() {
+        var transport = InMemoryTransport.of(200, readFile("not_a_json.txt"));
+        var client = new KaginawaClient("http://example.com", "12345", transport);
+        var e = assertThrows(ExecutionException.class, () -> client.findSshServerByHostnameAsync("example.com").get());
+        assertTrue(e.getCause() instanceof KaginawaServerException);
     }
 }
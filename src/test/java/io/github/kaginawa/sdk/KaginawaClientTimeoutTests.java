@@ -0,0 +1,170 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+public class KaginawaClientTimeoutTests {
+    private static final String ID = "02:00:00:00:00:01";
+    private volatile int status = 200;
+    private StubServer server;
+
+    private String readFile(String filename) {
+        try {
+            return Files.readString(Paths.get(getClass().getResource("/" + filename).toURI()));
+        } catch (IOException | URISyntaxException | NullPointerException e) {
+            throw new RuntimeException("unable to read test file: " + filename, e);
+        }
+    }
+
+    private KaginawaClient.Builder newBuilder() {
+        return KaginawaClient.Builder.newBuilder().endpoint(server.getEndpoint()).apiKey("12345");
+    }
+
+    @BeforeEach
+    public void setUp() {
+        var node = readFile("node.json");
+        server = StubServer.start().handle("/nodes", exchange -> {
+            if (exchange.getRequestURI().getPath().endsWith("/command")) {
+                StubServer.respond(exchange, 200, "ok");
+            } else {
+                StubServer.respond(exchange, status, status == 200 ? node : "unavailable");
+            }
+        });
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.close();
+    }
+
+    @Test
+    public void testDefaults() {
+        var client = newBuilder().timeout(Operation.LIST_HISTORIES, Duration.ofMinutes(1)).build();
+        assertEquals(Duration.ofSeconds(30), client.getTimeout(Operation.FIND_NODE_BY_ID));
+        assertEquals(Duration.ofMinutes(1), client.getTimeout(Operation.LIST_HISTORIES));
+    }
+
+    @Test
+    public void testTimeout() {
+        server.latency(Duration.ofSeconds(2));
+        var client = newBuilder().timeout(Duration.ofMillis(300)).build();
+        var start = System.nanoTime();
+        var e = assertThrows(KaginawaTimeoutException.class, () -> client.findNodeById(ID));
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 1500);
+        assertEquals(-1, e.getHttpStatus());
+    }
+
+    @Test
+    public void testTimeoutAsync() throws InterruptedException {
+        server.latency(Duration.ofSeconds(2));
+        var client = newBuilder().timeout(Operation.FIND_NODE_BY_ID, Duration.ofMillis(300)).build();
+        var future = client.findNodeByIdAsync(ID);
+        var e = assertThrows(ExecutionException.class, () -> future.get(1500, TimeUnit.MILLISECONDS));
+        assertTrue(e.getCause() instanceof KaginawaTimeoutException, e.getCause().toString());
+    }
+
+    @Test
+    public void testDeadlineCoversRetries() {
+        status = 503;
+        var client = newBuilder()
+                .timeout(Duration.ofMillis(500))
+                .retryPolicy(RetryPolicy.Builder.newBuilder()
+                        .maxAttempts(10)
+                        .initialBackoff(Duration.ofMillis(200))
+                        .multiplier(1)
+                        .minRetriesPerSecond(100)
+                        .build())
+                .build();
+        var start = System.nanoTime();
+        var e = assertThrows(KaginawaServerException.class, () -> client.findNodeById(ID));
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 1000);
+        assertFalse(e instanceof KaginawaTimeoutException); // broken, not slow
+        assertEquals(503, e.getHttpStatus());
+        assertTrue(server.getRequestCount() < 10);
+    }
+
+    @Test
+    public void testDeadlineCoversRateLimit() {
+        var client = newBuilder()
+                .timeout(Duration.ofMillis(200))
+                .rateLimit(RateLimitPolicy.Builder.newBuilder().limit(1, 1).build())
+                .build();
+        try {
+            assertNotNull(client.findNodeById(ID));
+        } catch (KaginawaServerException e) {
+            fail(e);
+        }
+        var start = System.nanoTime();
+        assertThrows(KaginawaTimeoutException.class, () -> client.findNodeById(ID));
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 200); // without waiting
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void testWithTimeout() {
+        server.latency(Duration.ofMillis(500));
+        var client = newBuilder().build();
+        var view = client.withTimeout(Duration.ofMillis(200));
+        assertEquals(Duration.ofMillis(200), view.getTimeout(Operation.FIND_NODE_BY_ID));
+        assertEquals(Duration.ofSeconds(30), client.getTimeout(Operation.FIND_NODE_BY_ID));
+        assertThrows(KaginawaTimeoutException.class, () -> view.findNodeById(ID));
+        try {
+            assertNotNull(client.findNodeById(ID));
+        } catch (KaginawaServerException e) {
+            fail(e);
+        }
+        assertEquals(client.getReceivedBytes(), view.getReceivedBytes());
+    }
+
+    @Test
+    public void testCommandTimeout() {
+        server.latency(Duration.ofMillis(1500));
+        var client = newBuilder().timeout(Operation.COMMAND, Duration.ofMillis(500)).build();
+        try {
+            assertEquals("ok", client.command(ID, "uptime", "pi", null, null, 2));
+        } catch (KaginawaServerException e) {
+            fail(e);
+        }
+        assertThrows(KaginawaTimeoutException.class, () -> client.command(ID, "uptime", "pi", null, null, 0));
+    }
+
+    @Test
+    public void testBuilder_IAE() {
+        var builder = KaginawaClient.Builder.newBuilder();
+        assertThrows(IllegalArgumentException.class, () -> builder.timeout(Duration.ZERO));
+        assertThrows(IllegalArgumentException.class, () -> builder.timeout(Operation.COMMAND, Duration.ofSeconds(-1)));
+        assertThrows(NullPointerException.class, () -> builder.timeout(null, Duration.ofSeconds(1)));
+        assertThrows(NullPointerException.class, () -> builder.timeout(null));
+    }
+}
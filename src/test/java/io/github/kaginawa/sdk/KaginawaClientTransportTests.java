@@ -0,0 +1,231 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import io.github.kaginawa.sdk.spi.TransportRequest;
+import io.github.kaginawa.sdk.spi.TransportResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class KaginawaClientTransportTests {
+    private static final String ENDPOINT = "http://in-memory.example.com";
+
+    private String readFile(String filename) {
+        try {
+            return Files.readString(Paths.get(getClass().getResource("/" + filename).toURI()));
+        } catch (IOException | URISyntaxException | NullPointerException e) {
+            throw new RuntimeException("unable to read test file: " + filename, e);
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        InMemoryTransport.unroute(ENDPOINT);
+    }
+
+    @Test
+    public void testDefaultTransport() {
+        var client = KaginawaClient.Builder.newBuilder().endpoint(ENDPOINT).apiKey("12345").build();
+        assertTrue(client.getTransport() instanceof JdkTransport);
+        var jdk = KaginawaClient.Builder.newBuilder().endpoint(ENDPOINT).apiKey("12345").transport("jdk").build();
+        assertTrue(jdk.getTransport() instanceof JdkTransport);
+    }
+
+    @Test
+    public void testTransportByName() throws KaginawaServerException {
+        var node = readFile("node.json").getBytes(StandardCharsets.UTF_8);
+        InMemoryTransport.route(ENDPOINT, InMemoryTransport.respond(200, node));
+        var client = KaginawaClient.Builder.newBuilder()
+                .endpoint(ENDPOINT)
+                .apiKey("12345")
+                .transport("in-memory")
+                .connectTimeout(Duration.ofSeconds(1))
+                .build();
+        assertTrue(client.getTransport() instanceof InMemoryTransport);
+        assertEquals("test-rpi", client.findNodeById("b8:27:eb:73:90:9f").getCustomId());
+        assertThrows(IllegalArgumentException.class, () -> KaginawaClient.Builder.newBuilder().transport(""));
+    }
+
+    @Test
+    public void testRequests() throws KaginawaServerException {
+        var transport = InMemoryTransport.of(200, "OK");
+        var client = KaginawaClient.Builder.newBuilder()
+                .endpoint(ENDPOINT)
+                .apiKey("12345")
+                .requestTimeout(Duration.ofSeconds(5))
+                .transport(transport)
+                .build();
+        client.findNodeByIdAsync("b8:27:eb:73:90:9f").exceptionally(e -> null).join();
+        assertEquals("OK", client.command("b8:27:eb:73:90:9f", "uptime", "pi", null, "secret", 0));
+        var requests = transport.getRequests();
+        assertEquals(2, requests.size());
+        var get = requests.get(0);
+        assertEquals("GET", get.getMethod());
+        assertEquals(ENDPOINT + "/nodes/b8:27:eb:73:90:9f", get.getUri().toString());
+        assertEquals(List.of("token 12345"), get.getHeaders().get("authorization"));
+        assertEquals(List.of("application/json"), get.getHeaders().get("Accept"));
+        assertEquals(List.of("gzip, deflate"), get.getHeaders().get("Accept-Encoding"));
+        assertEquals(Duration.ofSeconds(5), get.getTimeout());
+        assertNull(get.getBody());
+        var post = requests.get(1);
+        assertEquals("POST", post.getMethod());
+        assertArrayEquals("command=uptime&user=pi&password=secret".getBytes(StandardCharsets.UTF_8),
+                post.getBody());
+    }
+
+    @Test
+    public void testPercentEncoding() throws KaginawaServerException {
+        var transport = InMemoryTransport.of(200, "[]");
+        var client = KaginawaClient.Builder.newBuilder()
+                .endpoint(ENDPOINT)
+                .apiKey("12345")
+                .transport(transport)
+                .build();
+        client.listNodesByCustomId("a b&c=d/é");
+        client.listHistories("b8:27:eb:73:90:9f#1", 0, 0);
+        client.findSshServerByHostnameAsync("../etc?x").exceptionally(e -> null).join();
+        client.command("B8:27:EB:73:90:9F", "ls -l | wc", "p+i", "k=v&", "100%", 0);
+        var requests = transport.getRequests();
+        assertEquals(ENDPOINT + "/nodes?custom-id=a%20b%26c%3Dd%2F%C3%A9", requests.get(0).getUri().toString());
+        assertEquals("a b&c=d/é", requests.get(0).getUri().getQuery().substring("custom-id=".length()));
+        assertEquals(ENDPOINT + "/nodes/b8:27:eb:73:90:9f%231/histories?projection=measurement",
+                requests.get(1).getUri().toString());
+        assertEquals(ENDPOINT + "/servers/..%2Fetc%3Fx", requests.get(2).getUri().toString());
+        assertEquals(ENDPOINT + "/nodes/b8:27:eb:73:90:9f/command", requests.get(3).getUri().toString());
+        assertEquals("command=ls%20-l%20%7C%20wc&user=p%2Bi&key=k%3Dv%26&password=100%25",
+                new String(requests.get(3).getBody(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testRequestTemplate() {
+        var template = TransportRequest.Builder.newBuilder(URI.create(ENDPOINT))
+                .header("Authorization", "token 12345")
+                .timeout(Duration.ofSeconds(5))
+                .maxResponseSize(1024)
+                .build();
+        var shared = TransportRequest.Builder.newBuilder(URI.create(ENDPOINT + "/nodes"), template).build();
+        assertEquals(ENDPOINT + "/nodes", shared.getUri().toString());
+        assertEquals("GET", shared.getMethod());
+        assertEquals(Duration.ofSeconds(5), shared.getTimeout());
+        assertEquals(1024, shared.getMaxResponseSize());
+        assertSame(template.getHeaders(), shared.getHeaders());
+        var extended = TransportRequest.Builder.newBuilder(URI.create(ENDPOINT + "/nodes"), template)
+                .header("authorization", "token 67890")
+                .header("If-None-Match", "\"1\"")
+                .build();
+        assertEquals(List.of("token 12345", "token 67890"), extended.getHeaders().get("Authorization"));
+        assertEquals(List.of("\"1\""), extended.getHeaders().get("if-none-match"));
+        assertEquals(1, template.getHeaders().size());
+        assertEquals(List.of("token 12345"), template.getHeaders().get("Authorization"));
+    }
+
+    @Test
+    public void testInvalidHeader() {
+        var builder = TransportRequest.Builder.newBuilder(URI.create(ENDPOINT));
+        assertThrows(IllegalArgumentException.class, () -> builder.header("Authorization", "token 12345\n"));
+        assertThrows(IllegalArgumentException.class, () -> builder.header("Authorization", "token 1\r\nHost: x"));
+        assertThrows(IllegalArgumentException.class, () -> builder.header("Authorization", "token \u0000"));
+        assertThrows(IllegalArgumentException.class, () -> builder.header("X Key", "12345"));
+        assertThrows(IllegalArgumentException.class, () -> builder.header("X-Key:", "12345"));
+        builder.header("X-Key", "a\tb \"c\"");
+        assertThrows(IllegalArgumentException.class,
+                () -> new KaginawaClient(ENDPOINT, "12345\n", InMemoryTransport.of(200, "OK")));
+    }
+
+    @Test
+    public void testCompressedBody() throws IOException, KaginawaServerException {
+        var nodes = readFile("nodes_cid_3.json").getBytes(StandardCharsets.UTF_8);
+        var compressed = new ByteArrayOutputStream();
+        try (var out = new GZIPOutputStream(compressed)) {
+            out.write(nodes);
+        }
+        var client = new KaginawaClient(ENDPOINT, "12345", new InMemoryTransport(
+                InMemoryTransport.respond(200, compressed.toByteArray(), "Content-Encoding", "gzip")));
+        assertEquals(3, client.listNodesByCustomId("test-rpi").size());
+        assertEquals(compressed.size(), client.getReceivedBytes());
+        assertEquals(nodes.length, client.getDecodedBytes());
+    }
+
+    @Test
+    public void testStreaming() throws KaginawaServerException {
+        var histories = readFile("histories_9.json").getBytes(StandardCharsets.UTF_8);
+        var client = new KaginawaClient(ENDPOINT, "12345",
+                new InMemoryTransport(InMemoryTransport.respond(200, histories)));
+        try (var stream = client.streamHistories("test-rpi", 0, 0)) {
+            assertEquals(9, stream.count());
+        }
+    }
+
+    @Test
+    public void testTimeout() {
+        var client = KaginawaClient.Builder.newBuilder()
+                .endpoint(ENDPOINT)
+                .apiKey("12345")
+                .requestTimeout(Duration.ofMillis(100))
+                .transport(new InMemoryTransport(request -> new CompletableFuture<>()))
+                .build();
+        var e = assertThrows(KaginawaTimeoutException.class, () -> client.findNodeById("b8:27:eb:73:90:9f"));
+        assertTrue(e.getCause() instanceof HttpTimeoutException);
+        var async = assertThrows(ExecutionException.class, () -> client.findNodeByIdAsync("b8:27:eb:73:90:9f").get());
+        assertTrue(async.getCause() instanceof KaginawaTimeoutException);
+    }
+
+    @Test
+    public void testRetry() throws KaginawaServerException {
+        var node = readFile("node.json").getBytes(StandardCharsets.UTF_8);
+        var attempts = new AtomicInteger();
+        var client = KaginawaClient.Builder.newBuilder()
+                .endpoint(ENDPOINT)
+                .apiKey("12345")
+                .retryPolicy(RetryPolicy.Builder.newBuilder()
+                        .maxAttempts(3)
+                        .initialBackoff(Duration.ofMillis(1))
+                        .minRetriesPerSecond(10)
+                        .build())
+                .transport(new InMemoryTransport(request -> {
+                    TransportResponse response = attempts.incrementAndGet() < 3
+                            ? InMemoryTransport.response(503, new byte[0])
+                            : InMemoryTransport.response(200, node);
+                    return CompletableFuture.completedFuture(response);
+                }))
+                .build();
+        assertNotNull(client.findNodeById("b8:27:eb:73:90:9f"));
+        assertEquals(3, attempts.get());
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ReportViewTests {
+    private static final String ENDPOINT = "http://in-memory.example.com";
+
+    private byte[] readFile(String filename) {
+        try {
+            return Files.readAllBytes(Paths.get(getClass().getResource("/" + filename).toURI()));
+        } catch (IOException | URISyntaxException | NullPointerException e) {
+            throw new RuntimeException("unable to read test file: " + filename, e);
+        }
+    }
+
+    private static ReportView view(String json) throws JsonDecodingException {
+        var bytes = json.getBytes(StandardCharsets.UTF_8);
+        return (ReportView) LazyJsonCodec.INSTANCE.decodeReport(bytes, 0, bytes.length);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"nodes_alive_3.json", "nodes_cid_3.json", "histories_9.json"})
+    public void testSameAsDecoded(String filename) throws JsonDecodingException {
+        var json = readFile(filename);
+        var views = LazyJsonCodec.INSTANCE.decodeReports(json, 0, json.length);
+        var reports = JsonDecoder.decodeReports(json, 0, json.length);
+        assertEquals(reports.size(), views.size());
+        for (int i = 0; i < reports.size(); i++) {
+            assertTrue(views.get(i) instanceof ReportView);
+            JsonDecoderTests.assertSameReport(reports.get(i), views.get(i));
+        }
+    }
+
+    @Test
+    public void testDecodeOnFirstAccess() throws JsonDecodingException {
+        var json = readFile("node.json");
+        var view = (ReportView) LazyJsonCodec.INSTANCE.decodeReport(json, 0, json.length);
+        assertEquals("", view.id);
+        assertSame(Collections.emptyList(), view.usbDevices);
+        assertEquals("b8:27:eb:73:90:9f", view.getId());
+        assertEquals("b8:27:eb:73:90:9f", view.id);
+        assertSame(Collections.emptyList(), view.usbDevices);
+        assertEquals(4, view.getUsbDevices().size());
+        assertSame(view.getUsbDevices(), view.getUsbDevices());
+        assertEquals("", view.getKernelVersion()); // absent
+        assertEquals(1591270237, view.getServerTime().toEpochSecond());
+        assertTrue(view.getDiskUtilizationPercentage() > 0);
+    }
+
+    @Test
+    public void testMismatchOnAccess() throws JsonDecodingException {
+        var view = view("{\"id\":\"a\",\"seq\":\"x\",\"errors\":null,\"trigger\":null}");
+        assertEquals("a", view.getId());
+        assertNull(view.getErrors());
+        assertEquals(0, view.getTrigger());
+        var e = assertThrows(UncheckedIOException.class, view::getSequence);
+        assertTrue(e.getCause() instanceof JsonDecodingException);
+        assertEquals(16, ((JsonDecodingException) e.getCause()).getOffset());
+        assertThrows(JsonDecodingException.class, () -> view("{\"id\":\"a\",\"seq\":}"));
+        assertThrows(JsonDecodingException.class, () -> view("{\"id\":\"a\"} {"));
+        assertNull(view(" null "));
+    }
+
+    @Test
+    public void testInputCopied() throws JsonDecodingException {
+        var json = "[{\"id\":\"a\"},{\"id\":\"b\"}]".getBytes(StandardCharsets.UTF_8);
+        var views = LazyJsonCodec.INSTANCE.decodeReports(json, 0, json.length);
+        json[8] = 'x';
+        assertEquals("a", views.get(0).getId());
+        assertEquals("b", views.get(1).getId());
+    }
+
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        var json = readFile("histories_9.json");
+        var expected = JsonDecoder.decodeReports(json, 0, json.length);
+        List<Function<Report, Object>> getters = List.of(
+                Report::getErrors, Report::getUsbDevices, Report::getBdLocalDevices, Report::getHostname);
+        for (int round = 0; round < 20; round++) {
+            var views = LazyJsonCodec.INSTANCE.decodeReports(json, 0, json.length);
+            var start = new CountDownLatch(1);
+            var futures = new ArrayList<CompletableFuture<Void>>();
+            for (var getter : getters) {
+                futures.add(CompletableFuture.runAsync(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                    for (int i = 0; i < views.size(); i++) {
+                        getter.apply(views.get(i)); // each thread decodes a different field first
+                        JsonDecoderTests.assertSameReport(expected.get(i), views.get(i));
+                    }
+                }));
+            }
+            start.countDown();
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get();
+        }
+    }
+
+    @Test
+    public void testClient() throws KaginawaServerException {
+        var histories = new String(readFile("histories_9.json"), StandardCharsets.UTF_8);
+        var client = KaginawaClient.Builder.newBuilder()
+                .endpoint(ENDPOINT)
+                .apiKey("12345")
+                .transport(InMemoryTransport.of(200, histories))
+                .jsonCodec("lazy")
+                .build();
+        List<Report> reports = client.listHistories("test-rpi", 0, 0);
+        assertEquals(9, reports.size());
+        assertTrue(reports.get(0) instanceof ReportView);
+        try (var stream = client.streamHistories("test-rpi", 0, 0)) {
+            assertEquals(reports.get(8).getSequence(), stream.reduce((a, b) -> b).orElseThrow().getSequence());
+        }
+    }
+}
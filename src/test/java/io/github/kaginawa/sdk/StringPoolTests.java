@@ -0,0 +1,206 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.kaginawa.sdk;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StringPoolTests {
+    private static final String ENDPOINT = "http://in-memory.example.com";
+
+    private byte[] readFile(String filename) {
+        try {
+            return Files.readAllBytes(Paths.get(getClass().getResource("/" + filename).toURI()));
+        } catch (IOException | URISyntaxException | NullPointerException e) {
+            throw new RuntimeException("unable to read test file: " + filename, e);
+        }
+    }
+
+    private static String intern(StringPool pool, String value) {
+        var bytes = ("\"" + value + "\"").getBytes(StandardCharsets.UTF_8);
+        return pool.intern(bytes, 1, bytes.length - 2);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        InMemoryTransport.unroute(ENDPOINT);
+    }
+
+    @Test
+    public void testPolicy() {
+        assertFalse(StringPoolPolicy.disabled().isEnabled());
+        var policy = StringPoolPolicy.Builder.newBuilder().build();
+        assertTrue(policy.isEnabled());
+        assertEquals(1024, policy.getMaxSize());
+        assertEquals(64, policy.getMaxLength());
+        assertEquals(StringPoolPolicy.Eviction.REPLACE, policy.getEviction());
+        assertThrows(IllegalArgumentException.class, () -> StringPoolPolicy.Builder.newBuilder().maxSize(0));
+        assertThrows(IllegalArgumentException.class,
+                () -> StringPoolPolicy.Builder.newBuilder().maxSize(StringPoolPolicy.MAX_SIZE + 1));
+        assertThrows(IllegalArgumentException.class, () -> StringPoolPolicy.Builder.newBuilder().maxLength(0));
+        assertThrows(NullPointerException.class, () -> StringPoolPolicy.Builder.newBuilder().eviction(null));
+        assertEquals(4, new StringPool(StringPoolPolicy.Builder.newBuilder().maxSize(1).build()).capacity());
+        assertEquals(128, new StringPool(StringPoolPolicy.Builder.newBuilder().maxSize(100).build()).capacity());
+        assertEquals(128, new StringPool(StringPoolPolicy.Builder.newBuilder().maxSize(128).build()).capacity());
+    }
+
+    @Test
+    public void testIntern() {
+        var pool = new StringPool(StringPoolPolicy.Builder.newBuilder().maxLength(8).build());
+        var first = intern(pool, "linux arm");
+        assertEquals("linux arm", first);
+        assertNotSame(first, intern(pool, "linux arm")); // longer than max length
+        var ext4 = intern(pool, "ext4");
+        assertEquals("ext4", ext4);
+        assertSame(ext4, intern(pool, "ext4"));
+        assertSame(ext4, intern(pool, "ext4"));
+        assertEquals("/", intern(pool, "/"));
+        assertEquals("é", intern(pool, "é"));
+        assertSame(intern(pool, "é"), intern(pool, "é"));
+        assertSame("", intern(pool, ""));
+        assertEquals(3, pool.size());
+    }
+
+    @Test
+    public void testEvictionNone() {
+        var pool = new StringPool(StringPoolPolicy.Builder.newBuilder()
+                .maxSize(4)
+                .eviction(StringPoolPolicy.Eviction.NONE)
+                .build());
+        var pooled = new ArrayList<String>();
+        for (int i = 0; i < 4; i++) {
+            pooled.add(intern(pool, "v0.0." + i));
+        }
+        assertEquals(4, pool.size());
+        assertNotSame(intern(pool, "v0.0.4"), intern(pool, "v0.0.4"));
+        for (int i = 0; i < 4; i++) {
+            assertSame(pooled.get(i), intern(pool, "v0.0." + i));
+        }
+    }
+
+    @Test
+    public void testEvictionReplace() {
+        var pool = new StringPool(StringPoolPolicy.Builder.newBuilder().maxSize(4).build());
+        var pooled = new ArrayList<String>();
+        for (int i = 0; i < 4; i++) {
+            pooled.add(intern(pool, "v0.0." + i));
+        }
+        var replacing = intern(pool, "v0.0.4");
+        assertSame(replacing, intern(pool, "v0.0.4"));
+        assertEquals(4, pool.size());
+        int kept = 0;
+        for (int i = 0; i < 4; i++) {
+            if (pooled.get(i) == intern(pool, "v0.0." + i)) {
+                kept++;
+            }
+        }
+        assertTrue(kept < 4);
+    }
+
+    @Test
+    public void testConcurrentIntern() throws Exception {
+        var pool = new StringPool(StringPoolPolicy.Builder.newBuilder().maxSize(8).build());
+        var start = new CountDownLatch(1);
+        var futures = new ArrayList<CompletableFuture<Void>>();
+        for (int t = 0; t < 4; t++) {
+            futures.add(CompletableFuture.runAsync(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                for (int i = 0; i < 10000; i++) {
+                    var value = "eth" + i % 32;
+                    assertEquals(value, intern(pool, value));
+                }
+            }));
+        }
+        start.countDown();
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get();
+        assertTrue(pool.size() <= 8);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"builtin", "lazy"})
+    public void testDecoding(String codec) throws KaginawaServerException {
+        InMemoryTransport.route(ENDPOINT, InMemoryTransport.respond(200, readFile("nodes_cid_3.json")));
+        var client = KaginawaClient.Builder.newBuilder()
+                .endpoint(ENDPOINT)
+                .apiKey("12345")
+                .transport("in-memory")
+                .jsonCodec(codec)
+                .stringPool(StringPoolPolicy.Builder.newBuilder().build())
+                .build();
+        var reports = client.listNodesByCustomId("test-rpi");
+        var again = client.listNodesByCustomId("test-rpi");
+        assertEquals(3, reports.size());
+        for (var report : List.of(reports.get(1), reports.get(2), again.get(0))) {
+            assertSame(reports.get(0).getRuntime(), report.getRuntime());
+            assertSame(reports.get(0).getAgentVersion(), report.getAgentVersion());
+            assertSame(reports.get(0).getAdapter(), report.getAdapter());
+            assertSame(reports.get(0).getDiskFilesystem(), report.getDiskFilesystem());
+            assertSame(reports.get(0).getSshServerHost(), report.getSshServerHost());
+            assertNotSame(reports.get(0).getCustomId(), report.getCustomId()); // not pooled
+        }
+        var unpooled = KaginawaClient.Builder.newBuilder()
+                .endpoint(ENDPOINT)
+                .apiKey("12345")
+                .transport("in-memory")
+                .jsonCodec(codec)
+                .build()
+                .listNodesByCustomId("test-rpi");
+        for (int i = 0; i < reports.size(); i++) {
+            JsonDecoderTests.assertSameReport(unpooled.get(i), reports.get(i));
+        }
+    }
+
+    @Test
+    public void testDecodingEscapesAndErrors() throws JsonDecodingException {
+        var pool = new StringPool(StringPoolPolicy.Builder.newBuilder().build());
+        var json = ("[{\"runtime\":\"linux\\u0020arm\",\"errors\":[\"timeout\",\"timeout\",null]},"
+                + "{\"runtime\":\"linux arm\",\"errors\":[\"timeout\"],\"kernel_version\":5}]")
+                .getBytes(StandardCharsets.UTF_8);
+        var reports = JsonDecoder.decodeReports(json, 0, json.length, pool);
+        assertEquals("linux arm", reports.get(0).getRuntime());
+        assertEquals("linux arm", reports.get(1).getRuntime());
+        assertEquals("5", reports.get(1).getKernelVersion());
+        var errors = reports.get(0).getErrors();
+        assertEquals(3, errors.size());
+        assertSame(errors.get(0), errors.get(1));
+        assertSame(errors.get(0), reports.get(1).getErrors().get(0));
+        assertNull(errors.get(2));
+    }
+}